@@ -14,8 +14,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -73,8 +75,13 @@ public class RobotController {
             // Store session
             activeSessions.put(sessionId, sessionInfo);
             
-            // Build WebSocket URL
-            String websocketUrl = "/ws/webrtc";
+            // Build WebSocket URL; the socket runs under its own session ID, so the speech
+            // recognition model choice travels with the URL and is applied on connect
+            String websocketUrl = UriComponentsBuilder.fromPath("/ws/webrtc")
+                .queryParamIfPresent("language", Optional.ofNullable(request.getLanguage()))
+                .queryParamIfPresent("domain", Optional.ofNullable(request.getDomain()))
+                .encode()
+                .toUriString();
             
             // Create response
             SessionStartResponse response = new SessionStartResponse(
@@ -210,7 +217,8 @@ public class RobotController {
         try {
             logger.info("Creating Kurento WebRTC session for user: {}", request.getUserId());
             
-            String sessionId = webRTCService.createSession(request.getUserId());
+            String sessionId = webRTCService.createSession(
+                request.getUserId(), request.getLanguage(), request.getDomain());
             
             WebRTCSessionResponse response = new WebRTCSessionResponse(
                 sessionId,
@@ -333,7 +341,8 @@ public class RobotController {
             logger.info("Creating LiveKit WebRTC session for user: {}", request.getUserId());
             
             // Create session via strategy
-            String sessionId = webRTCService.createSession(request.getUserId());
+            String sessionId = webRTCService.createSession(
+                request.getUserId(), request.getLanguage(), request.getDomain());
             
             // Get connection info (token + URL) from strategy
             String connectionInfo = webRTCService.processOffer(sessionId, "");
@@ -409,7 +418,8 @@ public class RobotController {
         try {
             logger.info("Creating Agora WebRTC session for user: {}", request.getUserId());
             
-            String sessionId = webRTCService.createSession(request.getUserId());
+            String sessionId = webRTCService.createSession(
+                request.getUserId(), request.getLanguage(), request.getDomain());
             String connectionInfo = webRTCService.processOffer(sessionId, "");
             
             // Parse connection info JSON
@@ -485,7 +495,8 @@ public class RobotController {
         try {
             logger.info("Creating AliRTC WebRTC session for user: {}", request.getUserId());
 
-            String sessionId = webRTCService.createSession(request.getUserId());
+            String sessionId = webRTCService.createSession(
+                request.getUserId(), request.getLanguage(), request.getDomain());
             String connectionInfo = webRTCService.processOffer(sessionId, "");
 
             // Parse connection info JSON
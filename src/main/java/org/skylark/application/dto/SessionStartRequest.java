@@ -17,6 +17,14 @@ public class SessionStartRequest {
     @JsonProperty("audio_config")
     private AudioConfig audioConfig;
     
+    /** Speech recognition language (e.g. "zh", "en"); null for the default model */
+    @JsonProperty("language")
+    private String language;
+    
+    /** Speech recognition domain (e.g. "medical"); null for the language's general model */
+    @JsonProperty("domain")
+    private String domain;
+    
     public SessionStartRequest() {
     }
     
@@ -41,6 +49,22 @@ public class SessionStartRequest {
         this.audioConfig = audioConfig;
     }
     
+    public String getLanguage() {
+        return language;
+    }
+    
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+    
+    public String getDomain() {
+        return domain;
+    }
+    
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
+    
     /**
      * Audio configuration for the session
      */
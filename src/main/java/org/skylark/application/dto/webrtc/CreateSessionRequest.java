@@ -14,6 +14,14 @@ public class CreateSessionRequest {
     @JsonProperty("userId")
     private String userId;
     
+    /** Speech recognition language (e.g. "zh", "en"); null for the default model */
+    @JsonProperty("language")
+    private String language;
+    
+    /** Speech recognition domain (e.g. "medical"); null for the language's general model */
+    @JsonProperty("domain")
+    private String domain;
+    
     public CreateSessionRequest() {
     }
     
@@ -28,4 +36,20 @@ public class CreateSessionRequest {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+    
+    public String getDomain() {
+        return domain;
+    }
+    
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
 }
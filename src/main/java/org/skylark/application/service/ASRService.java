@@ -2,31 +2,75 @@ package org.skylark.application.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import jakarta.annotation.PostConstruct;
+import org.skylark.application.service.duplex.ModelRouter;
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.audio.WavHeaderParser;
+import org.skylark.common.util.AudioUtils;
+import org.skylark.common.util.FairScheduler;
+import org.skylark.common.util.LatencyTracker;
+import org.skylark.common.util.ModelRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.vosk.Model;
 import org.vosk.Recognizer;
 
 import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ASR (Automatic Speech Recognition) Service Implementation
  * 自动语音识别服务实现
  * 
  * <p>This implementation uses Vosk for offline speech recognition.
- * Supports WAV format audio (16kHz, 16-bit, mono).</p>
+ * Supports raw PCM16 at the model rate or WAV audio of any PCM16 format
+ * (converted to the model rate, mono).</p>
+ * 
+ * <p>Two ways to decode:</p>
+ * <ul>
+ *   <li>{@link #recognize(ByteBuffer)}: one complete utterance, decoded with a throwaway
+ *       recognizer</li>
+ *   <li>{@link #open(String)}: a long-lived per-session {@link Stream} fed raw PCM as frames
+ *       arrive, so decoding overlaps with speech and {@link Stream#finish()} only has to
+ *       flush the last few hundred milliseconds</li>
+ * </ul>
+ * 
+ * <p>All decoding runs on a {@link FairScheduler} sized to the cores: sessions are served
+ * round-robin, short utterances first, and a full queue rejects instead of slowing every
+ * session down. The {@link Model} is shared; each decode uses its own recognizer.
+ * {@link #getDecodeMetrics()} reports queue wait and real-time factor.</p>
+ * 
+ * <p>Optional two-tier cascade ({@code asr.cascade.large.model.dir}): every utterance is
+ * decoded with the small model first; only when its mean word confidence is below
+ * {@code asr.cascade.confidence.threshold}, or {@link ModelRouter} routes the text to tool
+ * calling, is the same audio decoded again with a large model, loaded on first use and
+ * shared. Most turns stay on the cheap path. For a stream the re-decode is a decode job of
+ * its own, costed at the utterance's length, so it does not jump the short-job queue the
+ * way the cheap end-of-utterance flush does.</p>
+ * 
+ * <p>Models live in a {@link ModelRegistry}: besides the default model
+ * ({@code asr.model.dir}), models for other languages or domains can be registered under
+ * {@code asr.registry.models} and chosen per session with
+ * {@link #selectModel(String, String, String)}. They are loaded on demand, shared by the
+ * sessions using them and evicted least recently used first once unused models exceed
+ * {@code asr.registry.budget.mb}.</p>
  * 
  * @author Skylark Team
  * @version 1.0.0
@@ -36,23 +80,120 @@ public class ASRService {
     
     private static final Logger logger = LoggerFactory.getLogger(ASRService.class);
     
+    private static final String PLACEHOLDER_TEXT = "[ASR占位符: 请配置实际的语音识别服务]";
+    
+    /** Key of the cascade's large model in the registry */
+    static final String CASCADE_MODEL_KEY = "cascade-large";
+    
+    /** The default model, pinned in the registry for the service's lifetime */
     private Model voskModel;
+    private ModelRegistry<Model> models;
+    /** Sessions using a model other than the default, by session ID */
+    private final Map<String, String> sessionModels = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, VoskStream> streams = new ConcurrentHashMap<>();
+    
+    /**
+     * Incremental recognition of one session's audio
+     * 单个会话的增量识别流
+     * 
+     * <p>Utterances are decoded one after another on the same recognizer: {@link #finish()}
+     * ends the current one and leaves the stream ready for the next. {@link #accept} only
+     * queues the chunk; decoding happens on the decode pool, in order.</p>
+     */
+    public interface Stream {
+        /**
+         * Queues a chunk of raw PCM16 mono at the model rate for decoding.
+         * 
+         * @param pcm Samples from position to limit (position is not changed; copied)
+         */
+        void accept(ByteBuffer pcm);
+        
+        /**
+         * Text recognized so far in the current utterance (may still change); does not
+         * wait for queued chunks.
+         * 
+         * @return Partial text, empty if nothing yet
+         */
+        String partial();
+        
+        /**
+         * Ends the current utterance and returns its final result, once every chunk
+         * accepted before the call is decoded.
+         * 
+         * @return Map containing "text" and "language" fields, and "confidence" when Vosk
+         *         reported words
+         * @throws Exception if decoding fails or the decode queue is full; the utterance
+         *                   is then discarded
+         */
+        Map<String, String> finish() throws Exception;
+        
+        /**
+         * Discards the current utterance (barge-in) without producing a result.
+         */
+        void reset();
+        
+        /** Bytes accepted in the current utterance */
+        long getUtteranceBytes();
+    }
     
     @Value("${asr.model.dir:models/vosk-model-small-cn-0.22}")
     private String modelDir;
     
-    @Value("${asr.temp.dir:temp/asr}")
-    private String tempDir;
+    @Value("${asr.model.language:zh}")
+    private String defaultModelKey = "zh";
+    
+    @Value("${asr.registry.models:}")
+    private String registryModels = "";
+    
+    @Value("${asr.registry.budget.mb:0}")
+    private long registryBudgetMb;
+    
+    @Value("${asr.registry.preload:}")
+    private String registryPreload = "";
     
     @Value("${asr.sample.rate:16000}")
-    private int sampleRate;
+    private int sampleRate = 16000;
+    
+    @Value("${asr.decode.threads:0}")
+    private int decodeThreads;
+    
+    @Value("${asr.decode.max.queued:256}")
+    private int decodeMaxQueued = 256;
+    
+    @Value("${asr.decode.short.ms:2000}")
+    private int decodeShortMs = 2000;
+    
+    @Value("${asr.decode.aging.ms:1000}")
+    private long decodeAgingMs = FairScheduler.DEFAULT_AGING_MS;
+    
+    @Value("${asr.cascade.large.model.dir:}")
+    private String largeModelDir = "";
+    
+    @Value("${asr.cascade.confidence.threshold:0.8}")
+    private double cascadeThreshold = 0.8;
+    
+    @Value("${asr.cascade.tool.calls:true}")
+    private boolean cascadeOnToolCalls = true;
+    
+    /** Longest streamed utterance kept in memory for a re-decode */
+    static final long MAX_CASCADE_AUDIO_MS = 60_000;
+    
+    private FairScheduler decodeScheduler;
+    private ModelRouter modelRouter = new ModelRouter();
+    
+    /** Set once the large cascade model failed to load, so it is not retried per utterance */
+    private volatile boolean largeModelUnavailable;
+    private final AtomicLong cascadeUtterances = new AtomicLong();
+    private final AtomicLong redecodes = new AtomicLong();
+    private final LatencyTracker redecodeLatency = new LatencyTracker();
     
     /**
      * Initialize Vosk model on service startup.
      */
     @PostConstruct
     public void init() {
+        decodeScheduler();
         try {
             logger.info("正在初始化Vosk ASR模型...");
             logger.info("模型路径: {}", modelDir);
@@ -62,12 +203,15 @@ public class ASRService {
                 logger.warn("Vosk模型目录不存在: {}. ASR服务将使用占位符模式。", modelDir);
                 logger.warn("请从 https://alphacephei.com/vosk/models 下载模型并解压到指定目录。");
                 voskModel = null;
+                preloadModels();
                 return;
             }
             
-            voskModel = new Model(modelDir);
+            // The lease is never closed: the default model stays resident
+            voskModel = models().acquire(defaultModelKey).get();
             logger.info("✅ Vosk ASR模型初始化成功");
             logger.info("采样率: {} Hz", sampleRate);
+            preloadModels();
             
         } catch (Exception e) {
             logger.error("Vosk模型初始化失败", e);
@@ -76,19 +220,31 @@ public class ASRService {
         }
     }
     
+    /**
+     * Uses the application's router for the cascade's tool-calling check.
+     */
+    @Autowired(required = false)
+    public void setModelRouter(ModelRouter modelRouter) {
+        if (modelRouter != null) {
+            this.modelRouter = modelRouter;
+        }
+    }
+    
     /**
      * Clean up resources on service shutdown.
      */
     @PreDestroy
     public void cleanup() {
-        if (voskModel != null) {
-            try {
-                voskModel.close();
-                logger.info("Vosk模型资源已释放");
-            } catch (Exception e) {
-                logger.warn("释放Vosk模型资源时出错", e);
+        streams.values().forEach(VoskStream::close);
+        streams.clear();
+        synchronized (this) {
+            if (decodeScheduler != null) {
+                decodeScheduler.shutdown();
             }
         }
+        models().close();
+        voskModel = null;
+        logger.info("Vosk模型资源已释放");
     }
     
     /**
@@ -102,135 +258,778 @@ public class ASRService {
         if (audioData == null || audioData.length == 0) {
             throw new IllegalArgumentException("Audio data cannot be null or empty");
         }
+        return recognize(ByteBuffer.wrap(audioData));
+    }
+    
+    /**
+     * Recognizes speech from a buffer view without copying it into a new array.
+     * 直接从缓冲区视图识别语音（不拷贝到新数组）
+     * 
+     * <p>Reads the remaining bytes of {@code audioData}; its position is not modified.</p>
+     * 
+     * <p>Accepts either a WAV container (any rate / channel count; the header is parsed,
+     * not assumed to be 44 bytes) or raw PCM16 at {@code asr.sample.rate} mono. Audio in
+     * another format is down-mixed and resampled to the model rate before decoding.</p>
+     * 
+     * @param audioData Audio data view (WAV or raw PCM16 mono at the model rate)
+     * @return Map containing "text" and "language" fields
+     * @throws Exception if recognition fails
+     */
+    public Map<String, String> recognize(ByteBuffer audioData) throws Exception {
+        return recognize(audioData, null);
+    }
+    
+    /**
+     * Recognizes speech on the decode pool, queued fairly behind the session's other work.
+     * 在解码池中识别语音，按会话公平排队
+     * 
+     * @param audioData Audio data view (WAV or raw PCM16 mono at the model rate)
+     * @param sessionId Session the audio belongs to, for fair scheduling; null if none
+     * @return Map containing "text" and "language" fields, and "confidence" (mean word
+     *         confidence, 0..1) when Vosk reported words
+     * @throws Exception if recognition fails, or {@link RejectedExecutionException} if the
+     *                   decode queue is full
+     */
+    public Map<String, String> recognize(ByteBuffer audioData, String sessionId) throws Exception {
+        if (audioData == null || !audioData.hasRemaining()) {
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
         
-        logger.info("正在处理音频数据: {} bytes", audioData.length);
+        logger.info("正在处理音频数据: {} bytes", audioData.remaining());
         
-        // Save audio data temporarily
-        File tempFile = saveTempAudioFile(audioData);
+        ByteBuffer pcm = toModelPcm(audioData);
+        Transcript transcript = decodeScheduler().call(sessionId, audioMillis(pcm.remaining()),
+            () -> performRecognition(pcm, sessionId));
         
-        try {
-            // TODO: Implement actual ASR recognition
-            // For now, return a placeholder message
-            String recognizedText = performRecognition(tempFile);
-            
-            Map<String, String> result = new HashMap<>();
-            result.put("text", recognizedText);
-            result.put("language", "zh");
-            
-            logger.info("识别完成: {}", recognizedText);
-            
-            return result;
-            
-        } finally {
-            // Clean up temporary file using Files.deleteIfExists for robustness
-            if (tempFile != null) {
-                try {
-                    java.nio.file.Files.deleteIfExists(tempFile.toPath());
-                    logger.debug("Cleaned up temporary ASR file: {}", tempFile.getAbsolutePath());
-                } catch (Exception e) {
-                    logger.warn("Failed to delete temp file: {}", tempFile, e);
+        logger.info("识别完成: {}", transcript.text());
+        
+        return transcript.toResult(getLanguage(sessionId));
+    }
+    
+    /**
+     * Returns the session's recognition stream, creating it on first use.
+     * 打开（或复用）会话的流式识别
+     * 
+     * <p>The recognizer behind it lives until {@link #close(String)}, so a session pays the
+     * recognizer setup once rather than per utterance. Creating it may load the session's
+     * model, so that happens outside the stream map; if two callers race, the loser's
+     * stream is closed.</p>
+     * 
+     * @param sessionId Session identifier
+     * @return The session's stream
+     */
+    public Stream open(String sessionId) {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Session ID cannot be null or empty");
+        }
+        VoskStream stream = streams.get(sessionId);
+        if (stream != null) {
+            return stream;
+        }
+        VoskStream created = new VoskStream(sessionId);
+        stream = streams.putIfAbsent(sessionId, created);
+        if (stream != null) {
+            created.close();
+            return stream;
+        }
+        return created;
+    }
+    
+    /**
+     * Releases the session's stream, its recognizer and its model selection.
+     * 释放会话的流式识别资源
+     * 
+     * @param sessionId Session identifier
+     */
+    public void close(String sessionId) {
+        VoskStream stream = sessionId != null ? streams.remove(sessionId) : null;
+        if (stream != null) {
+            stream.close();
+        }
+        if (sessionId != null) {
+            sessionModels.remove(sessionId);
+        }
+    }
+    
+    /**
+     * Chooses the model for a session's later decodes and starts loading it in the
+     * background, so it is usually resident when the first utterance arrives.
+     * 为会话选择识别模型（按语言/领域）并后台预加载
+     * 
+     * <p>Tries {@code language-domain}, then {@code language}; a session whose choice is not
+     * registered uses the default model. A stream already open keeps its model.</p>
+     * 
+     * @param sessionId Session identifier
+     * @param language  Language (e.g. "zh", "en"), may be null
+     * @param domain    Domain (e.g. "medical"), may be null
+     * @return The registry key the session will use
+     */
+    public String selectModel(String sessionId, String language, String domain) {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Session ID cannot be null or empty");
+        }
+        String key = resolveModelKey(language, domain);
+        if (key.equals(defaultModelKey)) {
+            sessionModels.remove(sessionId);
+        } else {
+            sessionModels.put(sessionId, key);
+            models().preload(key);
+        }
+        logger.info("会话 {} 使用ASR模型: {}", sessionId, key);
+        return key;
+    }
+    
+    /**
+     * Language of the model the session decodes with: its registry key up to the first
+     * '-' (e.g. "en" for "en-medical").
+     * 返回会话所用模型的语言
+     * 
+     * @param sessionId Session identifier, or null for the default model
+     * @return Language code
+     */
+    public String getLanguage(String sessionId) {
+        String key = sessionId != null ? sessionModels.get(sessionId) : null;
+        return languageOf(key != null ? key : defaultModelKey);
+    }
+    
+    static String languageOf(String modelKey) {
+        int dash = modelKey.indexOf('-');
+        return dash > 0 ? modelKey.substring(0, dash) : modelKey;
+    }
+    
+    String resolveModelKey(String language, String domain) {
+        ModelRegistry<Model> registry = models();
+        if (language != null && !language.isBlank()) {
+            String lang = language.trim();
+            if (domain != null && !domain.isBlank() && registry.isRegistered(lang + "-" + domain.trim())) {
+                return lang + "-" + domain.trim();
+            }
+            if (registry.isRegistered(lang)) {
+                return lang;
+            }
+            logger.warn("未注册的ASR模型: language={}, domain={}，使用默认模型 {}", language, domain, defaultModelKey);
+        }
+        return defaultModelKey;
+    }
+    
+    /**
+     * Returns decode pool metrics.
+     * 返回解码池指标
+     * 
+     * @return Map with worker threads, queue depth, submitted/completed/rejected/cancelled jobs,
+     *         long jobs promoted by aging, mean/p99/max queue wait (µs), decode real-time
+     *         factor and, for the cascade, re-decode rate and the latency re-decoding added (ms)
+     */
+    public Map<String, Object> getDecodeMetrics() {
+        FairScheduler scheduler = decodeScheduler();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("threads", scheduler.getThreads());
+        metrics.put("queueDepth", scheduler.getQueueDepth());
+        metrics.put("submitted", scheduler.getSubmittedCount());
+        metrics.put("completed", scheduler.getCompletedCount());
+        metrics.put("rejected", scheduler.getRejectedCount());
+        metrics.put("cancelled", scheduler.getCancelledCount());
+        metrics.put("aged", scheduler.getAgedCount());
+        metrics.put("averageQueueWaitMicros", scheduler.getAverageQueueWaitMicros());
+        metrics.put("p99QueueWaitMicros", scheduler.getQueueWaitPercentileMicros(99));
+        metrics.put("maxQueueWaitMicros", scheduler.getMaxQueueWaitMicros());
+        metrics.put("realTimeFactor", scheduler.getRealTimeFactor());
+        metrics.put("streams", streams.size());
+        long checked = cascadeUtterances.get();
+        long redecoded = redecodes.get();
+        metrics.put("models", models().getMetrics());
+        metrics.put("cascadeEnabled", cascadeEnabled());
+        metrics.put("cascadeUtterances", checked);
+        metrics.put("redecodes", redecoded);
+        metrics.put("redecodeRate", checked > 0 ? (double) redecoded / checked : 0.0);
+        metrics.put("averageRedecodeMillis", redecodeLatency.getAverageMillis());
+        metrics.put("p95RedecodeMillis", redecodeLatency.percentile(95));
+        metrics.put("largeModelLoaded", models().isResident(CASCADE_MODEL_KEY));
+        return metrics;
+    }
+    
+    private synchronized FairScheduler decodeScheduler() {
+        if (decodeScheduler == null) {
+            int threads = decodeThreads > 0 ? decodeThreads : Runtime.getRuntime().availableProcessors();
+            decodeScheduler = new FairScheduler("asr-decode", threads, decodeMaxQueued, decodeShortMs,
+                decodeAgingMs);
+            logger.info("ASR解码池: {} 线程, 队列上限 {}, 短语音 ≤ {} ms 优先, 等待超过 {} ms 的任务提前",
+                threads, decodeMaxQueued, decodeShortMs, decodeAgingMs);
+        }
+        return decodeScheduler;
+    }
+    
+    /**
+     * Creates the model registry on first use and registers the configured models:
+     * the default model, {@code asr.registry.models} ("key=dir" pairs separated by commas)
+     * and the cascade's large model.
+     */
+    private synchronized ModelRegistry<Model> models() {
+        if (models == null) {
+            models = new ModelRegistry<>("asr-models", Math.max(0, registryBudgetMb) * 1024 * 1024,
+                new ModelRegistry.Loader<>() {
+                    @Override
+                    public Model load(String location) throws Exception {
+                        if (!new File(location).isDirectory()) {
+                            throw new IOException("Vosk模型目录不存在: " + location);
+                        }
+                        return new Model(location);
+                    }
+                    
+                    @Override
+                    public long footprint(String location) {
+                        return directorySize(location);
+                    }
+                });
+            if (modelDir != null && !modelDir.isBlank()) {
+                models.register(defaultModelKey, modelDir);
+            }
+            for (String pair : registryModels.split(",")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    models.register(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+                } else if (!pair.isBlank()) {
+                    logger.warn("忽略无效的ASR模型配置: {}（应为 key=dir）", pair);
                 }
             }
+            if (cascadeEnabled()) {
+                models.register(CASCADE_MODEL_KEY, largeModelDir);
+            }
+            logger.info("ASR模型注册表: 默认 {}, 内存预算 {} MB (0 = 不限)", defaultModelKey, registryBudgetMb);
         }
+        return models;
+    }
+    
+    private void preloadModels() {
+        Arrays.stream(registryPreload.split(","))
+            .map(String::trim)
+            .filter(key -> !key.isEmpty())
+            .forEach(key -> models().preload(key));
     }
     
     /**
-     * Performs actual speech recognition using Vosk.
+     * A Vosk model takes roughly its size on disk in memory, so the directory size is used
+     * as its footprint.
+     */
+    private static long directorySize(String dir) {
+        try (java.util.stream.Stream<Path> files = Files.walk(Paths.get(dir))) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+    
+    private long audioMillis(long pcmBytes) {
+        return pcmBytes * 1000 / (2L * sampleRate);
+    }
+    
+    /**
+     * Strips a WAV header if present and converts the samples to PCM16 mono at the model rate.
      * 
-     * @param audioFile Audio file to recognize (WAV format)
-     * @return Recognized text
+     * @param audioData WAV or raw PCM16 view (position is not changed)
+     * @return PCM16 mono view at {@code sampleRate}
      */
-    private String performRecognition(File audioFile) {
-        // If Vosk model is not initialized, use placeholder
-        if (voskModel == null) {
-            logger.warn("ASR服务正在使用占位符实现。请配置Vosk模型。");
-            logger.info("音频文件: {} ({} bytes)", audioFile.getAbsolutePath(), audioFile.length());
-            return "[ASR占位符: 请配置实际的语音识别服务]";
+    private ByteBuffer toModelPcm(ByteBuffer audioData) {
+        ByteBuffer view = audioData.duplicate();
+        WavHeaderParser parser = new WavHeaderParser();
+        if (!parser.feed(view) || !parser.isWav()) {
+            return audioData;
         }
-        
-        try (FileInputStream fis = new FileInputStream(audioFile);
-             Recognizer recognizer = new Recognizer(voskModel, sampleRate)) {
+        if (!parser.isPcm16()) {
+            throw new IllegalArgumentException("Unsupported WAV encoding: format=" + parser.getFormatTag()
+                + ", bits=" + parser.getBitsPerSample());
+        }
+        if (parser.getDataLength() >= 0 && parser.getDataLength() < view.remaining()) {
+            view.limit(view.position() + (int) parser.getDataLength());
+        }
+        AudioStreamFormat format = parser.getFormat();
+        if (format.getSampleRate() != sampleRate || format.getChannels() != 1) {
+            logger.debug("Converting ASR input from {} to {} Hz mono", format, sampleRate);
+        }
+        return AudioUtils.convertPcm16(view.slice(), format, sampleRate, 1);
+    }
+    
+    /**
+     * Performs actual speech recognition using Vosk.
+     * 
+     * @param pcm PCM16 mono samples at the model rate
+     * @return Recognized text and its confidence
+     */
+    private Transcript performRecognition(ByteBuffer pcm, String sessionId) {
+        try (ModelRegistry<Model>.Lease lease = sessionModel(sessionId)) {
+            Model model = lease != null ? lease.get() : voskModel;
+            // If Vosk model is not initialized, use placeholder
+            if (model == null) {
+                logger.warn("ASR服务正在使用占位符实现。请配置Vosk模型。");
+                logger.info("音频数据: {} bytes", pcm.remaining());
+                return Transcript.of(PLACEHOLDER_TEXT);
+            }
             
-            logger.debug("开始Vosk识别: {}", audioFile.getName());
+            logger.debug("开始Vosk识别: {} bytes", pcm.remaining());
+            Transcript transcript = redecodeIfNeeded(pcm, decode(model, pcm));
             
-            // Skip WAV header (assumes standard 44-byte header)
-            fis.skip(44);
+            if (transcript.text().isBlank()) {
+                logger.warn("Vosk识别结果为空");
+                return Transcript.of("[无法识别语音内容]");
+            }
+            
+            return transcript;
             
+        } catch (Exception e) {
+            logger.error("Vosk识别过程出错", e);
+            return Transcript.of("[识别失败: " + e.getMessage() + "]");
+        }
+    }
+    
+    /**
+     * Leases the model chosen for the session, loading it if it was evicted.
+     * 
+     * @return Lease, or null if the session uses the default model or its model cannot be
+     *         loaded (the default model is used then)
+     */
+    private ModelRegistry<Model>.Lease sessionModel(String sessionId) {
+        String key = sessionId != null ? sessionModels.get(sessionId) : null;
+        if (key == null) {
+            return null;
+        }
+        try {
+            return models().acquire(key);
+        } catch (Exception e) {
+            logger.warn("会话 {} 的ASR模型 {} 加载失败，使用默认模型: {}", sessionId, key, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Decodes one utterance with a throwaway recognizer, keeping the text Vosk finalizes at
+     * its internal endpoints as well as the final result.
+     */
+    private Transcript decode(Model model, ByteBuffer pcm) throws IOException {
+        try (Recognizer recognizer = new Recognizer(model, sampleRate)) {
+            recognizer.setWords(true);
+            Transcript transcript = new Transcript();
+            ByteBuffer view = pcm.duplicate();
             byte[] buffer = new byte[4096];
-            int bytesRead;
             
-            while ((bytesRead = fis.read(buffer)) != -1) {
+            while (view.hasRemaining()) {
+                int bytesRead = Math.min(buffer.length, view.remaining());
+                view.get(buffer, 0, bytesRead);
                 if (recognizer.acceptWaveForm(buffer, bytesRead)) {
-                    String partialResult = recognizer.getResult();
-                    logger.debug("部分识别结果: {}", partialResult);
+                    transcript.add(readResult(recognizer.getResult()));
                 }
             }
             
-            // Get final result
             String finalResult = recognizer.getFinalResult();
             logger.debug("最终识别结果: {}", finalResult);
-            
-            // Extract text from JSON result
-            String recognizedText = extractTextFromVoskResult(finalResult);
-            
-            if (recognizedText == null || recognizedText.trim().isEmpty()) {
-                logger.warn("Vosk识别结果为空");
-                return "[无法识别语音内容]";
-            }
-            
-            return recognizedText;
-            
+            transcript.add(readResult(finalResult));
+            return transcript;
+        }
+    }
+    
+    /**
+     * Second tier of the cascade: decodes the audio again with the large model when the
+     * small model's result is doubtful. Runs inside the caller's decode job.
+     * 
+     * @param pcm   The utterance, PCM16 mono at the model rate
+     * @param small The small model's result
+     * @return The large model's result, or {@code small} if no re-decode was needed or
+     *         the large model heard nothing
+     */
+    private Transcript redecodeIfNeeded(ByteBuffer pcm, Transcript small) throws IOException {
+        return shouldRedecode(small) ? redecode(pcm, small) : small;
+    }
+    
+    /**
+     * Whether the cascade applies to a small-model result; counts the utterances checked.
+     */
+    private boolean shouldRedecode(Transcript small) {
+        if (!cascadeEnabled() || small.text().isBlank()) {
+            return false;
+        }
+        cascadeUtterances.incrementAndGet();
+        return needsRedecode(small);
+    }
+    
+    /**
+     * Decodes the utterance with the large model.
+     * 
+     * @return The large model's result, or {@code small} if the large model is unavailable
+     *         or heard nothing
+     */
+    private Transcript redecode(ByteBuffer pcm, Transcript small) throws IOException {
+        ModelRegistry<Model>.Lease lease = largeModel();
+        if (lease == null) {
+            return small;
+        }
+        long start = System.nanoTime();
+        Transcript large;
+        try (lease) {
+            large = decode(lease.get(), pcm);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        redecodeLatency.record(millis);
+        redecodes.incrementAndGet();
+        logger.debug("大模型重解码 ({} ms): {} -> {}", millis, small.text(), large.text());
+        return large.text().isBlank() ? small : large;
+    }
+    
+    /**
+     * Whether a small-model result should be decoded again: mean word confidence below the
+     * threshold, or text that {@link ModelRouter} sends to tool calling, where a misheard
+     * word turns into a wrong action.
+     */
+    boolean needsRedecode(Transcript transcript) {
+        double confidence = transcript.confidence();
+        if (!Double.isNaN(confidence) && confidence < cascadeThreshold) {
+            return true;
+        }
+        // Vosk separates Chinese words with spaces; the router's keywords have none
+        return cascadeOnToolCalls && modelRouter.requiresToolCalling(transcript.text().replace(" ", ""));
+    }
+    
+    private boolean cascadeEnabled() {
+        return largeModelDir != null && !largeModelDir.isBlank();
+    }
+    
+    /**
+     * Leases the large cascade model, loading it on first use; a missing or broken model
+     * disables the second tier instead of failing recognition.
+     * 
+     * @return Lease on the shared large model, or null if it cannot be loaded
+     */
+    private ModelRegistry<Model>.Lease largeModel() {
+        if (largeModelUnavailable) {
+            return null;
+        }
+        try {
+            return models().acquire(CASCADE_MODEL_KEY);
         } catch (Exception e) {
-            logger.error("Vosk识别过程出错", e);
-            return "[识别失败: " + e.getMessage() + "]";
+            logger.error("级联大模型加载失败: {}，仅使用小模型", largeModelDir, e);
+            largeModelUnavailable = true;
+            return null;
         }
     }
     
     /**
-     * Extracts recognized text from Vosk JSON result.
+     * Parses a Vosk JSON result.
      * 
      * @param voskResult JSON result from Vosk
-     * @return Extracted text
+     * @return Parsed result, or a missing node if it is not valid JSON
      */
-    private String extractTextFromVoskResult(String voskResult) {
+    private JsonNode readResult(String voskResult) {
         try {
-            JsonNode rootNode = objectMapper.readTree(voskResult);
-            
-            if (rootNode.has("text")) {
-                return rootNode.get("text").asText();
-            }
-            
-            logger.warn("Vosk结果中没有找到'text'字段: {}", voskResult);
-            return "";
-            
+            return objectMapper.readTree(voskResult);
         } catch (Exception e) {
             logger.error("解析Vosk JSON结果失败", e);
-            return "";
+            return MissingNode.getInstance();
         }
     }
     
     /**
-     * Saves audio data to a temporary file.
-     * 
-     * @param audioData Audio data bytes
-     * @return Temporary file
-     * @throws Exception if file creation fails
+     * A finished streaming utterance: the small model's result and, for the cascade, its audio
      */
-    private File saveTempAudioFile(byte[] audioData) throws Exception {
-        Path dirPath = Paths.get(tempDir);
-        if (!Files.exists(dirPath)) {
-            Files.createDirectories(dirPath);
+    private static final class Utterance {
+        final Transcript small;
+        final byte[] audio;
+        
+        Utterance(Transcript small, byte[] audio) {
+            this.small = small;
+            this.audio = audio;
         }
+    }
+    
+    /**
+     * Text and word confidences gathered from the Vosk results of one utterance
+     * 单句识别结果（文本与词级置信度）
+     */
+    static final class Transcript {
+        private final StringBuilder text = new StringBuilder();
+        private double confidenceSum;
+        private int words;
         
-        String filename = "asr_" + UUID.randomUUID().toString().replace("-", "") + ".wav";
-        File tempFile = dirPath.resolve(filename).toFile();
+        static Transcript of(String text) {
+            Transcript transcript = new Transcript();
+            transcript.text.append(text);
+            return transcript;
+        }
         
-        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-            fos.write(audioData);
+        /**
+         * Appends one Vosk result: {@code {"text": ..., "result": [{"word": ..., "conf": ...}]}}
+         * ("result" is present when the recognizer has words enabled).
+         */
+        void add(JsonNode result) {
+            String part = result.path("text").asText("").trim();
+            if (!part.isEmpty()) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(part);
+            }
+            for (JsonNode word : result.path("result")) {
+                confidenceSum += word.path("conf").asDouble(1.0);
+                words++;
+            }
         }
         
-        logger.debug("临时音频文件已保存: {}", tempFile.getAbsolutePath());
+        String text() {
+            return text.toString();
+        }
+        
+        /** Mean word confidence (0..1), or NaN if Vosk reported no words */
+        double confidence() {
+            return words > 0 ? confidenceSum / words : Double.NaN;
+        }
         
-        return tempFile;
+        Map<String, String> toResult(String language) {
+            Map<String, String> result = new HashMap<>();
+            result.put("text", text());
+            result.put("language", language);
+            if (words > 0) {
+                result.put("confidence", String.valueOf(confidence()));
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Stream backed by one Vosk recognizer. Chunks are appended to a pending list and fed to
+     * the recognizer by a drain job on the pool under the session's key; at most one drain
+     * is queued per stream, so a session takes one queue slot however many chunks it sends,
+     * and a drain the full queue refuses leaves its audio pending for the next drain or
+     * {@link #finish()}. A reset is a flag the stream's next job applies before any later
+     * audio, so it cannot be lost. The caller-facing methods never wait for a decode, except
+     * {@link #finish()}. Text Vosk finalizes at its own internal endpoints is kept, so an
+     * utterance with a long pause is not truncated.
+     */
+    private final class VoskStream implements Stream {
+        private final String sessionId;
+        private final Recognizer recognizer;
+        /** Lease on the session's own model; null if it uses the default model */
+        private final ModelRegistry<Model>.Lease modelLease;
+        /** Language of the model the stream was opened with */
+        private final String language;
+        private final AtomicLong utteranceBytes = new AtomicLong();
+        /** Chunks not yet fed to the recognizer; guards itself, drainQueued and resetPending */
+        private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+        private boolean drainQueued;
+        private boolean resetPending;
+        private Transcript transcript = new Transcript();
+        /** The utterance's audio, kept for a cascade re-decode; null if the cascade is off */
+        private final ByteArrayOutputStream utteranceAudio;
+        private boolean audioTruncated;
+        private volatile String partialText = "";
+        private volatile boolean closed;
+        
+        VoskStream(String sessionId) {
+            this.sessionId = sessionId;
+            this.modelLease = sessionModel(sessionId);
+            this.language = languageOf(modelLease != null ? modelLease.getKey() : defaultModelKey);
+            Model model = modelLease != null ? modelLease.get() : voskModel;
+            Recognizer created = null;
+            if (model != null) {
+                try {
+                    created = new Recognizer(model, sampleRate);
+                } catch (Exception e) {
+                    if (modelLease != null) {
+                        modelLease.close();
+                    }
+                    throw new IllegalStateException("Failed to create Vosk recognizer for session " + sessionId, e);
+                }
+            }
+            this.recognizer = created;
+            if (recognizer != null) {
+                recognizer.setWords(true);
+            }
+            this.utteranceAudio = cascadeEnabled() ? new ByteArrayOutputStream() : null;
+            logger.debug("Opened ASR stream for session {}", sessionId);
+        }
+        
+        @Override
+        public void accept(ByteBuffer pcm) {
+            if (closed || pcm == null || !pcm.hasRemaining()) {
+                return;
+            }
+            byte[] chunk = new byte[pcm.remaining()];
+            pcm.duplicate().get(chunk);
+            utteranceBytes.addAndGet(chunk.length);
+            if (recognizer == null) {
+                return;
+            }
+            synchronized (pending) {
+                pending.add(chunk);
+                if (drainQueued) {
+                    return;
+                }
+                drainQueued = true;
+            }
+            decodeScheduler().submit(sessionId, audioMillis(chunk.length), () -> {
+                drain();
+                return null;
+            }).whenComplete((ignored, e) -> {
+                if (e instanceof RejectedExecutionException) {
+                    // The audio stays pending: the next chunk or finish() drains it
+                    synchronized (pending) {
+                        drainQueued = false;
+                    }
+                    logger.debug("ASR解码队列已满，会话 {} 的音频稍后解码", sessionId);
+                } else if (e != null) {
+                    logger.error("会话 {} 流式解码出错", sessionId, e);
+                }
+            });
+        }
+        
+        /**
+         * Feeds the pending chunks to the recognizer, after a pending reset. Runs on the pool
+         * under the session's key.
+         */
+        private void drain() {
+            byte[][] chunks;
+            boolean reset;
+            synchronized (pending) {
+                drainQueued = false;
+                reset = resetPending;
+                resetPending = false;
+                chunks = pending.toArray(new byte[0][]);
+                pending.clear();
+            }
+            decode(reset, chunks);
+        }
+        
+        private synchronized void decode(boolean reset, byte[][] chunks) {
+            if (closed) {
+                return;
+            }
+            if (reset) {
+                recognizer.reset();
+                transcript = new Transcript();
+                takeAudio();
+                partialText = "";
+            }
+            if (chunks.length == 0) {
+                return;
+            }
+            for (byte[] chunk : chunks) {
+                keepAudio(chunk);
+                if (recognizer.acceptWaveForm(chunk, chunk.length)) {
+                    transcript.add(readResult(recognizer.getResult()));
+                }
+            }
+            partialText = join(transcript.text(), extractField(recognizer.getPartialResult(), "partial"));
+        }
+        
+        @Override
+        public String partial() {
+            return partialText;
+        }
+        
+        @Override
+        public Map<String, String> finish() throws Exception {
+            long bytes = utteranceBytes.getAndSet(0);
+            Transcript result;
+            if (recognizer == null) {
+                result = Transcript.of(bytes > 0 ? PLACEHOLDER_TEXT : "");
+            } else {
+                // Cost 0: the tail is short, and a waiting turn should go first
+                Utterance utterance;
+                try {
+                    utterance = decodeScheduler().call(sessionId, 0, () -> {
+                        drain();
+                        return new Utterance(finalTranscript(), takeAudio());
+                    });
+                } catch (Exception e) {
+                    // The utterance is abandoned; keep it out of the next one
+                    reset();
+                    throw e;
+                }
+                result = utterance.small;
+                if (utterance.audio != null && shouldRedecode(utterance.small)) {
+                    // A full decode with the large model: queued at its real cost
+                    byte[] audio = utterance.audio;
+                    result = decodeScheduler().call(sessionId, audioMillis(audio.length),
+                        () -> redecode(ByteBuffer.wrap(audio), utterance.small));
+                }
+            }
+            logger.info("会话 {} 流式识别完成: {} ({} bytes)", sessionId, result.text(), bytes);
+            return result.toResult(language);
+        }
+        
+        private synchronized Transcript finalTranscript() {
+            if (!closed) {
+                transcript.add(readResult(recognizer.getFinalResult()));
+            }
+            Transcript result = transcript;
+            transcript = new Transcript();
+            partialText = "";
+            return result;
+        }
+        
+        private synchronized void keepAudio(byte[] chunk) {
+            if (utteranceAudio == null || audioTruncated) {
+                return;
+            }
+            if (audioMillis(utteranceAudio.size() + chunk.length) > MAX_CASCADE_AUDIO_MS) {
+                audioTruncated = true;
+                utteranceAudio.reset();
+                return;
+            }
+            utteranceAudio.write(chunk, 0, chunk.length);
+        }
+        
+        /**
+         * Hands over the utterance's audio for a re-decode and starts a new one.
+         * 
+         * @return The audio, or null if the cascade is off or the utterance was too long
+         */
+        private synchronized byte[] takeAudio() {
+            if (utteranceAudio == null) {
+                return null;
+            }
+            byte[] audio = closed || audioTruncated ? null : utteranceAudio.toByteArray();
+            utteranceAudio.reset();
+            audioTruncated = false;
+            return audio;
+        }
+        
+        @Override
+        public void reset() {
+            synchronized (pending) {
+                pending.clear();
+                resetPending = true;
+            }
+            utteranceBytes.set(0);
+            partialText = "";
+        }
+        
+        @Override
+        public long getUtteranceBytes() {
+            return utteranceBytes.get();
+        }
+        
+        synchronized void close() {
+            if (!closed && recognizer != null) {
+                recognizer.close();
+            }
+            if (!closed && modelLease != null) {
+                modelLease.close();
+            }
+            closed = true;
+            logger.debug("Closed ASR stream for session {}", sessionId);
+        }
+        
+        private String extractField(String json, String field) {
+            try {
+                JsonNode node = objectMapper.readTree(json).get(field);
+                return node != null ? node.asText() : "";
+            } catch (Exception e) {
+                return "";
+            }
+        }
+        
+        private String join(String head, String tail) {
+            if (tail == null || tail.isBlank()) {
+                return head;
+            }
+            return head.isEmpty() ? tail.trim() : head + " " + tail.trim();
+        }
     }
 }
@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -162,6 +163,60 @@ public class AgentService {
         return responseText != null ? responseText : "";
     }
 
+    /**
+     * Runs a chat turn speculatively, on a fork of the session's memory.
+     * 在会话记忆的副本上推测性地执行一轮对话
+     *
+     * <p>The session's own memory is not touched: the exchange only enters the history if
+     * {@link #commitSpeculation} is called, so a speculation started on a partial
+     * transcript that turns out wrong can simply be dropped. The fork gets no tools, since
+     * a tool call (e.g. a booking) could not be taken back with the dropped turn. The
+     * call can be stopped by interrupting the calling thread.</p>
+     *
+     * @param sessionId Session identifier
+     * @param userText Presumed user input
+     * @return The speculative turn, to commit or drop
+     * @throws Exception if agent interaction fails
+     */
+    public Speculation speculate(String sessionId, String userText) throws Exception {
+        ReActAgent agent = sessionAgents.computeIfAbsent(sessionId, this::createAgent);
+        List<Msg> history = List.copyOf(agent.getMemory().getMessages());
+        InMemoryMemory forkMemory = new InMemoryMemory();
+        history.forEach(forkMemory::addMessage);
+        ReActAgent fork = buildAgent("Skylark-" + sessionId + "-speculative", forkMemory, new Toolkit());
+
+        Msg response = fork.call(Msg.builder().textContent(userText).build()).block();
+        String responseText = response != null ? response.getTextContent() : null;
+
+        List<Msg> all = forkMemory.getMessages();
+        List<Msg> added = new ArrayList<>(all.subList(Math.min(history.size(), all.size()), all.size()));
+        logger.debug("Speculative AgentScope turn for session {} added {} messages", sessionId, added.size());
+        return new Speculation(sessionId, userText, responseText != null ? responseText : "", history.size(), added);
+    }
+
+    /**
+     * Appends a speculative turn to the session's history.
+     * 将推测的对话轮次写入会话历史
+     *
+     * @param speculation Turn returned by {@link #speculate}
+     * @return false if the history changed since the speculation started (nothing is
+     *         appended; the turn should be re-run with {@link #chat})
+     */
+    public boolean commitSpeculation(Speculation speculation) {
+        ReActAgent agent = sessionAgents.get(speculation.getSessionId());
+        if (agent == null) {
+            return false;
+        }
+        Memory memory = agent.getMemory();
+        synchronized (agent) {
+            if (memory.getMessages().size() != speculation.baseHistorySize) {
+                return false;
+            }
+            speculation.messages.forEach(memory::addMessage);
+        }
+        return true;
+    }
+
     /**
      * Registers a tool object with the shared toolkit.
      * Tool methods should be annotated with {@code @Tool} and {@code @ToolParam}
@@ -212,6 +267,15 @@ public class AgentService {
         return List.of();
     }
 
+    /**
+     * Whether any tool is registered, i.e. whether a turn may call tools.
+     *
+     * @return true if the shared toolkit has tools
+     */
+    public boolean hasTools() {
+        return !sharedToolkit.getToolNames().isEmpty();
+    }
+
     /**
      * Gets the AgentScope Toolkit for direct tool management.
      *
@@ -247,14 +311,52 @@ public class AgentService {
      */
     private ReActAgent createAgent(String sessionId) {
         logger.info("Creating AgentScope ReActAgent for session: {}", sessionId);
+        return buildAgent("Skylark-" + sessionId, new InMemoryMemory(), sharedToolkit);
+    }
 
+    private ReActAgent buildAgent(String name, Memory memory, Toolkit toolkit) {
         return ReActAgent.builder()
-            .name("Skylark-" + sessionId)
+            .name(name)
             .sysPrompt(systemPrompt)
             .model(chatModel)
-            .toolkit(sharedToolkit)
-            .memory(new InMemoryMemory())
+            .toolkit(toolkit)
+            .memory(memory)
             .maxIters(maxIters)
             .build();
     }
+
+    /**
+     * A chat turn run on a fork of a session's memory
+     * 在会话记忆副本上执行的对话轮次
+     */
+    public static final class Speculation {
+        private final String sessionId;
+        private final String userText;
+        private final String response;
+        private final int baseHistorySize;
+        private final List<Msg> messages;
+
+        public Speculation(String sessionId, String userText, String response, int baseHistorySize,
+                           List<Msg> messages) {
+            this.sessionId = sessionId;
+            this.userText = userText;
+            this.response = response;
+            this.baseHistorySize = baseHistorySize;
+            this.messages = messages;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        /** User input the turn was run with */
+        public String getUserText() {
+            return userText;
+        }
+
+        /** Agent response text */
+        public String getResponse() {
+            return response;
+        }
+    }
 }
@@ -0,0 +1,261 @@
+package org.skylark.application.service;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ONNX Runtime Session Factory
+ * ONNX Runtime 会话工厂
+ *
+ * <p>Creates {@link OrtSession}s from a {@link Settings} block so every ONNX model in the
+ * service (Silero VAD today, FireRedVAD in {@code TripleVADEngine} later) is tuned the
+ * same way: thread pools, graph optimization level, execution mode and allocator.</p>
+ *
+ * <p>When an optimized-model cache directory is configured, the first start writes the
+ * graph after ONNX Runtime's optimizations to
+ * {@code <cacheDir>/<model>.<level>.<size>-<mtime>.ort<version>-<cpu>.onnx}; later starts
+ * load that file with optimizations disabled and skip the optimization pass. Extended and
+ * all-level graphs contain kernels and layouts chosen for the runtime version and CPU that
+ * wrote them, so the key holds the ONNX Runtime version and a hash of the CPU (architecture,
+ * model and instruction-set flags) besides the source model and level: a cache directory
+ * shared between hosts or kept across an upgrade is never read by the wrong runtime.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class OnnxSessionFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnnxSessionFactory.class);
+
+    /** Hash of the CPU identity, computed once */
+    private static volatile String cpuKey;
+
+    private OnnxSessionFactory() {
+    }
+
+    /**
+     * Creates a session for a model file.
+     * 为模型文件创建会话
+     *
+     * @param env       ONNX environment
+     * @param modelPath Model file
+     * @param settings  Session settings
+     * @return New session
+     * @throws OrtException if ONNX Runtime rejects the model or options
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public static OrtSession create(OrtEnvironment env, String modelPath, Settings settings) throws OrtException {
+        OrtSession.SessionOptions.OptLevel level = parseOptLevel(settings.getOptimizationLevel());
+        Path cached = cachedModelPath(modelPath, settings.getOptimizedModelDir(), level,
+            runtimeKey(env.getVersion()));
+
+        if (cached != null && Files.isRegularFile(cached)) {
+            try (OrtSession.SessionOptions options = buildOptions(settings, OrtSession.SessionOptions.OptLevel.NO_OPT)) {
+                OrtSession session = env.createSession(cached.toString(), options);
+                logger.info("Loaded pre-optimized ONNX model: {}", cached);
+                return session;
+            } catch (OrtException e) {
+                logger.warn("Optimized model cache {} unusable ({}), rebuilding", cached, e.getMessage());
+                deleteQuietly(cached);
+            }
+        }
+
+        try (OrtSession.SessionOptions options = buildOptions(settings, level)) {
+            if (cached != null) {
+                try {
+                    Files.createDirectories(cached.getParent());
+                    options.setOptimizedModelFilePath(cached.toString());
+                } catch (Exception e) {
+                    logger.warn("Cannot write optimized model cache {}: {}", cached, e.getMessage());
+                }
+            }
+            OrtSession session = env.createSession(modelPath, options);
+            if (cached != null && Files.isRegularFile(cached)) {
+                logger.info("Saved optimized ONNX model: {}", cached);
+            }
+            return session;
+        }
+    }
+
+    private static OrtSession.SessionOptions buildOptions(Settings settings, OrtSession.SessionOptions.OptLevel level)
+            throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        try {
+            if (settings.getIntraOpThreads() > 0) {
+                options.setIntraOpNumThreads(settings.getIntraOpThreads());
+            }
+            if (settings.getInterOpThreads() > 0) {
+                options.setInterOpNumThreads(settings.getInterOpThreads());
+            }
+            options.setOptimizationLevel(level);
+            options.setExecutionMode(parseExecutionMode(settings.getExecutionMode()));
+            options.setCPUArenaAllocator(settings.isCpuArena());
+            options.setMemoryPatternOptimization(settings.isMemoryPattern());
+            return options;
+        } catch (OrtException | RuntimeException e) {
+            options.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Cache file for the optimized model, or null when caching is off or the model is missing
+     *
+     * @param runtime Runtime and hardware part of the key, see {@link #runtimeKey}
+     */
+    static Path cachedModelPath(String modelPath, String cacheDir, OrtSession.SessionOptions.OptLevel level,
+                                String runtime) {
+        if (cacheDir == null || cacheDir.trim().isEmpty() || level == OrtSession.SessionOptions.OptLevel.NO_OPT) {
+            return null;
+        }
+        File model = new File(modelPath);
+        if (!model.isFile()) {
+            return null;
+        }
+        String name = model.getName().replaceFirst("\\.onnx$", "");
+        String key = name + "." + level.name().toLowerCase(Locale.ROOT) + "."
+            + model.length() + "-" + model.lastModified() + "." + runtime + ".onnx";
+        return Paths.get(cacheDir, key);
+    }
+
+    /**
+     * Key part naming the ONNX Runtime version and this CPU, e.g. {@code ort1.16.3-3fa2c81e09bd}
+     */
+    static String runtimeKey(String ortVersion) {
+        String version = ortVersion == null ? "unknown" : ortVersion.replaceAll("[^A-Za-z0-9.]", "_");
+        String cpu = cpuKey;
+        if (cpu == null) {
+            cpu = sha256Prefix(cpuIdentity());
+            cpuKey = cpu;
+        }
+        return "ort" + version + "-" + cpu;
+    }
+
+    /**
+     * Architecture plus, on Linux, the CPU model and feature flags (x86 {@code flags},
+     * ARM {@code Features}); falls back to architecture and core count elsewhere.
+     */
+    private static String cpuIdentity() {
+        StringBuilder identity = new StringBuilder(System.getProperty("os.arch", "unknown"));
+        try {
+            List<String> lines = Files.readAllLines(Paths.get("/proc/cpuinfo"));
+            for (String field : new String[]{"model name", "flags", "Features", "CPU implementer", "CPU part"}) {
+                for (String line : lines) {
+                    if (line.startsWith(field) && line.contains(":")) {
+                        identity.append('|').append(line.substring(line.indexOf(':') + 1).trim());
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            identity.append('|').append(Runtime.getRuntime().availableProcessors());
+        }
+        return identity.toString();
+    }
+
+    private static String sha256Prefix(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    static OrtSession.SessionOptions.OptLevel parseOptLevel(String value) {
+        switch (value == null ? "all" : value.trim().toLowerCase(Locale.ROOT)) {
+            case "none":
+                return OrtSession.SessionOptions.OptLevel.NO_OPT;
+            case "basic":
+                return OrtSession.SessionOptions.OptLevel.BASIC_OPT;
+            case "extended":
+                return OrtSession.SessionOptions.OptLevel.EXTENDED_OPT;
+            case "all":
+                return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+            default:
+                throw new IllegalArgumentException(
+                    "Unknown ONNX optimization level: " + value + " (none, basic, extended, all)");
+        }
+    }
+
+    static OrtSession.SessionOptions.ExecutionMode parseExecutionMode(String value) {
+        switch (value == null ? "sequential" : value.trim().toLowerCase(Locale.ROOT)) {
+            case "sequential":
+                return OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
+            case "parallel":
+                return OrtSession.SessionOptions.ExecutionMode.PARALLEL;
+            default:
+                throw new IllegalArgumentException(
+                    "Unknown ONNX execution mode: " + value + " (sequential, parallel)");
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (Exception e) {
+            logger.debug("Failed to delete {}", path, e);
+        }
+    }
+
+    /**
+     * ONNX session settings
+     * ONNX 会话配置
+     */
+    public static class Settings {
+        /** Threads inside one operator; 1 avoids oversubscription when many sessions infer concurrently (0 = ORT default) */
+        private int intraOpThreads = 1;
+        /** Threads across independent operators in parallel mode (0 = ORT default) */
+        private int interOpThreads = 1;
+        /** none, basic, extended or all */
+        private String optimizationLevel = "all";
+        /** sequential or parallel */
+        private String executionMode = "sequential";
+        private boolean cpuArena = true;
+        private boolean memoryPattern = true;
+        /** Directory for the optimized model cache; empty disables it */
+        private String optimizedModelDir = "";
+        /** Synthetic inferences run at startup */
+        private int warmupRuns = 3;
+
+        public int getIntraOpThreads() { return intraOpThreads; }
+        public void setIntraOpThreads(int intraOpThreads) { this.intraOpThreads = intraOpThreads; }
+
+        public int getInterOpThreads() { return interOpThreads; }
+        public void setInterOpThreads(int interOpThreads) { this.interOpThreads = interOpThreads; }
+
+        public String getOptimizationLevel() { return optimizationLevel; }
+        public void setOptimizationLevel(String optimizationLevel) { this.optimizationLevel = optimizationLevel; }
+
+        public String getExecutionMode() { return executionMode; }
+        public void setExecutionMode(String executionMode) { this.executionMode = executionMode; }
+
+        public boolean isCpuArena() { return cpuArena; }
+        public void setCpuArena(boolean cpuArena) { this.cpuArena = cpuArena; }
+
+        public boolean isMemoryPattern() { return memoryPattern; }
+        public void setMemoryPattern(boolean memoryPattern) { this.memoryPattern = memoryPattern; }
+
+        public String getOptimizedModelDir() { return optimizedModelDir; }
+        public void setOptimizedModelDir(String optimizedModelDir) { this.optimizedModelDir = optimizedModelDir; }
+
+        public int getWarmupRuns() { return warmupRuns; }
+        public void setWarmupRuns(int warmupRuns) { this.warmupRuns = warmupRuns; }
+    }
+}
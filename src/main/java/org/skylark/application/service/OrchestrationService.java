@@ -1,16 +1,27 @@
 package org.skylark.application.service;
 
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.audio.PcmRingBuffer;
+import org.skylark.common.audio.WavHeaderParser;
+import org.skylark.common.util.AudioUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Base64;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Orchestration Service
@@ -20,6 +31,17 @@ import java.util.concurrent.ConcurrentHashMap;
  * Manages session state and coordinates between different AI services.
  * Uses AgentScope's ReActAgent for intelligent context-aware responses.</p>
  * 
+ * <p>Frames are handled on the caller's thread (VAD and buffering only); a finished
+ * utterance's ASR->LLM->TTS turn runs on a turn thread, one turn per session at a time, so
+ * the caller keeps consuming audio while a multi-second turn is in progress. The turn reads
+ * the filled utterance buffer in place while the session captures into a second one.
+ * {@link #cleanupSession} stops the session's turns: queued ones are skipped and a running
+ * one is interrupted and sends nothing more.</p>
+ * 
+ * <p>When VAD reports speech start while a reply is still playing out, a {@code barge_in}
+ * event is sent so the sink drops the unplayed audio (RTC strategies flush their downlink
+ * pacer; WebSocket clients stop playback).</p>
+ * 
  * @author Skylark Team
  * @version 2.0.0
  */
@@ -33,9 +55,21 @@ public class OrchestrationService {
     private final TTSService ttsService;
     private final AgentService agentService;
     
-    // Session audio buffers for VAD processing
-    private final Map<String, ByteArrayOutputStream> sessionBuffers = new ConcurrentHashMap<>();
-    private final Map<String, Boolean> sessionSpeaking = new ConcurrentHashMap<>();
+    // Session utterance buffers (bounded, with pre-roll); capturing == speaking
+    private final Map<String, PcmRingBuffer> sessionBuffers = new ConcurrentHashMap<>();
+    
+    @Value("${audio.buffer.max-utterance-ms:30000}")
+    private int maxUtteranceMs = PcmRingBuffer.DEFAULT_MAX_UTTERANCE_MS;
+    
+    @Value("${audio.buffer.pre-roll-ms:300}")
+    private int preRollMs = PcmRingBuffer.DEFAULT_PRE_ROLL_MS;
+    
+    // Estimated end of each session's reply playback (System.nanoTime), for barge-in
+    private final Map<String, Long> playbackEnds = new ConcurrentHashMap<>();
+    
+    // Each session's turns, run in order and stopped on cleanup
+    private final Map<String, TurnChain> sessionTurns = new ConcurrentHashMap<>();
+    private final ExecutorService turnExecutor;
     
     // Temp directory for audio processing
     private final String tempDir = "temp/orchestration";
@@ -47,6 +81,13 @@ public class OrchestrationService {
         this.ttsService = ttsService;
         this.agentService = agentService;
         
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.turnExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "orchestration-turn-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        
         // Create temp directory
         try {
             Files.createDirectories(Paths.get(tempDir));
@@ -61,6 +102,23 @@ public class OrchestrationService {
     @FunctionalInterface
     public interface ResponseCallback {
         void send(String sessionId, String type, Object data);
+
+        /**
+         * Sends synthesized audio on the downlink.
+         * 发送下行合成音频
+         *
+         * <p>Sinks that can carry binary audio (WebSocket binary frames, RTC SDK push)
+         * override this to avoid Base64/JSON. The default falls back to a
+         * {@code tts_audio} message with a Base64 {@code audio} field.</p>
+         *
+         * @param sessionId Session identifier
+         * @param audio     Audio payload (remaining bytes; position is not changed)
+         * @param format    Payload format
+         */
+        default void sendAudio(String sessionId, ByteBuffer audio, AudioStreamFormat format) {
+            send(sessionId, "tts_audio", Map.of("audio",
+                Base64.getEncoder().encodeToString(AudioUtils.toByteArray(audio))));
+        }
     }
 
     /**
@@ -71,34 +129,78 @@ public class OrchestrationService {
      * @param callback Callback for sending responses
      */
     public void processAudioStream(String sessionId, byte[] audioData, ResponseCallback callback) {
+        processAudioStream(sessionId, ByteBuffer.wrap(audioData), callback);
+    }
+
+    /**
+     * Process a pooled RTC audio frame through VAD->ASR->LLM->TTS pipeline
+     * 
+     * <p>The frame is read in place and not retained, so the caller keeps ownership
+     * and may release it as soon as this method returns.</p>
+     * 
+     * @param sessionId Session identifier
+     * @param frame Pooled PCM frame (16kHz, 16-bit, mono)
+     * @param callback Callback for sending responses
+     */
+    public void processAudioStream(String sessionId, AudioFrame frame, ResponseCallback callback) {
+        processAudioStream(sessionId, frame.data(), callback);
+    }
+
+    /**
+     * Process a binary PCM frame through VAD->ASR->LLM->TTS pipeline
+     * 
+     * <p>The frame is consumed synchronously: VAD reads it in place and the
+     * session buffer copies it once, so callers may reuse the buffer as soon
+     * as this method returns. Audio before the VAD "start" is kept as pre-roll;
+     * an utterance is finalized on VAD "end" or when it reaches the maximum length,
+     * and its turn is queued behind the session's previous turn without waiting. The
+     * turn keeps the filled buffer until it is done; capture continues in the session's
+     * spare buffer.</p>
+     * 
+     * @param sessionId Session identifier
+     * @param audioFrame Raw PCM frame (16kHz, 16-bit, mono, little-endian)
+     * @param callback Callback for sending responses
+     */
+    public void processAudioStream(String sessionId, ByteBuffer audioFrame, ResponseCallback callback) {
         try {
             // Get or create buffer for this session
-            ByteArrayOutputStream buffer = sessionBuffers.computeIfAbsent(
-                sessionId, k -> new ByteArrayOutputStream()
-            );
-            
-            // Append audio data to buffer
-            buffer.write(audioData);
+            PcmRingBuffer buffer = sessionBuffers.computeIfAbsent(sessionId,
+                k -> PcmRingBuffer.forDuration(16000, 1, maxUtteranceMs, preRollMs));
             
             // Check for voice activity using VAD
-            boolean isSpeaking = detectVoiceActivity(sessionId, audioData);
-            Boolean wasSpeaking = sessionSpeaking.getOrDefault(sessionId, false);
+            String status = detectVoiceActivity(sessionId, audioFrame);
+            if ("start".equals(status)) {
+                buffer.startUtterance();
+                bargeInIfPlaying(sessionId, callback);
+            }
             
-            // If speech just ended, process the buffered audio
-            if (wasSpeaking && !isSpeaking && buffer.size() > 0) {
+            // Append audio data to buffer (pre-roll ring while idle)
+            buffer.write(audioFrame);
+            
+            // If speech ended or the utterance is at its limit, process the buffered audio
+            if (buffer.isCapturing() && ("end".equals(status) || buffer.isFull())) {
+                if (buffer.isFull()) {
+                    logger.warn("Utterance for session {} reached {} ms limit, finalizing early",
+                        sessionId, maxUtteranceMs);
+                }
                 logger.info("Speech ended for session {}, processing buffer with {} bytes", 
-                    sessionId, buffer.size());
-                
-                // Process the complete speech segment
-                processCompleteSpeech(sessionId, buffer.toByteArray(), callback);
+                    sessionId, buffer.length());
                 
-                // Reset buffer
-                buffer.reset();
+                // The turn reads the filled buffer in place; capture moves to the spare
+                TurnChain turns = sessionTurns.computeIfAbsent(sessionId, id -> new TurnChain());
+                PcmRingBuffer spare = turns.takeSpare();
+                sessionBuffers.put(sessionId, spare != null ? spare
+                    : PcmRingBuffer.forDuration(16000, 1, maxUtteranceMs, preRollMs));
+                turns.submit(() -> {
+                    try {
+                        processCompleteSpeech(sessionId, buffer.utterance(), callback, turns);
+                    } finally {
+                        buffer.reset();
+                        turns.returnSpare(buffer);
+                    }
+                }, turnExecutor);
             }
             
-            // Update speaking state
-            sessionSpeaking.put(sessionId, isSpeaking);
-            
         } catch (Exception e) {
             logger.error("Error processing audio stream for session: {}", sessionId, e);
             callback.send(sessionId, "error", Map.of("message", "Error processing audio: " + e.getMessage()));
@@ -129,8 +231,7 @@ public class OrchestrationService {
             // Generate TTS audio
             byte[] ttsAudio = generateTTS(llmResponse);
             if (ttsAudio != null && ttsAudio.length > 0) {
-                String audioBase64 = Base64.getEncoder().encodeToString(ttsAudio);
-                callback.send(sessionId, "tts_audio", Map.of("audio", audioBase64));
+                sendTtsAudio(sessionId, ttsAudio, callback);
             }
             
         } catch (Exception e) {
@@ -139,42 +240,124 @@ public class OrchestrationService {
         }
     }
 
+    /**
+     * Chooses the speech recognition model for a session by language and domain
+     * 按语言/领域为会话选择语音识别模型
+     * 
+     * @param sessionId Session identifier
+     * @param language  Language (e.g. "zh", "en"), may be null
+     * @param domain    Domain (e.g. "medical"), may be null
+     */
+    public void selectAsrModel(String sessionId, String language, String domain) {
+        asrService.selectModel(sessionId, language, domain);
+    }
+
     /**
      * Cleanup session resources
      * 
+     * <p>Queued turns of the session are skipped and a running one is interrupted; it
+     * makes no further ASR, LLM or TTS calls and sends nothing.</p>
+     * 
      * @param sessionId Session identifier
      */
     public void cleanupSession(String sessionId) {
+        TurnChain turns = sessionTurns.remove(sessionId);
+        if (turns != null) {
+            turns.close();
+        }
         sessionBuffers.remove(sessionId);
-        sessionSpeaking.remove(sessionId);
+        playbackEnds.remove(sessionId);
+        asrService.close(sessionId);
+        vadService.removeSession(sessionId);
         agentService.clearSession(sessionId);
         logger.info("Cleaned up session: {}", sessionId);
     }
 
+    /**
+     * Stops the turn threads; turns in progress are interrupted.
+     */
+    @PreDestroy
+    public void shutdown() {
+        turnExecutor.shutdownNow();
+    }
+
+    /**
+     * Sends a reply's audio and extends the session's estimated playback by its duration.
+     */
+    private void sendTtsAudio(String sessionId, byte[] ttsAudio, ResponseCallback callback) {
+        callback.sendAudio(sessionId, ByteBuffer.wrap(ttsAudio), AudioStreamFormat.WAV_16K_MONO);
+        long now = System.nanoTime();
+        long duration = playbackMillis(ttsAudio) * 1_000_000L;
+        playbackEnds.merge(sessionId, now + duration, (end, ignored) -> Math.max(end, now) + duration);
+    }
+
+    /**
+     * Sends {@code barge_in} if the session's last reply is still playing out.
+     */
+    private void bargeInIfPlaying(String sessionId, ResponseCallback callback) {
+        Long end = playbackEnds.remove(sessionId);
+        if (end != null && end - System.nanoTime() > 0) {
+            logger.info("Barge-in for session {}: user speech during playback", sessionId);
+            callback.send(sessionId, "barge_in", Map.of("action", "stop_playback"));
+        }
+    }
+
+    /**
+     * Playback duration of a WAV reply; raw audio is taken as 16 kHz mono PCM16.
+     */
+    static long playbackMillis(byte[] audio) {
+        WavHeaderParser parser = new WavHeaderParser();
+        ByteBuffer view = ByteBuffer.wrap(audio);
+        try {
+            if (parser.feed(view) && parser.isWav()) {
+                long bytesPerSecond = (long) parser.getSampleRate() * parser.getChannels()
+                    * parser.getBitsPerSample() / 8;
+                long data = parser.getDataLength() >= 0
+                    ? Math.min(parser.getDataLength(), view.remaining()) : view.remaining();
+                return bytesPerSecond > 0 ? data * 1000 / bytesPerSecond : 0;
+            }
+        } catch (IllegalArgumentException e) {
+            logger.debug("Unreadable WAV header in TTS audio, assuming raw PCM: {}", e.getMessage());
+        }
+        return audio.length * 1000L / (16000 * AudioFrame.BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * The session's last queued turn; completed if there is none.
+     */
+    CompletableFuture<Void> pendingTurn(String sessionId) {
+        TurnChain turns = sessionTurns.get(sessionId);
+        return turns != null ? turns.tail() : CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Detect voice activity in audio data
+     * 
+     * @return VAD status ("start", "end", or null when unchanged)
      */
-    private boolean detectVoiceActivity(String sessionId, byte[] audioData) {
+    private String detectVoiceActivity(String sessionId, ByteBuffer audioFrame) {
         try {
-            // Convert byte array to base64 for VAD service
-            String audioBase64 = Base64.getEncoder().encodeToString(audioData);
-            
-            // Run VAD detection
-            Map<String, Object> result = vadService.detect(audioBase64, sessionId);
-            return (Boolean) result.getOrDefault("isSpeaking", false);
+            // Run VAD detection directly on the PCM frame
+            Map<String, Object> result = vadService.detect(audioFrame, sessionId);
+            Object status = result.get("status");
+            return status instanceof String ? (String) status : null;
         } catch (Exception e) {
             logger.error("Error detecting voice activity", e);
-            return false;
+            return null;
         }
     }
 
     /**
      * Process complete speech segment through ASR->LLM->TTS
      */
-    private void processCompleteSpeech(String sessionId, byte[] audioData, ResponseCallback callback) {
+    private void processCompleteSpeech(String sessionId, ByteBuffer audioData, ResponseCallback callback,
+                                       TurnChain turns) {
         try {
             // Step 1: ASR - Convert speech to text
-            String transcription = performASR(audioData);
+            String transcription = performASR(sessionId, audioData);
+            if (turns.isClosed()) {
+                return;
+            }
             if (transcription == null || transcription.trim().isEmpty()) {
                 logger.warn("No transcription result for session: {}", sessionId);
                 return;
@@ -185,17 +368,26 @@ public class OrchestrationService {
             
             // Step 2: LLM - Get intelligent response via AgentService (with memory context)
             String llmResponse = getLLMResponse(sessionId, transcription);
+            if (turns.isClosed()) {
+                return;
+            }
             logger.info("LLM response for session {}: {}", sessionId, llmResponse);
             callback.send(sessionId, "llm_response", Map.of("text", llmResponse));
             
             // Step 3: TTS - Convert response to speech
             byte[] ttsAudio = generateTTS(llmResponse);
+            if (turns.isClosed()) {
+                return;
+            }
             if (ttsAudio != null && ttsAudio.length > 0) {
-                String audioBase64 = Base64.getEncoder().encodeToString(ttsAudio);
-                callback.send(sessionId, "tts_audio", Map.of("audio", audioBase64));
+                sendTtsAudio(sessionId, ttsAudio, callback);
             }
             
         } catch (Exception e) {
+            if (turns.isClosed()) {
+                logger.debug("Turn for closed session {} stopped: {}", sessionId, e.getMessage());
+                return;
+            }
             logger.error("Error processing complete speech for session: {}", sessionId, e);
             callback.send(sessionId, "error", Map.of("message", "Error processing speech: " + e.getMessage()));
         }
@@ -220,10 +412,10 @@ public class OrchestrationService {
     /**
      * Perform ASR on audio data
      */
-    private String performASR(byte[] audioData) {
+    private String performASR(String sessionId, ByteBuffer audioData) {
         try {
             // Perform recognition
-            Map<String, String> result = asrService.recognize(audioData);
+            Map<String, String> result = asrService.recognize(audioData, sessionId);
             return result.get("text");
         } catch (Exception e) {
             logger.error("Error performing ASR", e);
@@ -248,4 +440,69 @@ public class OrchestrationService {
             return null;
         }
     }
+
+    /**
+     * A session's turns, run one after another on the turn threads, and the session's
+     * spare utterance buffer.
+     */
+    private static final class TurnChain {
+        /** Last queued turn; guarded by this */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        /** Thread running a turn; guarded by this */
+        private Thread runner;
+        /** Idle buffer to capture into while a filled one is with its turn; guarded by this */
+        private PcmRingBuffer spare;
+        private volatile boolean closed;
+
+        synchronized void submit(Runnable turn, ExecutorService executor) {
+            tail = tail.handle((ignored, e) -> null).thenRunAsync(() -> run(turn), executor);
+        }
+
+        private void run(Runnable turn) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                turn.run();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // Do not leak a close's interrupt into the pool thread
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        synchronized CompletableFuture<Void> tail() {
+            return tail;
+        }
+
+        synchronized PcmRingBuffer takeSpare() {
+            PcmRingBuffer buffer = spare;
+            spare = null;
+            return buffer;
+        }
+
+        synchronized void returnSpare(PcmRingBuffer buffer) {
+            if (!closed) {
+                spare = buffer;
+            }
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        /** Skips the queued turns and interrupts the running one */
+        synchronized void close() {
+            closed = true;
+            spare = null;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,425 @@
+package org.skylark.application.service;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.skylark.common.audio.FrameRechunker;
+import org.skylark.common.util.MicroBatchScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming Silero VAD Runner
+ * Silero VAD 流式推理器
+ *
+ * <p>Runs the Silero VAD ONNX model the way it was trained: on fixed windows of 512
+ * samples at 16 kHz (256 at 8 kHz), carrying the recurrent state from one window to the
+ * next. Both model generations are supported and detected from the input names:</p>
+ * <ul>
+ *   <li>v4: inputs {@code input}, {@code sr}, {@code h}, {@code c} (2×1×64 each)</li>
+ *   <li>v5: inputs {@code input}, {@code state} (2×1×128), {@code sr}; each window is
+ *       prefixed with the last 64 (32 at 8 kHz) samples of the previous one</li>
+ * </ul>
+ *
+ * <p>Each session owns a {@link Stream}: a {@link FrameRechunker} cuts incoming frames into
+ * exact windows with their stream positions, and the input and state tensors are created once over direct buffers and rewritten in
+ * place for every window, so steady-state inference allocates nothing but the ONNX
+ * result. Outputs are read through {@link OnnxTensor#getFloatBuffer()}.</p>
+ *
+ * <p>With a batch size above 1, windows from all sessions go through a
+ * {@link MicroBatchScheduler}: rows and recurrent states are stacked along the batch
+ * dimension ({@code [B, N]}, {@code [2, B, H]}), run as one call, and the new states
+ * scattered back to each stream. Streams are sharded over {@code dispatchers} batching
+ * threads, each with its own stacked tensors, so with single-threaded ONNX sessions
+ * batched inference can use that many cores.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class SileroVadRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SileroVadRunner.class);
+
+    private static final int STATE_LAYERS = 2;
+
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final int sampleRate;
+    private final int windowSamples;
+    private final int contextSamples;
+    /** Model input row length: context + window */
+    private final int rowSamples;
+    private final boolean v5;
+    /** Recurrent state inputs/outputs: {state}/{stateN} for v5, {h, c}/{hn, cn} for v4 */
+    private final String[] stateInputs;
+    private final String[] stateOutputs;
+    /** Hidden size per layer */
+    private final int stateSize;
+    /** Scalar sample-rate input, shared by all streams (read-only) */
+    private final OnnxTensor srTensor;
+
+    private final MicroBatchScheduler<Stream, Float> scheduler;
+    /** Stacked tensors per dispatcher and batch size, each row used only by its dispatcher */
+    private final Batch[][] batches;
+
+    /**
+     * Creates an unbatched runner.
+     *
+     * @param env        ONNX environment
+     * @param session    Session over a Silero VAD v4 or v5 model
+     * @param sampleRate 16000 or 8000
+     * @throws OrtException if the sample-rate tensor cannot be created
+     */
+    public SileroVadRunner(OrtEnvironment env, OrtSession session, int sampleRate) throws OrtException {
+        this(env, session, sampleRate, 1, 0);
+    }
+
+    /**
+     * Creates a runner with a single batching dispatcher.
+     *
+     * @param env            ONNX environment
+     * @param session        Session over a Silero VAD v4 or v5 model
+     * @param sampleRate     16000 or 8000
+     * @param maxBatchSize   Windows per batched call across sessions; 1 disables batching
+     * @param maxDelayMicros Longest a window waits for its batch to fill
+     * @throws OrtException if the sample-rate tensor cannot be created
+     */
+    public SileroVadRunner(OrtEnvironment env, OrtSession session, int sampleRate,
+                           int maxBatchSize, long maxDelayMicros) throws OrtException {
+        this(env, session, sampleRate, maxBatchSize, maxDelayMicros, 1);
+    }
+
+    /**
+     * Creates a runner for a loaded Silero model.
+     * 创建推理器
+     *
+     * @param env            ONNX environment
+     * @param session        Session over a Silero VAD v4 or v5 model
+     * @param sampleRate     16000 or 8000
+     * @param maxBatchSize   Windows per batched call across sessions; 1 disables batching
+     * @param maxDelayMicros Longest a window waits for its batch to fill
+     * @param dispatchers    Batching threads, streams sharded over them (at least 1)
+     * @throws OrtException if the sample-rate tensor cannot be created
+     */
+    public SileroVadRunner(OrtEnvironment env, OrtSession session, int sampleRate,
+                           int maxBatchSize, long maxDelayMicros, int dispatchers) throws OrtException {
+        if (sampleRate != 16000 && sampleRate != 8000) {
+            throw new IllegalArgumentException("Silero VAD supports 8000 or 16000 Hz: " + sampleRate);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+        }
+        if (dispatchers < 1) {
+            throw new IllegalArgumentException("dispatchers must be at least 1: " + dispatchers);
+        }
+        Set<String> inputs = session.getInputNames();
+        if (inputs.contains("state")) {
+            this.v5 = true;
+            this.stateInputs = new String[]{"state"};
+            this.stateOutputs = new String[]{"stateN"};
+            this.stateSize = 128;
+        } else if (inputs.contains("h") && inputs.contains("c")) {
+            this.v5 = false;
+            this.stateInputs = new String[]{"h", "c"};
+            this.stateOutputs = new String[]{"hn", "cn"};
+            this.stateSize = 64;
+        } else {
+            throw new IllegalArgumentException("Not a Silero VAD model, inputs: " + inputs);
+        }
+        this.env = env;
+        this.session = session;
+        this.sampleRate = sampleRate;
+        this.windowSamples = sampleRate == 16000 ? 512 : 256;
+        this.contextSamples = v5 ? (sampleRate == 16000 ? 64 : 32) : 0;
+        this.rowSamples = contextSamples + windowSamples;
+        this.srTensor = OnnxTensor.createTensor(env, (long) sampleRate);
+        if (maxBatchSize > 1) {
+            this.batches = new Batch[dispatchers][maxBatchSize + 1];
+            this.scheduler = new MicroBatchScheduler<>("silero-vad-batcher", maxBatchSize, maxDelayMicros,
+                dispatchers, this::runBatch);
+        } else {
+            this.batches = null;
+            this.scheduler = null;
+        }
+        logger.info("Silero VAD runner: model={}, window={} samples, context={} samples, maxBatch={}, dispatchers={}",
+            v5 ? "v5" : "v4", windowSamples, contextSamples, maxBatchSize, scheduler != null ? dispatchers : 0);
+    }
+
+    /**
+     * Opens a new stream with zeroed recurrent state.
+     * 为会话创建新的流
+     *
+     * @return Stream; close it when the session ends
+     * @throws OrtException if the tensors cannot be created
+     */
+    public Stream openStream() throws OrtException {
+        return new Stream();
+    }
+
+    /**
+     * Runs synthetic inferences on silence so the first real window does not pay for
+     * kernel selection and arena growth. With batching on, the largest batch shape is
+     * warmed up as well.
+     * 用静音执行若干次预热推理
+     *
+     * @param runs Number of single-window runs (0 skips warmup)
+     * @throws OrtException if inference fails
+     */
+    public void warmup(int runs) throws OrtException {
+        if (runs <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (Stream stream = openStream()) {
+            for (int i = 0; i < runs; i++) {
+                stream.infer();
+            }
+            if (scheduler != null) {
+                List<Stream> rows = new ArrayList<>();
+                for (int i = 0; i < scheduler.getMaxBatchSize(); i++) {
+                    rows.add(stream);
+                }
+                runBatch(0, rows);
+            }
+        }
+        logger.info("Silero VAD warmup: {} runs in {} ms", runs, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Stops the batch scheduler and releases the shared tensors. Streams must be closed separately.
+     */
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            for (Batch[] shard : batches) {
+                for (Batch batch : shard) {
+                    if (batch != null) {
+                        batch.close();
+                    }
+                }
+            }
+        }
+        srTensor.close();
+    }
+
+    public int getWindowSamples() {
+        return windowSamples;
+    }
+
+    /** Duration of one inference window in milliseconds */
+    public int getWindowMs() {
+        return windowSamples * 1000 / sampleRate;
+    }
+
+    public boolean isV5() {
+        return v5;
+    }
+
+    /** Cross-session batch scheduler (for metrics), or null when batching is disabled */
+    public MicroBatchScheduler<Stream, Float> getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Runs one stacked call for windows from several streams (the shard's dispatcher thread).
+     */
+    private List<Float> runBatch(int shard, List<Stream> streams) throws OrtException {
+        int size = streams.size();
+        Batch batch = batches[shard][size];
+        if (batch == null) {
+            batch = new Batch(size);
+            batches[shard][size] = batch;
+        }
+        // Gather: row b of the input, slice [l, b, :] of each state
+        for (int b = 0; b < size; b++) {
+            Stream stream = streams.get(b);
+            copy(stream.input, 0, batch.input, b * rowSamples, rowSamples);
+            for (int s = 0; s < stateInputs.length; s++) {
+                for (int l = 0; l < STATE_LAYERS; l++) {
+                    copy(stream.states[s], l * stateSize, batch.states[s], (l * size + b) * stateSize, stateSize);
+                }
+            }
+        }
+        List<Float> probabilities = new ArrayList<>(size);
+        try (OrtSession.Result result = session.run(batch.feeds)) {
+            FloatBuffer output = ((OnnxTensor) result.get(0)).getFloatBuffer();
+            FloatBuffer[] newStates = new FloatBuffer[stateOutputs.length];
+            for (int s = 0; s < stateOutputs.length; s++) {
+                newStates[s] = outputState(result, s);
+            }
+            // Scatter
+            for (int b = 0; b < size; b++) {
+                Stream stream = streams.get(b);
+                probabilities.add(output.get(b));
+                for (int s = 0; s < stateOutputs.length; s++) {
+                    for (int l = 0; l < STATE_LAYERS; l++) {
+                        copy(newStates[s], (l * size + b) * stateSize, stream.states[s], l * stateSize, stateSize);
+                    }
+                }
+            }
+        }
+        return probabilities;
+    }
+
+    private FloatBuffer outputState(OrtSession.Result result, int index) {
+        OnnxValue value = result.get(stateOutputs[index]).orElseGet(() -> result.get(index + 1));
+        return ((OnnxTensor) value).getFloatBuffer();
+    }
+
+    private static void copy(FloatBuffer src, int srcOffset, FloatBuffer dst, int dstOffset, int length) {
+        FloatBuffer from = src.duplicate();
+        from.limit(srcOffset + length).position(srcOffset);
+        FloatBuffer to = dst.duplicate();
+        to.position(dstOffset);
+        to.put(from);
+    }
+
+    private static FloatBuffer directFloats(int size) {
+        return ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static void zero(FloatBuffer buffer) {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, 0f);
+        }
+    }
+
+    /**
+     * Stacked input and state tensors for one batch size
+     */
+    private final class Batch {
+        final FloatBuffer input;
+        final FloatBuffer[] states = new FloatBuffer[stateInputs.length];
+        final Map<String, OnnxTensor> feeds = new HashMap<>();
+
+        Batch(int size) throws OrtException {
+            input = directFloats(size * rowSamples);
+            feeds.put("input", OnnxTensor.createTensor(env, input, new long[]{size, rowSamples}));
+            feeds.put("sr", srTensor);
+            for (int s = 0; s < stateInputs.length; s++) {
+                states[s] = directFloats(STATE_LAYERS * size * stateSize);
+                feeds.put(stateInputs[s],
+                    OnnxTensor.createTensor(env, states[s], new long[]{STATE_LAYERS, size, stateSize}));
+            }
+        }
+
+        void close() {
+            feeds.forEach((name, tensor) -> {
+                if (tensor != srTensor) {
+                    tensor.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Per-session window buffer and recurrent state. Calls on one stream are serialized.
+     */
+    public final class Stream implements AutoCloseable {
+        /** Model input row: [context | window] */
+        private final FloatBuffer input = directFloats(rowSamples);
+        /** Recurrent state per state input, [2, 1, H] */
+        private final FloatBuffer[] states = new FloatBuffer[stateInputs.length];
+        /** Tensors for unbatched runs, created over the buffers above */
+        private final Map<String, OnnxTensor> feeds = new HashMap<>();
+        /** Cuts frames of any length into model windows */
+        private final FrameRechunker chunker = new FrameRechunker(windowSamples, sampleRate);
+        private float lastProbability;
+
+        private Stream() throws OrtException {
+            feeds.put("input", OnnxTensor.createTensor(env, input, new long[]{1, rowSamples}));
+            feeds.put("sr", srTensor);
+            for (int s = 0; s < stateInputs.length; s++) {
+                states[s] = directFloats(STATE_LAYERS * stateSize);
+                feeds.put(stateInputs[s],
+                    OnnxTensor.createTensor(env, states[s], new long[]{STATE_LAYERS, 1, stateSize}));
+            }
+        }
+
+        /**
+         * Feeds samples and runs the model on every window they complete.
+         * 输入样本，并对每个填满的窗口执行推理
+         *
+         * @param samples  PCM samples from position to limit (position is not changed)
+         * @param listener Called with the speech probability and stream position of each
+         *                 completed window
+         * @return Number of windows evaluated (0 while a window is still filling)
+         * @throws Exception if inference fails
+         */
+        public synchronized int accept(ShortBuffer samples, WindowListener listener) throws Exception {
+            return chunker.accept(samples, (window, startSample) -> {
+                int base = window.position();
+                for (int i = 0; i < windowSamples; i++) {
+                    input.put(contextSamples + i, window.get(base + i) / 32768.0f);
+                }
+                lastProbability = scheduler != null ? scheduler.call(this) : infer();
+                if (contextSamples > 0) {
+                    // The tail of this window is the context of the next one
+                    copy(input, windowSamples, input, 0, contextSamples);
+                }
+                listener.onWindow(lastProbability, startSample);
+            });
+        }
+
+        private float infer() throws OrtException {
+            try (OrtSession.Result result = session.run(feeds)) {
+                float probability = ((OnnxTensor) result.get(0)).getFloatBuffer().get(0);
+                for (int s = 0; s < stateOutputs.length; s++) {
+                    copy(outputState(result, s), 0, states[s], 0, STATE_LAYERS * stateSize);
+                }
+                return probability;
+            }
+        }
+
+        /**
+         * Clears the recurrent state, context and partial window.
+         * 清空循环状态、上下文与未满窗口
+         */
+        public synchronized void reset() {
+            for (FloatBuffer state : states) {
+                zero(state);
+            }
+            zero(input);
+            chunker.reset();
+            lastProbability = 0f;
+        }
+
+        /** Speech probability of the last evaluated window */
+        public synchronized float getLastProbability() {
+            return lastProbability;
+        }
+
+        @Override
+        public synchronized void close() {
+            feeds.forEach((name, tensor) -> {
+                if (tensor != srTensor) {
+                    tensor.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Receives the speech probability of each evaluated window
+     */
+    @FunctionalInterface
+    public interface WindowListener {
+        /**
+         * @param speechProbability Model output for the window
+         * @param startSample       Stream position of the window's first sample
+         */
+        void onWindow(float speechProbability, long startSample);
+    }
+}
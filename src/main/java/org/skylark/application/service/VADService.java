@@ -1,12 +1,11 @@
 package org.skylark.application.service;
 
-import ai.onnxruntime.OnnxTensor;
-import ai.onnxruntime.OnnxValue;
 import ai.onnxruntime.OrtEnvironment;
-import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import org.skylark.common.audio.AdaptiveEnergyDetector;
+import org.skylark.common.util.MicroBatchScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,9 +14,8 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
 import java.util.Base64;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -29,6 +27,22 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>This implementation uses Silero VAD with ONNX Runtime for accurate
  * voice activity detection. Supports int16 PCM audio at 16kHz.</p>
  * 
+ * <p>Silero runs as a stream per session ({@link SileroVadRunner.Stream}): frames of any
+ * length are cut into the model's fixed windows and the recurrent state is carried
+ * across calls, so the probability of each window reflects the audio before it.
+ * With {@code vad.batch.max.size} above 1, windows from concurrent sessions are
+ * stacked into one ONNX call (see {@link SileroVadRunner}), spread over
+ * {@code vad.batch.dispatchers} threads (0 = one per available core).</p>
+ * 
+ * <p>Silence is measured in samples, not frames, so the end of speech comes after
+ * {@code vad.min.silence.duration.ms} however the caller frames its audio. Transitions
+ * report {@code streamOffsetMs}: where speech began, or where the closing silence began,
+ * counted from the start of the session's audio.</p>
+ * 
+ * <p>Without the model (or if it fails) each session falls back to an
+ * {@link AdaptiveEnergyDetector}: thresholds in dB over a tracked noise floor with
+ * onset/offset hysteresis, ending speech after {@code vad.min.silence.duration.ms}.</p>
+ * 
  * @author Skylark Team
  * @version 1.0.0
  */
@@ -42,13 +56,14 @@ public class VADService {
     
     private OrtEnvironment env;
     private OrtSession session;
+    private SileroVadRunner sileroRunner;
     private boolean useOnnx = false;
     
     @Value("${vad.model.path:models/silero_vad.onnx}")
     private String modelPath;
     
     @Value("${vad.sampling.rate:16000}")
-    private int samplingRate;
+    private int samplingRate = 16000;
     
     @Value("${vad.threshold:0.5}")
     private float threshold;
@@ -56,8 +71,50 @@ public class VADService {
     @Value("${vad.min.silence.duration.ms:500}")
     private int minSilenceDurationMs;
     
-    @Value("${vad.frame.duration.ms:50}")
-    private int frameDurationMs;
+    @Value("${vad.energy.onset.db:9}")
+    private float energyOnsetDb = AdaptiveEnergyDetector.DEFAULT_ONSET_DB;
+    
+    @Value("${vad.energy.offset.db:3}")
+    private float energyOffsetDb = AdaptiveEnergyDetector.DEFAULT_OFFSET_DB;
+    
+    @Value("${vad.energy.min.level.db:-54}")
+    private float energyMinLevelDb = AdaptiveEnergyDetector.DEFAULT_MIN_LEVEL_DB;
+    
+    @Value("${vad.energy.floor.window.ms:2000}")
+    private int energyFloorWindowMs = AdaptiveEnergyDetector.DEFAULT_FLOOR_WINDOW_MS;
+    
+    @Value("${vad.batch.max.size:1}")
+    private int batchMaxSize;
+    
+    @Value("${vad.batch.max.delay.us:5000}")
+    private long batchMaxDelayMicros;
+    
+    @Value("${vad.batch.dispatchers:0}")
+    private int batchDispatchers;
+    
+    @Value("${vad.onnx.intra.op.threads:1}")
+    private int onnxIntraOpThreads;
+    
+    @Value("${vad.onnx.inter.op.threads:1}")
+    private int onnxInterOpThreads;
+    
+    @Value("${vad.onnx.optimization.level:all}")
+    private String onnxOptimizationLevel;
+    
+    @Value("${vad.onnx.execution.mode:sequential}")
+    private String onnxExecutionMode;
+    
+    @Value("${vad.onnx.cpu.arena:true}")
+    private boolean onnxCpuArena;
+    
+    @Value("${vad.onnx.memory.pattern:true}")
+    private boolean onnxMemoryPattern;
+    
+    @Value("${vad.onnx.optimized.model.dir:}")
+    private String onnxOptimizedModelDir;
+    
+    @Value("${vad.onnx.warmup.runs:3}")
+    private int onnxWarmupRuns;
     
     private final Map<String, VADState> sessionStates = new ConcurrentHashMap<>();
     
@@ -93,8 +150,12 @@ public class VADService {
             
             logger.info("正在加载Silero VAD模型: {}", modelPath);
             env = OrtEnvironment.getEnvironment();
-            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
-            session = env.createSession(modelPath, options);
+            OnnxSessionFactory.Settings settings = onnxSettings();
+            session = OnnxSessionFactory.create(env, modelPath, settings);
+            int dispatchers = batchDispatchers > 0 ? batchDispatchers : Runtime.getRuntime().availableProcessors();
+            sileroRunner = new SileroVadRunner(env, session, samplingRate, batchMaxSize, batchMaxDelayMicros,
+                dispatchers);
+            sileroRunner.warmup(settings.getWarmupRuns());
             
             useOnnx = true;
             logger.info("✅ Silero VAD模型加载成功");
@@ -106,11 +167,32 @@ public class VADService {
         }
     }
     
+    /**
+     * Builds ONNX session settings from {@code vad.onnx.*}.
+     */
+    private OnnxSessionFactory.Settings onnxSettings() {
+        OnnxSessionFactory.Settings settings = new OnnxSessionFactory.Settings();
+        settings.setIntraOpThreads(onnxIntraOpThreads);
+        settings.setInterOpThreads(onnxInterOpThreads);
+        settings.setOptimizationLevel(onnxOptimizationLevel);
+        settings.setExecutionMode(onnxExecutionMode);
+        settings.setCpuArena(onnxCpuArena);
+        settings.setMemoryPattern(onnxMemoryPattern);
+        settings.setOptimizedModelDir(onnxOptimizedModelDir);
+        settings.setWarmupRuns(onnxWarmupRuns);
+        return settings;
+    }
+    
     /**
      * Clean up resources on service shutdown.
      */
     @PreDestroy
     public void cleanup() {
+        sessionStates.values().forEach(VADState::close);
+        sessionStates.clear();
+        if (sileroRunner != null) {
+            sileroRunner.close();
+        }
         if (session != null) {
             try {
                 session.close();
@@ -122,7 +204,10 @@ public class VADService {
     }
     
     /**
-     * Detects voice activity in audio data.
+     * Detects voice activity in Base64-encoded audio data.
+     * 
+     * <p>Compatibility shim for callers that still transport audio as text;
+     * decodes once and delegates to {@link #detect(ByteBuffer, String)}.</p>
      * 
      * @param audioDataBase64 Base64-encoded audio data (int16 PCM)
      * @param sessionId Session identifier
@@ -134,26 +219,70 @@ public class VADService {
             throw new IllegalArgumentException("Audio data cannot be null or empty");
         }
         
+        return detect(ByteBuffer.wrap(Base64.getDecoder().decode(audioDataBase64)), sessionId);
+    }
+    
+    /**
+     * Detects voice activity in a binary PCM frame.
+     * 
+     * <p>The buffer is read from its current position to its limit as
+     * little-endian int16 samples. Its position is left untouched, so callers
+     * may hand the same frame on to ASR after detection.</p>
+     * 
+     * @param audioData Raw PCM frame (16-bit little-endian)
+     * @param sessionId Session identifier
+     * @return Map containing detection status ("start", "end", or null)
+     * @throws Exception if detection fails
+     */
+    public Map<String, Object> detect(ByteBuffer audioData, String sessionId) throws Exception {
+        if (audioData == null || audioData.remaining() < BYTES_PER_SAMPLE) {
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
+        
+        return detect(audioData.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer(), sessionId);
+    }
+    
+    /**
+     * Detects voice activity in int16 PCM samples.
+     * 
+     * <p>This is the core detection entry point; the byte and String variants
+     * are views onto it. The buffer's position is left untouched.</p>
+     * 
+     * @param samples PCM samples from position to limit
+     * @param sessionId Session identifier
+     * @return Map containing detection status ("start", "end", or null), whether the
+     *         session is inside a speech segment ("speaking"), the score of the
+     *         latest window ("probability") and, with a status, the transition's position
+     *         in the session's audio ("streamOffsetMs")
+     * @throws Exception if detection fails
+     */
+    public Map<String, Object> detect(ShortBuffer samples, String sessionId) throws Exception {
+        if (samples == null || !samples.hasRemaining()) {
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
+        
         if (sessionId == null || sessionId.trim().isEmpty()) {
             throw new IllegalArgumentException("Session ID cannot be null or empty");
         }
         
-        // Decode audio data
-        byte[] audioBytes = Base64.getDecoder().decode(audioDataBase64);
-        
         // Get or create session state
         VADState state = sessionStates.computeIfAbsent(sessionId, k -> new VADState());
         
         // Perform VAD detection
+        ShortBuffer frame = samples.duplicate();
         String detectionStatus = useOnnx ? 
-            performOnnxDetection(audioBytes, state) : 
-            performEnergyDetection(audioBytes, state);
+            performOnnxDetection(frame, state) : 
+            performEnergyDetection(frame, state);
+        state.samplesSeen += frame.remaining();
         
         Map<String, Object> result = new HashMap<>();
         result.put("status", detectionStatus);
+        result.put("speaking", state.isSpeaking);
+        result.put("probability", state.lastProbability);
         
         if (detectionStatus != null) {
             result.put("timestamp", System.currentTimeMillis());
+            result.put("streamOffsetMs", state.transitionSample * MS_PER_SECOND / samplingRate);
             logger.info("VAD检测: session={}, status={}", sessionId, detectionStatus);
         }
         
@@ -163,138 +292,99 @@ public class VADService {
     /**
      * Performs ONNX-based VAD detection using Silero VAD.
      * 
-     * @param audioBytes Audio data bytes (int16 PCM)
+     * <p>Feeds the samples to the session's Silero stream, which re-chunks them into
+     * exact model windows; every completed window updates the speech state. Returns the last transition, or null if none (including
+     * while the current window is still filling).</p>
+     * 
+     * @param samples PCM samples (int16)
      * @param state Session state
      * @return Detection status ("start", "end", or null)
      */
-    private String performOnnxDetection(byte[] audioBytes, VADState state) {
+    private String performOnnxDetection(ShortBuffer samples, VADState state) {
         try {
-            float[] audioSamples = convertBytesToFloatArray(audioBytes);
-            
-            long[] shape = {1, audioSamples.length};
-            OnnxTensor inputTensor = OnnxTensor.createTensor(env, 
-                FloatBuffer.wrap(audioSamples), shape);
-            
-            try (OrtSession.Result result = session.run(Collections.singletonMap("input", inputTensor))) {
-                float speechProb = extractSpeechProbability(result);
-                logger.debug("Speech probability: {}, threshold: {}", speechProb, threshold);
-                return determineVADStatus(speechProb, state);
-            } finally {
-                inputTensor.close();
+            if (state.sileroStream == null) {
+                state.sileroStream = sileroRunner.openStream();
             }
+            String[] status = new String[1];
+            int windowSamples = sileroRunner.getWindowSamples();
+            state.sileroStream.accept(samples, (speechProb, startSample) -> {
+                logger.debug("Speech probability: {}, threshold: {}", speechProb, threshold);
+                state.lastProbability = speechProb;
+                String transition = determineVADStatus(speechProb, state, startSample, windowSamples);
+                if (transition != null) {
+                    status[0] = transition;
+                }
+            });
+            return status[0];
             
         } catch (Exception e) {
             logger.error("ONNX VAD检测失败，回退到能量检测", e);
-            return performEnergyDetection(audioBytes, state);
+            return performEnergyDetection(samples, state);
         }
     }
     
-    /**
-     * Converts byte array to float array for ONNX input.
-     * 
-     * @param audioBytes Audio data bytes (int16 PCM)
-     * @return Float array normalized to [-1, 1]
-     */
-    private float[] convertBytesToFloatArray(byte[] audioBytes) {
-        ByteBuffer buffer = ByteBuffer.wrap(audioBytes).order(ByteOrder.LITTLE_ENDIAN);
-        int numSamples = audioBytes.length / BYTES_PER_SAMPLE;
-        float[] samples = new float[numSamples];
-        
-        for (int i = 0; i < numSamples; i++) {
-            short sample = buffer.getShort();
-            samples[i] = sample / 32768.0f;
-        }
-        
-        return samples;
-    }
-    
-    /**
-     * Extracts speech probability from ONNX result.
-     * 
-     * @param result ONNX inference result
-     * @return Speech probability [0, 1]
-     */
-    private float extractSpeechProbability(OrtSession.Result result) throws OrtException {
-        OnnxValue outputValue = result.get(0);
-        
-        if (outputValue instanceof OnnxTensor) {
-            OnnxTensor outputTensor = (OnnxTensor) outputValue;
-            float[][] output = (float[][]) outputTensor.getValue();
-            
-            if (output != null && output.length > 0 && output[0].length > 0) {
-                return output[0][0];
-            }
-        }
-        
-        logger.warn("无法从ONNX结果提取语音概率");
-        return 0.0f;
-    }
-    
     /**
      * Determines VAD status based on speech probability.
      * 
      * @param speechProb Speech probability [0, 1]
      * @param state Session state
+     * @param startSample Stream position of the window the probability covers
+     * @param windowSamples Length of that window
      * @return Detection status ("start", "end", or null)
      */
-    private String determineVADStatus(float speechProb, VADState state) {
+    private String determineVADStatus(float speechProb, VADState state, long startSample, int windowSamples) {
         boolean isSpeech = speechProb > threshold;
         
-        if (isSpeech && !state.isSpeaking) {
-            state.isSpeaking = true;
-            state.silenceFrames = 0;
-            return "start";
-        } else if (!isSpeech && state.isSpeaking) {
-            state.silenceFrames++;
-            int minSilenceFrames = minSilenceDurationMs / frameDurationMs;
-            if (state.silenceFrames >= minSilenceFrames) {
+        if (isSpeech) {
+            state.silenceStartSample = -1;
+            if (!state.isSpeaking) {
+                state.isSpeaking = true;
+                state.transitionSample = startSample;
+                return "start";
+            }
+        } else if (state.isSpeaking) {
+            if (state.silenceStartSample < 0) {
+                state.silenceStartSample = startSample;
+            }
+            long silenceSamples = startSample + windowSamples - state.silenceStartSample;
+            if (silenceSamples * MS_PER_SECOND >= (long) minSilenceDurationMs * samplingRate) {
                 state.isSpeaking = false;
-                state.silenceFrames = 0;
+                state.transitionSample = state.silenceStartSample;
+                state.silenceStartSample = -1;
                 return "end";
             }
-        } else if (!isSpeech) {
-            state.silenceFrames = 0;
         }
         
         return null;
     }
     
     /**
-     * Performs simple energy-based VAD detection (fallback).
+     * Performs adaptive energy-based VAD detection (fallback).
      * 
-     * @param audioBytes Audio data bytes (int16 PCM)
+     * @param samples PCM samples (int16)
      * @param state Session state
      * @return Detection status ("start", "end", or null)
      */
-    private String performEnergyDetection(byte[] audioBytes, VADState state) {
-        ByteBuffer buffer = ByteBuffer.wrap(audioBytes).order(ByteOrder.LITTLE_ENDIAN);
-        int numSamples = audioBytes.length / 2;
-        
-        double energy = 0;
-        for (int i = 0; i < numSamples; i++) {
-            short sample = buffer.getShort();
-            energy += Math.abs(sample);
+    private String performEnergyDetection(ShortBuffer samples, VADState state) {
+        if (state.energyDetector == null) {
+            state.energyDetector = new AdaptiveEnergyDetector(samplingRate, energyOnsetDb, energyOffsetDb,
+                minSilenceDurationMs, energyFloorWindowMs, energyMinLevelDb);
         }
-        energy /= numSamples;
-        
-        double normalizedEnergy = energy / 32768.0;
-        logger.debug("Energy: {}, threshold: {}", normalizedEnergy, threshold);
+        AdaptiveEnergyDetector detector = state.energyDetector;
+        AdaptiveEnergyDetector.Transition transition = detector.process(samples);
+        logger.debug("Energy: {} dBFS, floor: {} dBFS", detector.getLevelDb(), detector.getNoiseFloorDb());
+        state.lastProbability = detector.getSpeechScore();
         
-        boolean isSpeech = normalizedEnergy > threshold;
-        
-        if (isSpeech && !state.isSpeaking) {
+        if (transition == AdaptiveEnergyDetector.Transition.START && !state.isSpeaking) {
             state.isSpeaking = true;
-            state.silenceFrames = 0;
+            state.transitionSample = state.samplesSeen;
             return "start";
-        } else if (!isSpeech && state.isSpeaking) {
-            state.silenceFrames++;
-            if (state.silenceFrames >= 5) {
-                state.isSpeaking = false;
-                state.silenceFrames = 0;
-                return "end";
-            }
-        } else if (!isSpeech) {
-            state.silenceFrames = 0;
+        } else if (transition == AdaptiveEnergyDetector.Transition.END && state.isSpeaking) {
+            // The detector ends speech once the hangover has elapsed; silence began that long ago
+            long hangoverSamples = (long) minSilenceDurationMs * samplingRate / MS_PER_SECOND;
+            state.isSpeaking = false;
+            state.transitionSample = Math.max(0, state.samplesSeen + samples.remaining() - hangoverSamples);
+            return "end";
         }
         
         return null;
@@ -317,10 +407,50 @@ public class VADService {
         }
     }
     
+    /**
+     * Returns cross-session VAD batching metrics.
+     * 返回跨会话 VAD 批处理指标
+     * 
+     * @return Map with "enabled" and, when batching is on, batch count, mean batch size
+     *         and fill, mean/max queueing delay (µs) and current queue depth
+     */
+    public Map<String, Object> getBatchMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        MicroBatchScheduler<SileroVadRunner.Stream, Float> scheduler =
+            sileroRunner != null ? sileroRunner.getScheduler() : null;
+        metrics.put("enabled", scheduler != null);
+        if (scheduler != null) {
+            metrics.put("maxBatchSize", scheduler.getMaxBatchSize());
+            metrics.put("dispatchers", scheduler.getDispatcherCount());
+            metrics.put("batches", scheduler.getBatchCount());
+            metrics.put("windows", scheduler.getRequestCount());
+            metrics.put("averageBatchSize", scheduler.getAverageBatchSize());
+            metrics.put("averageBatchFill", scheduler.getAverageBatchFill());
+            metrics.put("averageQueueDelayMicros", scheduler.getAverageQueueDelayMicros());
+            metrics.put("maxQueueDelayMicros", scheduler.getMaxQueueDelayMicros());
+            metrics.put("queueDepth", scheduler.getQueueDepth());
+        }
+        return metrics;
+    }
+    
+    /**
+     * Removes a session and releases its model state.
+     * 移除会话并释放其模型状态
+     * 
+     * @param sessionId Session identifier
+     */
+    public void removeSession(String sessionId) {
+        VADState state = sessionId != null ? sessionStates.remove(sessionId) : null;
+        if (state != null) {
+            state.close();
+        }
+    }
+    
     /**
      * Clears all VAD sessions.
      */
     public void clearAll() {
+        sessionStates.values().forEach(VADState::close);
         sessionStates.clear();
         logger.info("所有VAD会话已清除");
     }
@@ -330,11 +460,37 @@ public class VADService {
      */
     private static class VADState {
         boolean isSpeaking = false;
-        int silenceFrames = 0;
+        /** Samples received so far in this session */
+        long samplesSeen = 0;
+        /** Stream position where the current silence run began, or -1 */
+        long silenceStartSample = -1;
+        /** Stream position of the last transition */
+        long transitionSample = 0;
+        /** Score of the most recent window (speech probability, or normalized energy) */
+        float lastProbability = 0f;
+        /** Silero window buffer and recurrent state; created on first ONNX detection */
+        SileroVadRunner.Stream sileroStream;
+        /** Noise floor and hysteresis for the energy path; created on first energy detection */
+        AdaptiveEnergyDetector energyDetector;
         
         void reset() {
             isSpeaking = false;
-            silenceFrames = 0;
+            samplesSeen = 0;
+            silenceStartSample = -1;
+            transitionSample = 0;
+            lastProbability = 0f;
+            if (sileroStream != null) {
+                sileroStream.reset();
+            }
+            if (energyDetector != null) {
+                energyDetector.reset();
+            }
+        }
+        
+        void close() {
+            if (sileroStream != null) {
+                sileroStream.close();
+            }
         }
     }
 }
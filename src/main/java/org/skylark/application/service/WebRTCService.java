@@ -2,10 +2,12 @@ package org.skylark.application.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.skylark.common.audio.PcmRingBuffer;
 import org.skylark.infrastructure.adapter.webrtc.AudioProcessor;
 import org.skylark.infrastructure.adapter.webrtc.KurentoClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.strategy.WebRTCChannelStrategy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,6 +37,12 @@ public class WebRTCService {
     
     private final ConcurrentHashMap<String, AudioProcessor> audioProcessors = new ConcurrentHashMap<>();
     
+    @Value("${audio.buffer.max-utterance-ms:30000}")
+    private int maxUtteranceMs = PcmRingBuffer.DEFAULT_MAX_UTTERANCE_MS;
+    
+    @Value("${audio.buffer.pre-roll-ms:300}")
+    private int preRollMs = PcmRingBuffer.DEFAULT_PRE_ROLL_MS;
+    
     @Autowired
     public WebRTCService(
         KurentoClientAdapter kurentoClient,
@@ -59,12 +67,33 @@ public class WebRTCService {
      * @return Session ID
      */
     public String createSession(String userId) {
+        return createSession(userId, null, null);
+    }
+    
+    /**
+     * Creates a new WebRTC session and chooses its speech recognition model
+     * 创建新的 WebRTC 会话并按语言/领域选择识别模型
+     * 
+     * <p>The model is selected under the session ID the strategy returns, which is the ID
+     * its audio is processed under.</p>
+     * 
+     * @param userId   User identifier
+     * @param language Speech recognition language (e.g. "zh", "en"), may be null
+     * @param domain   Speech recognition domain (e.g. "medical"), may be null
+     * @return Session ID
+     */
+    public String createSession(String userId, String language, String domain) {
         try {
             String sessionId = channelStrategy.createSession(userId);
             logger.info("Session created via {} strategy: {}", channelStrategy.getStrategyName(), sessionId);
             
+            if (language != null || domain != null) {
+                asrService.selectModel(sessionId, language, domain);
+            }
+            
             // Create audio processor for VAD/ASR integration
-            AudioProcessor audioProcessor = new AudioProcessor(vadService, asrService, sessionId);
+            AudioProcessor audioProcessor = new AudioProcessor(
+                vadService, asrService, sessionId, maxUtteranceMs, preRollMs);
             audioProcessors.put(sessionId, audioProcessor);
             
             return sessionId;
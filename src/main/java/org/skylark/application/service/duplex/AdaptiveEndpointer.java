@@ -0,0 +1,203 @@
+package org.skylark.application.service.duplex;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Adaptive end-of-turn detector
+ * 自适应话轮结束检测器
+ *
+ * <p>Decides when the user has finished a turn, instead of always waiting a fixed silence.
+ * The silence timeout is derived from two signals:
+ * <ol>
+ *   <li>Speaking pace: pauses inside the turn (silences after which speech resumed) are
+ *       learned per session; the base timeout is a multiple of their running average, so
+ *       fast speakers are answered sooner and slow speakers are not cut off</li>
+ *   <li>The running partial transcript: terminal punctuation or a question particle
+ *       shortens the timeout, a trailing conjunction, article or comma lengthens it</li>
+ * </ol>
+ * The result is clamped to [{@code minTimeoutMs}, {@code maxTimeoutMs}]. One instance per
+ * session; the learned pace survives {@link #resetTurn()}.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class AdaptiveEndpointer {
+
+    public static final int DEFAULT_BASE_TIMEOUT_MS = 700;
+    public static final int DEFAULT_MIN_TIMEOUT_MS = 250;
+    public static final int DEFAULT_MAX_TIMEOUT_MS = 1400;
+
+    /** Window probability above which a frame counts as voiced */
+    private static final float SPEECH_PROBABILITY = 0.5f;
+    /** Shorter pauses are VAD jitter, not pace */
+    private static final int MIN_PAUSE_MS = 80;
+    private static final double PACE_ALPHA = 0.2;
+    /** Timeout relative to the average in-turn pause */
+    private static final double PACE_MULTIPLIER = 2.0;
+    private static final double COMPLETE_FACTOR = 0.5;
+    private static final double INCOMPLETE_FACTOR = 1.6;
+
+    private static final String TERMINAL_PUNCTUATION = "。！？!?.…";
+    private static final String CONTINUATION_PUNCTUATION = ",，、:：;；-—";
+    private static final Set<String> QUESTION_PARTICLES = Set.of("吗", "呢", "吧", "么");
+    private static final Set<String> CONTINUATION_WORDS = Set.of(
+            "and", "but", "or", "because", "so", "the", "a", "an", "to", "of", "with", "if", "that",
+            "然后", "但是", "因为", "所以", "还有", "而且", "就是", "那个", "如果", "的", "和", "跟", "或者");
+
+    private final int minTimeoutMs;
+    private final int maxTimeoutMs;
+
+    /** Average in-turn pause; initialized so the pace timeout equals the base timeout */
+    private double pauseAverageMs;
+    private boolean inSpeech;
+    private long silenceMs;
+    private String transcript;
+
+    public AdaptiveEndpointer() {
+        this(DEFAULT_BASE_TIMEOUT_MS, DEFAULT_MIN_TIMEOUT_MS, DEFAULT_MAX_TIMEOUT_MS);
+    }
+
+    /**
+     * Creates an endpointer
+     * 创建话轮结束检测器
+     *
+     * @param baseTimeoutMs silence timeout before any pace is learned
+     * @param minTimeoutMs  shortest timeout
+     * @param maxTimeoutMs  longest timeout
+     */
+    public AdaptiveEndpointer(int baseTimeoutMs, int minTimeoutMs, int maxTimeoutMs) {
+        if (minTimeoutMs <= 0 || minTimeoutMs > baseTimeoutMs || baseTimeoutMs > maxTimeoutMs) {
+            throw new IllegalArgumentException("Require 0 < min <= base <= max: min=" + minTimeoutMs
+                    + ", base=" + baseTimeoutMs + ", max=" + maxTimeoutMs);
+        }
+        this.minTimeoutMs = minTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.pauseAverageMs = baseTimeoutMs / PACE_MULTIPLIER;
+    }
+
+    /**
+     * Feeds the VAD decision for one frame
+     * 输入一帧的VAD结果
+     *
+     * @param vadResult cascade result for the frame; only frames classified as speech with a
+     *                  window probability above 0.5 count as voiced, so the VAD's own
+     *                  hangover does not add to the timeout
+     * @param frameMs   frame duration
+     * @return true when the turn has ended (the caller emits {@link VADEvent#SPEECH_END})
+     */
+    public boolean onFrame(VADResult vadResult, int frameMs) {
+        return onFrame(vadResult.isSpeech() && vadResult.getProbability() >= SPEECH_PROBABILITY, frameMs);
+    }
+
+    /**
+     * Feeds one frame
+     *
+     * @param voiced  whether the frame contains speech
+     * @param frameMs frame duration
+     * @return true when the turn has ended; the endpointer is then ready for the next turn
+     */
+    public synchronized boolean onFrame(boolean voiced, int frameMs) {
+        if (voiced) {
+            if (inSpeech && silenceMs >= MIN_PAUSE_MS) {
+                pauseAverageMs += PACE_ALPHA * (silenceMs - pauseAverageMs);
+            }
+            inSpeech = true;
+            silenceMs = 0;
+            return false;
+        }
+        if (!inSpeech) {
+            return false;
+        }
+        silenceMs += frameMs;
+        if (silenceMs >= getTimeoutMs()) {
+            resetTurn();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Updates the running transcript of the current turn
+     * 更新当前话轮的实时识别文本
+     */
+    public synchronized void onPartialTranscript(String text) {
+        this.transcript = text;
+    }
+
+    /**
+     * Silence that currently ends the turn
+     * 当前判定话轮结束所需的静音时长
+     */
+    public synchronized int getTimeoutMs() {
+        double pace = clamp(pauseAverageMs * PACE_MULTIPLIER);
+        return (int) clamp(pace * completenessFactor(transcript));
+    }
+
+    /**
+     * Starts a new turn, keeping the learned pace
+     * 开始新话轮（保留已学习的语速）
+     */
+    public synchronized void resetTurn() {
+        inSpeech = false;
+        silenceMs = 0;
+        transcript = null;
+    }
+
+    /** Silence since the last voiced frame of the current turn (0 while voiced or before speech) */
+    public synchronized long getSilenceMs() {
+        return inSpeech ? silenceMs : 0;
+    }
+
+    /** Average in-turn pause learned so far */
+    public synchronized double getPauseAverageMs() {
+        return pauseAverageMs;
+    }
+
+    /**
+     * Timeout multiplier for a partial transcript: below 1 when it reads as finished,
+     * above 1 when it stops mid-clause
+     */
+    static double completenessFactor(String text) {
+        if (text == null) {
+            return 1.0;
+        }
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return 1.0;
+        }
+        char last = trimmed.charAt(trimmed.length() - 1);
+        if (TERMINAL_PUNCTUATION.indexOf(last) >= 0) {
+            return COMPLETE_FACTOR;
+        }
+        if (CONTINUATION_PUNCTUATION.indexOf(last) >= 0) {
+            return INCOMPLETE_FACTOR;
+        }
+        if (QUESTION_PARTICLES.contains(String.valueOf(last))) {
+            return COMPLETE_FACTOR;
+        }
+        for (String word : CONTINUATION_WORDS) {
+            if (endsWithWord(trimmed, word)) {
+                return INCOMPLETE_FACTOR;
+            }
+        }
+        return 1.0;
+    }
+
+    /** Latin words must be whole words; CJK words match as a suffix */
+    private static boolean endsWithWord(String text, String word) {
+        if (word.charAt(0) >= 0x80) {
+            return text.endsWith(word);
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (!lower.endsWith(word)) {
+            return false;
+        }
+        int before = lower.length() - word.length() - 1;
+        return before < 0 || !Character.isLetterOrDigit(lower.charAt(before));
+    }
+
+    private double clamp(double value) {
+        return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, value));
+    }
+}
@@ -1,10 +1,11 @@
 package org.skylark.application.service.duplex;
 
 import org.skylark.application.service.OrchestrationService.ResponseCallback;
+import org.skylark.common.audio.AudioStreamFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Base64;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -18,6 +19,10 @@ import java.util.concurrent.ConcurrentHashMap;
  *   <li>Uses streaming components instead of batch components</li>
  *   <li>Uplink and downlink channels work in parallel</li>
  *   <li>Supports barge-in interruption</li>
+ *   <li>Ends the user's turn with a per-session {@link AdaptiveEndpointer}</li>
+ *   <li>Optionally starts the LLM speculatively while the user pauses, once the partial
+ *       transcript has been stable for {@link #setSpeculativeStartMs N ms}; the final
+ *       transcript confirms or discards it</li>
  * </ol></p>
  *
  * @author Skylark Team
@@ -27,6 +32,9 @@ public class DuplexOrchestrationService {
 
     private static final Logger logger = LoggerFactory.getLogger(DuplexOrchestrationService.class);
 
+    /** Uplink audio format: 16kHz, 16-bit, mono */
+    private static final int PIPELINE_SAMPLE_RATE = 16000;
+
     private final TripleVADEngine vadEngine;
     private final StreamingASRService streamingASR;
     private final StreamingLLMService streamingLLM;
@@ -41,9 +49,18 @@ public class DuplexOrchestrationService {
     /** Per-session response callbacks */
     private final Map<String, ResponseCallback> sessionCallbacks = new ConcurrentHashMap<>();
 
+    /** Per-session end-of-turn detectors */
+    private final Map<String, AdaptiveEndpointer> endpointers = new ConcurrentHashMap<>();
+
     /** Per-session playback reference audio for AEC */
     private final Map<String, float[]> playbackReferences = new ConcurrentHashMap<>();
 
+    /** Per-session partial transcript stability, for speculative LLM start */
+    private final Map<String, PartialTracker> partialTrackers = new ConcurrentHashMap<>();
+
+    /** Partial stability that triggers a speculative LLM start; 0 = off */
+    private volatile int speculativeStartMs;
+
     public DuplexOrchestrationService(
             TripleVADEngine vadEngine,
             StreamingASRService streamingASR,
@@ -62,6 +79,20 @@ public class DuplexOrchestrationService {
         logger.info("DuplexOrchestrationService initialized");
     }
 
+    /**
+     * Enable speculative LLM start
+     * 启用LLM推测启动
+     *
+     * @param stableMs how long the partial transcript must stay unchanged, with the user
+     *                 pausing, before the LLM is started on it; 0 disables speculation
+     */
+    public void setSpeculativeStartMs(int stableMs) {
+        if (stableMs < 0) {
+            throw new IllegalArgumentException("stableMs must not be negative: " + stableMs);
+        }
+        this.speculativeStartMs = stableMs;
+    }
+
     /**
      * Process continuous audio frame — full-duplex core entry point
      * 处理持续的音频帧 —— 全双工核心入口
@@ -84,11 +115,13 @@ public class DuplexOrchestrationService {
             float[] refAudio = playbackReferences.get(sessionId);
             float[] cleanAudio = aecProcessor.process(micAudio, refAudio);
 
-            // Step 2: VAD detection (always runs, never paused by state)
-            VADResult vadResult = vadEngine.detect(cleanAudio);
+            // Step 2: VAD cascade (always runs, never paused by state; barge-in is
+            // confirmed by the precise tier while the system is speaking)
+            DuplexSessionState previousState = sm.getState();
+            VADResult vadResult = vadEngine.detect(sessionId, cleanAudio,
+                    previousState == DuplexSessionState.SPEAKING);
 
             // Step 3: Feed VAD result to state machine
-            DuplexSessionState previousState = sm.getState();
             if (vadResult.isSpeech()) {
                 sm.onVADEvent(VADEvent.SPEECH_START);
             }
@@ -109,6 +142,20 @@ public class DuplexOrchestrationService {
                     startStreamingASR(sessionId, callback);
                 }
                 streamingASR.feedAudioChunk(sessionId, audioFrame);
+
+                // Step 5: Adaptive endpointing emits SPEECH_END
+                AdaptiveEndpointer endpointer = endpointers.computeIfAbsent(sessionId, k -> new AdaptiveEndpointer());
+                if (previousState != currentState) {
+                    endpointer.resetTurn();
+                    partialTrackers.remove(sessionId);
+                }
+                int frameMs = cleanAudio.length * 1000 / PIPELINE_SAMPLE_RATE;
+                if (endpointer.onFrame(vadResult, frameMs)) {
+                    logger.debug("End of turn for session {} after {} ms silence", sessionId, endpointer.getTimeoutMs());
+                    onSpeechEnd(sessionId);
+                } else if (currentState == DuplexSessionState.LISTENING) {
+                    maybeSpeculate(sessionId, endpointer, frameMs);
+                }
             }
 
         } catch (Exception e) {
@@ -144,6 +191,7 @@ public class DuplexOrchestrationService {
                 }
             } else {
                 // No speech detected, return to IDLE
+                streamingLLM.discardSpeculation(sessionId);
                 sm.onProcessingError();
             }
         }
@@ -196,10 +244,12 @@ public class DuplexOrchestrationService {
         }
         sessionCallbacks.remove(sessionId);
         playbackReferences.remove(sessionId);
-        streamingASR.cancelSession(sessionId);
+        endpointers.remove(sessionId);
+        partialTrackers.remove(sessionId);
+        streamingASR.closeSession(sessionId);
         streamingLLM.cancelStream(sessionId);
         streamingTTS.completeSession(sessionId);
-        vadEngine.resetSession(sessionId);
+        vadEngine.removeSession(sessionId);
         logger.info("Cleaned up duplex session: {}", sessionId);
     }
 
@@ -252,6 +302,11 @@ public class DuplexOrchestrationService {
         streamingASR.startStreaming(sessionId, new StreamingASRService.ASRResultCallback() {
             @Override
             public void onPartialResult(String text) {
+                AdaptiveEndpointer endpointer = endpointers.get(sessionId);
+                if (endpointer != null) {
+                    endpointer.onPartialTranscript(text);
+                }
+                partialTrackers.computeIfAbsent(sessionId, k -> new PartialTracker()).update(text);
                 callback.send(sessionId, "asr_partial", Map.of("text", text));
             }
 
@@ -267,6 +322,22 @@ public class DuplexOrchestrationService {
         });
     }
 
+    /**
+     * Starts the LLM early when the user pauses on a partial that has stopped changing
+     */
+    private void maybeSpeculate(String sessionId, AdaptiveEndpointer endpointer, int frameMs) {
+        int stableMs = speculativeStartMs;
+        PartialTracker tracker = partialTrackers.get(sessionId);
+        if (stableMs <= 0 || tracker == null) {
+            return;
+        }
+        String text = tracker.advance(frameMs, stableMs, endpointer.getSilenceMs() > 0);
+        if (text != null) {
+            logger.debug("Partial stable for {} ms in a pause, speculating for session {}: {}", stableMs, sessionId, text);
+            streamingLLM.speculate(sessionId, text);
+        }
+    }
+
     private void startStreamingLLM(String sessionId, String text, ResponseCallback callback) {
         DuplexSessionStateMachine sm = sessions.get(sessionId);
         if (sm == null) return;
@@ -295,8 +366,8 @@ public class DuplexOrchestrationService {
                             new StreamingTTSService.AudioChunkCallback() {
                                 @Override
                                 public void onAudioChunk(byte[] audioChunk) {
-                                    String audioBase64 = Base64.getEncoder().encodeToString(audioChunk);
-                                    callback.send(sessionId, "tts_audio", Map.of("audio", audioBase64));
+                                    callback.sendAudio(sessionId, ByteBuffer.wrap(audioChunk),
+                                            AudioStreamFormat.WAV_16K_MONO);
                                 }
 
                                 @Override
@@ -330,4 +401,32 @@ public class DuplexOrchestrationService {
 
         sm.setCurrentLLMTask(future);
     }
+
+    /**
+     * How long the current partial transcript has been unchanged, counted in audio time
+     */
+    private static final class PartialTracker {
+        private String text = "";
+        private long stableMs;
+        private String speculated;
+
+        synchronized void update(String partial) {
+            if (!partial.equals(text)) {
+                text = partial;
+                stableMs = 0;
+            }
+        }
+
+        /**
+         * @return the text to speculate on, once per distinct partial, or null
+         */
+        synchronized String advance(int frameMs, int thresholdMs, boolean pausing) {
+            stableMs += frameMs;
+            if (!pausing || stableMs < thresholdMs || text.isBlank() || text.equals(speculated)) {
+                return null;
+            }
+            speculated = text;
+            return text;
+        }
+    }
 }
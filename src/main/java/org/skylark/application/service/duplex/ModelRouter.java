@@ -125,7 +125,7 @@ public class ModelRouter {
      * Check if the context requires tool calling.
      * 检查上下文是否需要工具调用
      */
-    boolean requiresToolCalling(String context) {
+    public boolean requiresToolCalling(String context) {
         if (context == null || context.isEmpty()) {
             return false;
         }
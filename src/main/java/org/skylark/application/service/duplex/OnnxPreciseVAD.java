@@ -0,0 +1,82 @@
+package org.skylark.application.service.duplex;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.skylark.application.service.OnnxSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.FloatBuffer;
+import java.util.Map;
+
+/**
+ * ONNX high-precision VAD tier
+ * 基于ONNX的高精度VAD层
+ *
+ * <p>Runs a stateless frame classifier exported to ONNX. The model contract is a single
+ * float input of shape {@code [1, samples]} (waveform normalized to [-1, 1]) and a first
+ * output holding one or more speech probabilities; the frame's probability is the
+ * largest of them. Models that need features (fbank) should be exported with the
+ * feature extraction inside the graph.</p>
+ *
+ * <p>The session is created through {@link OnnxSessionFactory} so it shares the thread
+ * and optimization settings of the other ONNX models. {@link OrtSession#run} is
+ * thread-safe, so one instance serves all sessions.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class OnnxPreciseVAD implements PreciseVAD {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnnxPreciseVAD.class);
+
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final String inputName;
+
+    /**
+     * Loads the model.
+     * 加载模型
+     *
+     * @param modelPath ONNX model file
+     * @param settings  session settings
+     * @throws OrtException if the model cannot be loaded
+     */
+    public OnnxPreciseVAD(String modelPath, OnnxSessionFactory.Settings settings) throws OrtException {
+        this.env = OrtEnvironment.getEnvironment();
+        this.session = OnnxSessionFactory.create(env, modelPath, settings);
+        if (session.getInputNames().size() != 1) {
+            session.close();
+            throw new IllegalArgumentException(
+                    "Precise VAD model must have exactly one input: " + session.getInputNames());
+        }
+        this.inputName = session.getInputNames().iterator().next();
+        logger.info("Precise VAD model loaded: {} (input={})", modelPath, inputName);
+    }
+
+    @Override
+    public float speechProbability(String sessionId, float[] samples) throws OrtException {
+        try (OnnxTensor input = OnnxTensor.createTensor(env, FloatBuffer.wrap(samples), new long[]{1, samples.length});
+             OrtSession.Result result = session.run(Map.of(inputName, input))) {
+            OnnxValue output = result.get(0);
+            FloatBuffer probabilities = ((OnnxTensor) output).getFloatBuffer();
+            float max = 0f;
+            while (probabilities.hasRemaining()) {
+                max = Math.max(max, probabilities.get());
+            }
+            return max;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close();
+        } catch (OrtException e) {
+            logger.warn("Failed to close precise VAD session", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.skylark.application.service.duplex;
+
+/**
+ * High-precision VAD tier
+ * 高精度VAD层
+ *
+ * <p>Third tier of {@link TripleVADEngine}. It is only asked to confirm frames the
+ * cheaper tiers already classified as speech while the system is speaking, so a
+ * relatively expensive model (FireRedVAD class) costs little on average but keeps TTS
+ * echo residuals and background talk from triggering barge-in.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public interface PreciseVAD extends AutoCloseable {
+
+    /**
+     * Scores one frame.
+     * 计算单帧语音概率
+     *
+     * @param sessionId session identifier, for models that keep state between frames
+     * @param samples   audio samples normalized to [-1, 1]
+     * @return speech probability [0, 1]
+     * @throws Exception if inference fails
+     */
+    float speechProbability(String sessionId, float[] samples) throws Exception;
+
+    /**
+     * Drops any state kept for a session.
+     * 清除会话状态
+     */
+    default void reset(String sessionId) {
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -1,19 +1,33 @@
 package org.skylark.application.service.duplex;
 
 import org.skylark.application.service.ASRService;
+import org.skylark.common.audio.PcmRingBuffer;
+import org.skylark.infrastructure.adapter.asr.DashScopeConnectionPool;
+import org.skylark.infrastructure.adapter.asr.DashScopeRealtimeClient;
+import org.skylark.infrastructure.adapter.asr.FunASRClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Streaming ASR Service — replaces batch recognition with streaming
  * 流式ASR服务 —— 从批量识别升级为流式识别
  *
- * <p>Phase 1: Wraps existing ASRService with streaming interface.
- * Phase 2: Connects to FunASR Server via WebSocket for real-time streaming.</p>
+ * <p>Phase 1: Feeds each chunk to the session's incremental {@link ASRService.Stream} as it
+ * arrives, reporting partial text as it changes; finalizing only flushes the tail.
+ * Phase 2: Connects to FunASR Server via WebSocket for real-time streaming
+ * ({@link #StreamingASRService(ASRService, int, String)}): each session keeps one
+ * {@link FunASRClient} connection across utterances, online (first-pass) text is reported
+ * as partial results and the offline (second-pass) text is the final result. Alternatively
+ * DashScope Paraformer real-time recognition
+ * ({@link #StreamingASRService(ASRService, int, DashScopeConnectionPool, String)}) runs each
+ * utterance as a task on a pooled, pre-opened connection.</p>
  *
  * <p>Integration architecture:
  * <pre>
@@ -28,7 +42,12 @@ public class StreamingASRService {
 
     private static final Logger logger = LoggerFactory.getLogger(StreamingASRService.class);
 
+    private static final int SAMPLE_RATE = 16000;
+
     private final ASRService asrService;
+    private final Function<String, ASRService.Stream> streamFactory;
+    private final long maxUtteranceBytes;
+    private final Map<String, RemoteStream> remoteStreams = new ConcurrentHashMap<>();
     private final Map<String, StreamingASRSession> sessions = new ConcurrentHashMap<>();
 
     /**
@@ -44,8 +63,62 @@ public class StreamingASRService {
     }
 
     public StreamingASRService(ASRService asrService) {
+        this(asrService, PcmRingBuffer.DEFAULT_MAX_UTTERANCE_MS);
+    }
+
+    /**
+     * Create the service with a per-session audio cap
+     * 创建带单会话音频上限的服务
+     *
+     * @param asrService     ASR backend
+     * @param maxUtteranceMs per-utterance audio cap; audio beyond it is dropped
+     */
+    public StreamingASRService(ASRService asrService, int maxUtteranceMs) {
+        this.asrService = asrService;
+        this.streamFactory = asrService::open;
+        this.maxUtteranceBytes = (long) maxUtteranceMs * SAMPLE_RATE * 2 / 1000;
+        logger.info("StreamingASRService initialized (Phase 1: incremental Vosk)");
+    }
+
+    /**
+     * Create the service backed by a FunASR server
+     * 创建基于 FunASR 服务器的流式识别服务
+     *
+     * @param asrService     local ASR service (its per-session streams are still released on close)
+     * @param maxUtteranceMs per-utterance audio cap; audio beyond it is dropped
+     * @param funAsrUrl      FunASR server WebSocket URL, e.g. {@code ws://localhost:10095}
+     */
+    public StreamingASRService(ASRService asrService, int maxUtteranceMs, String funAsrUrl) {
+        if (funAsrUrl == null || funAsrUrl.isBlank()) {
+            throw new IllegalArgumentException("FunASR server URL cannot be null or empty");
+        }
         this.asrService = asrService;
-        logger.info("StreamingASRService initialized (Phase 1: batch-mode wrapper)");
+        this.streamFactory = sessionId -> remoteStreams.computeIfAbsent(sessionId,
+            id -> new FunASRStream(id, asrService.getLanguage(id), new FunASRClient(funAsrUrl)));
+        this.maxUtteranceBytes = (long) maxUtteranceMs * SAMPLE_RATE * 2 / 1000;
+        logger.info("StreamingASRService initialized (Phase 2: FunASR 2pass at {})", funAsrUrl);
+    }
+
+    /**
+     * Create the service backed by DashScope real-time recognition
+     * 创建基于 DashScope 实时语音识别的流式识别服务
+     *
+     * @param asrService     local ASR service (its per-session streams are still released on close)
+     * @param maxUtteranceMs per-utterance audio cap; audio beyond it is dropped
+     * @param pool           connection pool shared by all sessions (owned by the caller)
+     * @param model          real-time model, e.g. {@code paraformer-realtime-v2}
+     */
+    public StreamingASRService(ASRService asrService, int maxUtteranceMs, DashScopeConnectionPool pool,
+                               String model) {
+        if (pool == null) {
+            throw new IllegalArgumentException("DashScope connection pool cannot be null");
+        }
+        this.asrService = asrService;
+        this.streamFactory = sessionId -> remoteStreams.computeIfAbsent(sessionId,
+            id -> new DashScopeStream(id, asrService.getLanguage(id), new DashScopeRealtimeClient(pool, model,
+                DashScopeRealtimeClient.DEFAULT_MAX_PENDING_CHUNKS, DashScopeRealtimeClient.DEFAULT_FINAL_TIMEOUT_MS)));
+        this.maxUtteranceBytes = (long) maxUtteranceMs * SAMPLE_RATE * 2 / 1000;
+        logger.info("StreamingASRService initialized (Phase 2: DashScope {} at {})", model, pool.getUrl());
     }
 
     /**
@@ -56,7 +129,10 @@ public class StreamingASRService {
      * @param callback result callback
      */
     public void startStreaming(String sessionId, ASRResultCallback callback) {
-        StreamingASRSession session = new StreamingASRSession(sessionId, callback);
+        ASRService.Stream stream = streamFactory.apply(sessionId);
+        // A previous utterance may have been abandoned without finalize or cancel
+        stream.reset();
+        StreamingASRSession session = new StreamingASRSession(sessionId, callback, stream, maxUtteranceBytes);
         sessions.put(sessionId, session);
         logger.info("Started streaming ASR session: {}", sessionId);
     }
@@ -90,14 +166,12 @@ public class StreamingASRService {
         }
 
         try {
-            byte[] allAudio = session.getAccumulatedAudio();
-            if (allAudio.length == 0) {
+            if (session.getStream().getUtteranceBytes() == 0) {
                 logger.info("No audio data accumulated for session: {}", sessionId);
                 return null;
             }
 
-            // Phase 1: Use existing batch ASR
-            Map<String, String> result = asrService.recognize(allAudio);
+            Map<String, String> result = session.getStream().finish();
             String text = result.get("text");
 
             if (text != null && !text.trim().isEmpty()) {
@@ -123,10 +197,26 @@ public class StreamingASRService {
         StreamingASRSession session = sessions.remove(sessionId);
         if (session != null) {
             session.cancel();
+            session.getStream().reset();
             logger.info("Cancelled streaming ASR session: {}", sessionId);
         }
     }
 
+    /**
+     * Release the session's recognizer when the conversation ends
+     * 会话结束时释放识别器
+     *
+     * @param sessionId session identifier
+     */
+    public void closeSession(String sessionId) {
+        cancelSession(sessionId);
+        RemoteStream remote = remoteStreams.remove(sessionId);
+        if (remote != null) {
+            remote.close();
+        }
+        asrService.close(sessionId);
+    }
+
     /**
      * Check if a session exists
      */
@@ -140,22 +230,37 @@ public class StreamingASRService {
     static class StreamingASRSession {
         private final String sessionId;
         private final ASRResultCallback callback;
-        private final ByteArrayOutputStream audioBuffer = new ByteArrayOutputStream();
+        private final ASRService.Stream stream;
+        private final long maxBytes;
+        private String lastPartial = "";
         private volatile boolean cancelled = false;
 
-        StreamingASRSession(String sessionId, ASRResultCallback callback) {
+        StreamingASRSession(String sessionId, ASRResultCallback callback, ASRService.Stream stream, long maxBytes) {
             this.sessionId = sessionId;
             this.callback = callback;
+            this.stream = stream;
+            this.maxBytes = maxBytes;
         }
 
+        /** Decodes the chunk now and reports the partial text if it changed */
         void addAudioChunk(byte[] chunk) {
-            if (!cancelled) {
-                audioBuffer.write(chunk, 0, chunk.length);
+            if (cancelled) {
+                return;
+            }
+            long room = maxBytes - stream.getUtteranceBytes();
+            if (room <= 0) {
+                return;
+            }
+            int length = (int) Math.min(chunk.length, room & ~1L);
+            if (length < chunk.length) {
+                logger.warn("ASR session {} exceeded max utterance length, dropping audio", sessionId);
+            }
+            stream.accept(ByteBuffer.wrap(chunk, 0, length));
+            String partial = stream.partial();
+            if (!partial.isEmpty() && !partial.equals(lastPartial)) {
+                lastPartial = partial;
+                callback.onPartialResult(partial);
             }
-        }
-
-        byte[] getAccumulatedAudio() {
-            return audioBuffer.toByteArray();
         }
 
         void cancel() {
@@ -170,8 +275,209 @@ public class StreamingASRService {
             return callback;
         }
 
+        ASRService.Stream getStream() {
+            return stream;
+        }
+
         String getSessionId() {
             return sessionId;
         }
     }
+
+    /**
+     * A remote recognizer seen as an {@link ASRService.Stream}: an utterance is started on
+     * the first chunk, partials are the text the server pushed last, and finishing waits
+     * (bounded by the client's final timeout) for the server's final text.
+     */
+    abstract static class RemoteStream implements ASRService.Stream {
+        protected final String sessionId;
+        /** Reported with each result: the language chosen for the session */
+        private final String language;
+        private volatile String partialText = "";
+        private volatile long utteranceBytes;
+        private boolean started;
+
+        RemoteStream(String sessionId, String language) {
+            this.sessionId = sessionId;
+            this.language = language;
+        }
+
+        /** Start an utterance on the server */
+        abstract void begin();
+
+        /** Send one chunk of the utterance */
+        abstract void send(byte[] chunk);
+
+        /** End the utterance; completes with its final text */
+        abstract CompletableFuture<String> end();
+
+        /** Abandon the utterance */
+        abstract void abandon();
+
+        /** Release the connection when the conversation ends */
+        abstract void close();
+
+        void setPartial(String text) {
+            partialText = text;
+        }
+
+        @Override
+        public synchronized void accept(ByteBuffer pcm) {
+            if (!pcm.hasRemaining()) {
+                return;
+            }
+            if (!started) {
+                started = true;
+                begin();
+            }
+            byte[] chunk = new byte[pcm.remaining()];
+            pcm.duplicate().get(chunk);
+            utteranceBytes += chunk.length;
+            send(chunk);
+        }
+
+        @Override
+        public String partial() {
+            return partialText;
+        }
+
+        @Override
+        public synchronized Map<String, String> finish() throws Exception {
+            String text = started ? end().get() : "";
+            started = false;
+            utteranceBytes = 0;
+            partialText = "";
+            Map<String, String> result = new HashMap<>();
+            result.put("text", text);
+            result.put("language", language);
+            return result;
+        }
+
+        @Override
+        public synchronized void reset() {
+            if (started) {
+                abandon();
+            }
+            started = false;
+            utteranceBytes = 0;
+            partialText = "";
+        }
+
+        @Override
+        public long getUtteranceBytes() {
+            return utteranceBytes;
+        }
+    }
+
+    /**
+     * One session's FunASR connection: partials are the pushed online text, the final
+     * result is the offline pass.
+     */
+    static class FunASRStream extends RemoteStream {
+        private final FunASRClient client;
+
+        FunASRStream(String sessionId, String language, FunASRClient client) {
+            super(sessionId, language);
+            this.client = client;
+            client.setWavName(sessionId);
+        }
+
+        @Override
+        void begin() {
+            client.connect(new FunASRClient.ASRCallback() {
+                @Override
+                public void onPartialResult(String text, boolean isStable) {
+                    setPartial(text);
+                }
+
+                @Override
+                public void onFinalResult(String text) {
+                    setPartial(text);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    logger.warn("FunASR error for session {}: {}", sessionId, e.getMessage());
+                }
+
+                @Override
+                public void onClose() {
+                    logger.debug("FunASR connection closed for session {}", sessionId);
+                }
+            });
+        }
+
+        @Override
+        void send(byte[] chunk) {
+            client.sendAudio(chunk);
+        }
+
+        @Override
+        CompletableFuture<String> end() {
+            return client.endStream();
+        }
+
+        @Override
+        void abandon() {
+            client.cancel();
+        }
+
+        @Override
+        void close() {
+            client.disconnect();
+        }
+    }
+
+    /**
+     * One session's DashScope real-time recognition: each utterance is a task on a pooled
+     * connection, partials are the sentences so far, the final result is all sentences.
+     */
+    static class DashScopeStream extends RemoteStream {
+        private final DashScopeRealtimeClient client;
+
+        DashScopeStream(String sessionId, String language, DashScopeRealtimeClient client) {
+            super(sessionId, language);
+            this.client = client;
+        }
+
+        @Override
+        void begin() {
+            client.start(new DashScopeRealtimeClient.ASRCallback() {
+                @Override
+                public void onPartialResult(String text, boolean isStable) {
+                    setPartial(text);
+                }
+
+                @Override
+                public void onFinalResult(String text) {
+                    setPartial(text);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    logger.warn("DashScope ASR error for session {}: {}", sessionId, e.getMessage());
+                }
+            });
+        }
+
+        @Override
+        void send(byte[] chunk) {
+            client.sendAudio(chunk);
+        }
+
+        @Override
+        CompletableFuture<String> end() {
+            return client.endStream();
+        }
+
+        @Override
+        void abandon() {
+            client.cancel();
+        }
+
+        @Override
+        void close() {
+            client.cancel();
+        }
+    }
 }
@@ -4,9 +4,13 @@ import org.skylark.application.service.AgentService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Streaming LLM Service — enhances AgentService with streaming output
@@ -18,6 +22,16 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>Sentence splitting strategy: accumulate tokens until sentence boundary
  * (period/question mark/exclamation mark) then send complete sentence to TTS.</p>
  *
+ * <p>Speculative start: {@link #speculate} runs the turn early on a presumed transcript
+ * (a stable ASR partial during a pause), on a fork of the agent's memory, with no output
+ * delivered. The next {@link #chatStream} for the session consumes it: if the final text
+ * matches after {@link #normalize normalization} the speculative response is used (and
+ * committed to the history), otherwise it is dropped and the turn runs normally. A dropped
+ * speculation still running is stopped. The speculative turn runs without tools, so when
+ * the agent has tools, text that {@link ModelRouter#requiresToolCalling looks like a tool
+ * request} is not speculated on. {@link #getSpeculationMetrics()} reports hits, misses and the estimated tokens
+ * wasted.</p>
+ *
  * @author Skylark Team
  * @version 1.0.0
  */
@@ -29,7 +43,16 @@ public class StreamingLLMService {
     private static final String SENTENCE_BOUNDARIES = "。！？.!?\n";
 
     private final AgentService agentService;
+    private final ModelRouter modelRouter;
     private final Map<String, CompletableFuture<Void>> activeTasks = new ConcurrentHashMap<>();
+    private final Map<String, SpeculativeRun> speculations = new ConcurrentHashMap<>();
+
+    private final AtomicLong speculationsStarted = new AtomicLong();
+    private final AtomicLong speculationHits = new AtomicLong();
+    private final AtomicLong speculationMisses = new AtomicLong();
+    private final AtomicLong speculationsDiscarded = new AtomicLong();
+    private final AtomicLong speculationsSkipped = new AtomicLong();
+    private final AtomicLong wastedTokens = new AtomicLong();
 
     /**
      * Token stream callback interface
@@ -47,7 +70,16 @@ public class StreamingLLMService {
     }
 
     public StreamingLLMService(AgentService agentService) {
+        this(agentService, new ModelRouter());
+    }
+
+    /**
+     * @param agentService agent that runs the turns
+     * @param modelRouter  decides which presumed transcripts need tools (not speculated on)
+     */
+    public StreamingLLMService(AgentService agentService, ModelRouter modelRouter) {
         this.agentService = agentService;
+        this.modelRouter = modelRouter;
         logger.info("StreamingLLMService initialized (Phase 1: sentence-splitting wrapper)");
     }
 
@@ -64,39 +96,145 @@ public class StreamingLLMService {
      * @return cancellable future
      */
     public CompletableFuture<Void> chatStream(String sessionId, String text, TokenStreamCallback callback) {
-        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-            try {
-                logger.info("Starting streaming chat for session {}: {}", sessionId, text);
+        SpeculativeRun run = speculations.remove(sessionId);
+        CompletableFuture<Void> future;
+        if (run != null && run.normalized.equals(normalize(text))) {
+            speculationHits.incrementAndGet();
+            logger.info("Speculative LLM hit for session {}: {}", sessionId, text);
+            future = run.task.handleAsync((speculation, error) -> {
+                String fullResponse = null;
+                if (speculation != null && agentService.commitSpeculation(speculation)) {
+                    fullResponse = speculation.getResponse();
+                } else {
+                    logger.warn("Speculative turn for session {} unusable, re-running", sessionId);
+                }
+                respond(sessionId, text, fullResponse, callback);
+                return null;
+            });
+        } else {
+            if (run != null) {
+                speculationMisses.incrementAndGet();
+                logger.info("Speculative LLM miss for session {}: '{}' vs final '{}'", sessionId, run.text, text);
+                discard(run);
+            }
+            future = CompletableFuture.runAsync(() -> respond(sessionId, text, null, callback));
+        }
 
-                // Phase 1: Get full response from existing AgentService
-                String fullResponse = agentService.chat(sessionId, text);
+        activeTasks.put(sessionId, future);
+        return future;
+    }
 
-                if (Thread.currentThread().isInterrupted()) {
-                    logger.info("Streaming chat cancelled for session {}", sessionId);
-                    return;
-                }
+    /**
+     * Runs the turn (unless a response is given) and delivers it
+     */
+    private void respond(String sessionId, String text, String response, TokenStreamCallback callback) {
+        try {
+            logger.info("Starting streaming chat for session {}: {}", sessionId, text);
 
-                if (fullResponse == null || fullResponse.trim().isEmpty()) {
-                    callback.onComplete("");
-                    return;
-                }
+            // Phase 1: Get full response from existing AgentService
+            String fullResponse = response != null ? response : agentService.chat(sessionId, text);
+
+            if (Thread.currentThread().isInterrupted()) {
+                logger.info("Streaming chat cancelled for session {}", sessionId);
+                return;
+            }
 
-                // Split response into sentences and deliver via callback
-                splitAndDeliverSentences(fullResponse, callback);
+            if (fullResponse == null || fullResponse.trim().isEmpty()) {
+                callback.onComplete("");
+                return;
+            }
 
-                callback.onComplete(fullResponse);
-                logger.info("Completed streaming chat for session {}", sessionId);
+            // Split response into sentences and deliver via callback
+            splitAndDeliverSentences(fullResponse, callback);
 
-            } catch (Exception e) {
-                if (!Thread.currentThread().isInterrupted()) {
-                    logger.error("Error in streaming chat for session {}", sessionId, e);
-                    callback.onError(e);
-                }
+            callback.onComplete(fullResponse);
+            logger.info("Completed streaming chat for session {}", sessionId);
+
+        } catch (Exception e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                logger.error("Error in streaming chat for session {}", sessionId, e);
+                callback.onError(e);
             }
-        });
+        }
+    }
 
-        activeTasks.put(sessionId, future);
-        return future;
+    /**
+     * Start the turn early on a presumed transcript
+     * 基于推测的识别文本提前启动LLM
+     *
+     * <p>Nothing is delivered until a matching {@link #chatStream} call. A speculation for
+     * the same (normalized) text is kept; a different one replaces (and stops) it. Text that
+     * needs tool calling is skipped while the agent has tools, and any earlier speculation
+     * is dropped.</p>
+     *
+     * @param sessionId session identifier
+     * @param text      presumed user input (e.g. a stable ASR partial)
+     */
+    public void speculate(String sessionId, String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String normalized = normalize(text);
+        SpeculativeRun previous = speculations.get(sessionId);
+        if (previous != null && previous.normalized.equals(normalized)) {
+            return;
+        }
+        if (agentService.hasTools() && modelRouter.requiresToolCalling(text)) {
+            speculationsSkipped.incrementAndGet();
+            logger.debug("Not speculating on a tool request for session {}: {}", sessionId, text);
+            discardSpeculation(sessionId);
+            return;
+        }
+        SpeculativeRun run = new SpeculativeRun(text, normalized);
+        CompletableFuture.runAsync(() -> run.execute(() -> agentService.speculate(sessionId, text)));
+        speculationsStarted.incrementAndGet();
+        previous = speculations.put(sessionId, run);
+        if (previous != null) {
+            discard(previous);
+        }
+        logger.debug("Speculative LLM start for session {}: {}", sessionId, text);
+    }
+
+    /**
+     * Drop the session's speculation, if any (the turn ended without a transcript)
+     * 丢弃会话的推测结果
+     *
+     * @param sessionId session identifier
+     */
+    public void discardSpeculation(String sessionId) {
+        SpeculativeRun run = speculations.remove(sessionId);
+        if (run != null) {
+            discard(run);
+        }
+    }
+
+    /** Stops the run; counts what it produced if the model answered anyway */
+    private void discard(SpeculativeRun run) {
+        speculationsDiscarded.incrementAndGet();
+        run.produced.thenAccept(speculation -> wastedTokens.addAndGet(estimateTokens(speculation.getResponse())));
+        run.cancel();
+    }
+
+    /**
+     * Speculation metrics for tuning
+     * 推测启动指标
+     *
+     * @return Map with started, hits, misses (final text differed), discarded (all dropped
+     *         runs, including superseded ones), skipped (tool requests not speculated on),
+     *         hitRate (hits / started) and wastedTokens (estimated from the responses of
+     *         dropped runs that were not stopped in time)
+     */
+    public Map<String, Object> getSpeculationMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long started = speculationsStarted.get();
+        metrics.put("started", started);
+        metrics.put("hits", speculationHits.get());
+        metrics.put("misses", speculationMisses.get());
+        metrics.put("discarded", speculationsDiscarded.get());
+        metrics.put("skipped", speculationsSkipped.get());
+        metrics.put("hitRate", started > 0 ? (double) speculationHits.get() / started : 0.0);
+        metrics.put("wastedTokens", wastedTokens.get());
+        return metrics;
     }
 
     /**
@@ -106,6 +244,7 @@ public class StreamingLLMService {
      * @param sessionId session identifier
      */
     public void cancelStream(String sessionId) {
+        discardSpeculation(sessionId);
         CompletableFuture<Void> task = activeTasks.remove(sessionId);
         if (task != null && !task.isDone()) {
             task.cancel(true);
@@ -150,6 +289,35 @@ public class StreamingLLMService {
         }
     }
 
+    /**
+     * Normalize a transcript for comparison: case, whitespace and punctuation are ignored
+     * 归一化识别文本（忽略大小写、空白与标点）
+     */
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        text.toLowerCase(Locale.ROOT).codePoints()
+            .filter(Character::isLetterOrDigit)
+            .forEach(normalized::appendCodePoint);
+        return normalized.toString();
+    }
+
+    /**
+     * Rough token count: one per CJK character, one per four other letters or digits
+     */
+    static long estimateTokens(String text) {
+        long cjk = 0;
+        long other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else if (Character.isLetterOrDigit(c)) {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
     /**
      * Check if a character is a sentence boundary
      * 检查字符是否为句子边界
@@ -157,4 +325,52 @@ public class StreamingLLMService {
     static boolean isSentenceBoundary(char c) {
         return SENTENCE_BOUNDARIES.indexOf(c) >= 0;
     }
+
+    /**
+     * A speculative turn in flight; cancelling it interrupts the thread running the agent,
+     * which stops the blocked model call
+     */
+    private static final class SpeculativeRun {
+        final String text;
+        final String normalized;
+        final CompletableFuture<AgentService.Speculation> task = new CompletableFuture<>();
+        /** What the turn returned, even if the task was cancelled meanwhile */
+        final CompletableFuture<AgentService.Speculation> produced = new CompletableFuture<>();
+        /** Thread running the turn; guarded by this */
+        private Thread runner;
+
+        SpeculativeRun(String text, String normalized) {
+            this.text = text;
+            this.normalized = normalized;
+        }
+
+        void execute(Callable<AgentService.Speculation> turn) {
+            synchronized (this) {
+                if (task.isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                AgentService.Speculation speculation = turn.call();
+                produced.complete(speculation);
+                task.complete(speculation);
+            } catch (Exception e) {
+                produced.completeExceptionally(e);
+                task.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // Do not leak a cancel's interrupt into the pool thread
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        synchronized void cancel() {
+            if (task.cancel(true) && runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
 }
@@ -1,26 +1,37 @@
 package org.skylark.application.service.duplex;
 
 import org.skylark.application.service.VADService;
+import org.skylark.common.audio.AdaptiveEnergyDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Base64;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Triple VAD Engine — Enhanced voice activity detection with three-tier strategy
  * 三级VAD引擎 —— 增强型语音活动检测
  *
- * <p>Implements the Triple-VAD strategy from the full-duplex architecture:
+ * <p>Implements the Triple-VAD strategy from the full-duplex architecture as a cascade,
+ * where each tier only sees the frames the cheaper tier before it let through
+ * ({@link #detect(String, float[], boolean)}):
  * <ol>
- *   <li>Quick VAD (TEN-VAD): 306KB ultra-light, RTF=0.015, native Java JNI, 16ms frame-level</li>
- *   <li>Precise VAD (FireRedVAD): F1=97.57% SOTA accuracy, ONNX Runtime, precise confirmation</li>
- *   <li>Fallback VAD (Silero VAD): Existing VADService ONNX implementation, backward compatible</li>
+ *   <li>Quick gate: an {@link AdaptiveEnergyDetector} (dB over a minimum-statistics noise
+ *       floor, zero-crossing check, hysteresis), a few multiply-adds per sample; rejects
+ *       obvious silence and hiss</li>
+ *   <li>Silero VAD: the stateful {@link VADService} model, run only when the gate fires
+ *       or while a speech segment is open (so it still sees the silence that ends it)</li>
+ *   <li>Precise VAD (optional, FireRedVAD class): confirms speech while the system is
+ *       speaking, so TTS echo residuals do not trigger barge-in</li>
  * </ol>
  * </p>
  *
  * <p>Full-duplex key enhancement: VAD runs continuously even during SPEAKING state (TTS playback).
- * Current implementation uses Silero VAD as the primary engine (existing capability),
- * with TEN-VAD and FireRedVAD integration points prepared for future phases.</p>
+ * Per-tier call counts, hit rates and time spent are exposed through {@link #getMetrics()}.</p>
  *
  * @author Skylark Team
  * @version 1.0.0
@@ -30,13 +41,20 @@ public class TripleVADEngine {
     private static final Logger logger = LoggerFactory.getLogger(TripleVADEngine.class);
 
     private static final float DEFAULT_SPEECH_THRESHOLD = 0.5f;
+    private static final float DEFAULT_BARGE_IN_THRESHOLD = 0.7f;
+    private static final int SAMPLE_RATE = 16000;
 
     private final VADService fallbackVAD;
     private final float speechThreshold;
+    private final PreciseVAD preciseVAD;
+    private final float bargeInThreshold;
 
-    // Phase 2/3: TEN-VAD and FireRedVAD integration points
-    // private final TenVAD quickVAD;
-    // private final FireRedVAD preciseVAD;
+    /** Per-session cascade state */
+    private final Map<String, CascadeState> sessions = new ConcurrentHashMap<>();
+
+    private final TierStats quickStats = new TierStats();
+    private final TierStats sileroStats = new TierStats();
+    private final TierStats preciseStats = new TierStats();
 
     /**
      * Creates TripleVADEngine with default threshold
@@ -54,9 +72,94 @@ public class TripleVADEngine {
      * @param speechThreshold speech detection threshold [0.0, 1.0]
      */
     public TripleVADEngine(VADService fallbackVAD, float speechThreshold) {
+        this(fallbackVAD, speechThreshold, null, DEFAULT_BARGE_IN_THRESHOLD);
+    }
+
+    /**
+     * Creates TripleVADEngine with a precise tier for barge-in confirmation
+     *
+     * @param fallbackVAD      existing Silero VAD service (second tier)
+     * @param speechThreshold  speech detection threshold [0.0, 1.0] for the session-less path
+     * @param preciseVAD       high-precision tier, or null to trust Silero during SPEAKING
+     * @param bargeInThreshold probability the precise tier must reach to confirm barge-in
+     */
+    public TripleVADEngine(VADService fallbackVAD, float speechThreshold,
+                           PreciseVAD preciseVAD, float bargeInThreshold) {
         this.fallbackVAD = fallbackVAD;
         this.speechThreshold = speechThreshold;
-        logger.info("TripleVADEngine initialized with threshold={}", speechThreshold);
+        this.preciseVAD = preciseVAD;
+        this.bargeInThreshold = bargeInThreshold;
+        logger.info("TripleVADEngine initialized with threshold={}, preciseTier={}",
+                speechThreshold, preciseVAD != null);
+    }
+
+    /**
+     * Cascaded detection for a session frame
+     * 会话帧的级联检测
+     *
+     * <p>Tier 1 rejects silence without touching the model; tier 2 (Silero) decides speech;
+     * while {@code systemSpeaking}, tier 3 must confirm it, otherwise the frame is reported
+     * as {@link VADResult.AudioEventType#ECHO_RESIDUAL}. If Silero fails the gate's decision
+     * is used; if the precise tier fails Silero's decision stands.</p>
+     *
+     * @param sessionId      session identifier
+     * @param samples        AEC-processed samples normalized to [-1, 1], 16kHz mono
+     * @param systemSpeaking whether TTS is playing (speech would be a barge-in)
+     * @return VADResult with speech probability and event type
+     */
+    public VADResult detect(String sessionId, float[] samples, boolean systemSpeaking) {
+        if (samples == null || samples.length == 0) {
+            return VADResult.silence();
+        }
+        CascadeState state = sessions.computeIfAbsent(sessionId, k -> new CascadeState());
+
+        // Tier 1: quick gate
+        long start = System.nanoTime();
+        boolean active = state.gate.accept(samples);
+        quickStats.record(active, System.nanoTime() - start);
+        if (!active && !state.sileroSpeaking) {
+            return VADResult.silence();
+        }
+
+        // Tier 2: Silero
+        boolean isSpeech;
+        float probability;
+        start = System.nanoTime();
+        try {
+            Map<String, Object> result = fallbackVAD.detect(state.toPcm(samples), sessionId);
+            String status = (String) result.get("status");
+            boolean speaking = Boolean.TRUE.equals(result.get("speaking"));
+            isSpeech = "start".equals(status) || (speaking && !"end".equals(status));
+            state.sileroSpeaking = isSpeech;
+            Object score = result.get("probability");
+            probability = score instanceof Number ? ((Number) score).floatValue() : (isSpeech ? 0.8f : 0.1f);
+        } catch (Exception e) {
+            logger.warn("Silero tier failed for session {}, using energy gate: {}", sessionId, e.getMessage());
+            state.sileroSpeaking = false;
+            return new VADResult(active, state.gate.score(), System.currentTimeMillis());
+        } finally {
+            sileroStats.record(state.sileroSpeaking, System.nanoTime() - start);
+        }
+
+        // Tier 3: precise confirmation of barge-in
+        if (isSpeech && systemSpeaking && preciseVAD != null) {
+            start = System.nanoTime();
+            boolean confirmed = true;
+            try {
+                probability = preciseVAD.speechProbability(sessionId, samples);
+                confirmed = probability >= bargeInThreshold;
+            } catch (Exception e) {
+                logger.warn("Precise VAD tier failed for session {}: {}", sessionId, e.getMessage());
+            } finally {
+                preciseStats.record(confirmed, System.nanoTime() - start);
+            }
+            if (!confirmed) {
+                return new VADResult(false, probability, System.currentTimeMillis(),
+                        VADResult.AudioEventType.ECHO_RESIDUAL);
+            }
+        }
+
+        return new VADResult(isSpeech, probability, System.currentTimeMillis());
     }
 
     /**
@@ -78,14 +181,15 @@ public class TripleVADEngine {
             return VADResult.silence();
         }
 
-        // Current implementation: use energy-based detection from audio samples
-        // Phase 2: Add TEN-VAD quick filter + FireRedVAD precise confirmation
+        // No session: the cascade needs per-session state, so use the fixed-threshold path
         return detectWithFallback(aecProcessedAudio);
     }
 
     /**
-     * Fallback detection using existing Silero VAD / energy detection
-     * 降级检测 —— 当TEN-VAD或FireRedVAD不可用时使用Silero VAD
+     * Session-less fallback detection with a fixed threshold on mean amplitude; without a
+     * session there is no noise floor to adapt to, so prefer
+     * {@link #detect(String, float[], boolean)}
+     * 降级检测 —— 无会话上下文时使用固定阈值
      *
      * @param aecProcessedAudio float array of audio samples normalized to [-1, 1]
      * @return VADResult with speech probability
@@ -116,12 +220,24 @@ public class TripleVADEngine {
      * @return VADResult with detection result
      */
     public VADResult detectWithSession(String sessionId, byte[] audioData) {
+        return detectWithSession(sessionId, ByteBuffer.wrap(audioData));
+    }
+
+    /**
+     * Detect a binary PCM frame using the existing VADService with session context
+     * 使用现有VADService对二进制PCM帧进行带会话上下文的检测
+     *
+     * @param sessionId session identifier
+     * @param audioFrame raw PCM frame (16-bit little-endian), position is not advanced
+     * @return VADResult with detection result
+     */
+    public VADResult detectWithSession(String sessionId, ByteBuffer audioFrame) {
         try {
-            String audioBase64 = Base64.getEncoder().encodeToString(audioData);
-            var result = fallbackVAD.detect(audioBase64, sessionId);
+            var result = fallbackVAD.detect(audioFrame, sessionId);
             String status = (String) result.get("status");
 
-            boolean isSpeech = "start".equals(status) || (status == null && isOngoingSpeech(sessionId));
+            boolean isSpeech = "start".equals(status)
+                    || (status == null && Boolean.TRUE.equals(result.get("speaking")));
             float probability = isSpeech ? 0.8f : 0.1f;
 
             return new VADResult(isSpeech, probability, System.currentTimeMillis());
@@ -135,7 +251,41 @@ public class TripleVADEngine {
      * Reset VAD state for a session
      */
     public void resetSession(String sessionId) {
+        sessions.remove(sessionId);
         fallbackVAD.reset(sessionId);
+        if (preciseVAD != null) {
+            preciseVAD.reset(sessionId);
+        }
+    }
+
+    /**
+     * Release all VAD state for a closed session
+     * 释放已关闭会话的全部VAD状态
+     */
+    public void removeSession(String sessionId) {
+        sessions.remove(sessionId);
+        fallbackVAD.removeSession(sessionId);
+        if (preciseVAD != null) {
+            preciseVAD.reset(sessionId);
+        }
+    }
+
+    /**
+     * Per-tier counters
+     * 各层统计
+     *
+     * @return Map with one entry per tier ("quick", "silero", "precise"), each holding
+     *         calls, hits (frames passed on / classified as speech / confirmed), hitRate,
+     *         totalMicros and averageMicros
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("quick", quickStats.toMap());
+        metrics.put("silero", sileroStats.toMap());
+        metrics.put("precise", preciseStats.toMap());
+        metrics.put("preciseEnabled", preciseVAD != null);
+        metrics.put("sessions", sessions.size());
+        return metrics;
     }
 
     /**
@@ -152,11 +302,81 @@ public class TripleVADEngine {
     }
 
     /**
-     * Check if session is in ongoing speech (simple heuristic)
+     * Tier 1: energy and zero-crossing gate
+     * 第一层：能量与过零率门限
+     *
+     * <p>An {@link AdaptiveEnergyDetector} with a short hangover: it fires at the detector's
+     * onset level over the tracked noise floor and stays open across the gaps between
+     * syllables. The hangover is short because Silero does the real endpointing.</p>
+     */
+    static final class QuickGate {
+        private static final int HANGOVER_MS = 160;
+
+        private final AdaptiveEnergyDetector detector = new AdaptiveEnergyDetector(SAMPLE_RATE,
+                AdaptiveEnergyDetector.DEFAULT_ONSET_DB, AdaptiveEnergyDetector.DEFAULT_OFFSET_DB, HANGOVER_MS,
+                AdaptiveEnergyDetector.DEFAULT_FLOOR_WINDOW_MS, AdaptiveEnergyDetector.DEFAULT_MIN_LEVEL_DB);
+
+        boolean accept(float[] samples) {
+            detector.process(samples, 0, samples.length);
+            return detector.isSpeaking();
+        }
+
+        /** Speech score of the last frame, for the fallback when Silero fails */
+        float score() {
+            return detector.getSpeechScore();
+        }
+    }
+
+    /**
+     * Per-session cascade state
+     */
+    private static final class CascadeState {
+        final QuickGate gate = new QuickGate();
+        /** Whether Silero has an open speech segment; it must see every frame until it closes */
+        volatile boolean sileroSpeaking;
+        private ShortBuffer pcm = ShortBuffer.allocate(0);
+
+        /** Converts to int16 in a buffer reused across frames */
+        ShortBuffer toPcm(float[] samples) {
+            if (pcm.capacity() < samples.length) {
+                pcm = ShortBuffer.allocate(samples.length);
+            }
+            pcm.clear();
+            for (float sample : samples) {
+                float clamped = Math.max(-1f, Math.min(1f, sample));
+                pcm.put((short) (clamped * Short.MAX_VALUE));
+            }
+            pcm.flip();
+            return pcm;
+        }
+    }
+
+    /**
+     * Call, hit and time counters for one tier
      */
-    private boolean isOngoingSpeech(String sessionId) {
-        // This is a simplified check; the actual state is managed by
-        // DuplexSessionStateMachine
-        return false;
+    private static final class TierStats {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        void record(boolean hit, long elapsedNanos) {
+            calls.incrementAndGet();
+            if (hit) {
+                hits.incrementAndGet();
+            }
+            nanos.addAndGet(elapsedNanos);
+        }
+
+        Map<String, Object> toMap() {
+            long c = calls.get();
+            long n = nanos.get();
+            Map<String, Object> map = new HashMap<>();
+            map.put("calls", c);
+            map.put("hits", hits.get());
+            map.put("hitRate", c > 0 ? (double) hits.get() / c : 0.0);
+            map.put("totalMicros", n / 1000);
+            map.put("averageMicros", c > 0 ? n / 1000.0 / c : 0.0);
+            return map;
+        }
     }
 }
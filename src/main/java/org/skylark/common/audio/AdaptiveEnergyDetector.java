@@ -0,0 +1,294 @@
+package org.skylark.common.audio;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Adaptive Noise-Floor Energy Detector
+ * 自适应噪声底能量检测器
+ *
+ * <p>Per-stream energy VAD that decides in dB relative to the background instead of on an
+ * absolute amplitude, so the same settings work in a quiet office and a noisy call centre.
+ * The noise floor is tracked with minimum statistics: the frame level is smoothed, and
+ * the floor is the minimum of that smoothed level over a sliding window (kept as
+ * {@value #SUB_WINDOWS} sub-window minima), which follows the background up and down
+ * without being pulled up by speech shorter than the window.</p>
+ *
+ * <p>Decisions use hysteresis: speech starts when a frame is {@code onsetDb} above the
+ * floor (and above an absolute {@code minLevelDb}, and not hiss-like by zero-crossing
+ * rate unless clearly loud); it ends only after the level has stayed below
+ * {@code offsetDb} over the floor for {@code hangoverMs}. Frames may be of any length;
+ * durations are derived from the sample count.</p>
+ *
+ * <p>Until the first sub-window (1/{@value #SUB_WINDOWS} of the window) has elapsed the
+ * floor is assumed to be {@code minLevelDb - onsetDb}, so loud speech at the very start of
+ * a stream is still detected. {@link #process} allocates nothing. Not thread-safe: one
+ * instance per stream.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class AdaptiveEnergyDetector {
+
+    /** Default onset margin over the noise floor */
+    public static final float DEFAULT_ONSET_DB = 9f;
+    /** Default offset margin over the noise floor */
+    public static final float DEFAULT_OFFSET_DB = 3f;
+    /** Default time the level must stay low before speech ends */
+    public static final int DEFAULT_HANGOVER_MS = 300;
+    /** Default minimum-statistics window */
+    public static final int DEFAULT_FLOOR_WINDOW_MS = 2000;
+    /** Default absolute level speech must exceed, in dBFS */
+    public static final float DEFAULT_MIN_LEVEL_DB = -54f;
+
+    private static final int SUB_WINDOWS = 8;
+    /** Time constant of the level smoothing used for floor tracking */
+    private static final double SMOOTHING_TAU_MS = 100.0;
+    /** Minimum statistics underestimate the mean noise level */
+    private static final float FLOOR_BIAS_DB = 1.5f;
+    /** Onsets above this zero-crossing rate need {@link #LOUD_MARGIN_DB} more level (hiss, fans) */
+    private static final float MAX_ONSET_ZCR = 0.4f;
+    private static final float LOUD_MARGIN_DB = 6f;
+    private static final double POWER_EPSILON = 1e-10;
+
+    /**
+     * Speech state change caused by a frame
+     */
+    public enum Transition {
+        NONE, START, END
+    }
+
+    private final int sampleRate;
+    private final float onsetDb;
+    private final float offsetDb;
+    private final int hangoverMs;
+    private final double subWindowMs;
+    private final float minLevelDb;
+    private final float initialFloorDb;
+
+    private final float[] subWindowMin = new float[SUB_WINDOWS];
+    private int subWindowIndex;
+    private int subWindowsFilled;
+    private double subWindowElapsedMs;
+    private float currentMin;
+    private double smoothedPower;
+
+    private boolean speaking;
+    private double hangoverLeftMs;
+    private float levelDb;
+    private float floorDb;
+    private float zeroCrossingRate;
+
+    /**
+     * Creates a detector with default thresholds.
+     *
+     * @param sampleRate Sample rate of the frames, in Hz
+     */
+    public AdaptiveEnergyDetector(int sampleRate) {
+        this(sampleRate, DEFAULT_ONSET_DB, DEFAULT_OFFSET_DB, DEFAULT_HANGOVER_MS,
+            DEFAULT_FLOOR_WINDOW_MS, DEFAULT_MIN_LEVEL_DB);
+    }
+
+    /**
+     * Creates a detector.
+     * 创建检测器
+     *
+     * @param sampleRate    Sample rate of the frames, in Hz
+     * @param onsetDb       Margin over the floor that starts speech
+     * @param offsetDb      Margin over the floor below which silence is counted (at most onsetDb)
+     * @param hangoverMs    Silence needed to end speech
+     * @param floorWindowMs Minimum-statistics window
+     * @param minLevelDb    Absolute level speech must exceed, in dBFS
+     */
+    public AdaptiveEnergyDetector(int sampleRate, float onsetDb, float offsetDb, int hangoverMs,
+                                  int floorWindowMs, float minLevelDb) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        if (onsetDb <= 0 || offsetDb < 0 || offsetDb > onsetDb) {
+            throw new IllegalArgumentException(
+                "Require 0 <= offsetDb <= onsetDb and onsetDb > 0: onset=" + onsetDb + ", offset=" + offsetDb);
+        }
+        if (hangoverMs < 0) {
+            throw new IllegalArgumentException("hangoverMs must not be negative: " + hangoverMs);
+        }
+        if (floorWindowMs < SUB_WINDOWS) {
+            throw new IllegalArgumentException("floorWindowMs too small: " + floorWindowMs);
+        }
+        this.sampleRate = sampleRate;
+        this.onsetDb = onsetDb;
+        this.offsetDb = offsetDb;
+        this.hangoverMs = hangoverMs;
+        this.subWindowMs = (double) floorWindowMs / SUB_WINDOWS;
+        this.minLevelDb = minLevelDb;
+        this.initialFloorDb = minLevelDb - onsetDb;
+        reset();
+    }
+
+    /**
+     * Processes int16 samples from position to limit (position is not advanced).
+     * 处理 int16 样本（不推进 position）
+     *
+     * @param samples Mono PCM samples
+     * @return Speech state change caused by this frame
+     */
+    public Transition process(ShortBuffer samples) {
+        int start = samples.position();
+        int n = samples.remaining();
+        if (n == 0) {
+            return Transition.NONE;
+        }
+        double sum = 0;
+        int crossings = 0;
+        boolean positive = samples.get(start) >= 0;
+        for (int i = 0; i < n; i++) {
+            int s = samples.get(start + i);
+            sum += (double) s * s;
+            boolean p = s >= 0;
+            if (p != positive) {
+                crossings++;
+                positive = p;
+            }
+        }
+        return update(sum / (32768.0 * 32768.0), crossings, n);
+    }
+
+    /**
+     * Processes float samples normalized to [-1, 1].
+     * 处理归一化浮点样本
+     *
+     * @param samples Mono samples
+     * @param offset  First sample
+     * @param length  Sample count
+     * @return Speech state change caused by this frame
+     */
+    public Transition process(float[] samples, int offset, int length) {
+        if (length == 0) {
+            return Transition.NONE;
+        }
+        double sum = 0;
+        int crossings = 0;
+        boolean positive = samples[offset] >= 0;
+        for (int i = offset; i < offset + length; i++) {
+            float s = samples[i];
+            sum += s * s;
+            boolean p = s >= 0;
+            if (p != positive) {
+                crossings++;
+                positive = p;
+            }
+        }
+        return update(sum, crossings, length);
+    }
+
+    private Transition update(double sumSquares, int crossings, int n) {
+        double frameMs = n * 1000.0 / sampleRate;
+        double power = sumSquares / n;
+        levelDb = (float) (10 * Math.log10(power + POWER_EPSILON));
+        zeroCrossingRate = (float) crossings / n;
+
+        trackFloor(power, frameMs);
+        float snr = levelDb - floorDb;
+
+        if (!speaking) {
+            boolean loud = snr >= onsetDb + LOUD_MARGIN_DB;
+            if (levelDb >= minLevelDb && snr >= onsetDb && (zeroCrossingRate <= MAX_ONSET_ZCR || loud)) {
+                speaking = true;
+                hangoverLeftMs = hangoverMs;
+                return Transition.START;
+            }
+            return Transition.NONE;
+        }
+        if (snr >= offsetDb) {
+            hangoverLeftMs = hangoverMs;
+            return Transition.NONE;
+        }
+        hangoverLeftMs -= frameMs;
+        if (hangoverLeftMs <= 0) {
+            speaking = false;
+            return Transition.END;
+        }
+        return Transition.NONE;
+    }
+
+    private void trackFloor(double power, double frameMs) {
+        if (smoothedPower < 0) {
+            smoothedPower = power;
+        } else {
+            double alpha = Math.exp(-frameMs / SMOOTHING_TAU_MS);
+            smoothedPower = alpha * smoothedPower + (1 - alpha) * power;
+        }
+        float smoothedDb = (float) (10 * Math.log10(smoothedPower + POWER_EPSILON));
+        currentMin = Math.min(currentMin, smoothedDb);
+
+        subWindowElapsedMs += frameMs;
+        if (subWindowElapsedMs >= subWindowMs) {
+            subWindowMin[subWindowIndex] = currentMin;
+            subWindowIndex = (subWindowIndex + 1) % SUB_WINDOWS;
+            subWindowsFilled = Math.min(SUB_WINDOWS, subWindowsFilled + 1);
+            subWindowElapsedMs = 0;
+            currentMin = Float.MAX_VALUE;
+        }
+        if (subWindowsFilled == 0) {
+            return;
+        }
+
+        float min = currentMin;
+        for (int i = 0; i < subWindowsFilled; i++) {
+            min = Math.min(min, subWindowMin[i]);
+        }
+        floorDb = min + FLOOR_BIAS_DB;
+    }
+
+    /**
+     * Forgets the floor and speech state for a new stream.
+     * 重置噪声底与语音状态
+     */
+    public void reset() {
+        Arrays.fill(subWindowMin, initialFloorDb);
+        subWindowIndex = 0;
+        subWindowsFilled = 0;
+        subWindowElapsedMs = 0;
+        currentMin = Float.MAX_VALUE;
+        smoothedPower = -1;
+        speaking = false;
+        hangoverLeftMs = 0;
+        levelDb = -100f;
+        floorDb = initialFloorDb;
+        zeroCrossingRate = 0f;
+    }
+
+    /** Whether the stream is inside a speech segment (including hangover) */
+    public boolean isSpeaking() {
+        return speaking;
+    }
+
+    /** Level of the last frame, in dBFS */
+    public float getLevelDb() {
+        return levelDb;
+    }
+
+    /** Current noise floor estimate, in dBFS */
+    public float getNoiseFloorDb() {
+        return floorDb;
+    }
+
+    /** Level of the last frame over the floor, in dB */
+    public float getSnrDb() {
+        return levelDb - floorDb;
+    }
+
+    /** Zero crossings per sample of the last frame */
+    public float getZeroCrossingRate() {
+        return zeroCrossingRate;
+    }
+
+    /**
+     * Maps the last frame's SNR to a [0, 1] score: 0.5 at the onset margin, 1 at twice it.
+     *
+     * @return Speech score
+     */
+    public float getSpeechScore() {
+        return Math.max(0f, Math.min(1f, getSnrDb() / (2 * onsetDb)));
+    }
+}
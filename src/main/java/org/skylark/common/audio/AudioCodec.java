@@ -0,0 +1,61 @@
+package org.skylark.common.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Audio Codec
+ * 音频编解码器
+ *
+ * <p>Compresses PCM16 for transports where bandwidth matters (e.g. the WebSocket
+ * channel). One instance serves one session: it holds an encoder state for the
+ * downlink and an independent decoder state for the uplink, so the two directions
+ * may be driven from different threads.</p>
+ *
+ * <p>A buffer passed to {@link #encode} or {@link #decode} may contain several codec
+ * frames; the framing inside the buffer is defined by each codec.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ * @see AudioCodecs
+ */
+public interface AudioCodec {
+
+    /**
+     * Name used during negotiation (e.g. {@code "adpcm"})
+     */
+    String getName();
+
+    /**
+     * Wire encoding of the compressed payload
+     */
+    AudioStreamFormat.Encoding getEncoding();
+
+    /**
+     * PCM sample rate the codec runs at
+     */
+    int getSampleRate();
+
+    /**
+     * PCM channel count the codec runs at
+     */
+    int getChannels();
+
+    /**
+     * Encodes PCM16 LE samples at {@link #getSampleRate()} / {@link #getChannels()}.
+     * 编码 PCM16 样本
+     *
+     * @param pcm PCM16 samples (remaining bytes; position is not changed)
+     * @return Compressed payload
+     */
+    ByteBuffer encode(ByteBuffer pcm);
+
+    /**
+     * Decodes a compressed payload to PCM16 LE.
+     * 解码为 PCM16 样本
+     *
+     * @param payload Compressed payload (remaining bytes; position is not changed)
+     * @return PCM16 samples
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    ByteBuffer decode(ByteBuffer payload);
+}
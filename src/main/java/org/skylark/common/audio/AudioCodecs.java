@@ -0,0 +1,52 @@
+package org.skylark.common.audio;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Audio Codec Negotiation
+ * 音频编解码器协商
+ *
+ * <p>Picks the first codec from a client's preference list that this server can run:
+ * {@code adpcm} or {@code pcm} (no codec). Unknown names are skipped.</p>
+ *
+ * <p>{@code adpcm} is an interim choice: it reaches about 4:1 (≈ 66 kbit/s at 16 kHz),
+ * not the 8–10:1 of Opus. Clients may already offer {@code opus} first; it is skipped
+ * until an Opus codec is available here, and negotiation falls through to
+ * {@code adpcm} (see {@link ImaAdpcmCodec}).</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class AudioCodecs {
+
+    /** Name for uncompressed PCM16 */
+    public static final String PCM = "pcm";
+
+    private AudioCodecs() {
+    }
+
+    /**
+     * Negotiates a codec for a session.
+     * 为会话协商编解码器
+     *
+     * @param offered    Codec names in client preference order (null or empty means PCM)
+     * @param sampleRate PCM sample rate the codec should run at
+     * @return New codec instance, or null for raw PCM
+     */
+    public static AudioCodec negotiate(List<String> offered, int sampleRate) {
+        if (offered == null) {
+            return null;
+        }
+        for (String name : offered) {
+            String codec = name.trim().toLowerCase(Locale.ROOT);
+            if (PCM.equals(codec)) {
+                return null;
+            }
+            if (ImaAdpcmCodec.NAME.equals(codec)) {
+                return new ImaAdpcmCodec(sampleRate);
+            }
+        }
+        return null;
+    }
+}
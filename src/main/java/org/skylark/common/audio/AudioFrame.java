@@ -0,0 +1,202 @@
+package org.skylark.common.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted PCM16 Audio Frame
+ * 引用计数的 PCM16 音频帧
+ *
+ * <p>Wraps a fixed-size slab (heap or direct {@link ByteBuffer}) leased from an
+ * {@link AudioFramePool}. Frames start with a reference count of 1; the owner that
+ * acquired the frame releases it when done, and any consumer that keeps the frame
+ * beyond the current call must {@link #retain()} it first and {@link #release()} it later.
+ * When the count drops to zero the slab is returned to its pool for reuse.</p>
+ *
+ * <p>Samples are little-endian signed 16-bit PCM, interleaved when {@code channels > 1}.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ * @see AudioFramePool
+ */
+public final class AudioFrame {
+
+    /** Bytes per PCM16 sample */
+    public static final int BYTES_PER_SAMPLE = 2;
+
+    private final AudioFramePool pool;
+    private final ByteBuffer slab;
+    private final AtomicInteger refCount = new AtomicInteger();
+
+    private int length;
+    private int sampleRate;
+    private int channels;
+
+    AudioFrame(AudioFramePool pool, ByteBuffer slab) {
+        this.pool = pool;
+        this.slab = slab.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Wraps an existing PCM array in an unpooled frame (no copy).
+     * 将已有的 PCM 数组包装为非池化帧（不拷贝）
+     *
+     * @param pcmData    PCM16 audio data
+     * @param sampleRate Sample rate in Hz
+     * @param channels   Number of channels
+     * @return Frame with a reference count of 1
+     */
+    public static AudioFrame wrap(byte[] pcmData, int sampleRate, int channels) {
+        if (pcmData == null) {
+            throw new IllegalArgumentException("PCM data cannot be null");
+        }
+        AudioFrame frame = new AudioFrame(null, ByteBuffer.wrap(pcmData));
+        frame.reset(pcmData.length, sampleRate, channels);
+        return frame;
+    }
+
+    /**
+     * Re-initializes the frame for a new lease. Called by the pool only.
+     */
+    void reset(int length, int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid audio format: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.length = length;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        refCount.set(1);
+    }
+
+    /**
+     * Returns the writable slab positioned at 0 with limit {@link #length()}.
+     * Used by the pool to fill a freshly acquired frame.
+     */
+    ByteBuffer slab() {
+        slab.clear().limit(length);
+        return slab;
+    }
+
+    /**
+     * Returns a little-endian view of the PCM payload.
+     * 返回 PCM 数据的小端视图
+     *
+     * <p>The view has its own position/limit but shares the slab memory, so it is only
+     * valid while the caller holds a reference and must be treated as read-only.</p>
+     *
+     * @return ByteBuffer view with position 0 and limit {@link #length()}
+     */
+    public ByteBuffer data() {
+        ensureAccessible();
+        ByteBuffer view = slab.duplicate();
+        view.clear().limit(length);
+        return view.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Copies the payload into a new array. Prefer {@link #data()} on hot paths.
+     * 将数据拷贝到新数组（热路径请优先使用 {@link #data()}）
+     *
+     * @return PCM16 byte array
+     */
+    public byte[] toByteArray() {
+        byte[] copy = new byte[length];
+        data().get(copy);
+        return copy;
+    }
+
+    /**
+     * Increments the reference count.
+     * 增加引用计数
+     *
+     * @return this frame
+     * @throws IllegalStateException if the frame has already been released
+     */
+    public AudioFrame retain() {
+        int current;
+        do {
+            current = refCount.get();
+            if (current <= 0) {
+                throw new IllegalStateException("AudioFrame already released");
+            }
+        } while (!refCount.compareAndSet(current, current + 1));
+        return this;
+    }
+
+    /**
+     * Decrements the reference count, returning the slab to its pool at zero.
+     * 减少引用计数，归零时将缓冲区归还到池中
+     *
+     * @return true if this call released the last reference
+     * @throws IllegalStateException if the frame has already been released
+     */
+    public boolean release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining < 0) {
+            refCount.incrementAndGet();
+            throw new IllegalStateException("AudioFrame already released");
+        }
+        if (remaining == 0) {
+            if (pool != null) {
+                pool.recycle(this);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void ensureAccessible() {
+        if (refCount.get() <= 0) {
+            throw new IllegalStateException("AudioFrame already released");
+        }
+    }
+
+    public int refCount() {
+        return refCount.get();
+    }
+
+    /** Payload size in bytes */
+    public int length() {
+        return length;
+    }
+
+    /** Slab capacity in bytes */
+    public int capacity() {
+        return slab.capacity();
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    public int channels() {
+        return channels;
+    }
+
+    /** Number of samples per channel in this frame */
+    public int samplesPerChannel() {
+        return length / (channels * BYTES_PER_SAMPLE);
+    }
+
+    /** Frame duration in milliseconds */
+    public double durationMs() {
+        return samplesPerChannel() * 1000.0 / sampleRate;
+    }
+
+    public boolean isDirect() {
+        return slab.isDirect();
+    }
+
+    /** Whether this frame's slab is returned to a pool on release */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    @Override
+    public String toString() {
+        return "AudioFrame{length=" + length + ", sampleRate=" + sampleRate
+            + ", channels=" + channels + ", refCount=" + refCount.get() + "}";
+    }
+}
@@ -0,0 +1,121 @@
+package org.skylark.common.audio;
+
+import java.util.Objects;
+
+/**
+ * Audio Stream Format Descriptor
+ * 音频流格式描述
+ *
+ * <p>Immutable description of an audio chunk travelling on the downlink:
+ * container/encoding, sample rate and channel count. Used by
+ * {@code ResponseCallback.sendAudio} so sinks can push bytes to an RTC SDK or
+ * frame them as a binary WebSocket message without inspecting the payload.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class AudioStreamFormat {
+
+    /**
+     * Payload encoding. The code is stable and used on the wire.
+     * 负载编码（编码值用于二进制协议，保持稳定）
+     */
+    public enum Encoding {
+        /** Raw signed 16-bit little-endian PCM */
+        PCM_S16LE(0),
+        /** RIFF/WAV container (header + PCM) */
+        WAV(1),
+        /** IMA ADPCM blocks (4-bit samples, 4:1 against PCM16) */
+        IMA_ADPCM(2);
+
+        private final int code;
+
+        Encoding(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        /**
+         * Looks up an encoding by its wire code.
+         *
+         * @param code Wire code
+         * @return Encoding
+         * @throws IllegalArgumentException if the code is unknown
+         */
+        public static Encoding fromCode(int code) {
+            for (Encoding encoding : values()) {
+                if (encoding.code == code) {
+                    return encoding;
+                }
+            }
+            throw new IllegalArgumentException("Unknown audio encoding code: " + code);
+        }
+    }
+
+    /** 16 kHz mono PCM16, the pipeline's native format */
+    public static final AudioStreamFormat PCM_16K_MONO = new AudioStreamFormat(Encoding.PCM_S16LE, 16000, 1);
+    /** 16 kHz mono WAV, as produced by {@code TTSService} */
+    public static final AudioStreamFormat WAV_16K_MONO = new AudioStreamFormat(Encoding.WAV, 16000, 1);
+
+    private final Encoding encoding;
+    private final int sampleRate;
+    private final int channels;
+
+    /**
+     * Creates a format descriptor.
+     * 创建格式描述
+     *
+     * @param encoding   Payload encoding
+     * @param sampleRate Sample rate in Hz
+     * @param channels   Number of channels
+     */
+    public AudioStreamFormat(Encoding encoding, int sampleRate, int channels) {
+        if (encoding == null) {
+            throw new IllegalArgumentException("Encoding cannot be null");
+        }
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid audio format: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.encoding = encoding;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AudioStreamFormat)) {
+            return false;
+        }
+        AudioStreamFormat that = (AudioStreamFormat) o;
+        return encoding == that.encoding && sampleRate == that.sampleRate && channels == that.channels;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(encoding, sampleRate, channels);
+    }
+
+    @Override
+    public String toString() {
+        return encoding + "/" + sampleRate + "Hz/" + channels + "ch";
+    }
+}
@@ -0,0 +1,176 @@
+package org.skylark.common.audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Frame Re-chunker
+ * 帧重组器
+ *
+ * <p>Turns PCM frames of arbitrary length (10 ms from Agora, whatever buffer size a browser
+ * uses, ...) into windows of exactly {@code windowSamples}, the fixed shape a model wants.
+ * Each window carries its sample-accurate start position in the stream, so durations and
+ * timestamps derived from it do not depend on how the audio happened to be framed.</p>
+ *
+ * <p>Only the leftover shorter than a window is copied, into a carry buffer of one window;
+ * complete windows inside an input frame are handed out as views of that frame. The
+ * window passed to the consumer is only valid during the callback.</p>
+ *
+ * <pre>
+ * FrameRechunker chunker = new FrameRechunker(512, 16000);
+ * chunker.accept(frame, (window, startSample) -&gt; model.run(window));
+ * </pre>
+ *
+ * <p>Not thread-safe: one instance per stream.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class FrameRechunker {
+
+    /**
+     * Receives each complete window
+     */
+    @FunctionalInterface
+    public interface WindowConsumer {
+        /**
+         * @param window      Exactly one window of samples, from position to limit
+         * @param startSample Stream position of the window's first sample
+         * @throws Exception to abort {@link #accept}; the window still counts as consumed
+         */
+        void onWindow(ShortBuffer window, long startSample) throws Exception;
+    }
+
+    private final int windowSamples;
+    private final int sampleRate;
+    /** Partial window; position = samples carried */
+    private final ShortBuffer carry;
+    /** Stream position of the next window */
+    private long nextStartSample;
+
+    /**
+     * Creates a re-chunker.
+     * 创建帧重组器
+     *
+     * @param windowSamples Samples per window
+     * @param sampleRate    Sample rate, for the millisecond helpers
+     */
+    public FrameRechunker(int windowSamples, int sampleRate) {
+        if (windowSamples <= 0) {
+            throw new IllegalArgumentException("windowSamples must be positive: " + windowSamples);
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        this.windowSamples = windowSamples;
+        this.sampleRate = sampleRate;
+        this.carry = ShortBuffer.allocate(windowSamples);
+    }
+
+    /**
+     * Adds samples and emits every window they complete.
+     * 输入样本并输出所有已填满的窗口
+     *
+     * @param samples  PCM samples from position to limit (position is not changed)
+     * @param consumer Called once per completed window, in stream order
+     * @return Number of windows emitted
+     * @throws Exception the consumer's failure
+     */
+    public int accept(ShortBuffer samples, WindowConsumer consumer) throws Exception {
+        ShortBuffer in = samples.duplicate();
+        int windows = 0;
+
+        if (carry.position() > 0) {
+            int n = Math.min(in.remaining(), carry.remaining());
+            int end = in.position() + n;
+            ShortBuffer head = in.duplicate();
+            head.limit(end);
+            carry.put(head);
+            in.position(end);
+            if (carry.hasRemaining()) {
+                return 0;
+            }
+            carry.flip();
+            try {
+                emit(carry, consumer);
+            } finally {
+                carry.clear();
+            }
+            windows++;
+        }
+
+        while (in.remaining() >= windowSamples) {
+            int end = in.position() + windowSamples;
+            ShortBuffer window = in.duplicate();
+            window.limit(end);
+            in.position(end);
+            emit(window, consumer);
+            windows++;
+        }
+
+        carry.put(in);
+        return windows;
+    }
+
+    /**
+     * Emits the carried partial window, if any, as a shorter final window.
+     * 以较短的最终窗口输出剩余样本
+     *
+     * @param consumer Receives the partial window
+     * @return Samples emitted
+     * @throws Exception the consumer's failure
+     */
+    public int flush(WindowConsumer consumer) throws Exception {
+        int n = carry.position();
+        if (n == 0) {
+            return 0;
+        }
+        carry.flip();
+        long start = nextStartSample;
+        nextStartSample += n;
+        try {
+            consumer.onWindow(carry, start);
+        } finally {
+            carry.clear();
+        }
+        return n;
+    }
+
+    private void emit(ShortBuffer window, WindowConsumer consumer) throws Exception {
+        long start = nextStartSample;
+        nextStartSample += windowSamples;
+        consumer.onWindow(window, start);
+    }
+
+    /**
+     * Drops the partial window and restarts the stream at position 0.
+     * 丢弃未满窗口并将流位置归零
+     */
+    public void reset() {
+        carry.clear();
+        nextStartSample = 0;
+    }
+
+    public int getWindowSamples() {
+        return windowSamples;
+    }
+
+    /** Samples waiting for the next window */
+    public int getPendingSamples() {
+        return carry.position();
+    }
+
+    /** Stream position of the next window's first sample */
+    public long getNextStartSample() {
+        return nextStartSample;
+    }
+
+    /**
+     * Converts a stream position to milliseconds.
+     *
+     * @param sample Stream position in samples
+     * @return Milliseconds from stream start
+     */
+    public long toMillis(long sample) {
+        return sample * 1000 / sampleRate;
+    }
+}
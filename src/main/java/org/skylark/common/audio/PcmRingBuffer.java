@@ -0,0 +1,247 @@
+package org.skylark.common.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Bounded PCM Utterance Buffer with Pre-roll
+ * 带预录窗口的有界 PCM 语音段缓冲区
+ *
+ * <p>Pre-sized, allocation-free buffer for accumulating one utterance at a time:</p>
+ * <ul>
+ *   <li><b>Idle:</b> frames go into a ring holding the most recent {@code preRollBytes},
+ *       so audio just before the VAD "start" decision is not lost.</li>
+ *   <li><b>Capturing:</b> after {@link #startUtterance()} the pre-roll is unrolled in place
+ *       to the head of the buffer and subsequent frames are appended linearly, up to
+ *       {@code maxUtteranceBytes}. Further bytes are dropped and {@link #isFull()} reports
+ *       that the caller should finalize the utterance.</li>
+ * </ul>
+ *
+ * <p>{@link #utterance()} returns a zero-copy view over the captured bytes which stays valid
+ * until the next {@link #reset()} or write. Not thread-safe: each session owns one instance
+ * and feeds it from a single thread.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class PcmRingBuffer {
+
+    /** Default maximum utterance length in milliseconds */
+    public static final int DEFAULT_MAX_UTTERANCE_MS = 30000;
+    /** Default pre-roll window in milliseconds */
+    public static final int DEFAULT_PRE_ROLL_MS = 300;
+
+    private final byte[] data;
+    private final int preRollBytes;
+    private final int maxUtteranceBytes;
+
+    /** Ring write index while idle (0..preRollBytes) */
+    private int preRollHead;
+    /** Valid bytes in the pre-roll ring while idle */
+    private int preRollCount;
+    /** Captured bytes while capturing (pre-roll + speech) */
+    private int length;
+    private boolean capturing;
+    private long droppedBytes;
+
+    /**
+     * Creates a buffer.
+     * 创建缓冲区
+     *
+     * @param maxUtteranceBytes Maximum speech bytes captured after the start mark
+     * @param preRollBytes      Bytes retained before the start mark (0 disables pre-roll)
+     */
+    public PcmRingBuffer(int maxUtteranceBytes, int preRollBytes) {
+        if (maxUtteranceBytes <= 0) {
+            throw new IllegalArgumentException("maxUtteranceBytes must be positive: " + maxUtteranceBytes);
+        }
+        if (preRollBytes < 0) {
+            throw new IllegalArgumentException("preRollBytes cannot be negative: " + preRollBytes);
+        }
+        this.maxUtteranceBytes = alignDown(maxUtteranceBytes);
+        this.preRollBytes = alignDown(preRollBytes);
+        this.data = new byte[this.preRollBytes + this.maxUtteranceBytes];
+    }
+
+    /**
+     * Creates a buffer sized from durations for the given PCM16 format.
+     * 根据时长和 PCM16 格式创建缓冲区
+     *
+     * @param sampleRate     Sample rate in Hz
+     * @param channels       Number of channels
+     * @param maxUtteranceMs Maximum utterance duration in milliseconds
+     * @param preRollMs      Pre-roll duration in milliseconds
+     * @return Sized buffer
+     */
+    public static PcmRingBuffer forDuration(int sampleRate, int channels, int maxUtteranceMs, int preRollMs) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid audio format: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        long bytesPerMs = (long) sampleRate * channels * AudioFrame.BYTES_PER_SAMPLE;
+        return new PcmRingBuffer(
+            (int) Math.min(Integer.MAX_VALUE, bytesPerMs * maxUtteranceMs / 1000),
+            (int) (bytesPerMs * preRollMs / 1000));
+    }
+
+    /**
+     * Appends the remaining bytes of {@code src} without changing its position.
+     * 追加 {@code src} 的剩余字节（不修改其位置）
+     *
+     * @param src PCM frame
+     * @return Number of bytes kept (may be less than remaining when the buffer is full)
+     */
+    public int write(ByteBuffer src) {
+        if (src.hasArray()) {
+            return write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+        }
+        ByteBuffer in = src.duplicate();
+        if (capturing) {
+            int n = Math.min(in.remaining(), data.length - length);
+            in.get(data, length, n);
+            length += n;
+            droppedBytes += src.remaining() - n;
+            return n;
+        }
+        if (preRollBytes == 0) {
+            return 0;
+        }
+        if (in.remaining() > preRollBytes) {
+            in.position(in.limit() - preRollBytes);
+        }
+        int total = in.remaining();
+        while (in.hasRemaining()) {
+            int n = Math.min(in.remaining(), preRollBytes - preRollHead);
+            in.get(data, preRollHead, n);
+            advancePreRoll(n);
+        }
+        return total;
+    }
+
+    /**
+     * Appends {@code len} bytes of {@code src} starting at {@code offset}.
+     * 追加数组中的指定区间
+     *
+     * @return Number of bytes kept
+     */
+    public int write(byte[] src, int offset, int len) {
+        if (capturing) {
+            int n = Math.min(len, data.length - length);
+            System.arraycopy(src, offset, data, length, n);
+            length += n;
+            droppedBytes += len - n;
+            return n;
+        }
+        if (preRollBytes == 0) {
+            return 0;
+        }
+        if (len > preRollBytes) {
+            offset += len - preRollBytes;
+            len = preRollBytes;
+        }
+        int total = len;
+        while (len > 0) {
+            int n = Math.min(len, preRollBytes - preRollHead);
+            System.arraycopy(src, offset, data, preRollHead, n);
+            advancePreRoll(n);
+            offset += n;
+            len -= n;
+        }
+        return total;
+    }
+
+    private void advancePreRoll(int n) {
+        preRollHead = (preRollHead + n) % preRollBytes;
+        preRollCount = Math.min(preRollBytes, preRollCount + n);
+    }
+
+    /**
+     * Marks the start of an utterance: the pre-roll becomes its head and later writes append.
+     * 标记语音段开始：预录内容成为语音段开头，后续写入顺序追加
+     */
+    public void startUtterance() {
+        if (capturing) {
+            return;
+        }
+        if (preRollCount == preRollBytes && preRollHead != 0) {
+            // Ring has wrapped: rotate in place so the oldest byte is at index 0
+            reverse(0, preRollHead);
+            reverse(preRollHead, preRollBytes);
+            reverse(0, preRollBytes);
+        }
+        length = preRollCount;
+        capturing = true;
+    }
+
+    private void reverse(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            byte tmp = data[i];
+            data[i] = data[j];
+            data[j] = tmp;
+        }
+    }
+
+    /**
+     * Returns a zero-copy little-endian view over the captured utterance.
+     * 返回已捕获语音段的零拷贝小端视图
+     *
+     * <p>The view is valid until the next {@link #reset()} or write.</p>
+     *
+     * @return View with position 0 and limit {@link #length()}
+     */
+    public ByteBuffer utterance() {
+        return ByteBuffer.wrap(data, 0, capturing ? length : 0).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Discards the current utterance and pre-roll and returns to idle.
+     * 丢弃当前语音段与预录内容，回到空闲状态
+     */
+    public void reset() {
+        capturing = false;
+        length = 0;
+        preRollHead = 0;
+        preRollCount = 0;
+    }
+
+    public boolean isCapturing() {
+        return capturing;
+    }
+
+    /** Whether the utterance reached its maximum length */
+    public boolean isFull() {
+        return capturing && length == data.length;
+    }
+
+    /** Captured utterance bytes (0 while idle) */
+    public int length() {
+        return capturing ? length : 0;
+    }
+
+    /** Bytes currently held in the pre-roll ring (0 while capturing) */
+    public int preRollLength() {
+        return capturing ? 0 : preRollCount;
+    }
+
+    /** Total buffer footprint in bytes */
+    public int capacity() {
+        return data.length;
+    }
+
+    public int getPreRollBytes() {
+        return preRollBytes;
+    }
+
+    public int getMaxUtteranceBytes() {
+        return maxUtteranceBytes;
+    }
+
+    /** Bytes dropped because the utterance exceeded its maximum length */
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    private static int alignDown(int bytes) {
+        return bytes - (bytes % AudioFrame.BYTES_PER_SAMPLE);
+    }
+}
@@ -0,0 +1,354 @@
+package org.skylark.common.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Streaming Polyphase Resampler
+ * 流式多相重采样器
+ *
+ * <p>Converts interleaved audio between arbitrary integer sample rates with a windowed-sinc
+ * (Kaiser) polyphase filter bank. The ratio is reduced to {@code L/M} by their GCD; each
+ * output sample picks the filter phase matching its fractional input position, so no
+ * intermediate upsampled signal is ever built. When downsampling the cutoff is lowered to
+ * the output Nyquist frequency to prevent aliasing.</p>
+ *
+ * <p>The resampler is stateful across calls: input history and the fractional read
+ * position carry over, so a stream can be fed in chunks of any size with the same
+ * result as one big call. Internal buffers grow once to the largest chunk seen and are
+ * reused afterwards. Call {@link #flush} at end of stream to drain the filter delay.</p>
+ *
+ * <p>Not thread-safe: one instance per stream.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class PolyphaseResampler {
+
+    /** Default filter half-length in input samples (zero crossings on each side) */
+    public static final int DEFAULT_HALF_TAPS = 16;
+    /** Phase table size limit; larger L is served by the nearest tabulated phase */
+    private static final int MAX_PHASES = 1024;
+    private static final double KAISER_BETA = 8.0;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int channels;
+    private final int upFactor;
+    private final int downFactor;
+    private final int halfTaps;
+    private final int taps;
+    private final int phases;
+    /** Filter bank: phases × taps, row-major */
+    private final float[] bank;
+    private final boolean passthrough;
+
+    /** Interleaved input history: frames [0, historyFrames) */
+    private float[] history;
+    private int historyFrames;
+    /** Integer part of the next output position, relative to history frame 0 */
+    private int positionFrames;
+    /** Fractional part of the next output position, in units of 1/upFactor */
+    private int positionPhase;
+    /** Scratch for the PCM16 path */
+    private float[] scratchIn = new float[0];
+    private float[] scratchOut = new float[0];
+
+    /**
+     * Creates a resampler with the default filter length.
+     *
+     * @param inputRate  Input sample rate in Hz
+     * @param outputRate Output sample rate in Hz
+     * @param channels   Interleaved channel count
+     */
+    public PolyphaseResampler(int inputRate, int outputRate, int channels) {
+        this(inputRate, outputRate, channels, DEFAULT_HALF_TAPS);
+    }
+
+    /**
+     * Creates a resampler.
+     * 创建重采样器
+     *
+     * @param inputRate  Input sample rate in Hz
+     * @param outputRate Output sample rate in Hz
+     * @param channels   Interleaved channel count
+     * @param halfTaps   Filter half-length in input samples (quality vs. CPU and latency)
+     */
+    public PolyphaseResampler(int inputRate, int outputRate, int channels, int halfTaps) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException(
+                "Sample rates must be positive: " + inputRate + " -> " + outputRate);
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("channels must be positive: " + channels);
+        }
+        if (halfTaps < 2) {
+            throw new IllegalArgumentException("halfTaps must be at least 2: " + halfTaps);
+        }
+        int g = gcd(inputRate, outputRate);
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.channels = channels;
+        this.upFactor = outputRate / g;
+        this.downFactor = inputRate / g;
+        this.halfTaps = halfTaps;
+        this.taps = 2 * halfTaps;
+        this.passthrough = inputRate == outputRate;
+        this.phases = passthrough ? 1 : Math.min(upFactor, MAX_PHASES);
+        this.bank = passthrough ? new float[0] : designBank();
+        this.history = new float[taps * channels];
+        reset();
+    }
+
+    /**
+     * Builds one normalized windowed-sinc filter per phase. Tap k of phase p weights input
+     * frame {@code i - halfTaps + 1 + k} for an output at position {@code i + p / phases}.
+     */
+    private float[] designBank() {
+        double cutoff = Math.min(1.0, (double) outputRate / inputRate);
+        float[] filters = new float[phases * taps];
+        double besselBeta = besselI0(KAISER_BETA);
+        for (int p = 0; p < phases; p++) {
+            double frac = (double) p / phases;
+            double sum = 0;
+            for (int k = 0; k < taps; k++) {
+                double d = (k - halfTaps + 1) - frac;
+                double x = cutoff * d;
+                double sinc = x == 0 ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+                double r = d / halfTaps;
+                double window = Math.abs(r) >= 1.0 ? 0.0
+                    : besselI0(KAISER_BETA * Math.sqrt(1.0 - r * r)) / besselBeta;
+                double h = cutoff * sinc * window;
+                filters[p * taps + k] = (float) h;
+                sum += h;
+            }
+            // Unity DC gain for every phase
+            for (int k = 0; k < taps; k++) {
+                filters[p * taps + k] /= (float) sum;
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * Upper bound of output frames produced by one {@link #process} call.
+     *
+     * @param inputFrames Input frames in the call
+     * @return Maximum output frames
+     */
+    public int maxOutputFrames(int inputFrames) {
+        if (passthrough) {
+            return inputFrames;
+        }
+        long pending = (long) historyFrames + inputFrames - positionFrames;
+        return (int) Math.max(0, (pending * upFactor) / downFactor + 2);
+    }
+
+    /**
+     * Resamples interleaved float samples.
+     * 重采样交错排列的浮点样本
+     *
+     * @param in         Input samples
+     * @param inOffset   Offset of the first input sample
+     * @param inFrames   Input frames (samples per channel)
+     * @param out        Output samples; must hold {@link #maxOutputFrames}{@code (inFrames) × channels}
+     * @param outOffset  Offset of the first output sample
+     * @return Output frames written
+     */
+    public int process(float[] in, int inOffset, int inFrames, float[] out, int outOffset) {
+        if (passthrough) {
+            System.arraycopy(in, inOffset, out, outOffset, inFrames * channels);
+            return inFrames;
+        }
+        append(in, inOffset, inFrames);
+        return drain(out, outOffset);
+    }
+
+    /**
+     * Resamples PCM16 little-endian samples between byte buffers.
+     * 在字节缓冲区之间重采样 PCM16 小端样本
+     *
+     * <p>Reads the remaining whole frames of {@code in} (advancing its position) and
+     * writes to {@code out} at its position.</p>
+     *
+     * @param in  PCM16 input
+     * @param out PCM16 output with room for {@link #maxOutputFrames} frames
+     * @return Output bytes written
+     */
+    public int process(ByteBuffer in, ByteBuffer out) {
+        int frameBytes = channels * AudioFrame.BYTES_PER_SAMPLE;
+        int inFrames = in.remaining() / frameBytes;
+        if (passthrough) {
+            ByteBuffer src = in.duplicate();
+            src.limit(src.position() + inFrames * frameBytes);
+            out.put(src);
+            in.position(in.position() + inFrames * frameBytes);
+            return inFrames * frameBytes;
+        }
+        int inSamples = inFrames * channels;
+        if (scratchIn.length < inSamples) {
+            scratchIn = new float[inSamples];
+        }
+        ByteBuffer src = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < inSamples; i++) {
+            scratchIn[i] = src.getShort() / 32768f;
+        }
+        in.position(in.position() + inFrames * frameBytes);
+
+        int outSamples = maxOutputFrames(inFrames) * channels;
+        if (scratchOut.length < outSamples) {
+            scratchOut = new float[outSamples];
+        }
+        int produced = process(scratchIn, 0, inFrames, scratchOut, 0);
+        return writePcm16(scratchOut, produced * channels, out);
+    }
+
+    /**
+     * Drains the filter delay at end of stream (as if followed by silence).
+     * 在流结束时输出滤波器延迟中剩余的样本
+     *
+     * @param out PCM16 output with room for {@link #maxOutputFrames}{@code (halfTaps)} frames
+     * @return Output bytes written
+     */
+    public int flush(ByteBuffer out) {
+        if (passthrough) {
+            return 0;
+        }
+        // Emit every output whose position lies before the end of real input
+        int endFrames = historyFrames;
+        float[] silence = new float[halfTaps * channels];
+        append(silence, 0, halfTaps);
+        int outSamples = maxOutputFrames(0) * channels;
+        if (scratchOut.length < outSamples) {
+            scratchOut = new float[outSamples];
+        }
+        int produced = 0;
+        while (positionFrames < endFrames) {
+            produced += emitOne(scratchOut, produced * channels);
+        }
+        reset();
+        return writePcm16(scratchOut, produced * channels, out);
+    }
+
+    /**
+     * Clears history and position for a new stream.
+     * 清空历史与位置，开始新的流
+     */
+    public void reset() {
+        // Prime with halfTaps - 1 frames of silence so output 0 is centred on input 0
+        historyFrames = halfTaps - 1;
+        Arrays.fill(history, 0, historyFrames * channels, 0f);
+        positionFrames = halfTaps - 1;
+        positionPhase = 0;
+    }
+
+    private void append(float[] in, int inOffset, int inFrames) {
+        int needed = (historyFrames + inFrames) * channels;
+        if (history.length < needed) {
+            float[] grown = new float[Math.max(needed, history.length * 2)];
+            System.arraycopy(history, 0, grown, 0, historyFrames * channels);
+            history = grown;
+        }
+        System.arraycopy(in, inOffset, history, historyFrames * channels, inFrames * channels);
+        historyFrames += inFrames;
+    }
+
+    private int drain(float[] out, int outOffset) {
+        int produced = 0;
+        // Output at position i needs input frames up to i + halfTaps
+        while (positionFrames + halfTaps < historyFrames) {
+            produced += emitOne(out, outOffset + produced * channels);
+        }
+        // Keep only the frames the next output can still reach
+        int keepFrom = positionFrames - (halfTaps - 1);
+        if (keepFrom > 0) {
+            int keepFrames = historyFrames - keepFrom;
+            System.arraycopy(history, keepFrom * channels, history, 0, keepFrames * channels);
+            historyFrames = keepFrames;
+            positionFrames -= keepFrom;
+        }
+        return produced;
+    }
+
+    private int emitOne(float[] out, int outIndex) {
+        int phase = phases == upFactor
+            ? positionPhase
+            : (int) ((long) positionPhase * phases / upFactor);
+        int filter = phase * taps;
+        int first = (positionFrames - halfTaps + 1) * channels;
+        for (int c = 0; c < channels; c++) {
+            float acc = 0f;
+            int idx = first + c;
+            for (int k = 0; k < taps; k++, idx += channels) {
+                acc += bank[filter + k] * history[idx];
+            }
+            out[outIndex + c] = acc;
+        }
+        positionPhase += downFactor;
+        positionFrames += positionPhase / upFactor;
+        positionPhase %= upFactor;
+        return 1;
+    }
+
+    private static int writePcm16(float[] samples, int count, ByteBuffer out) {
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            out.putShort(toPcm16(samples[i]));
+        }
+        out.order(order);
+        return count * AudioFrame.BYTES_PER_SAMPLE;
+    }
+
+    static short toPcm16(float sample) {
+        float scaled = sample * 32768f;
+        if (scaled >= Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        }
+        if (scaled <= Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) Math.round(scaled);
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double halfX = x / 2.0;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < 1e-12 * sum) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /** Filter delay in input frames */
+    public int getLatencyFrames() {
+        return passthrough ? 0 : halfTaps;
+    }
+}
@@ -0,0 +1,255 @@
+package org.skylark.common.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Incremental WAV/RIFF Header Parser
+ * 增量式 WAV/RIFF 头解析器
+ *
+ * <p>Consumes a byte stream chunk by chunk and stops exactly at the first sample of the
+ * {@code data} chunk, so the caller can hand the rest of the same buffer to a decoder
+ * without copying. Works when the header is split across network chunks, skips unknown
+ * chunks ({@code LIST}, {@code fact}, ...) without buffering them, and tolerates streaming
+ * writers that leave the RIFF/data sizes as 0 or {@code 0xFFFFFFFF}.</p>
+ *
+ * <p>If the stream does not start with {@code RIFF....WAVE} the parser finishes immediately
+ * with {@link #isWav()} false and consumes nothing: the input is raw PCM.</p>
+ *
+ * <pre>
+ * WavHeaderParser parser = new WavHeaderParser();
+ * for (ByteBuffer chunk : chunks) {
+ *     if (!parser.isComplete() &amp;&amp; !parser.feed(chunk)) {
+ *         continue;              // header still incomplete
+ *     }
+ *     decoder.accept(chunk);     // chunk now positioned at PCM samples
+ * }
+ * </pre>
+ *
+ * <p>Not thread-safe.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class WavHeaderParser {
+
+    /** WAVE_FORMAT_PCM */
+    public static final int FORMAT_PCM = 1;
+    /** WAVE_FORMAT_IEEE_FLOAT */
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    /** WAVE_FORMAT_EXTENSIBLE */
+    public static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private static final int RIFF = fourCC("RIFF");
+    private static final int WAVE = fourCC("WAVE");
+    private static final int FMT = fourCC("fmt ");
+    private static final int DATA = fourCC("data");
+    /** Largest fmt chunk we buffer (WAVE_FORMAT_EXTENSIBLE is 40 bytes) */
+    private static final int MAX_FMT_BYTES = 64;
+
+    private enum State { RIFF_HEADER, CHUNK_HEADER, FMT_BODY, SKIP_BODY, DONE }
+
+    /** Small staging area for the fixed-size parts (RIFF header, chunk headers, fmt body) */
+    private final ByteBuffer staging = ByteBuffer.allocate(MAX_FMT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    private State state = State.RIFF_HEADER;
+    private long skipRemaining;
+    private boolean skipPad;
+    private boolean wav;
+    private long headerBytes;
+
+    private int formatTag;
+    private int channels;
+    private int sampleRate;
+    private int bitsPerSample;
+    private long dataLength = -1;
+
+    /**
+     * Consumes header bytes from {@code chunk}, advancing its position.
+     * 消费数据块中的头部字节（推进其 position）
+     *
+     * @param chunk Next bytes of the stream
+     * @return true once the header is complete; {@code chunk} is then positioned at
+     *         the first PCM byte (or untouched when the stream is not WAV)
+     * @throws IllegalArgumentException if the stream is WAV but the data chunk
+     *         precedes the fmt chunk
+     */
+    public boolean feed(ByteBuffer chunk) {
+        while (state != State.DONE && chunk.hasRemaining()) {
+            switch (state) {
+                case RIFF_HEADER:
+                    if (staging.position() == 0 && !startsWithRiff(chunk)) {
+                        state = State.DONE; // raw PCM; nothing consumed
+                        break;
+                    }
+                    if (stage(chunk, 12)) {
+                        if (staging.getInt(0) != RIFF || staging.getInt(8) != WAVE) {
+                            throw new IllegalArgumentException("RIFF stream is not WAVE");
+                        }
+                        wav = true;
+                        staging.clear();
+                        state = State.CHUNK_HEADER;
+                    }
+                    break;
+                case CHUNK_HEADER:
+                    if (stage(chunk, 8)) {
+                        int id = staging.getInt(0);
+                        long size = staging.getInt(4) & 0xFFFFFFFFL;
+                        staging.clear();
+                        onChunk(id, size);
+                    }
+                    break;
+                case FMT_BODY:
+                    if (stage(chunk, (int) skipRemaining)) {
+                        readFmt();
+                        staging.clear();
+                        skipRemaining = skipPad ? 1 : 0;
+                        skipPad = false;
+                        state = skipRemaining > 0 ? State.SKIP_BODY : State.CHUNK_HEADER;
+                    }
+                    break;
+                case SKIP_BODY:
+                    int n = (int) Math.min(chunk.remaining(), skipRemaining);
+                    chunk.position(chunk.position() + n);
+                    headerBytes += n;
+                    skipRemaining -= n;
+                    if (skipRemaining == 0) {
+                        state = State.CHUNK_HEADER;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return state == State.DONE;
+    }
+
+    private void onChunk(int id, long size) {
+        if (id == DATA) {
+            if (sampleRate == 0) {
+                throw new IllegalArgumentException("WAV data chunk precedes fmt chunk");
+            }
+            dataLength = (size == 0 || size == 0xFFFFFFFFL) ? -1 : size;
+            state = State.DONE;
+        } else if (id == FMT && size >= 16 && size <= MAX_FMT_BYTES) {
+            skipRemaining = size;
+            skipPad = (size & 1) != 0;
+            state = State.FMT_BODY;
+        } else {
+            skipRemaining = size + (size & 1);
+            state = skipRemaining > 0 ? State.SKIP_BODY : State.CHUNK_HEADER;
+        }
+    }
+
+    private void readFmt() {
+        formatTag = staging.getShort(0) & 0xFFFF;
+        channels = staging.getShort(2) & 0xFFFF;
+        sampleRate = staging.getInt(4);
+        bitsPerSample = staging.getShort(14) & 0xFFFF;
+        if (formatTag == FORMAT_EXTENSIBLE && staging.position() >= 26) {
+            // SubFormat GUID starts at offset 24; its first two bytes are the real format tag
+            formatTag = staging.getShort(24) & 0xFFFF;
+        }
+        if (channels <= 0 || sampleRate <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid WAV fmt chunk: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+    }
+
+    /** Copies bytes into the staging buffer until it holds {@code size}; true when full */
+    private boolean stage(ByteBuffer chunk, int size) {
+        int n = Math.min(chunk.remaining(), size - staging.position());
+        ByteBuffer slice = chunk.duplicate();
+        slice.limit(slice.position() + n);
+        staging.put(slice);
+        chunk.position(chunk.position() + n);
+        headerBytes += n;
+        return staging.position() == size;
+    }
+
+    /** Whether the available bytes (up to 4) match the start of "RIFF" */
+    private static boolean startsWithRiff(ByteBuffer chunk) {
+        int n = Math.min(4, chunk.remaining());
+        for (int i = 0; i < n; i++) {
+            if (chunk.get(chunk.position() + i) != "RIFF".charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int fourCC(String id) {
+        return (id.charAt(0) & 0xFF) | (id.charAt(1) & 0xFF) << 8
+            | (id.charAt(2) & 0xFF) << 16 | (id.charAt(3) & 0xFF) << 24;
+    }
+
+    /**
+     * Resets the parser for a new stream.
+     * 重置解析器
+     */
+    public void reset() {
+        staging.clear();
+        state = State.RIFF_HEADER;
+        skipRemaining = 0;
+        skipPad = false;
+        wav = false;
+        headerBytes = 0;
+        formatTag = 0;
+        channels = 0;
+        sampleRate = 0;
+        bitsPerSample = 0;
+        dataLength = -1;
+    }
+
+    /** Whether the header has been fully consumed (or the stream was found to be raw PCM) */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /** Whether the stream is a RIFF/WAVE container */
+    public boolean isWav() {
+        return wav;
+    }
+
+    /** Whether the samples are 16-bit integer PCM, the only layout the pipeline consumes directly */
+    public boolean isPcm16() {
+        return wav && formatTag == FORMAT_PCM && bitsPerSample == 16;
+    }
+
+    /**
+     * Returns the sample format once the header is complete.
+     *
+     * @return PCM format, or null if the stream is not WAV
+     */
+    public AudioStreamFormat getFormat() {
+        return wav && sampleRate > 0
+            ? new AudioStreamFormat(AudioStreamFormat.Encoding.PCM_S16LE, sampleRate, channels)
+            : null;
+    }
+
+    public int getFormatTag() {
+        return formatTag;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    /** Declared data chunk length, or -1 when unknown (streaming writer) */
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    /** Header bytes consumed so far */
+    public long getHeaderBytes() {
+        return headerBytes;
+    }
+}
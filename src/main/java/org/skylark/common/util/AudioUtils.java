@@ -1,12 +1,14 @@
 package org.skylark.common.util;
 
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.audio.PolyphaseResampler;
+import org.skylark.common.audio.WavHeaderParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sound.sampled.AudioFormat;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.file.Files;
@@ -27,6 +29,9 @@ import java.nio.file.Paths;
  *   <li>Create standard audio format configurations</li>
  *   <li>Automatic directory creation for output files</li>
  *   <li>File path validation and error handling</li>
+ *   <li>Streaming format engine: incremental WAV parsing ({@link WavHeaderParser}),
+ *       polyphase resampling ({@link PolyphaseResampler}), channel down-mix and
+ *       int16/float conversion on caller-supplied buffers</li>
  * </ul>
  * 
  * <p>Example usage:</p>
@@ -101,15 +106,13 @@ public class AudioUtils {
         
         byte[] wavHeader = createWavHeader(audioData.length, format);
         
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        outputStream.write(wavHeader);
-        outputStream.write(audioData);
-        
-        byte[] wavFile = outputStream.toByteArray();
-        Files.write(outputPath, wavFile);
+        try (OutputStream outputStream = Files.newOutputStream(outputPath)) {
+            outputStream.write(wavHeader);
+            outputStream.write(audioData);
+        }
         
         logger.info("Successfully saved WAV file: {} ({} bytes, {} samples)", 
-            filePath, wavFile.length, audioData.length / format.getFrameSize());
+            filePath, wavHeader.length + audioData.length, audioData.length / format.getFrameSize());
     }
     
     /**
@@ -182,11 +185,14 @@ public class AudioUtils {
      * Bytes 40-43: Data size
      * </pre>
      * 
+     * <p>Callers that upload audio can send this header followed by the PCM bytes
+     * (e.g. as two buffers) instead of building a complete WAV copy.</p>
+     * 
      * @param audioDataSize Size of the audio data in bytes
      * @param format AudioFormat with sample rate, bit depth, and channel information
      * @return 44-byte WAV header as byte array
      */
-    private static byte[] createWavHeader(int audioDataSize, AudioFormat format) {
+    public static byte[] createWavHeader(int audioDataSize, AudioFormat format) {
         int sampleRate = (int) format.getSampleRate();
         int bitsPerSample = format.getSampleSizeInBits();
         int channels = format.getChannels();
@@ -270,6 +276,201 @@ public class AudioUtils {
         }
     }
     
+    /**
+     * Returns the remaining bytes of a buffer as an array, without changing its position.
+     * 
+     * <p>When the buffer exactly spans its backing array, that array is returned
+     * as-is (no copy); otherwise the remaining bytes are copied.</p>
+     * 
+     * @param buffer Source buffer
+     * @return Byte array holding the remaining bytes
+     */
+    public static byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+    
+    /**
+     * Returns a view over the PCM samples of a WAV buffer (the {@code data} chunk),
+     * without copying or changing the source position.
+     * 
+     * @param wav WAV bytes (RIFF header + chunks)
+     * @return Little-endian view of the sample data, or null if not a RIFF/WAVE buffer
+     */
+    public static ByteBuffer wavPcmData(ByteBuffer wav) {
+        ByteBuffer view = wav.duplicate();
+        WavHeaderParser parser = parseWavHeader(view);
+        if (parser == null) {
+            return null;
+        }
+        if (parser.getDataLength() >= 0 && parser.getDataLength() < view.remaining()) {
+            view.limit(view.position() + (int) parser.getDataLength());
+        }
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Reads the PCM format from the {@code fmt } chunk of a WAV buffer.
+     * 
+     * @param wav WAV bytes (RIFF header + chunks)
+     * @return PCM format, or null if not a RIFF/WAVE buffer or the fmt chunk is missing
+     */
+    public static AudioStreamFormat wavPcmFormat(ByteBuffer wav) {
+        WavHeaderParser parser = parseWavHeader(wav.duplicate());
+        return parser != null ? parser.getFormat() : null;
+    }
+    
+    private static WavHeaderParser parseWavHeader(ByteBuffer view) {
+        WavHeaderParser parser = new WavHeaderParser();
+        try {
+            if (!parser.feed(view) || !parser.isWav()) {
+                return null;
+            }
+        } catch (IllegalArgumentException e) {
+            logger.debug("Malformed WAV header: {}", e.getMessage());
+            return null;
+        }
+        return parser;
+    }
+    
+    /**
+     * Converts PCM16 little-endian samples to floats in [-1, 1).
+     * 
+     * <p>Reads the remaining whole samples of {@code src} without changing its position.</p>
+     * 
+     * @param src PCM16 samples
+     * @param dst Destination array
+     * @param dstOffset Offset of the first destination sample
+     * @return Number of samples converted
+     */
+    public static int pcm16ToFloat(ByteBuffer src, float[] dst, int dstOffset) {
+        ByteBuffer in = src.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int count = in.remaining() / 2;
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = in.getShort() / 32768f;
+        }
+        return count;
+    }
+    
+    /**
+     * Converts float samples to PCM16 little-endian, clamping to the 16-bit range.
+     * 
+     * @param src Float samples
+     * @param srcOffset Offset of the first source sample
+     * @param count Number of samples
+     * @param dst Destination buffer, written at its position
+     */
+    public static void floatToPcm16(float[] src, int srcOffset, int count, ByteBuffer dst) {
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            float scaled = src[srcOffset + i] * 32768f;
+            short sample;
+            if (scaled >= Short.MAX_VALUE) {
+                sample = Short.MAX_VALUE;
+            } else if (scaled <= Short.MIN_VALUE) {
+                sample = Short.MIN_VALUE;
+            } else {
+                sample = (short) Math.round(scaled);
+            }
+            dst.putShort(sample);
+        }
+        dst.order(order);
+    }
+    
+    /**
+     * Averages interleaved PCM16 channels down to mono.
+     * 
+     * <p>Reads the remaining whole frames of {@code src} without changing its position.
+     * {@code dst} may be a view of the same memory as {@code src} at the same start,
+     * since each output sample is written after its frame has been read.</p>
+     * 
+     * @param src Interleaved PCM16 samples
+     * @param channels Channel count of {@code src}
+     * @param dst Destination buffer, written at its position
+     * @return Number of mono samples written
+     */
+    public static int downmixToMono(ByteBuffer src, int channels, ByteBuffer dst) {
+        if (channels <= 0) {
+            throw new IllegalArgumentException("channels must be positive: " + channels);
+        }
+        ByteBuffer in = src.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.LITTLE_ENDIAN);
+        int frames = in.remaining() / (2 * channels);
+        for (int f = 0; f < frames; f++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += in.getShort();
+            }
+            dst.putShort((short) (sum / channels));
+        }
+        dst.order(order);
+        return frames;
+    }
+    
+    /**
+     * Converts a complete PCM16 buffer to the given rate and channel count.
+     * 
+     * <p>Down-mixes to mono (or duplicates mono to {@code targetChannels}) and resamples
+     * with a {@link PolyphaseResampler}, flushing its tail. Returns {@code src} itself
+     * (no copy) when the format already matches. For chunked streams keep one
+     * {@link PolyphaseResampler} per stream instead.</p>
+     * 
+     * @param src PCM16 samples (remaining bytes; position is not changed)
+     * @param from Source format (sample rate and channels)
+     * @param targetRate Target sample rate in Hz
+     * @param targetChannels Target channel count (1, or equal to the source, or any when the source is mono)
+     * @return Converted little-endian PCM16 buffer
+     */
+    public static ByteBuffer convertPcm16(ByteBuffer src, AudioStreamFormat from, int targetRate, int targetChannels) {
+        int channels = from.getChannels();
+        if (from.getSampleRate() == targetRate && channels == targetChannels) {
+            return src;
+        }
+        if (targetChannels != 1 && channels != 1 && targetChannels != channels) {
+            throw new IllegalArgumentException(
+                "Unsupported channel conversion: " + channels + " -> " + targetChannels);
+        }
+        ByteBuffer pcm = src;
+        if (channels > 1 && targetChannels == 1) {
+            pcm = ByteBuffer.allocate(src.remaining() / channels).order(ByteOrder.LITTLE_ENDIAN);
+            downmixToMono(src, channels, pcm);
+            pcm.flip();
+            channels = 1;
+        }
+        if (from.getSampleRate() != targetRate) {
+            PolyphaseResampler resampler = new PolyphaseResampler(from.getSampleRate(), targetRate, channels);
+            int inFrames = pcm.remaining() / (2 * channels);
+            ByteBuffer out = ByteBuffer.allocate(
+                    (resampler.maxOutputFrames(inFrames) + resampler.maxOutputFrames(resampler.getLatencyFrames()))
+                    * 2 * channels)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            resampler.process(pcm.duplicate(), out);
+            resampler.flush(out);
+            out.flip();
+            pcm = out;
+        }
+        if (channels == 1 && targetChannels > 1) {
+            ByteBuffer in = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer out = ByteBuffer.allocate(in.remaining() * targetChannels).order(ByteOrder.LITTLE_ENDIAN);
+            while (in.remaining() >= 2) {
+                short sample = in.getShort();
+                for (int c = 0; c < targetChannels; c++) {
+                    out.putShort(sample);
+                }
+            }
+            out.flip();
+            pcm = out;
+        }
+        return pcm;
+    }
+    
     /**
      * Calculates the duration of audio data in seconds.
      * 
@@ -0,0 +1,403 @@
+package org.skylark.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fair Scheduler
+ * 公平调度器
+ *
+ * <p>Runs CPU-heavy jobs (e.g. speech decoding) from many callers on a fixed number of
+ * worker threads, so a burst of simultaneous requests queues instead of oversubscribing the
+ * cores and slowing every request down together. Jobs are grouped by key (a session):</p>
+ * <ul>
+ *   <li>Jobs of one key run one at a time, in submission order, so a key's state (such as
+ *       a streaming recognizer) is never touched by two workers</li>
+ *   <li>Keys with work are served round-robin, so one busy session cannot starve others</li>
+ *   <li>Keys whose next job is short ({@code cost <= shortCost}) are served before the
+ *       rest, so a brief reply is not stuck behind a long dictation</li>
+ *   <li>A job that has waited {@code agingMillis} is served before short jobs, so a steady
+ *       stream of short work cannot starve a long job</li>
+ * </ul>
+ *
+ * <p>At most {@code maxQueued} jobs wait at once; beyond that {@link #submit} fails fast
+ * with {@link RejectedExecutionException} rather than letting latency grow without bound.
+ * The cost is an estimate in caller-chosen units (audio milliseconds for decoding) and also
+ * feeds the real-time factor metric.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class FairScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FairScheduler.class);
+
+    /** Recent queue waits kept for percentiles */
+    private static final int WAIT_SAMPLES = 1024;
+
+    /** Default wait after which a job is served ahead of short jobs */
+    public static final long DEFAULT_AGING_MS = 1000;
+
+    private final String name;
+    private final long shortCost;
+    private final long agingNanos;
+    private final int maxQueued;
+    private final Thread[] workers;
+
+    private final Object lock = new Object();
+    private final Map<String, KeyQueue> keys = new HashMap<>();
+    /** Keys with queued jobs that are not running */
+    private final ArrayDeque<KeyQueue> ready = new ArrayDeque<>();
+    private int queued;
+    private volatile boolean running = true;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong aged = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+    private final AtomicLong runCost = new AtomicLong();
+    private final long[] recentWaitNanos = new long[WAIT_SAMPLES];
+    private long recentWaitCount;
+    private volatile long maxQueueWaitNanos;
+
+    /**
+     * Creates and starts a scheduler.
+     * 创建并启动调度器
+     *
+     * @param name      Worker thread name prefix
+     * @param threads   Worker threads (at least 1)
+     * @param maxQueued Jobs that may wait at once (at least 1)
+     * @param shortCost Jobs with at most this cost are served first
+     */
+    public FairScheduler(String name, int threads, int maxQueued, long shortCost) {
+        this(name, threads, maxQueued, shortCost, DEFAULT_AGING_MS);
+    }
+
+    /**
+     * Creates and starts a scheduler.
+     * 创建并启动调度器
+     *
+     * @param name        Worker thread name prefix
+     * @param threads     Worker threads (at least 1)
+     * @param maxQueued   Jobs that may wait at once (at least 1)
+     * @param shortCost   Jobs with at most this cost are served first
+     * @param agingMillis Wait after which any job is served ahead of short jobs
+     */
+    public FairScheduler(String name, int threads, int maxQueued, long shortCost, long agingMillis) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        if (maxQueued < 1) {
+            throw new IllegalArgumentException("maxQueued must be at least 1: " + maxQueued);
+        }
+        if (agingMillis < 0) {
+            throw new IllegalArgumentException("agingMillis cannot be negative: " + agingMillis);
+        }
+        this.name = name;
+        this.shortCost = shortCost;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        this.maxQueued = maxQueued;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::workLoop, name + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues a job behind the key's earlier jobs.
+     * 提交任务
+     *
+     * @param key  Fairness key (session); null gives the job a lane of its own
+     * @param cost Estimated cost, for priority and real-time factor
+     * @param job  Work to run on a worker thread
+     * @param <R>  Result type
+     * @return Future completed with the job's result; failed with
+     *         {@link RejectedExecutionException} if the queue is full or shut down.
+     *         Cancelling it before the job starts skips the job
+     */
+    public <R> CompletableFuture<R> submit(String key, long cost, Callable<R> job) {
+        Job<R> pending = new Job<>(cost, job);
+        submitted.incrementAndGet();
+        synchronized (lock) {
+            if (!running || queued >= maxQueued) {
+                rejected.incrementAndGet();
+                pending.future.completeExceptionally(new RejectedExecutionException(
+                    running ? name + " queue is full (" + maxQueued + " jobs)" : name + " is shut down"));
+                return pending.future;
+            }
+            KeyQueue keyQueue = key != null ? keys.computeIfAbsent(key, KeyQueue::new) : new KeyQueue(null);
+            keyQueue.jobs.add(pending);
+            queued++;
+            if (!keyQueue.running && keyQueue.jobs.size() == 1) {
+                ready.add(keyQueue);
+                lock.notify();
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * Queues a job and waits for its result.
+     * 提交任务并等待结果
+     *
+     * <p>If the waiting thread is interrupted the job is cancelled: a job still queued is
+     * skipped, a job already running finishes.</p>
+     *
+     * @see #submit
+     * @throws Exception the job's failure, {@link RejectedExecutionException} or
+     *                   {@link InterruptedException}
+     */
+    public <R> R call(String key, long cost, Callable<R> job) throws Exception {
+        CompletableFuture<R> future = submit(key, cost, job);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Stops the workers; queued jobs fail, running jobs finish.
+     * 停止调度器
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            for (KeyQueue keyQueue : keys.values()) {
+                keyQueue.jobs.forEach(job -> job.future.completeExceptionally(
+                    new RejectedExecutionException(name + " is shut down")));
+                keyQueue.jobs.clear();
+            }
+            for (KeyQueue keyQueue : ready) {
+                keyQueue.jobs.forEach(job -> job.future.completeExceptionally(
+                    new RejectedExecutionException(name + " is shut down")));
+            }
+            ready.clear();
+            keys.clear();
+            queued = 0;
+            lock.notifyAll();
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            KeyQueue keyQueue;
+            Job<?> job;
+            synchronized (lock) {
+                while (running && ready.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                keyQueue = nextReady();
+                keyQueue.running = true;
+                job = keyQueue.jobs.poll();
+                queued--;
+            }
+            try {
+                run(job);
+            } catch (Throwable t) {
+                // Keep the worker alive and never leave a caller waiting
+                logger.error("{}: worker failed running a job", name, t);
+                job.future.completeExceptionally(t);
+            } finally {
+                synchronized (lock) {
+                    keyQueue.running = false;
+                    if (!keyQueue.jobs.isEmpty()) {
+                        ready.add(keyQueue);
+                        lock.notify();
+                    } else if (keyQueue.key != null) {
+                        keys.remove(keyQueue.key, keyQueue);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * First ready key whose next job has waited past the aging limit, else the first whose
+     * next job is short, else the first ready key
+     */
+    private KeyQueue nextReady() {
+        long now = System.nanoTime();
+        KeyQueue firstShort = null;
+        for (Iterator<KeyQueue> it = ready.iterator(); it.hasNext(); ) {
+            KeyQueue candidate = it.next();
+            Job<?> next = candidate.jobs.peek();
+            if (now - next.enqueuedNanos >= agingNanos) {
+                if (next.cost > shortCost) {
+                    aged.incrementAndGet();
+                }
+                it.remove();
+                return candidate;
+            }
+            if (firstShort == null && next.cost <= shortCost) {
+                firstShort = candidate;
+            }
+        }
+        if (firstShort != null) {
+            ready.remove(firstShort);
+            return firstShort;
+        }
+        return ready.poll();
+    }
+
+    private <R> void run(Job<R> job) {
+        if (job.future.isCancelled()) {
+            cancelled.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        recordWait(start - job.enqueuedNanos);
+        R result = null;
+        Throwable failure = null;
+        try {
+            result = job.task.call();
+        } catch (Exception e) {
+            failure = e;
+        } catch (Throwable t) {
+            logger.error("{}: job failed", name, t);
+            failure = t;
+        }
+        // Metrics first, so a caller woken by the future already sees its job counted
+        runNanos.addAndGet(System.nanoTime() - start);
+        runCost.addAndGet(job.cost);
+        completed.incrementAndGet();
+        if (failure != null) {
+            job.future.completeExceptionally(failure);
+        } else {
+            job.future.complete(result);
+        }
+    }
+
+    private void recordWait(long wait) {
+        queueWaitNanos.addAndGet(wait);
+        if (wait > maxQueueWaitNanos) {
+            maxQueueWaitNanos = wait;
+        }
+        synchronized (recentWaitNanos) {
+            recentWaitNanos[(int) (recentWaitCount++ % WAIT_SAMPLES)] = wait;
+        }
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /** Jobs waiting for a worker */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /** Jobs refused because the queue was full or shut down */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /** Jobs skipped because they were cancelled while queued */
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    /** Long jobs served ahead of short ones because they waited past the aging limit */
+    public long getAgedCount() {
+        return aged.get();
+    }
+
+    /** Mean time from submit to start, in microseconds */
+    public double getAverageQueueWaitMicros() {
+        long n = completed.get();
+        return n > 0 ? queueWaitNanos.get() / 1000.0 / n : 0;
+    }
+
+    public long getMaxQueueWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos);
+    }
+
+    /**
+     * Queue wait percentile over the most recent {@value #WAIT_SAMPLES} jobs.
+     *
+     * @param percentile 0..100
+     * @return Wait in microseconds, 0 if nothing has run
+     */
+    public long getQueueWaitPercentileMicros(double percentile) {
+        long[] sorted;
+        synchronized (recentWaitNanos) {
+            sorted = Arrays.copyOf(recentWaitNanos, (int) Math.min(recentWaitCount, WAIT_SAMPLES));
+        }
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, Math.min(sorted.length - 1, index))]);
+    }
+
+    /**
+     * Run time per unit of cost, with cost in milliseconds: the real-time factor when cost
+     * is audio duration (below 1 = faster than real time).
+     */
+    public double getRealTimeFactor() {
+        long cost = runCost.get();
+        return cost > 0 ? runNanos.get() / 1e6 / cost : 0;
+    }
+
+    private static final class KeyQueue {
+        final String key;
+        final ArrayDeque<Job<?>> jobs = new ArrayDeque<>();
+        boolean running;
+
+        KeyQueue(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Job<R> {
+        final long cost;
+        final Callable<R> task;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        Job(long cost, Callable<R> task) {
+            this.cost = cost;
+            this.task = task;
+        }
+    }
+}
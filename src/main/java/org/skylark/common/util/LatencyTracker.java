@@ -0,0 +1,87 @@
+package org.skylark.common.util;
+
+import java.util.Arrays;
+
+/**
+ * Latency Tracker
+ * 延迟统计
+ *
+ * <p>Keeps the most recent {@code window} latency samples of one operation and answers
+ * percentile queries over them, so the figures follow current conditions (CPU load,
+ * network health) rather than the whole uptime. Also counts all samples and the maximum.
+ * Thread-safe.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class LatencyTracker {
+
+    public static final int DEFAULT_WINDOW = 512;
+
+    private final long[] samples;
+    private long count;
+    private long totalMillis;
+    private long maxMillis;
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window Recent samples kept for percentiles (at least 1)
+     */
+    public LatencyTracker(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1: " + window);
+        }
+        this.samples = new long[window];
+    }
+
+    /**
+     * Records one latency.
+     * 记录一次延迟
+     *
+     * @param millis Latency in milliseconds
+     */
+    public synchronized void record(long millis) {
+        samples[(int) (count % samples.length)] = millis;
+        count++;
+        totalMillis += millis;
+        if (millis > maxMillis) {
+            maxMillis = millis;
+        }
+    }
+
+    /**
+     * Latency percentile over the recent window.
+     *
+     * @param percentile 0..100
+     * @return Latency in milliseconds, or -1 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        if (sorted.length == 0) {
+            return -1;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /** Samples recorded since start */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Mean latency since start, in milliseconds */
+    public synchronized double getAverageMillis() {
+        return count > 0 ? (double) totalMillis / count : 0;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+}
@@ -0,0 +1,313 @@
+package org.skylark.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-Batch Scheduler
+ * 微批调度器
+ *
+ * <p>Collects requests submitted concurrently by many callers and hands them to a
+ * batch function in groups, so a fixed per-call cost (e.g. one ONNX {@code run}) is paid
+ * once per batch instead of once per request. A dispatcher thread closes a batch
+ * when it reaches {@code maxBatchSize} or when its oldest request has waited
+ * {@code maxDelayMicros}, whichever comes first; results are scattered back to each
+ * caller's future in submission order.</p>
+ *
+ * <p>With several dispatchers, requests are sharded by {@code hashCode()}: each shard has
+ * its own queue and thread, so batches of different shards run in parallel (one core each
+ * when the batch function is single-threaded) while a given request key always lands on
+ * the same shard. More shards mean smaller batches under the same load.</p>
+ *
+ * <p>Callers normally block on {@link #call}; the queueing delay they pay is bounded by
+ * {@code maxDelayMicros} plus the batch run time.</p>
+ *
+ * @param <T> Request type
+ * @param <R> Result type
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class MicroBatchScheduler<T, R> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatchScheduler.class);
+
+    /**
+     * Processes one batch
+     */
+    @FunctionalInterface
+    public interface BatchFunction<T, R> {
+        /**
+         * @param batch Requests in submission order (1..maxBatchSize)
+         * @return One result per request, in the same order
+         * @throws Exception on failure; every request of the batch fails with it
+         */
+        List<R> apply(List<T> batch) throws Exception;
+    }
+
+    /**
+     * Processes one batch, told which shard it runs on (for per-shard scratch state)
+     */
+    @FunctionalInterface
+    public interface ShardedBatchFunction<T, R> {
+        /**
+         * @param shard Dispatcher index, 0..dispatchers-1; calls for one shard never overlap
+         * @param batch Requests in submission order (1..maxBatchSize)
+         * @return One result per request, in the same order
+         * @throws Exception on failure; every request of the batch fails with it
+         */
+        List<R> apply(int shard, List<T> batch) throws Exception;
+    }
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ShardedBatchFunction<T, R> function;
+    private final List<Shard> shards;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong queueDelayNanos = new AtomicLong();
+    private final AtomicLong maxQueueDelayNanos = new AtomicLong();
+
+    /**
+     * Creates and starts a scheduler.
+     * 创建并启动调度器
+     *
+     * @param name           Dispatcher thread name
+     * @param maxBatchSize   Largest batch handed to {@code function} (at least 1)
+     * @param maxDelayMicros Longest time the oldest request waits for a batch to fill
+     * @param function       Batch function, called on the dispatcher thread
+     */
+    public MicroBatchScheduler(String name, int maxBatchSize, long maxDelayMicros, BatchFunction<T, R> function) {
+        this(name, maxBatchSize, maxDelayMicros, 1, adapt(function));
+    }
+
+    /**
+     * Creates and starts a scheduler with several dispatchers.
+     * 创建并启动多分片调度器
+     *
+     * @param name           Dispatcher thread name prefix
+     * @param maxBatchSize   Largest batch handed to {@code function} (at least 1)
+     * @param maxDelayMicros Longest time the oldest request waits for a batch to fill
+     * @param dispatchers    Number of shards, each with its own queue and thread (at least 1)
+     * @param function       Batch function, called on the shard's dispatcher thread
+     */
+    public MicroBatchScheduler(String name, int maxBatchSize, long maxDelayMicros, int dispatchers,
+                               ShardedBatchFunction<T, R> function) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+        }
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("maxDelayMicros must not be negative: " + maxDelayMicros);
+        }
+        if (dispatchers < 1) {
+            throw new IllegalArgumentException("dispatchers must be at least 1: " + dispatchers);
+        }
+        if (function == null) {
+            throw new IllegalArgumentException("Batch function cannot be null");
+        }
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.function = function;
+        this.shards = new ArrayList<>(dispatchers);
+        for (int i = 0; i < dispatchers; i++) {
+            Shard shard = new Shard(i, dispatchers == 1 ? name : name + "-" + i);
+            shards.add(shard);
+            shard.thread.start();
+        }
+    }
+
+    private static <T, R> ShardedBatchFunction<T, R> adapt(BatchFunction<T, R> function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Batch function cannot be null");
+        }
+        return (shard, batch) -> function.apply(batch);
+    }
+
+    /**
+     * Queues a request.
+     * 提交请求
+     *
+     * @param request Request
+     * @return Future completed when the request's batch has run
+     */
+    public CompletableFuture<R> submit(T request) {
+        Pending<T, R> pending = new Pending<>(request);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException(name + " is shut down"));
+            return pending.future;
+        }
+        shards.get(Math.floorMod(request.hashCode(), shards.size())).queue.add(pending);
+        return pending.future;
+    }
+
+    /**
+     * Queues a request and waits for its result.
+     * 提交请求并等待结果
+     *
+     * @param request Request
+     * @return Result
+     * @throws Exception the batch function's failure, or {@link InterruptedException}
+     */
+    public R call(T request) throws Exception {
+        try {
+            return submit(request).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Stops the dispatcher; queued requests fail.
+     * 停止调度器
+     */
+    public void shutdown() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+            Pending<T, R> pending;
+            while ((pending = shard.queue.poll()) != null) {
+                pending.future.completeExceptionally(new IllegalStateException(name + " is shut down"));
+            }
+        }
+    }
+
+    private void dispatchLoop(Shard shard) {
+        LinkedBlockingQueue<Pending<T, R>> queue = shard.queue;
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending<T, R> first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedNanos + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Pending<T, R> next = queue.poll();
+                    if (next == null) {
+                        long wait = deadline - System.nanoTime();
+                        if (wait <= 0) {
+                            break;
+                        }
+                        next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                    }
+                    batch.add(next);
+                }
+                runBatch(shard.index, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.future.completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(int shard, List<Pending<T, R>> batch) {
+        long now = System.nanoTime();
+        List<T> inputs = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            long delay = now - pending.enqueuedNanos;
+            queueDelayNanos.addAndGet(delay);
+            maxQueueDelayNanos.accumulateAndGet(delay, Math::max);
+            inputs.add(pending.request);
+        }
+        batches.incrementAndGet();
+        requests.addAndGet(batch.size());
+        try {
+            List<R> results = function.apply(shard, inputs);
+            if (results == null || results.size() != batch.size()) {
+                throw new IllegalStateException("Batch function returned "
+                    + (results == null ? "null" : results.size() + " results") + " for " + batch.size() + " requests");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (Exception e) {
+            logger.error("{}-{}: batch of {} failed", name, shard, batch.size(), e);
+            batch.forEach(p -> p.future.completeExceptionally(e));
+        }
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getDispatcherCount() {
+        return shards.size();
+    }
+
+    /** Requests waiting for the next batch, over all shards */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Shard shard : shards) {
+            depth += shard.queue.size();
+        }
+        return depth;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /** Mean requests per batch */
+    public double getAverageBatchSize() {
+        long b = batches.get();
+        return b > 0 ? (double) requests.get() / b : 0;
+    }
+
+    /** Mean batch fill relative to {@code maxBatchSize}, 0..1 */
+    public double getAverageBatchFill() {
+        return getAverageBatchSize() / maxBatchSize;
+    }
+
+    /** Mean time from submit to batch start, in microseconds */
+    public double getAverageQueueDelayMicros() {
+        long r = requests.get();
+        return r > 0 ? queueDelayNanos.get() / 1000.0 / r : 0;
+    }
+
+    public long getMaxQueueDelayMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxQueueDelayNanos.get());
+    }
+
+    /** One dispatcher: its queue and thread */
+    private final class Shard {
+        final int index;
+        final LinkedBlockingQueue<Pending<T, R>> queue = new LinkedBlockingQueue<>();
+        final Thread thread;
+
+        Shard(int index, String threadName) {
+            this.index = index;
+            this.thread = new Thread(() -> dispatchLoop(this), threadName);
+            thread.setDaemon(true);
+        }
+    }
+
+    private static final class Pending<T, R> {
+        final T request;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        Pending(T request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package org.skylark.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Model Registry
+ * 模型注册表（按需加载、引用计数、LRU 淘汰）
+ *
+ * <p>Holds large, slow-to-load models (e.g. Vosk speech models, hundreds of MB and seconds
+ * to load each) keyed by name, so one process can serve several languages or domains:</p>
+ * <ul>
+ *   <li>{@link #acquire(String)} loads a model on first use and hands out a {@link Lease};
+ *       callers asking for a model that is being loaded wait for that one load</li>
+ *   <li>A model is referenced while any lease on it is open and is never closed then</li>
+ *   <li>When the estimated footprint of resident models exceeds the budget, unreferenced
+ *       models are closed, least recently used first; room is made before a load starts</li>
+ *   <li>{@link #preload(String)} loads a model in the background, so a session that is
+ *       about to need it does not wait; it is skipped when models in use leave no room
+ *       for it, since it would be evicted again straight away</li>
+ * </ul>
+ *
+ * <p>Referenced models are never evicted, so the budget can be exceeded while more models
+ * are in use than fit. Thread-safe.</p>
+ *
+ * @param <M> Model type
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class ModelRegistry<M extends AutoCloseable> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+    /**
+     * Loads models and estimates their memory footprint
+     */
+    public interface Loader<M> {
+        /** Load the model stored at location / 加载模型 */
+        M load(String location) throws Exception;
+
+        /** Estimated resident bytes of the model at location / 估算模型内存占用 */
+        long footprint(String location);
+    }
+
+    private final String name;
+    private final long budgetBytes;
+    private final Loader<M> loader;
+    private final Map<String, String> locations = new ConcurrentHashMap<>();
+    private final ExecutorService preloader;
+
+    /** Resident and loading models in access order; guarded by this */
+    private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    private boolean closed;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong preloadsSkipped = new AtomicLong();
+    private final LatencyTracker loadLatency = new LatencyTracker();
+
+    /**
+     * Creates an empty registry.
+     * 创建模型注册表
+     *
+     * @param name        Name for logs and the preload thread
+     * @param budgetBytes Footprint above which unreferenced models are evicted (0 = no limit)
+     * @param loader      Loads models
+     */
+    public ModelRegistry(String name, long budgetBytes, Loader<M> loader) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("budgetBytes cannot be negative: " + budgetBytes);
+        }
+        if (loader == null) {
+            throw new IllegalArgumentException("loader cannot be null");
+        }
+        this.name = name;
+        this.budgetBytes = budgetBytes;
+        this.loader = loader;
+        this.preloader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + "-preload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A reference to a loaded model; close it when done so the model can be evicted
+     */
+    public final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private final M model;
+        private boolean released;
+
+        private Lease(Entry entry, M model) {
+            this.entry = entry;
+            this.model = model;
+        }
+
+        public M get() {
+            return model;
+        }
+
+        public String getKey() {
+            return entry.key;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release(entry);
+        }
+    }
+
+    private final class Entry {
+        final String key;
+        final String location;
+        final CompletableFuture<M> model = new CompletableFuture<>();
+        long bytes;
+        int refs;
+
+        Entry(String key, String location) {
+            this.key = key;
+            this.location = location;
+        }
+
+        boolean isLoaded() {
+            return model.isDone() && !model.isCompletedExceptionally();
+        }
+    }
+
+    /**
+     * Registers (or re-points) a model; a resident model of that key stays until evicted.
+     * 注册模型位置
+     *
+     * @param key      Model key (e.g. "zh", "en", "zh-medical")
+     * @param location Where the loader finds the model (e.g. a directory)
+     */
+    public void register(String key, String location) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Model key cannot be null or empty");
+        }
+        if (location == null || location.isBlank()) {
+            throw new IllegalArgumentException("Model location cannot be null or empty: " + key);
+        }
+        locations.put(key, location);
+    }
+
+    public boolean isRegistered(String key) {
+        return key != null && locations.containsKey(key);
+    }
+
+    /**
+     * Returns a lease on the model, loading it in the calling thread if it is not resident.
+     * 获取模型（必要时加载）
+     *
+     * @param key Registered model key
+     * @return Lease; close it when the model is no longer used
+     * @throws IllegalArgumentException if the key is not registered
+     * @throws Exception                if the model cannot be loaded
+     */
+    public Lease acquire(String key) throws Exception {
+        String location = key != null ? locations.get(key) : null;
+        if (location == null) {
+            throw new IllegalArgumentException("Unknown model: " + key);
+        }
+        Entry entry;
+        boolean load = false;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Model registry " + name + " is closed");
+            }
+            entry = resident.get(key);
+            if (entry == null) {
+                entry = new Entry(key, location);
+                resident.put(key, entry);
+                load = true;
+            }
+            entry.refs++;
+        }
+        if (load) {
+            load(entry);
+        } else {
+            hits.incrementAndGet();
+        }
+        try {
+            return new Lease(entry, entry.model.join());
+        } catch (CompletionException e) {
+            synchronized (this) {
+                entry.refs--;
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Loads the model in the background and keeps it resident (unreferenced) until evicted.
+     * 后台预加载模型
+     *
+     * <p>Nothing is loaded if the models in use (and loading) already leave too little of
+     * the budget for this one: it would be the only eviction candidate and be unloaded as
+     * soon as it was loaded.</p>
+     *
+     * @param key Registered model key
+     * @return Future completed once the model is resident or the preload is skipped, or
+     *         failed if it cannot be loaded
+     */
+    public CompletableFuture<Void> preload(String key) {
+        if (!isRegistered(key)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown model: " + key));
+        }
+        return CompletableFuture.runAsync(() -> {
+            if (!fitsBeside(key)) {
+                preloadsSkipped.incrementAndGet();
+                logger.info("Skipping preload of model {}/{}: models in use leave no room in the budget", name, key);
+                return;
+            }
+            try {
+                Lease lease = acquire(key);
+                lease.close();
+                logger.debug("Preloaded model {}/{}", name, key);
+            } catch (Exception e) {
+                logger.warn("Failed to preload model {}/{}: {}", name, key, e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, preloader);
+    }
+
+    /**
+     * Whether the model is resident, or fits the budget beside the models that cannot be
+     * evicted (referenced or loading).
+     */
+    private boolean fitsBeside(String key) {
+        if (budgetBytes == 0) {
+            return true;
+        }
+        String location = locations.get(key);
+        long bytes = location != null ? Math.max(0, loader.footprint(location)) : 0;
+        synchronized (this) {
+            if (resident.containsKey(key)) {
+                return true;
+            }
+            long pinned = 0;
+            for (Entry entry : resident.values()) {
+                if (entry.refs > 0 || !entry.isLoaded()) {
+                    pinned += entry.bytes;
+                }
+            }
+            return pinned + bytes <= budgetBytes;
+        }
+    }
+
+    /** Whether the model is loaded and in memory */
+    public synchronized boolean isResident(String key) {
+        Entry entry = key != null ? resident.get(key) : null;
+        return entry != null && entry.isLoaded();
+    }
+
+    /**
+     * Closes all models, whether referenced or not, and stops preloading.
+     * 关闭注册表并释放所有模型
+     */
+    public void close() {
+        List<Entry> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(resident.values());
+            resident.clear();
+            residentBytes = 0;
+        }
+        preloader.shutdownNow();
+        for (Entry entry : toClose) {
+            if (entry.isLoaded()) {
+                closeQuietly(entry.key, entry.model.join());
+            }
+        }
+        logger.info("Model registry {} closed", name);
+    }
+
+    /**
+     * Returns registry metrics.
+     * 返回注册表指标
+     *
+     * @return Map with registered/resident model counts, resident keys, footprint and
+     *         budget (bytes), hits, loads, load failures, evictions, skipped preloads and
+     *         load time (ms)
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (this) {
+            List<String> keys = new ArrayList<>();
+            resident.forEach((key, entry) -> {
+                if (entry.isLoaded()) {
+                    keys.add(key);
+                }
+            });
+            metrics.put("resident", keys.size());
+            metrics.put("residentKeys", keys);
+            metrics.put("residentBytes", residentBytes);
+        }
+        metrics.put("registered", locations.size());
+        metrics.put("budgetBytes", budgetBytes);
+        metrics.put("hits", hits.get());
+        metrics.put("loads", loads.get());
+        metrics.put("loadFailures", loadFailures.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("preloadsSkipped", preloadsSkipped.get());
+        metrics.put("averageLoadMillis", loadLatency.getAverageMillis());
+        metrics.put("maxLoadMillis", loadLatency.getMaxMillis());
+        return metrics;
+    }
+
+    /**
+     * Loads the entry's model and completes its future; the future always completes, even
+     * if the loader throws an {@link Error} (e.g. a missing native library).
+     */
+    private void load(Entry entry) {
+        long bytes;
+        long start;
+        M model;
+        try {
+            bytes = Math.max(0, loader.footprint(entry.location));
+            List<Entry> victims;
+            synchronized (this) {
+                entry.bytes = bytes;
+                residentBytes += bytes;
+                victims = evictLocked();
+            }
+            victims.forEach(this::closeModel);
+
+            start = System.nanoTime();
+            model = loader.load(entry.location);
+        } catch (Throwable e) {
+            loadFailures.incrementAndGet();
+            synchronized (this) {
+                if (resident.remove(entry.key, entry)) {
+                    residentBytes -= entry.bytes;
+                }
+            }
+            logger.error("Failed to load model {}/{} from {}", name, entry.key, entry.location, e);
+            entry.model.completeExceptionally(e);
+            return;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        loads.incrementAndGet();
+        loadLatency.record(millis);
+        boolean stale;
+        synchronized (this) {
+            stale = closed;
+        }
+        if (stale) {
+            closeQuietly(entry.key, model);
+            entry.model.completeExceptionally(new IllegalStateException("Model registry " + name + " is closed"));
+            return;
+        }
+        logger.info("Loaded model {}/{} from {} in {} ms (~{} MB)", name, entry.key, entry.location,
+            millis, bytes / (1024 * 1024));
+        entry.model.complete(model);
+    }
+
+    private void release(Entry entry) {
+        List<Entry> victims;
+        synchronized (this) {
+            entry.refs--;
+            victims = evictLocked();
+        }
+        victims.forEach(this::closeModel);
+    }
+
+    /**
+     * Removes unreferenced loaded models, least recently used first, until the footprint
+     * fits the budget. Guarded by this.
+     *
+     * @return Removed entries, to be closed outside the lock
+     */
+    private List<Entry> evictLocked() {
+        List<Entry> victims = new ArrayList<>();
+        if (budgetBytes == 0) {
+            return victims;
+        }
+        Iterator<Entry> it = resident.values().iterator();
+        while (residentBytes > budgetBytes && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.refs == 0 && entry.isLoaded()) {
+                it.remove();
+                residentBytes -= entry.bytes;
+                victims.add(entry);
+            }
+        }
+        return victims;
+    }
+
+    private void closeModel(Entry entry) {
+        if (entry.isLoaded()) {
+            evictions.incrementAndGet();
+            logger.info("Unloading model {}/{} (~{} MB)", name, entry.key, entry.bytes / (1024 * 1024));
+            closeQuietly(entry.key, entry.model.join());
+        }
+    }
+
+    private void closeQuietly(String key, M model) {
+        try {
+            model.close();
+        } catch (Exception e) {
+            logger.warn("Failed to close model {}/{}: {}", name, key, e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package org.skylark.infrastructure.adapter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * ASR (Automatic Speech Recognition) Interface
  * 自动语音识别接口
@@ -57,4 +60,22 @@ public interface ASR {
      *         </ul>
      */
     String recognize(byte[] audioData) throws Exception;
+    
+    /**
+     * Recognizes speech and returns the text with whatever the engine reports about it.
+     * 识别语音并返回文本及引擎附带的信息
+     * 
+     * <p>The map holds "text" and, when the engine scores its output, "confidence"
+     * (0..1, as a decimal string). The default wraps {@link #recognize(byte[])} and reports
+     * no confidence; engines that have one override this method.</p>
+     * 
+     * @param audioData Raw audio data as byte array
+     * @return Map containing "text" and optionally "confidence"
+     * @throws Exception if recognition fails, as for {@link #recognize(byte[])}
+     */
+    default Map<String, String> recognizeDetailed(byte[] audioData) throws Exception {
+        Map<String, String> result = new HashMap<>();
+        result.put("text", recognize(audioData));
+        return result;
+    }
 }
@@ -50,6 +50,25 @@ public class DirectASRAdapter implements ASR {
      */
     @Override
     public String recognize(byte[] audioData) throws Exception {
+        String recognizedText = recognizeDetailed(audioData).get("text");
+        return recognizedText != null ? recognizedText : "";
+    }
+    
+    /**
+     * Recognizes speech and passes ASRService's full result through.
+     * 
+     * <p>Besides "text" this carries "language" and, when Vosk reported words,
+     * "confidence", so a caller ranking engines (e.g. {@code HedgedASRAdapter}) can
+     * compare the local result with a remote one. Interrupting the calling thread
+     * withdraws the request if it is still queued for decoding; a decode already
+     * running is not stopped.</p>
+     * 
+     * @param audioData Raw audio data as byte array
+     * @return Map containing "text", "language" and optionally "confidence"
+     * @throws Exception if any error occurs during recognition
+     */
+    @Override
+    public Map<String, String> recognizeDetailed(byte[] audioData) throws Exception {
         if (audioData == null || audioData.length == 0) {
             logger.warn("Received null or empty audio data");
             throw new IllegalArgumentException("Audio data cannot be null or empty");
@@ -70,7 +89,7 @@ public class DirectASRAdapter implements ASR {
             logger.info("ASR recognition completed successfully: {} characters recognized", 
                 recognizedText != null ? recognizedText.length() : 0);
             
-            return recognizedText != null ? recognizedText : "";
+            return result;
             
         } catch (Exception e) {
             logger.error("ASR recognition failed", e);
@@ -4,7 +4,7 @@ import org.skylark.application.service.VADService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Base64;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
@@ -57,13 +57,31 @@ public class DirectVADAdapter implements VAD {
             throw new IllegalArgumentException("Audio data cannot be null or empty");
         }
         
+        return detect(ByteBuffer.wrap(audioData), sessionId);
+    }
+    
+    /**
+     * Detects voice activity by handing the PCM frame to VADService as-is.
+     * 
+     * @param audioData Raw PCM frame (16-bit little-endian)
+     * @param sessionId Unique session identifier
+     * @return "start", "end", or null based on voice activity
+     * @throws Exception if detection fails
+     */
+    @Override
+    public String detect(ByteBuffer audioData, String sessionId) throws Exception {
+        if (audioData == null || !audioData.hasRemaining()) {
+            logger.warn("Received null or empty audio data");
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
+        
         if (sessionId == null || sessionId.trim().isEmpty()) {
             logger.warn("Received null or empty session ID");
             throw new IllegalArgumentException("Session ID cannot be null or empty");
         }
         
         logger.debug("Starting VAD detection for session: {} ({} bytes)", 
-            sessionId, audioData.length);
+            sessionId, audioData.remaining());
         
         if (vadService == null) {
             throw new IllegalStateException("VADService not initialized. " +
@@ -72,10 +90,7 @@ public class DirectVADAdapter implements VAD {
         }
         
         try {
-            // Convert audio data to Base64 (as expected by VADService)
-            String base64Audio = Base64.getEncoder().encodeToString(audioData);
-            
-            Map<String, Object> result = vadService.detect(base64Audio, sessionId);
+            Map<String, Object> result = vadService.detect(audioData, sessionId);
             Object statusObj = result.get("status");
             String status = statusObj != null ? statusObj.toString() : null;
             
@@ -123,4 +138,16 @@ public class DirectVADAdapter implements VAD {
             throw new Exception("Failed to reset VAD state: " + e.getMessage(), e);
         }
     }
+    
+    /**
+     * Releases the session's detector state in VADService.
+     * 
+     * @param sessionId Session identifier
+     */
+    @Override
+    public void closeSession(String sessionId) {
+        if (vadService != null) {
+            vadService.removeSession(sessionId);
+        }
+    }
 }
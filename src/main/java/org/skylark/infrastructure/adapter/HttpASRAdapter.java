@@ -5,19 +5,17 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.sound.sampled.AudioFormat;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Map;
 
@@ -31,24 +29,25 @@ import java.util.Map;
  * <p>Configuration parameters:</p>
  * <ul>
  *   <li><b>serviceUrl</b> (required): HTTP endpoint for ASR service</li>
- *   <li><b>outputFile</b> (optional): Base path for temporary audio files</li>
  *   <li><b>timeout</b> (optional): Request timeout in seconds (default: 30)</li>
  * </ul>
  * 
  * <p>The adapter performs the following steps:</p>
  * <ol>
- *   <li>Saves audio data as temporary WAV file using AudioUtils</li>
- *   <li>Creates multipart HTTP POST request with file parameter</li>
+ *   <li>Builds a 44-byte WAV header for the audio using AudioUtils</li>
+ *   <li>Creates multipart HTTP POST request whose file part is the header followed by
+ *       the caller's PCM bytes, streamed from memory (no temporary file, no WAV copy)</li>
  *   <li>Sends request to configured serviceUrl</li>
  *   <li>Parses JSON response to extract "text" field</li>
- *   <li>Cleans up temporary file</li>
  * </ol>
  * 
+ * <p>Earlier versions wrote a temporary WAV file per request; the former
+ * {@code outputFile} option is ignored.</p>
+ * 
  * <p>Example usage:</p>
  * <pre>
  * Map&lt;String, Object&gt; config = new HashMap&lt;&gt;();
  * config.put("serviceUrl", "http://localhost:8080/asr/recognize");
- * config.put("outputFile", "/tmp/audio");
  * 
  * ASR asr = new HttpASRAdapter(config);
  * String text = asr.recognize(audioData);
@@ -61,10 +60,11 @@ public class HttpASRAdapter implements ASR {
     
     private static final Logger logger = LoggerFactory.getLogger(HttpASRAdapter.class);
     private static final int DEFAULT_TIMEOUT_SECONDS = 30;
-    private static final String DEFAULT_OUTPUT_BASE = "temp/asr";
+    /** File name reported for the uploaded part; servers key on the part, not the name */
+    private static final String UPLOAD_FILENAME = "audio.wav";
+    private static final MediaType AUDIO_WAV = MediaType.parseMediaType("audio/wav");
     
     private final String serviceUrl;
-    private final String outputFile;
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
     private final AudioFormat audioFormat;
@@ -76,7 +76,6 @@ public class HttpASRAdapter implements ASR {
      * @param config Configuration map containing:
      *               <ul>
      *                 <li>serviceUrl (String, required): ASR service endpoint URL</li>
-     *                 <li>outputFile (String, optional): Base path for temp files</li>
      *                 <li>timeout (Integer, optional): Timeout in seconds</li>
      *               </ul>
      * @throws IllegalArgumentException if serviceUrl is not provided
@@ -87,7 +86,6 @@ public class HttpASRAdapter implements ASR {
         }
         
         this.serviceUrl = config.get("serviceUrl").toString();
-        this.outputFile = config.getOrDefault("outputFile", DEFAULT_OUTPUT_BASE).toString();
         this.timeout = config.containsKey("timeout") 
             ? Integer.parseInt(config.get("timeout").toString()) 
             : DEFAULT_TIMEOUT_SECONDS;
@@ -99,8 +97,7 @@ public class HttpASRAdapter implements ASR {
         this.objectMapper = new ObjectMapper();
         this.audioFormat = AudioUtils.create16kHz16BitMono();
         
-        logger.info("Initialized HttpASRAdapter: serviceUrl={}, outputFile={}, timeout={}s", 
-            serviceUrl, outputFile, timeout);
+        logger.info("Initialized HttpASRAdapter: serviceUrl={}, timeout={}s", serviceUrl, timeout);
     }
     
     /**
@@ -109,11 +106,9 @@ public class HttpASRAdapter implements ASR {
      * <p>Process flow:</p>
      * <ol>
      *   <li>Validate audio data is not null/empty</li>
-     *   <li>Generate unique temporary WAV file path</li>
-     *   <li>Save audio data as WAV file</li>
-     *   <li>Upload file via HTTP multipart POST</li>
+     *   <li>Build the WAV header for the audio</li>
+     *   <li>Upload header + audio via HTTP multipart POST</li>
      *   <li>Parse JSON response for "text" field</li>
-     *   <li>Clean up temporary file</li>
      * </ol>
      * 
      * @param audioData Raw audio data as byte array
@@ -129,12 +124,8 @@ public class HttpASRAdapter implements ASR {
         
         logger.debug("Starting ASR recognition for {} bytes of audio data", audioData.length);
         
-        File tempFile = null;
         try {
-            tempFile = createTemporaryAudioFile(audioData);
-            
-            logger.debug("Uploading audio file to ASR service: {}", tempFile.getAbsolutePath());
-            String responseJson = uploadAudioFile(tempFile);
+            String responseJson = uploadAudio(audioData);
             
             logger.debug("Received ASR response: {}", responseJson);
             String recognizedText = parseRecognitionResponse(responseJson);
@@ -147,52 +138,30 @@ public class HttpASRAdapter implements ASR {
         } catch (Exception e) {
             logger.error("ASR recognition failed", e);
             throw new Exception("Failed to recognize speech: " + e.getMessage(), e);
-        } finally {
-            cleanupTemporaryFile(tempFile);
         }
     }
     
     /**
-     * Creates a temporary WAV file from audio data.
+     * Uploads audio to ASR service via HTTP multipart POST.
      * 
-     * @param audioData Raw audio data
-     * @return Temporary file containing WAV audio
-     * @throws IOException if file creation fails
-     */
-    private File createTemporaryAudioFile(byte[] audioData) throws IOException {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String filename = outputFile + "_" + timestamp + ".wav";
-        Path filePath = Paths.get(filename);
-        
-        Path parentDir = filePath.getParent();
-        if (parentDir != null && !Files.exists(parentDir)) {
-            logger.debug("Creating directory for temporary files: {}", parentDir);
-            Files.createDirectories(parentDir);
-        }
-        
-        logger.debug("Creating temporary WAV file: {}", filename);
-        AudioUtils.saveAsWav(audioData, filename, audioFormat);
-        
-        File file = filePath.toFile();
-        if (!file.exists() || file.length() == 0) {
-            throw new IOException("Failed to create valid temporary WAV file");
-        }
-        
-        logger.debug("Temporary WAV file created: {} ({} bytes)", filename, file.length());
-        return file;
-    }
-    
-    /**
-     * Uploads audio file to ASR service via HTTP multipart POST.
+     * <p>The file part is two buffers, the WAV header and a wrapper around
+     * {@code audioData}, written one after the other by the multipart encoder.</p>
      * 
-     * @param audioFile File to upload
+     * @param audioData Raw PCM audio
      * @return JSON response from ASR service
      * @throws Exception if upload fails
      */
-    private String uploadAudioFile(File audioFile) throws Exception {
+    private String uploadAudio(byte[] audioData) throws Exception {
         try {
+            DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+            Flux<DataBuffer> wav = Flux.just(
+                bufferFactory.wrap(AudioUtils.createWavHeader(audioData.length, audioFormat)),
+                bufferFactory.wrap(audioData));
+            
             MultipartBodyBuilder builder = new MultipartBodyBuilder();
-            builder.part("file", new FileSystemResource(audioFile));
+            builder.asyncPart("file", wav, DataBuffer.class)
+                .filename(UPLOAD_FILENAME)
+                .contentType(AUDIO_WAV);
             
             Mono<String> responseMono = webClient.post()
                 .contentType(MediaType.MULTIPART_FORM_DATA)
@@ -210,7 +179,7 @@ public class HttpASRAdapter implements ASR {
             return response;
             
         } catch (Exception e) {
-            logger.error("Failed to upload audio file to ASR service: {}", serviceUrl, e);
+            logger.error("Failed to upload audio to ASR service: {}", serviceUrl, e);
             throw new Exception("ASR service communication failed: " + e.getMessage(), e);
         }
     }
@@ -248,24 +217,4 @@ public class HttpASRAdapter implements ASR {
             throw new Exception("Invalid ASR response format: " + e.getMessage(), e);
         }
     }
-    
-    /**
-     * Cleans up temporary audio file.
-     * 
-     * @param file File to delete, or null
-     */
-    private void cleanupTemporaryFile(File file) {
-        if (file != null && file.exists()) {
-            try {
-                boolean deleted = file.delete();
-                if (deleted) {
-                    logger.debug("Temporary file deleted: {}", file.getAbsolutePath());
-                } else {
-                    logger.warn("Failed to delete temporary file: {}", file.getAbsolutePath());
-                }
-            } catch (Exception e) {
-                logger.error("Error deleting temporary file: {}", file.getAbsolutePath(), e);
-            }
-        }
-    }
 }
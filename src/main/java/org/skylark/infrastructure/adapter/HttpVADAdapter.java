@@ -9,21 +9,47 @@ import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * HTTP-based VAD Adapter Implementation
  * 基于HTTP的语音活动检测适配器
  * 
- * <p>Implements the VAD interface using HTTP JSON POST requests
- * to communicate with remote VAD services.</p>
+ * <p>Implements the VAD interface against remote VAD services, in one of two modes:</p>
+ * <ul>
+ *   <li><b>request</b> (default): one HTTP JSON POST per frame, described below</li>
+ *   <li><b>stream</b>: one WebSocket per session; frames are pipelined as binary
+ *       messages without waiting for a reply, and the service pushes events back</li>
+ * </ul>
  * 
  * <p>Configuration parameters:</p>
  * <ul>
  *   <li><b>serviceUrl</b> (required): Base HTTP endpoint for VAD service</li>
- *   <li><b>timeout</b> (optional): Request timeout in seconds (default: 10)</li>
+ *   <li><b>timeout</b> (optional): Request / connect timeout in seconds (default: 10)</li>
+ *   <li><b>mode</b> (optional): "request" or "stream" (default: request)</li>
+ *   <li><b>streamUrl</b> (optional): WebSocket endpoint for stream mode
+ *       (default: serviceUrl with ws/wss scheme and "/stream" appended)</li>
+ *   <li><b>maxPendingFrames</b> (optional): frames a session may have in flight before
+ *       new ones are dropped (default: 100)</li>
+ *   <li><b>reconnectBackoffMs</b> (optional): wait before reopening a failed stream socket,
+ *       doubled after each consecutive failure up to 30 s (default: 500)</li>
  * </ul>
  * 
  * <p>The adapter uses two endpoints:</p>
@@ -54,6 +80,19 @@ import java.util.Map;
  * }
  * </pre>
  * 
+ * <p>Stream mode protocol ({@code {streamUrl}?session_id=...}):</p>
+ * <ul>
+ *   <li>Client → service: binary messages of raw PCM (16-bit little-endian);
+ *       text {@code {"type":"reset"}} to reset the session</li>
+ *   <li>Service → client: text {@code {"status": "start" | "end"}} whenever the state
+ *       changes, at its own pace</li>
+ * </ul>
+ * <p>In stream mode {@link #detect} returns the oldest event received since the previous
+ * call (or null) instead of the answer for the frame just sent, so a result lags by the
+ * network round trip; {@link #setEventListener} delivers events as they arrive. A socket
+ * that fails is reopened on the first frame after the reconnect backoff, with fresh remote
+ * state; frames sent before then fail fast instead of each opening a connection.</p>
+ * 
  * <p>Example usage:</p>
  * <pre>
  * Map&lt;String, Object&gt; config = new HashMap&lt;&gt;();
@@ -70,12 +109,34 @@ public class HttpVADAdapter implements VAD {
     
     private static final Logger logger = LoggerFactory.getLogger(HttpVADAdapter.class);
     private static final int DEFAULT_TIMEOUT_SECONDS = 10;
+    private static final int DEFAULT_MAX_PENDING_FRAMES = 100;
+    private static final long DEFAULT_RECONNECT_BACKOFF_MS = 500;
+    private static final long MAX_RECONNECT_BACKOFF_MS = 30_000;
     private static final String RESET_ENDPOINT = "/reset";
+    private static final String STREAM_ENDPOINT = "/stream";
+    public static final String MODE_REQUEST = "request";
+    public static final String MODE_STREAM = "stream";
+    
+    /**
+     * Receives stream-mode events as they arrive (on the WebSocket's thread)
+     */
+    @FunctionalInterface
+    public interface EventListener {
+        void onEvent(String sessionId, String status);
+    }
     
     private final String serviceUrl;
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
     private final int timeout;
+    private final boolean streamMode;
+    private final String streamUrl;
+    private final int maxPendingFrames;
+    private final long reconnectBackoffMs;
+    private final HttpClient httpClient;
+    private final Map<String, StreamSession> streams = new ConcurrentHashMap<>();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile EventListener eventListener;
     
     /**
      * Creates a new HTTP VAD adapter with the specified configuration.
@@ -84,8 +145,12 @@ public class HttpVADAdapter implements VAD {
      *               <ul>
      *                 <li>serviceUrl (String, required): VAD service endpoint URL</li>
      *                 <li>timeout (Integer, optional): Timeout in seconds</li>
+     *                 <li>mode (String, optional): "request" or "stream"</li>
+     *                 <li>streamUrl (String, optional): WebSocket endpoint for stream mode</li>
+     *                 <li>maxPendingFrames (Integer, optional): In-flight frame limit per session</li>
+     *                 <li>reconnectBackoffMs (Long, optional): Initial stream reconnect backoff</li>
      *               </ul>
-     * @throws IllegalArgumentException if serviceUrl is not provided
+     * @throws IllegalArgumentException if serviceUrl is not provided or mode is unknown
      */
     public HttpVADAdapter(Map<String, Object> config) {
         if (config == null || !config.containsKey("serviceUrl")) {
@@ -103,8 +168,38 @@ public class HttpVADAdapter implements VAD {
         
         this.objectMapper = new ObjectMapper();
         
-        logger.info("Initialized HttpVADAdapter: serviceUrl={}, timeout={}s", 
-            serviceUrl, timeout);
+        String mode = config.getOrDefault("mode", MODE_REQUEST).toString();
+        if (!MODE_REQUEST.equals(mode) && !MODE_STREAM.equals(mode)) {
+            throw new IllegalArgumentException("Unknown VAD mode: " + mode + " (request, stream)");
+        }
+        this.streamMode = MODE_STREAM.equals(mode);
+        this.streamUrl = config.containsKey("streamUrl")
+            ? config.get("streamUrl").toString()
+            : serviceUrl.replaceFirst("^http", "ws") + STREAM_ENDPOINT;
+        this.maxPendingFrames = config.containsKey("maxPendingFrames")
+            ? Integer.parseInt(config.get("maxPendingFrames").toString())
+            : DEFAULT_MAX_PENDING_FRAMES;
+        this.reconnectBackoffMs = config.containsKey("reconnectBackoffMs")
+            ? Long.parseLong(config.get("reconnectBackoffMs").toString())
+            : DEFAULT_RECONNECT_BACKOFF_MS;
+        if (reconnectBackoffMs < 0) {
+            throw new IllegalArgumentException("reconnectBackoffMs cannot be negative: " + reconnectBackoffMs);
+        }
+        this.httpClient = streamMode
+            ? HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(timeout)).build()
+            : null;
+        
+        logger.info("Initialized HttpVADAdapter: serviceUrl={}, timeout={}s, mode={}", 
+            serviceUrl, timeout, mode);
+    }
+    
+    /**
+     * Sets the listener for stream-mode events.
+     * 
+     * @param listener Listener, or null to rely on {@link #detect} polling only
+     */
+    public void setEventListener(EventListener listener) {
+        this.eventListener = listener;
     }
     
     /**
@@ -139,6 +234,10 @@ public class HttpVADAdapter implements VAD {
         logger.debug("Starting VAD detection for session: {} ({} bytes)", 
             sessionId, audioData.length);
         
+        if (streamMode) {
+            return streamFrame(ByteBuffer.wrap(audioData.clone()), sessionId);
+        }
+        
         try {
             String requestJson = createDetectionRequest(audioData, sessionId);
             logger.trace("VAD request JSON length: {} characters", requestJson.length());
@@ -162,6 +261,90 @@ public class HttpVADAdapter implements VAD {
         }
     }
     
+    /**
+     * Detects voice activity in a binary frame.
+     * 
+     * <p>In stream mode the frame is copied once into the outgoing message; there is no
+     * Base64 or JSON encoding.</p>
+     */
+    @Override
+    public String detect(ByteBuffer audioData, String sessionId) throws Exception {
+        if (!streamMode) {
+            return VAD.super.detect(audioData, sessionId);
+        }
+        if (audioData == null || !audioData.hasRemaining()) {
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Session ID cannot be null or empty");
+        }
+        ByteBuffer copy = ByteBuffer.allocate(audioData.remaining());
+        copy.put(audioData.duplicate()).flip();
+        return streamFrame(copy, sessionId);
+    }
+    
+    /**
+     * Sends a frame on the session's socket (opening it if needed) without waiting,
+     * and returns the oldest event received so far.
+     * 
+     * @throws IOException if the socket failed and the reconnect backoff has not passed
+     */
+    private String streamFrame(ByteBuffer frame, String sessionId) throws IOException {
+        StreamSession session = streams.compute(sessionId, (id, current) -> {
+            if (current == null || !current.closed) {
+                return current != null ? current : new StreamSession(id, 0);
+            }
+            // A socket that never opened counts as another consecutive failure
+            int failures = current.opened ? 1 : current.failures + 1;
+            if (System.nanoTime() - current.closedAtNanos < reconnectDelayNanos(failures)) {
+                return current;
+            }
+            logger.warn("VAD stream for session {} was closed, reconnecting (attempt {})", id, failures);
+            return new StreamSession(id, failures);
+        });
+        if (session.closed) {
+            throw new IOException("VAD stream for session " + sessionId + " is down, waiting to reconnect");
+        }
+        session.send(frame);
+        String status = session.events.poll();
+        if (status != null) {
+            logger.info("VAD detected '{}' for session: {}", status, sessionId);
+        }
+        return status;
+    }
+    
+    private long reconnectDelayNanos(int failures) {
+        long delayMs = Math.min(MAX_RECONNECT_BACKOFF_MS, reconnectBackoffMs << Math.min(failures - 1, 16));
+        return delayMs * 1_000_000L;
+    }
+    
+    /**
+     * Closes a session's stream-mode socket. No-op in request mode.
+     * 
+     * @param sessionId Session identifier
+     */
+    @Override
+    public void closeSession(String sessionId) {
+        StreamSession session = sessionId != null ? streams.remove(sessionId) : null;
+        if (session != null) {
+            session.close();
+        }
+    }
+    
+    /**
+     * Closes all stream-mode sockets.
+     */
+    @Override
+    public void close() {
+        streams.values().forEach(StreamSession::close);
+        streams.clear();
+    }
+    
+    /** Frames dropped because a session had too many in flight */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+    
     /**
      * Resets VAD state by calling the reset endpoint.
      * 
@@ -184,6 +367,15 @@ public class HttpVADAdapter implements VAD {
         
         logger.debug("Resetting VAD state for session: {}", sessionId);
         
+        if (streamMode) {
+            StreamSession session = streams.get(sessionId);
+            if (session != null) {
+                session.events.clear();
+                session.sendText("{\"type\":\"reset\"}");
+            }
+            return;
+        }
+        
         try {
             String requestJson = createResetRequest(sessionId);
             sendResetRequest(requestJson);
@@ -340,4 +532,125 @@ public class HttpVADAdapter implements VAD {
             throw new Exception("Invalid VAD response format: " + e.getMessage(), e);
         }
     }
+    
+    /**
+     * One session's WebSocket. Sends are chained so at most one is outstanding, as
+     * {@link WebSocket} requires; the chain starts with the connect, so frames sent while
+     * connecting are queued rather than blocking the caller.
+     */
+    private final class StreamSession implements WebSocket.Listener {
+        private final String sessionId;
+        /** Consecutive failed sockets before this one */
+        private final int failures;
+        private final CompletableFuture<WebSocket> socket;
+        private final Queue<String> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingFrames = new AtomicInteger();
+        private final StringBuilder text = new StringBuilder();
+        private CompletableFuture<?> sendChain;
+        private volatile boolean opened;
+        private volatile boolean closed;
+        private volatile long closedAtNanos;
+        
+        StreamSession(String sessionId, int failures) {
+            this.sessionId = sessionId;
+            this.failures = failures;
+            URI uri = URI.create(streamUrl + (streamUrl.contains("?") ? "&" : "?")
+                + "session_id=" + URLEncoder.encode(sessionId, StandardCharsets.UTF_8));
+            this.socket = httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(timeout))
+                .buildAsync(uri, this);
+            this.sendChain = socket;
+            socket.whenComplete((ws, e) -> {
+                if (e != null) {
+                    markClosed();
+                    logger.error("Failed to open VAD stream for session {}: {}", sessionId, e.getMessage());
+                }
+            });
+        }
+        
+        void send(ByteBuffer frame) {
+            if (pendingFrames.incrementAndGet() > maxPendingFrames) {
+                pendingFrames.decrementAndGet();
+                long dropped = droppedFrames.incrementAndGet();
+                if (dropped == 1 || dropped % DEFAULT_MAX_PENDING_FRAMES == 0) {
+                    logger.warn("VAD stream for session {} is backed up, dropping frames ({} so far)",
+                        sessionId, dropped);
+                }
+                return;
+            }
+            chain(ws -> ws.sendBinary(frame, true));
+        }
+        
+        void sendText(String message) {
+            chain(ws -> ws.sendText(message, true));
+        }
+        
+        private synchronized void chain(Function<WebSocket, CompletableFuture<WebSocket>> send) {
+            sendChain = sendChain
+                .thenCompose(ignored -> send.apply(socket.join()))
+                .whenComplete((ws, e) -> {
+                    pendingFrames.updateAndGet(n -> Math.max(0, n - 1));
+                    if (e != null && !closed) {
+                        markClosed();
+                        logger.error("VAD stream send failed for session {}: {}", sessionId, e.getMessage());
+                    }
+                });
+        }
+        
+        private void markClosed() {
+            closedAtNanos = System.nanoTime();
+            closed = true;
+        }
+        
+        void close() {
+            markClosed();
+            synchronized (this) {
+                sendChain = sendChain.thenCompose(ignored ->
+                    socket.join().sendClose(WebSocket.NORMAL_CLOSURE, ""));
+            }
+        }
+        
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            opened = true;
+            logger.info("VAD stream opened for session {}", sessionId);
+            webSocket.request(1);
+        }
+        
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                try {
+                    String status = parseDetectionResponse(message);
+                    if (status != null) {
+                        events.add(status);
+                        EventListener listener = eventListener;
+                        if (listener != null) {
+                            listener.onEvent(sessionId, status);
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.warn("Ignoring malformed VAD event for session {}: {}", sessionId, message);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+        
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            markClosed();
+            logger.info("VAD stream closed for session {}: {} {}", sessionId, statusCode, reason);
+            return null;
+        }
+        
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            markClosed();
+            logger.error("VAD stream error for session {}: {}", sessionId, error.getMessage());
+        }
+    }
 }
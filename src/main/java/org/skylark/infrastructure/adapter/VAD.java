@@ -1,5 +1,7 @@
 package org.skylark.infrastructure.adapter;
 
+import java.nio.ByteBuffer;
+
 /**
  * VAD (Voice Activity Detection) Interface
  * 语音活动检测接口
@@ -31,6 +33,9 @@ package org.skylark.infrastructure.adapter;
  * 
  * // Reset for next utterance
  * vad.reset(sessionId);
+ * 
+ * // Release the session when it ends
+ * vad.closeSession(sessionId);
  * </pre>
  * 
  * @author Skylark Team
@@ -71,6 +76,30 @@ public interface VAD {
      */
     String detect(byte[] audioData, String sessionId) throws Exception;
     
+    /**
+     * Detects voice activity in a binary PCM frame without copying it into
+     * an intermediate representation where the implementation allows.
+     * 
+     * <p>The frame is read from the buffer's position to its limit; the
+     * position is not advanced. The default implementation copies the
+     * remaining bytes and delegates to {@link #detect(byte[], String)};
+     * in-process implementations should override it to hand the buffer
+     * straight to the detector.</p>
+     * 
+     * @param audioData Raw PCM frame (16-bit little-endian)
+     * @param sessionId Unique identifier for this detection session
+     * @return "start" if speech started, "end" if speech ended, null otherwise
+     * @throws Exception if detection fails (see {@link #detect(byte[], String)})
+     */
+    default String detect(ByteBuffer audioData, String sessionId) throws Exception {
+        if (audioData == null) {
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
+        byte[] copy = new byte[audioData.remaining()];
+        audioData.duplicate().get(copy);
+        return detect(copy, sessionId);
+    }
+    
     /**
      * Resets the VAD state for a specific session.
      * 
@@ -96,4 +125,24 @@ public interface VAD {
      *         </ul>
      */
     void reset(String sessionId) throws Exception;
+    
+    /**
+     * Releases everything held for a session (detector state, connections).
+     * 
+     * <p>Call this from session cleanup once the session will send no more
+     * audio; unlike {@link #reset(String)} the session is gone afterwards and
+     * a later {@code detect} starts from scratch. The default implementation
+     * does nothing, for detectors that keep no per-session resources.</p>
+     * 
+     * @param sessionId Unique identifier for the session to release
+     */
+    default void closeSession(String sessionId) {
+    }
+    
+    /**
+     * Releases all sessions and shared resources when the detector is no
+     * longer used. The default implementation does nothing.
+     */
+    default void close() {
+    }
 }
@@ -0,0 +1,316 @@
+package org.skylark.infrastructure.adapter.asr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DashScope Real-time ASR Connection Pool
+ * DashScope 实时语音识别连接池
+ *
+ * <p>Keeps a few authenticated WebSockets to the DashScope inference endpoint open, so an
+ * utterance starts its recognition task without paying for the TLS and WebSocket handshake.
+ * A DashScope connection runs one task at a time and may run further tasks after a task
+ * finishes; {@link DashScopeRealtimeClient} borrows a connection per utterance and returns
+ * it when the task ends.</p>
+ *
+ * <ul>
+ *   <li>{@link #acquire()} hands out an idle connection, or opens one if none is idle</li>
+ *   <li>The pool opens connections in the background until {@code size} are idle, borrowed
+ *       or opening; connections borrowed beyond that are closed when they are returned</li>
+ *   <li>Idle connections older than {@code idleTtlMs} are closed instead of handed out,
+ *       since the server drops connections that sit without a task</li>
+ * </ul>
+ *
+ * <p>One pool is meant to be shared by all sessions of a node.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class DashScopeConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashScopeConnectionPool.class);
+
+    public static final String DEFAULT_URL = "wss://dashscope.aliyuncs.com/api-ws/v1/inference";
+    public static final int DEFAULT_SIZE = 2;
+    public static final long DEFAULT_IDLE_TTL_MS = 50_000;
+    private static final int CONNECT_TIMEOUT_SECONDS = 5;
+
+    private final String url;
+    private final String apiKey;
+    private final int size;
+    private final long idleTtlMs;
+    private final HttpClient httpClient;
+
+    /** Guarded by this */
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private int opening;
+    private int borrowed;
+    private boolean closed;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * Receives the messages of a borrowed connection
+     */
+    public interface Listener {
+        /** A complete text message / 完整文本消息 */
+        void onMessage(String message);
+        /** The connection closed (error is null) or failed / 连接关闭或出错 */
+        void onLost(Exception error);
+    }
+
+    public DashScopeConnectionPool(String apiKey) {
+        this(DEFAULT_URL, apiKey, DEFAULT_SIZE, DEFAULT_IDLE_TTL_MS);
+    }
+
+    /**
+     * Create a pool; no connection is opened until {@link #warmUp()} or {@link #acquire()}
+     * 创建连接池
+     *
+     * @param url       DashScope inference WebSocket URL
+     * @param apiKey    DashScope API key
+     * @param size      connections to keep open, idle or borrowed (0 = open on demand only)
+     * @param idleTtlMs how long a connection may sit idle before it is replaced
+     */
+    public DashScopeConnectionPool(String url, String apiKey, int size, long idleTtlMs) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("DashScope URL cannot be null or empty");
+        }
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalArgumentException("DashScope apiKey cannot be null or empty");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("size cannot be negative: " + size);
+        }
+        this.url = url;
+        this.apiKey = apiKey;
+        this.size = size;
+        this.idleTtlMs = idleTtlMs;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+            .build();
+        logger.info("DashScopeConnectionPool initialized: url={}, size={}", url, size);
+    }
+
+    /**
+     * Open connections in the background until {@code size} are ready
+     * 预先建立连接
+     */
+    public void warmUp() {
+        refill();
+    }
+
+    /**
+     * Borrow a connection
+     * 借用连接
+     *
+     * @return future completed with an open connection, or failed if it cannot be opened
+     */
+    CompletableFuture<Connection> acquire() {
+        Connection connection;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("DashScope pool is closed"));
+            }
+            connection = pollIdle();
+            borrowed++;
+        }
+        refill();
+        if (connection != null) {
+            reused.incrementAndGet();
+            return CompletableFuture.completedFuture(connection);
+        }
+        Connection fresh = new Connection();
+        return fresh.socket.handle((ws, e) -> {
+            if (e != null) {
+                synchronized (this) {
+                    borrowed--;
+                }
+                throw new CompletionException(e);
+            }
+            return fresh;
+        });
+    }
+
+    /**
+     * Return a borrowed connection whose task has ended; closed connections are dropped
+     * 归还连接
+     */
+    void release(Connection connection) {
+        synchronized (this) {
+            borrowed--;
+        }
+        addIdle(connection);
+        refill();
+    }
+
+    private void addIdle(Connection connection) {
+        connection.listener = null;
+        synchronized (this) {
+            if (!closed && !connection.closed && idle.size() + borrowed < size) {
+                connection.idleSince = System.currentTimeMillis();
+                idle.add(connection);
+                return;
+            }
+        }
+        connection.close();
+    }
+
+    /**
+     * Close all idle connections; borrowed connections close when released
+     * 关闭连接池
+     */
+    public void close() {
+        Connection[] toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = idle.toArray(new Connection[0]);
+            idle.clear();
+        }
+        for (Connection connection : toClose) {
+            connection.close();
+        }
+        logger.info("DashScopeConnectionPool closed");
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /** Connections opened since start */
+    public long getOpenedCount() {
+        return opened.get();
+    }
+
+    /** Acquisitions served by an already open connection */
+    public long getReusedCount() {
+        return reused.get();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** Guarded by this */
+    private Connection pollIdle() {
+        long now = System.currentTimeMillis();
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            if (!connection.closed && now - connection.idleSince < idleTtlMs) {
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    private void refill() {
+        int toOpen;
+        synchronized (this) {
+            toOpen = closed ? 0 : Math.max(0, size - idle.size() - opening - borrowed);
+            opening += toOpen;
+        }
+        for (int i = 0; i < toOpen; i++) {
+            Connection connection = new Connection();
+            connection.socket.whenComplete((ws, e) -> {
+                synchronized (this) {
+                    opening--;
+                }
+                if (e == null) {
+                    addIdle(connection);
+                }
+            });
+        }
+    }
+
+    /**
+     * One pooled WebSocket; messages go to the listener of the current borrower
+     */
+    final class Connection implements WebSocket.Listener {
+        final CompletableFuture<WebSocket> socket;
+        private final StringBuilder text = new StringBuilder();
+        volatile Listener listener;
+        volatile boolean closed;
+        private long idleSince;
+
+        Connection() {
+            this.socket = httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+                .header("Authorization", "bearer " + apiKey)
+                .buildAsync(URI.create(url), this);
+            socket.whenComplete((ws, e) -> {
+                if (e != null) {
+                    closed = true;
+                    logger.error("Failed to connect to DashScope {}: {}", url, e.getMessage());
+                }
+            });
+        }
+
+        /** Send text once the socket is open */
+        CompletableFuture<WebSocket> sendText(String message) {
+            return socket.thenCompose(ws -> ws.sendText(message, true));
+        }
+
+        void close() {
+            closed = true;
+            socket.thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, ""))
+                .exceptionally(e -> null);
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            opened.incrementAndGet();
+            logger.debug("Connected to DashScope: {}", url);
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                Listener target = listener;
+                if (target != null) {
+                    target.onMessage(message);
+                } else {
+                    logger.debug("DashScope message on an idle connection ignored: {}", message);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed = true;
+            logger.debug("DashScope connection closed: {} {}", statusCode, reason);
+            Listener target = listener;
+            if (target != null) {
+                target.onLost(null);
+            }
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            closed = true;
+            logger.error("DashScope connection error: {}", error.getMessage());
+            Listener target = listener;
+            if (target != null) {
+                target.onLost(error instanceof Exception ? (Exception) error : new Exception(error));
+            }
+        }
+    }
+}
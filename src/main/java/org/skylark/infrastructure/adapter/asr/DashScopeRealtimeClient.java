@@ -0,0 +1,435 @@
+package org.skylark.infrastructure.adapter.asr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DashScope Real-time ASR Client
+ * DashScope 实时语音识别客户端
+ *
+ * <p>Streams one session's utterances to Tongyi Paraformer real-time models
+ * ({@code paraformer-realtime-v2} etc.) over the DashScope duplex WebSocket protocol,
+ * instead of uploading each finished utterance to the HTTP transcription endpoint as
+ * {@link QwenASRAdapter} does.</p>
+ *
+ * <p>Each utterance is one recognition task on a connection borrowed from a
+ * {@link DashScopeConnectionPool}:</p>
+ * <ol>
+ *   <li>{@link #start} sends {@code run-task} (model, {@code format=pcm},
+ *       {@code sample_rate=16000}) on the borrowed connection</li>
+ *   <li>{@link #sendAudio} sends binary PCM16 frames once the server answered
+ *       {@code task-started}; frames sent earlier wait for it</li>
+ *   <li>{@code result-generated} events carry the current sentence; its text is reported as
+ *       a partial result until the sentence ends, after which it is kept as stable text</li>
+ *   <li>{@link #endStream} sends {@code finish-task}; {@code task-finished} completes the
+ *       result with all sentences and returns the connection to the pool</li>
+ * </ol>
+ *
+ * <p>A task that fails ({@code task-failed}) or loses its connection completes with the
+ * text recognized so far. Nothing blocks the caller; at most {@code maxPendingChunks}
+ * audio frames may be in flight, newer ones are dropped beyond that.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ * @see <a href="https://help.aliyun.com/zh/model-studio/websocket-for-paraformer-real-time-service">
+ *      Paraformer real-time WebSocket API</a>
+ */
+public class DashScopeRealtimeClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashScopeRealtimeClient.class);
+
+    public static final String DEFAULT_MODEL = "paraformer-realtime-v2";
+    public static final int DEFAULT_MAX_PENDING_CHUNKS = 200;
+    public static final long DEFAULT_FINAL_TIMEOUT_MS = 3000;
+    private static final int SAMPLE_RATE = 16000;
+
+    private final DashScopeConnectionPool pool;
+    private final String model;
+    private final int maxPendingChunks;
+    private final long finalTimeoutMs;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong droppedChunks = new AtomicLong();
+
+    /** Guarded by this */
+    private Task task;
+
+    /**
+     * ASR result callback
+     */
+    public interface ASRCallback {
+        /** Partial (intermediate) recognition result / 中间识别结果 */
+        void onPartialResult(String text, boolean isStable);
+        /** Final recognition result / 最终识别结果 */
+        void onFinalResult(String text);
+        /** Task failed or connection lost / 任务失败或连接中断 */
+        void onError(Exception e);
+    }
+
+    public DashScopeRealtimeClient(DashScopeConnectionPool pool) {
+        this(pool, DEFAULT_MODEL, DEFAULT_MAX_PENDING_CHUNKS, DEFAULT_FINAL_TIMEOUT_MS);
+    }
+
+    /**
+     * Create a client
+     * 创建客户端
+     *
+     * @param pool             shared connection pool
+     * @param model            real-time model name
+     * @param maxPendingChunks audio frames that may be queued for sending before new ones are dropped
+     * @param finalTimeoutMs   how long {@link #endStream()} waits for {@code task-finished}
+     */
+    public DashScopeRealtimeClient(DashScopeConnectionPool pool, String model, int maxPendingChunks,
+                                   long finalTimeoutMs) {
+        if (pool == null) {
+            throw new IllegalArgumentException("DashScope connection pool cannot be null");
+        }
+        if (maxPendingChunks < 1) {
+            throw new IllegalArgumentException("maxPendingChunks must be at least 1: " + maxPendingChunks);
+        }
+        this.pool = pool;
+        this.model = model != null && !model.isBlank() ? model : DEFAULT_MODEL;
+        this.maxPendingChunks = maxPendingChunks;
+        this.finalTimeoutMs = finalTimeoutMs;
+    }
+
+    /**
+     * Start recognizing a new utterance; an utterance still open is abandoned
+     * 开始新的语音段
+     *
+     * @param callback result callback
+     */
+    public synchronized void start(ASRCallback callback) {
+        if (task != null) {
+            task.abandon();
+        }
+        task = new Task(callback);
+    }
+
+    /**
+     * Send audio frame for recognition
+     * 发送音频帧
+     *
+     * @param audioChunk PCM audio chunk (16kHz, 16-bit, mono)
+     */
+    public synchronized void sendAudio(byte[] audioChunk) {
+        if (task == null || audioChunk == null || audioChunk.length == 0) {
+            logger.debug("DashScope client not streaming, audio chunk discarded");
+            return;
+        }
+        task.sendAudio(audioChunk);
+    }
+
+    /**
+     * Finish the current utterance
+     * 结束当前语音段
+     *
+     * @return future completed with the utterance's text when the task finishes, or with
+     *         the text so far if it fails or does not finish within the final timeout
+     */
+    public synchronized CompletableFuture<String> endStream() {
+        if (task == null) {
+            return CompletableFuture.completedFuture("");
+        }
+        Task ending = task;
+        task = null;
+        return ending.finish();
+    }
+
+    /**
+     * Abandon the current utterance without waiting for its result (barge-in)
+     * 放弃当前语音段
+     */
+    public synchronized void cancel() {
+        if (task != null) {
+            task.abandon();
+            task = null;
+        }
+    }
+
+    public synchronized boolean isStreaming() {
+        return task != null;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /** Audio frames dropped because the send queue was full */
+    public long getDroppedChunks() {
+        return droppedChunks.get();
+    }
+
+    private String command(String action, String taskId) {
+        ObjectNode message = objectMapper.createObjectNode();
+        ObjectNode header = message.putObject("header");
+        header.put("action", action);
+        header.put("task_id", taskId);
+        header.put("streaming", "duplex");
+        ObjectNode payload = message.putObject("payload");
+        if ("run-task".equals(action)) {
+            payload.put("task_group", "audio");
+            payload.put("task", "asr");
+            payload.put("function", "recognition");
+            payload.put("model", model);
+            ObjectNode parameters = payload.putObject("parameters");
+            parameters.put("format", "pcm");
+            parameters.put("sample_rate", SAMPLE_RATE);
+        }
+        payload.putObject("input");
+        return message.toString();
+    }
+
+    /**
+     * One recognition task (utterance) on a borrowed connection
+     */
+    private final class Task implements DashScopeConnectionPool.Listener {
+        private final String taskId = UUID.randomUUID().toString().replace("-", "");
+        private final CompletableFuture<DashScopeConnectionPool.Connection> connection;
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+        private final AtomicInteger pendingChunks = new AtomicInteger();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile ASRCallback callback;
+
+        /** Guarded by this */
+        private CompletableFuture<?> sendChain;
+        private final StringBuilder committedText = new StringBuilder();
+        private String sentenceText = "";
+        private CompletableFuture<String> pendingFinal;
+        private boolean done;
+
+        Task(ASRCallback callback) {
+            this.callback = callback;
+            this.connection = pool.acquire().thenApply(borrowed -> {
+                borrowed.listener = this;
+                return borrowed;
+            });
+            connection.whenComplete((borrowed, e) -> {
+                if (e != null) {
+                    onLost(e instanceof Exception ? (Exception) e : new Exception(e));
+                } else if (isDone()) {
+                    // Expired or abandoned while connecting: nothing will release it later
+                    releaseConnection(false);
+                }
+            });
+            synchronized (this) {
+                sendChain = connection.thenCompose(borrowed -> borrowed.sendText(command("run-task", taskId)));
+            }
+            // A pooled connection may have been dropped by the server just before it was borrowed
+            sendChain.whenComplete((ws, e) -> {
+                if (e != null && connection.isDone() && !connection.isCompletedExceptionally()) {
+                    onLost(e instanceof Exception ? (Exception) e : new Exception(e));
+                }
+            });
+        }
+
+        synchronized void sendAudio(byte[] audioChunk) {
+            if (done || pendingFinal != null) {
+                return;
+            }
+            if (pendingChunks.get() >= maxPendingChunks) {
+                long dropped = droppedChunks.incrementAndGet();
+                if (dropped == 1 || dropped % DEFAULT_MAX_PENDING_CHUNKS == 0) {
+                    logger.warn("DashScope send queue full, dropping audio ({} chunks so far)", dropped);
+                }
+                return;
+            }
+            ByteBuffer data = ByteBuffer.wrap(audioChunk.clone());
+            pendingChunks.incrementAndGet();
+            sendChain = sendChain
+                .thenCompose(ignored -> started)
+                .thenCompose(ignored -> connection.join().socket.join().sendBinary(data, true));
+            sendChain.whenComplete((ws, e) -> pendingChunks.decrementAndGet());
+        }
+
+        synchronized CompletableFuture<String> finish() {
+            if (pendingFinal == null) {
+                pendingFinal = new CompletableFuture<>();
+                if (done) {
+                    pendingFinal.complete(currentText());
+                    return pendingFinal;
+                }
+                sendFinishTask();
+                expireAfterTimeout();
+            }
+            return pendingFinal;
+        }
+
+        /** Ends the task quietly; the connection returns to the pool when the server finishes it */
+        synchronized void abandon() {
+            callback = null;
+            if (done || pendingFinal != null) {
+                return;
+            }
+            pendingFinal = new CompletableFuture<>();
+            sendFinishTask();
+            expireAfterTimeout();
+        }
+
+        private void sendFinishTask() {
+            sendChain = sendChain
+                .thenCompose(ignored -> started)
+                .thenCompose(ignored -> connection.join().sendText(command("finish-task", taskId)));
+        }
+
+        private void expireAfterTimeout() {
+            CompletableFuture.runAsync(this::expire,
+                CompletableFuture.delayedExecutor(finalTimeoutMs, TimeUnit.MILLISECONDS));
+        }
+
+        private void expire() {
+            String text;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                text = currentText();
+            }
+            logger.warn("DashScope task {} not finished within {} ms, using text so far", taskId, finalTimeoutMs);
+            // The connection is in an unknown state; do not hand it to another task
+            releaseConnection(false);
+            pendingFinal.complete(text);
+        }
+
+        private synchronized boolean isDone() {
+            return done;
+        }
+
+        private String currentText() {
+            return committedText + sentenceText;
+        }
+
+        /** Returns the borrowed connection to the pool once; closes it first unless reusable */
+        private void releaseConnection(boolean reusable) {
+            if (!connection.isDone() || connection.isCompletedExceptionally() || !released.compareAndSet(false, true)) {
+                return;
+            }
+            DashScopeConnectionPool.Connection borrowed = connection.join();
+            if (!reusable) {
+                borrowed.close();
+            }
+            pool.release(borrowed);
+        }
+
+        @Override
+        public void onMessage(String message) {
+            Runnable action = apply(message);
+            if (action != null) {
+                action.run();
+            }
+        }
+
+        /** Applies one server event; returns the callback action to run outside the lock */
+        private synchronized Runnable apply(String message) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(message);
+            } catch (Exception e) {
+                logger.warn("Ignoring malformed DashScope message: {}", message);
+                return null;
+            }
+            JsonNode header = node.path("header");
+            if (done || !taskId.equals(header.path("task_id").asText(taskId))) {
+                return null;
+            }
+            ASRCallback target = callback;
+            switch (header.path("event").asText("")) {
+                case "task-started":
+                    started.complete(null);
+                    return null;
+                case "result-generated": {
+                    JsonNode sentence = node.path("payload").path("output").path("sentence");
+                    if (sentence.path("heartbeat").asBoolean(false)) {
+                        return null;
+                    }
+                    String text = sentence.path("text").asText("");
+                    boolean sentenceEnd = sentence.has("sentence_end")
+                        ? sentence.path("sentence_end").asBoolean()
+                        : !sentence.path("end_time").isMissingNode() && !sentence.path("end_time").isNull();
+                    if (sentenceEnd) {
+                        committedText.append(text);
+                        sentenceText = "";
+                    } else {
+                        sentenceText = text;
+                    }
+                    String partial = currentText();
+                    return target != null && !partial.isEmpty()
+                        ? () -> target.onPartialResult(partial, sentenceEnd) : null;
+                }
+                case "task-finished": {
+                    done = true;
+                    String text = currentText();
+                    CompletableFuture<String> result = pendingFinal;
+                    return () -> {
+                        releaseConnection(true);
+                        if (result != null) {
+                            result.complete(text);
+                        }
+                        if (target != null) {
+                            target.onFinalResult(text);
+                        }
+                    };
+                }
+                case "task-failed": {
+                    done = true;
+                    String text = currentText();
+                    Exception error = new IOException("DashScope task failed: "
+                        + header.path("error_code").asText("") + " " + header.path("error_message").asText(""));
+                    logger.error("DashScope task {} failed: {}", taskId, error.getMessage());
+                    CompletableFuture<String> result = pendingFinal;
+                    return () -> {
+                        started.completeExceptionally(error);
+                        releaseConnection(false);
+                        // Report the error first, so it is visible once the final text is
+                        if (target != null) {
+                            target.onError(error);
+                        }
+                        if (result != null) {
+                            result.complete(text);
+                        }
+                    };
+                }
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public void onLost(Exception error) {
+            CompletableFuture<String> result;
+            String text;
+            ASRCallback target;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                result = pendingFinal;
+                text = currentText();
+                target = callback;
+            }
+            Exception cause = error != null ? error : new IOException("DashScope connection closed");
+            logger.warn("DashScope task {} lost its connection: {}", taskId, cause.getMessage());
+            started.completeExceptionally(cause);
+            releaseConnection(false);
+            if (target != null) {
+                target.onError(cause);
+            }
+            if (result != null) {
+                result.complete(text);
+            }
+        }
+    }
+}
@@ -1,8 +1,24 @@
 package org.skylark.infrastructure.adapter.asr;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
 /**
  * FunASR WebSocket Client
  * FunASR WebSocket客户端
@@ -19,8 +35,24 @@ import org.slf4j.LoggerFactory;
  *   (← JSON results)                + hotword support
  * </pre></p>
  *
- * <p>Phase 2 component: WebSocket client for FunASR server.
- * Current implementation is a placeholder with interface definition.</p>
+ * <p>Speaks the FunASR runtime "2pass" protocol. Each utterance starts with a JSON config
+ * message ({@code mode=2pass}, chunk sizes, {@code is_speaking=true}), continues with
+ * binary PCM16 16 kHz mono, and ends with {@code {"is_speaking": false}}. The server
+ * answers with {@code 2pass-online} messages, each carrying the next piece of low-latency
+ * text, and {@code 2pass-offline} messages carrying the corrected, punctuated text of a
+ * segment; the offline message after the end of the utterance is its final result.</p>
+ *
+ * <p>One client holds one connection and is meant to be reused for all utterances of a
+ * session. Nothing blocks the caller: sends are queued behind the connect and each other,
+ * at most {@code maxPendingChunks} audio chunks may be in flight (newer chunks are dropped
+ * beyond that), and a connection that drops mid-utterance is reopened on the next call,
+ * replaying the utterance's audio so far (up to {@code maxReplayBytes}). A connection that
+ * cannot be opened is retried after a backoff (500 ms, doubling up to 30 s); audio sent in
+ * the meantime is only kept for replay, and {@link #endStream()} returns the text so far.</p>
+ *
+ * <p>Each utterance is named {@code <wavName>#<n>} in its start message. The server echoes
+ * the name in its results, so results of an earlier or cancelled utterance that arrive late
+ * are dropped instead of leaking into the current one.</p>
  *
  * @author Skylark Team
  * @version 1.0.0
@@ -31,9 +63,44 @@ public class FunASRClient {
     private static final Logger logger = LoggerFactory.getLogger(FunASRClient.class);
 
     private static final String DEFAULT_FUNASR_URL = "ws://localhost:10095";
+    public static final int DEFAULT_MAX_PENDING_CHUNKS = 200;
+    public static final long DEFAULT_FINAL_TIMEOUT_MS = 3000;
+    /** 30 s of 16 kHz PCM16 */
+    public static final int DEFAULT_MAX_REPLAY_BYTES = 30 * 16000 * 2;
+    private static final int CONNECT_TIMEOUT_SECONDS = 5;
+    private static final long RECONNECT_BACKOFF_MS = 500;
+    private static final long MAX_RECONNECT_BACKOFF_MS = 30_000;
+
+    private static final String MODE_ONLINE = "2pass-online";
+    private static final String MODE_OFFLINE = "2pass-offline";
 
     private final String serverUrl;
+    private final int maxPendingChunks;
+    private final long finalTimeoutMs;
+    private final int maxReplayBytes;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+    private final AtomicLong droppedChunks = new AtomicLong();
+
     private volatile boolean connected = false;
+    private volatile ASRCallback callback;
+    private String wavName = "skylark";
+
+    /** Guarded by this */
+    private Connection connection;
+    private CompletableFuture<?> sendChain = CompletableFuture.completedFuture(null);
+    private boolean inUtterance;
+    /** Number of the current (or last) utterance, part of its wav_name */
+    private int utterance;
+    /** Consecutive connections that failed to open, and when the next may be tried */
+    private int connectFailures;
+    private long retryAtNanos;
+    private final ByteArrayOutputStream replay = new ByteArrayOutputStream();
+    private boolean replayOverflow;
+    private final StringBuilder committedText = new StringBuilder();
+    private final StringBuilder onlineText = new StringBuilder();
+    private CompletableFuture<String> pendingFinal;
 
     /**
      * ASR result callback
@@ -54,19 +121,69 @@ public class FunASRClient {
     }
 
     public FunASRClient(String serverUrl) {
+        this(serverUrl, DEFAULT_MAX_PENDING_CHUNKS, DEFAULT_FINAL_TIMEOUT_MS, DEFAULT_MAX_REPLAY_BYTES);
+    }
+
+    /**
+     * Create a client
+     * 创建客户端
+     *
+     * @param serverUrl        FunASR server WebSocket URL
+     * @param maxPendingChunks audio chunks that may be queued for sending before new ones are dropped
+     * @param finalTimeoutMs   how long {@link #endStream()} waits for the offline result
+     * @param maxReplayBytes   audio kept per utterance for replay after a reconnect
+     */
+    public FunASRClient(String serverUrl, int maxPendingChunks, long finalTimeoutMs, int maxReplayBytes) {
+        if (serverUrl == null || serverUrl.isBlank()) {
+            throw new IllegalArgumentException("FunASR server URL cannot be null or empty");
+        }
+        if (maxPendingChunks < 1) {
+            throw new IllegalArgumentException("maxPendingChunks must be at least 1: " + maxPendingChunks);
+        }
         this.serverUrl = serverUrl;
-        logger.info("FunASRClient initialized (Phase 2 placeholder). Server URL: {}", serverUrl);
+        this.maxPendingChunks = maxPendingChunks;
+        this.finalTimeoutMs = finalTimeoutMs;
+        this.maxReplayBytes = maxReplayBytes;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+            .build();
+        logger.info("FunASRClient initialized. Server URL: {}", serverUrl);
+    }
+
+    /**
+     * Set the name the server echoes back in results (e.g. the session id); each utterance
+     * is sent as {@code <wavName>#<n>}
+     */
+    public void setWavName(String wavName) {
+        this.wavName = wavName;
     }
 
     /**
      * Connect to FunASR server and start streaming recognition
      * 连接FunASR服务器并开始流式识别
      *
+     * <p>Opens the connection if there is none (or it was lost) and starts a new utterance
+     * on it; an utterance still open is abandoned.</p>
+     *
      * @param callback ASR result callback
      */
-    public void connect(ASRCallback callback) {
-        logger.info("Connecting to FunASR server: {} (placeholder)", serverUrl);
-        // Phase 2: Establish WebSocket connection to FunASR server
+    public synchronized void connect(ASRCallback callback) {
+        this.callback = callback;
+        if (pendingFinal != null) {
+            pendingFinal.complete(currentText());
+            pendingFinal = null;
+        }
+        committedText.setLength(0);
+        onlineText.setLength(0);
+        replay.reset();
+        replayOverflow = false;
+        inUtterance = false;
+        utterance++;
+        boolean live = ensureConnection();
+        inUtterance = true;
+        if (live) {
+            send(ws -> ws.sendText(startMessage(), true));
+        }
     }
 
     /**
@@ -75,27 +192,98 @@ public class FunASRClient {
      *
      * @param audioChunk PCM audio chunk (16kHz, 16-bit, mono)
      */
-    public void sendAudio(byte[] audioChunk) {
-        if (!connected) {
-            logger.debug("FunASR client not connected, audio chunk discarded");
+    public synchronized void sendAudio(byte[] audioChunk) {
+        if (!inUtterance || audioChunk == null || audioChunk.length == 0) {
+            logger.debug("FunASR client not streaming, audio chunk discarded");
+            return;
+        }
+        if (pendingChunks.get() >= maxPendingChunks) {
+            long dropped = droppedChunks.incrementAndGet();
+            if (dropped == 1 || dropped % DEFAULT_MAX_PENDING_CHUNKS == 0) {
+                logger.warn("FunASR send queue full, dropping audio ({} chunks so far)", dropped);
+            }
+            return;
+        }
+        boolean live = ensureConnection();
+        keepForReplay(audioChunk);
+        if (!live) {
             return;
         }
-        // Phase 2: Send binary audio data via WebSocket
+        ByteBuffer data = ByteBuffer.wrap(audioChunk.clone());
+        pendingChunks.incrementAndGet();
+        send(ws -> ws.sendBinary(data, true)).whenComplete((ignored, e) -> pendingChunks.decrementAndGet());
     }
 
     /**
      * Signal end of audio stream
+     * 结束当前语音段
+     *
+     * @return future completed with the utterance's final text: the offline pass, or the
+     *         text so far if it does not arrive within the final timeout
+     */
+    public synchronized CompletableFuture<String> endStream() {
+        if (!inUtterance) {
+            return CompletableFuture.completedFuture(currentText());
+        }
+        // Reconnect (with replay) before ending, so the server has the utterance to finish
+        if (!ensureConnection()) {
+            inUtterance = false;
+            logger.warn("FunASR server unavailable, ending utterance with the text so far");
+            return CompletableFuture.completedFuture(currentText());
+        }
+        inUtterance = false;
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pendingFinal = result;
+        send(ws -> ws.sendText("{\"is_speaking\":false}", true));
+        logger.debug("FunASR end stream signal sent");
+        return result
+            .completeOnTimeout(null, finalTimeoutMs, TimeUnit.MILLISECONDS)
+            .thenApply(text -> text != null ? text : timedOut(result));
+    }
+
+    private synchronized String timedOut(CompletableFuture<String> result) {
+        if (pendingFinal == result) {
+            pendingFinal = null;
+        }
+        logger.warn("FunASR offline result not received within {} ms, using online text", finalTimeoutMs);
+        return currentText();
+    }
+
+    /**
+     * Abandon the current utterance without waiting for its result (barge-in)
+     * 放弃当前语音段
      */
-    public void endStream() {
-        // Phase 2: Send end-of-stream signal to FunASR
-        logger.debug("FunASR end stream signal sent (placeholder)");
+    public synchronized void cancel() {
+        if (inUtterance && connection != null && !connection.closed) {
+            send(ws -> ws.sendText("{\"is_speaking\":false}", true));
+        }
+        inUtterance = false;
+        // Late results still carry the cancelled utterance's name and are dropped
+        utterance++;
+        callback = null;
+        committedText.setLength(0);
+        onlineText.setLength(0);
+        replay.reset();
     }
 
     /**
      * Disconnect from FunASR server
      */
-    public void disconnect() {
+    public synchronized void disconnect() {
+        inUtterance = false;
         connected = false;
+        if (connection != null) {
+            Connection closing = connection;
+            connection = null;
+            closing.closed = true;
+            sendChain = sendChain.handle((v, e) -> null).thenCompose(ignored -> closing.socket)
+                .thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, ""))
+                .exceptionally(e -> null);
+        }
+        if (pendingFinal != null) {
+            pendingFinal.complete(currentText());
+            pendingFinal = null;
+        }
         logger.info("Disconnected from FunASR server");
     }
 
@@ -109,4 +297,229 @@ public class FunASRClient {
     public String getServerUrl() {
         return serverUrl;
     }
+
+    /** Audio chunks dropped because the send queue was full */
+    public long getDroppedChunks() {
+        return droppedChunks.get();
+    }
+
+    /**
+     * Opens a connection if there is no live one, unless the last attempt failed and its
+     * backoff has not passed. A connection opened inside an utterance gets the start
+     * message and the utterance's audio so far.
+     *
+     * @return true if there is a connection to send on
+     */
+    private boolean ensureConnection() {
+        if (connection != null && !connection.closed) {
+            return true;
+        }
+        if (connectFailures > 0 && System.nanoTime() - retryAtNanos < 0) {
+            return false;
+        }
+        connection = new Connection();
+        sendChain = connection.socket;
+        if (!inUtterance) {
+            return true;
+        }
+        logger.warn("FunASR connection lost, reconnecting and replaying {} bytes", replay.size());
+        send(ws -> ws.sendText(startMessage(), true));
+        if (replay.size() > 0) {
+            ByteBuffer audio = ByteBuffer.wrap(replay.toByteArray());
+            send(ws -> ws.sendBinary(audio, true));
+        }
+        return true;
+    }
+
+    private synchronized void onConnectFailed(Connection failed) {
+        if (failed != connection) {
+            return;
+        }
+        connectFailures++;
+        long backoffMs = Math.min(MAX_RECONNECT_BACKOFF_MS,
+            RECONNECT_BACKOFF_MS << Math.min(connectFailures - 1, 16));
+        retryAtNanos = System.nanoTime() + backoffMs * 1_000_000L;
+        logger.warn("FunASR connect failed {} time(s) in a row, next attempt in {} ms",
+            connectFailures, backoffMs);
+    }
+
+    private synchronized void onConnected() {
+        connectFailures = 0;
+    }
+
+    private CompletableFuture<?> send(Function<WebSocket, CompletableFuture<WebSocket>> action) {
+        Connection target = connection;
+        sendChain = sendChain
+            .thenCompose(ignored -> action.apply(target.socket.join()))
+            .whenComplete((ws, e) -> {
+                if (e != null && !target.closed) {
+                    target.closed = true;
+                    connected = false;
+                    logger.error("FunASR send failed: {}", e.getMessage());
+                }
+            });
+        return sendChain;
+    }
+
+    private void keepForReplay(byte[] chunk) {
+        if (replay.size() + chunk.length <= maxReplayBytes) {
+            replay.write(chunk, 0, chunk.length);
+        } else if (!replayOverflow) {
+            replayOverflow = true;
+            logger.debug("FunASR replay buffer full; a reconnect will resume from the live audio");
+        }
+    }
+
+    private String startMessage() {
+        ObjectNode config = objectMapper.createObjectNode();
+        config.put("mode", "2pass");
+        config.putArray("chunk_size").add(5).add(10).add(5);
+        config.put("chunk_interval", 10);
+        config.put("wav_name", utteranceName());
+        config.put("wav_format", "pcm");
+        config.put("audio_fs", 16000);
+        config.put("is_speaking", true);
+        config.put("itn", true);
+        return config.toString();
+    }
+
+    private String utteranceName() {
+        return wavName + "#" + utterance;
+    }
+
+    private String currentText() {
+        return committedText.toString() + onlineText;
+    }
+
+    /** Applies one server message; returns the callback action to run outside the lock */
+    private synchronized Runnable onMessage(String message) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(message);
+        } catch (Exception e) {
+            logger.warn("Ignoring malformed FunASR message: {}", message);
+            return null;
+        }
+        String name = node.path("wav_name").asText(null);
+        if (name != null && !name.equals(utteranceName()) || pendingFinal == null && !inUtterance) {
+            logger.debug("Dropping stale FunASR result for {}", name);
+            return null;
+        }
+        String mode = node.path("mode").asText("");
+        String text = node.path("text").asText("");
+        ASRCallback target = callback;
+        if (MODE_ONLINE.equals(mode)) {
+            if (text.isEmpty()) {
+                return null;
+            }
+            onlineText.append(text);
+            String partial = currentText();
+            return target != null ? () -> target.onPartialResult(partial, false) : null;
+        }
+        if (!MODE_OFFLINE.equals(mode) && !"offline".equals(mode)) {
+            return null;
+        }
+        committedText.append(text);
+        onlineText.setLength(0);
+        String full = committedText.toString();
+        boolean isFinal = node.has("is_final") ? node.get("is_final").asBoolean() : !inUtterance;
+        if (pendingFinal != null && (isFinal || !inUtterance)) {
+            CompletableFuture<String> result = pendingFinal;
+            pendingFinal = null;
+            return () -> {
+                result.complete(full);
+                if (target != null) {
+                    target.onFinalResult(full);
+                }
+            };
+        }
+        return target != null && !full.isEmpty() ? () -> target.onPartialResult(full, true) : null;
+    }
+
+    private synchronized Runnable onConnectionLost(Connection lost, Exception error) {
+        if (lost != connection) {
+            return null;
+        }
+        connected = false;
+        ASRCallback target = callback;
+        CompletableFuture<String> result = pendingFinal;
+        String text = currentText();
+        pendingFinal = null;
+        return () -> {
+            if (result != null) {
+                result.complete(text);
+            }
+            if (target != null) {
+                if (error != null) {
+                    target.onError(error);
+                } else {
+                    target.onClose();
+                }
+            }
+        };
+    }
+
+    /**
+     * One WebSocket to the server
+     */
+    private final class Connection implements WebSocket.Listener {
+        private final CompletableFuture<WebSocket> socket;
+        private final StringBuilder text = new StringBuilder();
+        private volatile boolean closed;
+
+        Connection() {
+            this.socket = httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+                .buildAsync(URI.create(serverUrl), this);
+            socket.whenComplete((ws, e) -> {
+                if (e != null) {
+                    closed = true;
+                    logger.error("Failed to connect to FunASR server {}: {}", serverUrl, e.getMessage());
+                    onConnectFailed(this);
+                    run(onConnectionLost(this, e instanceof Exception ? (Exception) e : new Exception(e)));
+                }
+            });
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            connected = true;
+            onConnected();
+            logger.info("Connected to FunASR server: {}", serverUrl);
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                run(onMessage(message));
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed = true;
+            logger.info("FunASR connection closed: {} {}", statusCode, reason);
+            run(onConnectionLost(this, null));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            closed = true;
+            logger.error("FunASR connection error: {}", error.getMessage());
+            run(onConnectionLost(this, error instanceof Exception ? (Exception) error : new Exception(error)));
+        }
+
+        private void run(Runnable action) {
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
 }
@@ -0,0 +1,484 @@
+package org.skylark.infrastructure.adapter.asr;
+
+import org.skylark.common.util.ComponentFactory;
+import org.skylark.common.util.LatencyTracker;
+import org.skylark.infrastructure.adapter.ASR;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedged ASR Adapter
+ * 对冲式多引擎语音识别适配器
+ *
+ * <p>Races two ASR engines to cut the tail latency of each: typically local Vosk
+ * ({@code DirectASRAdapter}), slow under CPU contention, and a remote service
+ * ({@code HttpASRAdapter}, {@code QwenASRAdapter}), slow under network hiccups.</p>
+ *
+ * <ol>
+ *   <li>The utterance goes to the primary engine</li>
+ *   <li>If the primary has not answered within the hedge delay, or failed, the same audio
+ *       goes to the secondary engine. Utterances no longer than {@code shortUtteranceMs}
+ *       are hedged at once, since both engines answer them quickly</li>
+ *   <li>With {@code deadlineMs = 0} the first successful result wins, if one arrives within
+ *       {@code timeoutMs}. Otherwise both engines get until the deadline (from the start of
+ *       the request) and the result with the higher {@code confidence} wins; engines that
+ *       report none rank below those that do, then non-empty text beats empty, then the
+ *       earlier result wins. At the deadline whichever engine has succeeded wins alone</li>
+ *   <li>If no engine has succeeded by the deadline (or {@code timeoutMs}), the call fails
+ *       with a {@link TimeoutException}</li>
+ *   <li>The losing call is cancelled (its thread is interrupted). How much work that
+ *       saves depends on the engine: an HTTP engine aborts its request, while
+ *       {@code DirectASRAdapter} only gives up its place in the local decode queue; a
+ *       decode already running finishes in the background</li>
+ * </ol>
+ *
+ * <p>Each engine's latency is tracked over recent requests. With {@code adaptive} on, the
+ * hedge delay follows the primary's p95 once enough samples exist, so only its slowest
+ * ~5% of requests are hedged. A primary call that fails or is cancelled as the loser is
+ * sampled with the time it had taken, a lower bound of its latency, so the p95 is not
+ * computed from the fast calls alone; cancelled secondary calls are not sampled.</p>
+ *
+ * <p>Configuration parameters:</p>
+ * <ul>
+ *   <li><b>primary</b> (required): ASR configuration map with {@code class_name}</li>
+ *   <li><b>secondary</b> (required): ASR configuration map with {@code class_name}</li>
+ *   <li><b>hedgeDelayMs</b> (optional): delay before hedging, and the starting point when
+ *       adaptive (default: 400)</li>
+ *   <li><b>maxHedgeDelayMs</b> (optional): upper bound of the adaptive delay (default: 3000)</li>
+ *   <li><b>shortUtteranceMs</b> (optional): utterances up to this length are hedged at once
+ *       (default: 1000; 0 = never)</li>
+ *   <li><b>deadlineMs</b> (optional): 0 = first result wins, else pick by confidence within
+ *       the deadline (default: 0)</li>
+ *   <li><b>timeoutMs</b> (optional): longest wait for a result when {@code deadlineMs} is 0
+ *       (default: 10000)</li>
+ *   <li><b>adaptive</b> (optional): follow the primary's p95 (default: true)</li>
+ * </ul>
+ *
+ * <p>Example config.yaml usage:
+ * <pre>
+ * asr:
+ *   class_name: org.skylark.infrastructure.adapter.asr.HedgedASRAdapter
+ *   primary:
+ *     class_name: org.skylark.infrastructure.adapter.DirectASRAdapter
+ *   secondary:
+ *     class_name: org.skylark.infrastructure.adapter.asr.QwenASRAdapter
+ *     apiKey: ${DASHSCOPE_API_KEY}
+ *   hedgeDelayMs: 400
+ * </pre></p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class HedgedASRAdapter implements ASR {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgedASRAdapter.class);
+
+    public static final long DEFAULT_HEDGE_DELAY_MS = 400;
+    public static final long DEFAULT_MAX_HEDGE_DELAY_MS = 3000;
+    public static final long DEFAULT_SHORT_UTTERANCE_MS = 1000;
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+    /** Floor of the adaptive delay, so a fast primary is not hedged on every request */
+    public static final long MIN_HEDGE_DELAY_MS = 50;
+    /** Primary samples needed before the adaptive delay replaces the configured one */
+    static final int MIN_ADAPTIVE_SAMPLES = 20;
+    private static final double HEDGE_PERCENTILE = 95;
+    /** 16 kHz, 16-bit, mono */
+    private static final int BYTES_PER_MS = 32;
+
+    static final String PRIMARY = "primary";
+    static final String SECONDARY = "secondary";
+
+    private final ASR primary;
+    private final ASR secondary;
+    private final long hedgeDelayMs;
+    private final long maxHedgeDelayMs;
+    private final long shortUtteranceMs;
+    private final long deadlineMs;
+    private final long timeoutMs;
+    private final boolean adaptive;
+    private final ExecutorService executor;
+
+    private final LatencyTracker primaryLatency = new LatencyTracker();
+    private final LatencyTracker secondaryLatency = new LatencyTracker();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong primaryWins = new AtomicLong();
+    private final AtomicLong secondaryWins = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates the adapter from configuration (see class documentation).
+     *
+     * @param config Configuration map with "primary" and "secondary" engine maps
+     * @throws IllegalArgumentException if an engine is missing or cannot be created
+     */
+    public HedgedASRAdapter(Map<String, Object> config) {
+        this(createEngine(config, PRIMARY), createEngine(config, SECONDARY),
+            longOption(config, "hedgeDelayMs", DEFAULT_HEDGE_DELAY_MS),
+            longOption(config, "maxHedgeDelayMs", DEFAULT_MAX_HEDGE_DELAY_MS),
+            longOption(config, "shortUtteranceMs", DEFAULT_SHORT_UTTERANCE_MS),
+            longOption(config, "deadlineMs", 0),
+            longOption(config, "timeoutMs", DEFAULT_TIMEOUT_MS),
+            Boolean.parseBoolean(config.getOrDefault("adaptive", "true").toString()));
+    }
+
+    /**
+     * Creates the adapter over two engines.
+     *
+     * @param primary          Engine asked first
+     * @param secondary        Engine asked when the primary is slow or fails
+     * @param hedgeDelayMs     Delay before hedging (starting point when adaptive)
+     * @param maxHedgeDelayMs  Upper bound of the adaptive delay
+     * @param shortUtteranceMs Utterances up to this length are hedged at once (0 = never)
+     * @param deadlineMs       0 = first result wins, else best confidence within the deadline
+     * @param adaptive         Follow the primary's p95 latency
+     */
+    public HedgedASRAdapter(ASR primary, ASR secondary, long hedgeDelayMs, long maxHedgeDelayMs,
+                            long shortUtteranceMs, long deadlineMs, boolean adaptive) {
+        this(primary, secondary, hedgeDelayMs, maxHedgeDelayMs, shortUtteranceMs, deadlineMs,
+            DEFAULT_TIMEOUT_MS, adaptive);
+    }
+
+    /**
+     * Creates the adapter over two engines.
+     *
+     * @param primary          Engine asked first
+     * @param secondary        Engine asked when the primary is slow or fails
+     * @param hedgeDelayMs     Delay before hedging (starting point when adaptive)
+     * @param maxHedgeDelayMs  Upper bound of the adaptive delay
+     * @param shortUtteranceMs Utterances up to this length are hedged at once (0 = never)
+     * @param deadlineMs       0 = first result wins, else best confidence within the deadline
+     * @param timeoutMs        Longest wait for a result when deadlineMs is 0
+     * @param adaptive         Follow the primary's p95 latency
+     */
+    public HedgedASRAdapter(ASR primary, ASR secondary, long hedgeDelayMs, long maxHedgeDelayMs,
+                            long shortUtteranceMs, long deadlineMs, long timeoutMs, boolean adaptive) {
+        if (primary == null || secondary == null) {
+            throw new IllegalArgumentException("Both primary and secondary ASR engines are required");
+        }
+        if (hedgeDelayMs < 0 || deadlineMs < 0 || shortUtteranceMs < 0) {
+            throw new IllegalArgumentException("hedgeDelayMs, shortUtteranceMs and deadlineMs cannot be negative");
+        }
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("timeoutMs must be positive: " + timeoutMs);
+        }
+        this.primary = primary;
+        this.secondary = secondary;
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.maxHedgeDelayMs = Math.max(hedgeDelayMs, maxHedgeDelayMs);
+        this.shortUtteranceMs = shortUtteranceMs;
+        this.deadlineMs = deadlineMs;
+        this.timeoutMs = timeoutMs;
+        this.adaptive = adaptive;
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "asr-hedge");
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("HedgedASRAdapter initialized: primary={}, secondary={}, hedgeDelay={}ms, "
+                + "shortUtterance={}ms, deadline={}ms, adaptive={}",
+            primary.getClass().getSimpleName(), secondary.getClass().getSimpleName(),
+            hedgeDelayMs, shortUtteranceMs, deadlineMs, adaptive);
+    }
+
+    private static ASR createEngine(Map<String, Object> config, String key) {
+        if (config == null || !(config.get(key) instanceof Map)) {
+            throw new IllegalArgumentException(key + " ASR configuration is required");
+        }
+        @SuppressWarnings("unchecked")
+        Object engine = ComponentFactory.createASR((Map<String, Object>) config.get(key));
+        if (!(engine instanceof ASR)) {
+            throw new IllegalArgumentException("Failed to create " + key + " ASR engine");
+        }
+        return (ASR) engine;
+    }
+
+    private static long longOption(Map<String, Object> config, String key, long defaultValue) {
+        Object value = config.get(key);
+        return value != null ? Long.parseLong(value.toString()) : defaultValue;
+    }
+
+    @Override
+    public String recognize(byte[] audioData) throws Exception {
+        String text = recognizeDetailed(audioData).get("text");
+        return text != null ? text : "";
+    }
+
+    /**
+     * Recognizes with hedging; the result also carries "engine" (primary or secondary).
+     */
+    @Override
+    public Map<String, String> recognizeDetailed(byte[] audioData) throws Exception {
+        if (audioData == null || audioData.length == 0) {
+            throw new IllegalArgumentException("Audio data cannot be null or empty");
+        }
+        requests.incrementAndGet();
+        long startNanos = System.nanoTime();
+        long audioMs = audioData.length / BYTES_PER_MS;
+        long delay = shortUtteranceMs > 0 && audioMs <= shortUtteranceMs ? 0 : getHedgeDelayMs();
+
+        Attempt first = start(PRIMARY, primary, primaryLatency, true, audioData);
+        Attempt second = null;
+        try {
+            if (delay > 0 && first.awaitSuccess(delay)) {
+                return win(first);
+            }
+            hedged.incrementAndGet();
+            logger.debug("Hedging {} ms utterance to secondary ASR after {} ms", audioMs, delay);
+            second = start(SECONDARY, secondary, secondaryLatency, false, audioData);
+            return win(pick(first, second, startNanos));
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            first.cancel();
+            if (second != null) {
+                second.cancel();
+            }
+        }
+    }
+
+    /**
+     * @param sampleUnfinished Also sample failed and cancelled calls, with their elapsed time
+     */
+    private Attempt start(String name, ASR engine, LatencyTracker latency, boolean sampleUnfinished,
+                          byte[] audioData) {
+        Attempt attempt = new Attempt(name, latency, sampleUnfinished);
+        attempt.task = executor.submit(() -> {
+            try {
+                Map<String, String> result = engine.recognizeDetailed(audioData);
+                attempt.sample(true);
+                attempt.result.complete(result);
+            } catch (Throwable t) {
+                attempt.sample(false);
+                attempt.result.completeExceptionally(t);
+            }
+        });
+        return attempt;
+    }
+
+    /**
+     * Waits for the first success, or for the best result within the deadline.
+     *
+     * @throws TimeoutException if no engine succeeded within the deadline (or timeoutMs)
+     */
+    private Attempt pick(Attempt first, Attempt second, long startNanos) throws Exception {
+        CompletableFuture<Attempt> winner = new CompletableFuture<>();
+        first.result.thenRun(() -> winner.complete(first));
+        second.result.thenRun(() -> winner.complete(second));
+        // May run before the callbacks above, so it looks for a success itself
+        CompletableFuture.allOf(first.result, second.result).whenComplete((ignored, e) ->
+            winner.complete(first.succeeded() ? first : second.succeeded() ? second : null));
+
+        long limitMs = deadlineMs > 0 ? deadlineMs : timeoutMs;
+        long remaining = limitMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Attempt result;
+        if (deadlineMs > 0) {
+            try {
+                CompletableFuture.allOf(first.result, second.result)
+                    .handle((ignored, e) -> null)
+                    .get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.debug("ASR deadline of {} ms reached before both engines answered", deadlineMs);
+            }
+            if (first.succeeded() && second.succeeded()) {
+                Attempt earlier = winner.join();
+                return better(earlier, earlier == first ? second : first);
+            }
+            // Whichever has succeeded by now; null if both failed
+            result = first.succeeded() ? first : second.succeeded() ? second : winner.getNow(null);
+        } else {
+            try {
+                result = winner.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                result = null;
+            }
+        }
+        if (result == null) {
+            if (first.result.isDone() && second.result.isDone()) {
+                throw failure(first, second);
+            }
+            throw new TimeoutException("No ASR engine answered within " + limitMs + " ms");
+        }
+        return result;
+    }
+
+    /** Higher known confidence, then non-empty text, then the earlier result */
+    private static Attempt better(Attempt earlier, Attempt later) {
+        double a = confidence(earlier);
+        double b = confidence(later);
+        if (!Double.isNaN(a) || !Double.isNaN(b)) {
+            if (Double.isNaN(a)) {
+                return later;
+            }
+            if (!Double.isNaN(b) && b > a) {
+                return later;
+            }
+            return earlier;
+        }
+        return text(earlier).isBlank() && !text(later).isBlank() ? later : earlier;
+    }
+
+    private static double confidence(Attempt attempt) {
+        String value = attempt.result.join().get("confidence");
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String text(Attempt attempt) {
+        String text = attempt.result.join().get("text");
+        return text != null ? text : "";
+    }
+
+    private Map<String, String> win(Attempt attempt) {
+        (PRIMARY.equals(attempt.name) ? primaryWins : secondaryWins).incrementAndGet();
+        Map<String, String> result = new HashMap<>(attempt.result.join());
+        result.put("engine", attempt.name);
+        return result;
+    }
+
+    private static Exception failure(Attempt first, Attempt second) {
+        Exception error = new Exception("All ASR engines failed: " + first.errorMessage()
+            + "; " + second.errorMessage());
+        first.error().ifPresent(error::addSuppressed);
+        second.error().ifPresent(error::addSuppressed);
+        return error;
+    }
+
+    /**
+     * Current hedge delay: the primary's recent p95 when adaptive and enough samples
+     * exist, clamped to [{@value #MIN_HEDGE_DELAY_MS}, maxHedgeDelayMs]; else the configured delay.
+     */
+    public long getHedgeDelayMs() {
+        if (!adaptive || primaryLatency.getCount() < MIN_ADAPTIVE_SAMPLES) {
+            return hedgeDelayMs;
+        }
+        long p95 = primaryLatency.percentile(HEDGE_PERCENTILE);
+        return Math.max(MIN_HEDGE_DELAY_MS, Math.min(maxHedgeDelayMs, p95));
+    }
+
+    /**
+     * Hedging metrics
+     * 对冲统计
+     *
+     * @return requests, hedged, hedgeRate, primaryWins, secondaryWins, failures, hedgeDelayMs
+     *         and p50/p95/max latency (ms) of each engine
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long total = requests.get();
+        metrics.put("requests", total);
+        metrics.put("hedged", hedged.get());
+        metrics.put("hedgeRate", total > 0 ? (double) hedged.get() / total : 0.0);
+        metrics.put("primaryWins", primaryWins.get());
+        metrics.put("secondaryWins", secondaryWins.get());
+        metrics.put("failures", failures.get());
+        metrics.put("hedgeDelayMs", getHedgeDelayMs());
+        putLatency(metrics, PRIMARY, primaryLatency);
+        putLatency(metrics, SECONDARY, secondaryLatency);
+        return metrics;
+    }
+
+    private static void putLatency(Map<String, Object> metrics, String name, LatencyTracker latency) {
+        metrics.put(name + "P50Ms", latency.percentile(50));
+        metrics.put(name + "P95Ms", latency.percentile(95));
+        metrics.put(name + "MaxMs", latency.getMaxMillis());
+    }
+
+    public LatencyTracker getPrimaryLatency() {
+        return primaryLatency;
+    }
+
+    public LatencyTracker getSecondaryLatency() {
+        return secondaryLatency;
+    }
+
+    /**
+     * Stops the worker threads; calls in flight are interrupted
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One engine call
+     */
+    private static final class Attempt {
+        final String name;
+        final CompletableFuture<Map<String, String>> result = new CompletableFuture<>();
+        final long beginNanos = System.nanoTime();
+        private final LatencyTracker latency;
+        private final boolean sampleUnfinished;
+        private final AtomicBoolean sampled = new AtomicBoolean();
+        Future<?> task;
+
+        Attempt(String name, LatencyTracker latency, boolean sampleUnfinished) {
+            this.name = name;
+            this.latency = latency;
+            this.sampleUnfinished = sampleUnfinished;
+        }
+
+        /** Records the elapsed time once: always for a success, else only if configured */
+        void sample(boolean success) {
+            if ((success || sampleUnfinished) && sampled.compareAndSet(false, true)) {
+                latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos));
+            }
+        }
+
+        /** Waits up to {@code millis}; true if the call succeeded in time */
+        boolean awaitSuccess(long millis) throws InterruptedException {
+            try {
+                result.get(millis, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (ExecutionException | TimeoutException e) {
+                return false;
+            }
+        }
+
+        boolean succeeded() {
+            return result.isDone() && !result.isCompletedExceptionally();
+        }
+
+        Optional<Throwable> error() {
+            if (!result.isCompletedExceptionally()) {
+                return Optional.empty();
+            }
+            try {
+                result.join();
+                return Optional.empty();
+            } catch (Exception e) {
+                return Optional.ofNullable(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        String errorMessage() {
+            return name + " " + error().map(Throwable::getMessage).orElse("did not answer");
+        }
+
+        void cancel() {
+            if (!result.isDone() && task != null) {
+                sample(false);
+                task.cancel(true);
+            }
+        }
+    }
+}
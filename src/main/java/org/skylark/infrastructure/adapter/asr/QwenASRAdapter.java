@@ -1,24 +1,25 @@
 package org.skylark.infrastructure.adapter.asr;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.skylark.common.util.AudioUtils;
 import org.skylark.infrastructure.adapter.ASR;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import javax.sound.sampled.AudioFormat;
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.SequenceInputStream;
 import java.time.Duration;
-import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -35,10 +36,13 @@ import java.util.Map;
  *   <li><b>appKey</b> (optional): Tongyi ASR application key (default: "default")</li>
  *   <li><b>model</b> (optional): ASR model name (default: "paraformer-realtime-v2")</li>
  *   <li><b>serviceUrl</b> (optional): ASR service URL (default: DashScope endpoint)</li>
- *   <li><b>outputFile</b> (optional): base path for temp audio files</li>
  *   <li><b>timeout</b> (optional): request timeout in seconds (default: 30)</li>
  * </ul></p>
  *
+ * <p>The WAV audio is Base64-encoded straight into the JSON request body from the caller's
+ * PCM bytes; nothing is written to disk and no intermediate WAV or Base64 string is built.
+ * The former {@code outputFile} option is ignored.</p>
+ *
  * <p>Phase 2 component ([B1] in the full-duplex upgrade roadmap).
  * Provides 4x lower latency than Vosk (50ms vs 200ms) and superior
  * Chinese dialect coverage.</p>
@@ -63,13 +67,13 @@ public class QwenASRAdapter implements ASR {
     private static final String DEFAULT_SERVICE_URL =
             "https://dashscope.aliyuncs.com/api/v1/services/audio/asr/transcription";
     private static final String DEFAULT_MODEL = "paraformer-realtime-v2";
-    private static final String DEFAULT_OUTPUT_BASE = "tmp/asr";
     private static final int DEFAULT_TIMEOUT_SECONDS = 30;
+    /** Room for the JSON around the audio, so the body buffer rarely grows */
+    private static final int REQUEST_JSON_OVERHEAD = 256;
 
     private final String apiKey;
     private final String model;
     private final String serviceUrl;
-    private final String outputFile;
     private final int timeout;
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
@@ -89,7 +93,6 @@ public class QwenASRAdapter implements ASR {
         this.apiKey = config.get("apiKey").toString();
         this.model = config.getOrDefault("model", DEFAULT_MODEL).toString();
         this.serviceUrl = config.getOrDefault("serviceUrl", DEFAULT_SERVICE_URL).toString();
-        this.outputFile = config.getOrDefault("outputFile", DEFAULT_OUTPUT_BASE).toString();
         this.timeout = config.containsKey("timeout")
                 ? Integer.parseInt(config.get("timeout").toString())
                 : DEFAULT_TIMEOUT_SECONDS;
@@ -109,8 +112,8 @@ public class QwenASRAdapter implements ASR {
     /**
      * Recognizes speech using Tongyi Paraformer ASR.
      *
-     * <p>Converts raw PCM audio to WAV, encodes as base64, and sends to
-     * Tongyi Paraformer for transcription. Returns the recognized text.</p>
+     * <p>Sends the audio as a base64 WAV in a JSON request to Tongyi Paraformer for
+     * transcription. Returns the recognized text.</p>
      *
      * @param audioData Raw PCM audio bytes (16kHz, 16-bit, mono)
      * @return Recognized text, or empty string if no speech detected
@@ -125,12 +128,8 @@ public class QwenASRAdapter implements ASR {
 
         logger.debug("QwenASR: recognizing {} bytes of audio", audioData.length);
 
-        File tempFile = null;
         try {
-            tempFile = createTemporaryAudioFile(audioData);
-            String audioBase64 = Base64.getEncoder().encodeToString(Files.readAllBytes(tempFile.toPath()));
-
-            Map<String, Object> requestBody = buildRequestBody(audioBase64);
+            DataBuffer requestBody = buildRequestBody(audioData);
             String responseJson = sendRecognitionRequest(requestBody);
             String text = parseResponse(responseJson);
 
@@ -140,51 +139,53 @@ public class QwenASRAdapter implements ASR {
         } catch (Exception e) {
             logger.error("QwenASR: recognition failed", e);
             throw new Exception("Tongyi Qwen ASR recognition failed: " + e.getMessage(), e);
-        } finally {
-            cleanupTempFile(tempFile);
         }
     }
 
-    private File createTemporaryAudioFile(byte[] audioData) throws IOException {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String filename = outputFile + "_qwen_" + timestamp + ".wav";
-        Path filePath = Paths.get(filename);
-
-        Path parentDir = filePath.getParent();
-        if (parentDir != null && !Files.exists(parentDir)) {
-            Files.createDirectories(parentDir);
-        }
-
-        AudioUtils.saveAsWav(audioData, filename, audioFormat);
-
-        File file = filePath.toFile();
-        if (!file.exists() || file.length() == 0) {
-            throw new IOException("Failed to create temporary WAV file for Qwen ASR");
+    /**
+     * Writes the request JSON into one buffer sized for the Base64 audio up front.
+     *
+     * <p>Jackson Base64-encodes the WAV header and the PCM bytes as it reads them,
+     * so the audio is copied exactly once, as Base64 text, into the body.</p>
+     */
+    DataBuffer buildRequestBody(byte[] audioData) throws IOException {
+        byte[] wavHeader = AudioUtils.createWavHeader(audioData.length, audioFormat);
+        int wavLength = wavHeader.length + audioData.length;
+        DataBuffer body = DefaultDataBufferFactory.sharedInstance
+                .allocateBuffer(4 * ((wavLength + 2) / 3) + REQUEST_JSON_OVERHEAD);
+        boolean written = false;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(body.asOutputStream())) {
+            json.writeStartObject();
+            json.writeStringField("model", model);
+            json.writeObjectFieldStart("input");
+            json.writeFieldName("audio");
+            json.writeBinary(new SequenceInputStream(
+                    new ByteArrayInputStream(wavHeader), new ByteArrayInputStream(audioData)), wavLength);
+            json.writeStringField("format", "wav");
+            json.writeEndObject();
+            json.writeObjectFieldStart("parameters");
+            json.writeStringField("model", model);
+            json.writeArrayFieldStart("language_hints");
+            json.writeString("zh");
+            json.writeString("en");
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndObject();
+            written = true;
+        } finally {
+            if (!written) {
+                DataBufferUtils.release(body);
+            }
         }
-        return file;
-    }
-
-    private Map<String, Object> buildRequestBody(String audioBase64) {
-        Map<String, Object> input = new HashMap<>();
-        input.put("audio", audioBase64);
-        input.put("format", "wav");
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("model", model);
-        parameters.put("language_hints", new String[]{"zh", "en"});
-
-        Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
-        body.put("input", input);
-        body.put("parameters", parameters);
         return body;
     }
 
-    private String sendRecognitionRequest(Map<String, Object> requestBody) throws Exception {
+    private String sendRecognitionRequest(DataBuffer requestBody) throws Exception {
         try {
             Mono<String> responseMono = webClient.post()
                     .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
+                    .contentLength(requestBody.readableByteCount())
+                    .body(BodyInserters.fromDataBuffers(Mono.just(requestBody)))
                     .retrieve()
                     .bodyToMono(String.class)
                     .timeout(Duration.ofSeconds(timeout));
@@ -235,18 +236,6 @@ public class QwenASRAdapter implements ASR {
         }
     }
 
-    private void cleanupTempFile(File file) {
-        if (file != null && file.exists()) {
-            try {
-                if (!file.delete()) {
-                    logger.warn("QwenASR: failed to delete temp file: {}", file.getAbsolutePath());
-                }
-            } catch (Exception e) {
-                logger.error("QwenASR: error deleting temp file", e);
-            }
-        }
-    }
-
     public String getModel() {
         return model;
     }
@@ -1,5 +1,7 @@
 package org.skylark.infrastructure.adapter.webrtc;
 
+import org.skylark.common.audio.AudioFrame;
+
 /**
  * Agora Client Adapter Interface
  * 声网客户端适配器接口
@@ -51,6 +53,18 @@ public interface AgoraClientAdapter {
      */
     void sendAudioFrame(String channelName, byte[] pcmData, int sampleRate, int channels);
 
+    /**
+     * Sends one paced PCM frame with a caller-supplied monotonic timestamp
+     * 发送一帧带单调时间戳的 PCM 音频（节拍发送）
+     *
+     * @param channelName Channel name
+     * @param pcmData     PCM audio frame (10/20 ms)
+     * @param sampleRate  Sample rate
+     * @param channels    Number of channels
+     * @param timestampMs Monotonic stream timestamp in milliseconds
+     */
+    void sendAudioFrame(String channelName, byte[] pcmData, int sampleRate, int channels, long timestampMs);
+
     /**
      * Registers audio frame callback for received remote audio (VAD/ASR pipeline entry)
      * 注册音频帧接收回调（VAD/ASR Pipeline 入口）
@@ -78,6 +92,10 @@ public interface AgoraClientAdapter {
 
     /**
      * Functional interface for audio frame callback
+     *
+     * <p>Frames are leased from a pool and released by the adapter when the callback
+     * returns. Implementations that hand the frame to another thread must call
+     * {@link AudioFrame#retain()} and release it once consumed.</p>
      */
     @FunctionalInterface
     interface AudioFrameCallback {
@@ -86,11 +104,8 @@ public interface AgoraClientAdapter {
          *
          * @param channelName Source channel name
          * @param userId      Remote user UID
-         * @param pcmData     PCM raw audio data
-         * @param sampleRate  Sample rate
-         * @param channels    Number of channels
+         * @param frame       Pooled PCM frame (carries sample rate and channel count)
          */
-        void onAudioFrame(String channelName, String userId,
-                          byte[] pcmData, int sampleRate, int channels);
+        void onAudioFrame(String channelName, String userId, AudioFrame frame);
     }
 }
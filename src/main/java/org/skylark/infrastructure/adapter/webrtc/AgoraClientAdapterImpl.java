@@ -7,7 +7,6 @@ import io.agora.rtc.AgoraMediaNodeFactory;
 import io.agora.rtc.AgoraRtcConn;
 import io.agora.rtc.AgoraService;
 import io.agora.rtc.AgoraServiceConfig;
-import io.agora.rtc.AudioFrame;
 import io.agora.rtc.DefaultAudioFrameObserver;
 import io.agora.rtc.DefaultLocalUserObserver;
 import io.agora.rtc.DefaultRtcConnObserver;
@@ -19,6 +18,8 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.common.audio.AudioFramePool;
 import org.skylark.common.util.AgoraTokenBuilder;
 import org.skylark.infrastructure.config.WebRTCProperties;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,9 +42,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p><b>Audio pipeline integration:</b></p>
  * <ul>
  *   <li><b>Receiving audio:</b> When a remote user sends audio, the SDK fires
- *       {@code IAudioFrameObserver.onPlaybackAudioFrameBeforeMixing()}, which extracts
- *       the PCM data and forwards it to the registered {@link AudioFrameCallback}
- *       (typically wired to {@code OrchestrationService.processAudioStream}).</li>
+ *       {@code IAudioFrameObserver.onPlaybackAudioFrameBeforeMixing()}, which copies
+ *       the PCM data into a pooled {@link AudioFrame} and forwards it to the registered
+ *       {@link AudioFrameCallback} (typically wired to {@code OrchestrationService.processAudioStream}).
+ *       The frame is released back to the pool when the callback returns.</li>
  *   <li><b>Sending audio:</b> TTS output PCM data is pushed to the channel via
  *       {@link #sendAudioFrame}, which uses {@code AgoraAudioPcmDataSender.send()}.</li>
  * </ul>
@@ -71,6 +73,8 @@ public class AgoraClientAdapterImpl implements AgoraClientAdapter {
     private final ConcurrentHashMap<String, AudioFrameCallback> callbacks = new ConcurrentHashMap<>();
     /** Per-channel SDK resources for active connections */
     private final ConcurrentHashMap<String, ChannelContext> channelContexts = new ConcurrentHashMap<>();
+    /** Reusable PCM slabs for received audio frames */
+    private final AudioFramePool framePool;
 
     /** Singleton AgoraService instance (null if native SDK not initialized) */
     private volatile AgoraService agoraService;
@@ -82,6 +86,9 @@ public class AgoraClientAdapterImpl implements AgoraClientAdapter {
     @Autowired
     public AgoraClientAdapterImpl(WebRTCProperties webRTCProperties) {
         this.webRTCProperties = webRTCProperties;
+        WebRTCProperties.AudioPool poolConfig = webRTCProperties.getAudioPool();
+        this.framePool = new AudioFramePool(
+            poolConfig.getSlabBytes(), poolConfig.getMaxPooled(), poolConfig.isDirect());
     }
 
     /**
@@ -249,15 +256,19 @@ public class AgoraClientAdapterImpl implements AgoraClientAdapter {
             localUser.registerAudioFrameObserver(new DefaultAudioFrameObserver() {
                 @Override
                 public int onPlaybackAudioFrameBeforeMixing(AgoraLocalUser user, String channelId,
-                        String remoteUserId, AudioFrame frame, VadProcessResult vadResult) {
+                        String remoteUserId, io.agora.rtc.AudioFrame frame, VadProcessResult vadResult) {
                     AudioFrameCallback cb = callbacks.get(channelName);
                     if (cb != null) {
                         ByteBuffer buffer = frame.getBuffer();
                         if (buffer != null) {
-                            byte[] pcmData = new byte[buffer.remaining()];
-                            buffer.get(pcmData);
-                            cb.onAudioFrame(channelName, remoteUserId, pcmData,
+                            // Copy into a pooled slab: the SDK buffer is only valid during this call
+                            AudioFrame pcmFrame = framePool.copyOf(buffer,
                                 frame.getSamplesPerSec(), frame.getChannels());
+                            try {
+                                cb.onAudioFrame(channelName, remoteUserId, pcmFrame);
+                            } finally {
+                                pcmFrame.release();
+                            }
                         }
                     }
                     return 1; // return 1 to indicate the frame is consumed
@@ -340,6 +351,15 @@ public class AgoraClientAdapterImpl implements AgoraClientAdapter {
 
     @Override
     public void sendAudioFrame(String channelName, byte[] pcmData, int sampleRate, int channels) {
+        // Unpaced callers get a wall-clock timestamp; AudioDownlinkPacer passes its own
+        // frame timestamps through the overload below, which keeps the lower 31 bits
+        // because the SDK send() API takes an int.
+        sendAudioFrame(channelName, pcmData, sampleRate, channels, System.currentTimeMillis());
+    }
+
+    @Override
+    public void sendAudioFrame(String channelName, byte[] pcmData, int sampleRate, int channels,
+                               long timestampMs) {
         if (!sdkAvailable) {
             return;
         }
@@ -352,9 +372,7 @@ public class AgoraClientAdapterImpl implements AgoraClientAdapter {
 
         try {
             int samplesPerChannel = pcmData.length / (channels * BYTES_PER_SAMPLE);
-            // The SDK send() API takes an int timestamp. We use a monotonic relative
-            // timestamp (lower 31 bits of currentTimeMillis) to avoid overflow issues.
-            int timestamp = (int) (System.currentTimeMillis() & 0x7FFFFFFF);
+            int timestamp = (int) (timestampMs & 0x7FFFFFFF);
             ctx.pcmSender.send(pcmData, timestamp, samplesPerChannel,
                 BYTES_PER_SAMPLE, channels, sampleRate);
         } catch (Exception e) {
@@ -396,6 +414,16 @@ public class AgoraClientAdapterImpl implements AgoraClientAdapter {
         return sdkAvailable;
     }
 
+    /**
+     * Gets the pool backing received audio frames (exposed for metrics).
+     * 获取接收音频帧缓冲池（用于监控指标）
+     *
+     * @return Audio frame pool
+     */
+    public AudioFramePool getFramePool() {
+        return framePool;
+    }
+
     /**
      * Cleans up Agora RTC Engine resources.
      * 清理声网 RTC 引擎资源
@@ -1,5 +1,7 @@
 package org.skylark.infrastructure.adapter.webrtc;
 
+import org.skylark.common.audio.AudioFrame;
+
 /**
  * AliRTC Client Adapter Interface
  * 阿里云 ARTC 客户端适配器接口
@@ -61,6 +63,18 @@ public interface AliRTCClientAdapter {
      */
     void pushAudioFrame(String channelId, byte[] pcmData, int sampleRate, int channels);
 
+    /**
+     * Pushes one paced PCM frame with a caller-supplied monotonic timestamp.
+     * 推送一帧带单调时间戳的 PCM 音频（节拍发送）
+     *
+     * @param channelId   Channel identifier
+     * @param pcmData     PCM audio frame (10/20 ms)
+     * @param sampleRate  Sample rate
+     * @param channels    Number of channels
+     * @param timestampMs Monotonic stream timestamp in milliseconds
+     */
+    void pushAudioFrame(String channelId, byte[] pcmData, int sampleRate, int channels, long timestampMs);
+
     /**
      * Registers a callback for remote audio data received from the channel (VAD/ASR pipeline entry).
      * 注册远端音频数据回调（VAD/ASR Pipeline 入口）
@@ -89,19 +103,20 @@ public interface AliRTCClientAdapter {
     /**
      * Functional interface for receiving audio data from a remote user.
      * 接收远端用户音频数据的函数式接口
+     *
+     * <p>Frames are leased from a pool and released by the adapter when the callback
+     * returns. Implementations that hand the frame to another thread must call
+     * {@link AudioFrame#retain()} and release it once consumed.</p>
      */
     @FunctionalInterface
     interface AudioDataCallback {
         /**
          * Called when audio data is received from a remote user.
          *
-         * @param channelId  Source channel identifier
-         * @param userId     Remote user identifier
-         * @param pcmData    Raw PCM audio data
-         * @param sampleRate Sample rate of the audio
-         * @param channels   Number of audio channels
+         * @param channelId Source channel identifier
+         * @param userId    Remote user identifier
+         * @param frame     Pooled PCM frame (carries sample rate and channel count)
          */
-        void onAudioData(String channelId, String userId,
-                         byte[] pcmData, int sampleRate, int channels);
+        void onAudioData(String channelId, String userId, AudioFrame frame);
     }
 }
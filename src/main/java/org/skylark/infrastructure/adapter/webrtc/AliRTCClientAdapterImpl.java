@@ -4,6 +4,8 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.common.audio.AudioFramePool;
 import org.skylark.infrastructure.config.WebRTCProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -37,8 +39,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p><b>Audio pipeline integration:</b></p>
  * <ul>
  *   <li><b>Receiving audio:</b> The AliRTC SDK fires the {@code AliRtcAudioObserver.onRemoteAudioData}
- *       callback which is forwarded to the registered {@link AliRTCClientAdapter.AudioDataCallback}
- *       (typically wired to {@code OrchestrationService.processAudioStream}).</li>
+ *       callback; the PCM data is copied into a pooled {@link AudioFrame} and forwarded to the
+ *       registered {@link AliRTCClientAdapter.AudioDataCallback} (typically wired to
+ *       {@code OrchestrationService.processAudioStream}), then released when the callback returns.</li>
  *   <li><b>Sending audio:</b> TTS output PCM data is pushed to the channel via
  *       {@link #pushAudioFrame}, which calls {@code AliRtcEngine.pushExternalAudioFrame}.</li>
  * </ul>
@@ -73,6 +76,8 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
 
     private final WebRTCProperties webRTCProperties;
     private final ConcurrentHashMap<String, AudioDataCallback> callbacks = new ConcurrentHashMap<>();
+    /** Reusable PCM slabs for received audio frames (the SDK reuses its own arrays) */
+    private final AudioFramePool framePool;
 
     /**
      * The engine handle — kept as Object so the class compiles even when the
@@ -85,6 +90,9 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
     @Autowired
     public AliRTCClientAdapterImpl(WebRTCProperties webRTCProperties) {
         this.webRTCProperties = webRTCProperties;
+        WebRTCProperties.AudioPool poolConfig = webRTCProperties.getAudioPool();
+        this.framePool = new AudioFramePool(
+            poolConfig.getSlabBytes(), poolConfig.getMaxPooled(), poolConfig.isDirect());
     }
 
     /**
@@ -161,6 +169,10 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
             Class<?> audioDataClass = Class.forName("com.aliyun.artc.AliRtcAudioData");
             java.lang.reflect.Method registerObserver = engineClass.getMethod(
                 "registerAudioObserver", observerClass);
+            // Resolve fields once instead of on every 10 ms frame
+            java.lang.reflect.Field dataField = audioDataClass.getField("data");
+            java.lang.reflect.Field sampleRateField = audioDataClass.getField("sampleRate");
+            java.lang.reflect.Field channelsField = audioDataClass.getField("channels");
 
             Object observer = java.lang.reflect.Proxy.newProxyInstance(
                 observerClass.getClassLoader(),
@@ -168,14 +180,11 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
                 (proxy, method, args) -> {
                     if ("onRemoteAudioData".equals(method.getName())) {
                         String channelId = (String) args[0];
-                        String userId = (String) args[1];
-                        Object audioData = args[2];
-                        byte[] data = (byte[]) audioDataClass.getField("data").get(audioData);
-                        int sr = (int) audioDataClass.getField("sampleRate").get(audioData);
-                        int ch = (int) audioDataClass.getField("channels").get(audioData);
                         AudioDataCallback cb = callbacks.get(channelId);
                         if (cb != null) {
-                            cb.onAudioData(channelId, userId, data, sr, ch);
+                            dispatchAudioData(cb, channelId, (String) args[1],
+                                (byte[]) dataField.get(args[2]),
+                                sampleRateField.getInt(args[2]), channelsField.getInt(args[2]));
                         }
                         return true;
                     }
@@ -206,6 +215,33 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
         }
     }
 
+    /**
+     * Copies SDK-owned PCM into a pooled frame, invokes the callback and releases the frame.
+     * 将 SDK 持有的 PCM 数据拷贝到池化帧，回调后释放
+     */
+    void dispatchAudioData(AudioDataCallback cb, String channelId, String userId,
+                           byte[] data, int sampleRate, int channels) {
+        if (data == null || data.length == 0) {
+            return;
+        }
+        AudioFrame frame = framePool.copyOf(data, 0, data.length, sampleRate, channels);
+        try {
+            cb.onAudioData(channelId, userId, frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Gets the pool backing received audio frames (exposed for metrics).
+     * 获取接收音频帧缓冲池（用于监控指标）
+     *
+     * @return Audio frame pool
+     */
+    public AudioFramePool getFramePool() {
+        return framePool;
+    }
+
     @Override
     public String generateAuthInfo(String channelId, String userId) {
         WebRTCProperties.AliRtc config = webRTCProperties.getAlirtc();
@@ -277,6 +313,12 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
 
     @Override
     public void pushAudioFrame(String channelId, byte[] pcmData, int sampleRate, int channels) {
+        pushAudioFrame(channelId, pcmData, sampleRate, channels, System.currentTimeMillis());
+    }
+
+    @Override
+    public void pushAudioFrame(String channelId, byte[] pcmData, int sampleRate, int channels,
+                               long timestampMs) {
         if (!sdkAvailable || engine == null || pcmData == null || pcmData.length == 0) {
             return;
         }
@@ -291,7 +333,7 @@ public class AliRTCClientAdapterImpl implements AliRTCClientAdapter {
 
             java.lang.reflect.Method pushMethod = engineClass.getMethod(
                 "pushExternalAudioFrame", audioDataClass, long.class);
-            pushMethod.invoke(engine, frame, System.currentTimeMillis());
+            pushMethod.invoke(engine, frame, timestampMs);
         } catch (ClassNotFoundException e) {
             // SDK not available — silent no-op
         } catch (Exception e) {
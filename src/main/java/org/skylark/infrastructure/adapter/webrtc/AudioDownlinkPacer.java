@@ -0,0 +1,404 @@
+package org.skylark.infrastructure.adapter.webrtc;
+
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.util.AudioUtils;
+import org.skylark.infrastructure.config.WebRTCProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Audio Downlink Pacer
+ * 下行音频实时节拍发送器
+ *
+ * <p>Feeds synthesized audio to RTC SDKs at real-time rate instead of pushing a whole
+ * utterance in one call. A single timer thread serves all sessions: on each tick every
+ * open stream sends the fixed-size PCM frames (10 or 20 ms) that are due, keeping at
+ * most {@code leadFrames} frames ahead of the wall clock so the SDK's internal buffer
+ * stays small.</p>
+ *
+ * <ul>
+ *   <li>WAV input is unwrapped: the container header is skipped and the sample rate and
+ *       channel count are taken from the {@code fmt } chunk.</li>
+ *   <li>When an output format is configured, audio in any other rate or channel layout
+ *       (e.g. 22.05 kHz TTS) is converted to it before queueing.</li>
+ *   <li>Timestamps are monotonic per stream: sample-accurate while audio is flowing and
+ *       jumping forward to the elapsed time after a gap, never backwards.</li>
+ *   <li>{@link #flush(String)} drops everything not yet sent, so a barge-in takes effect
+ *       within one frame.</li>
+ * </ul>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class AudioDownlinkPacer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioDownlinkPacer.class);
+
+    /**
+     * Receives paced frames on the pacer thread
+     */
+    @FunctionalInterface
+    public interface FrameSink {
+        /**
+         * @param pcm         One frame of PCM16 (freshly allocated, owned by the sink)
+         * @param timestampMs Monotonic stream timestamp in milliseconds
+         * @param sampleRate  Sample rate in Hz
+         * @param channels    Number of channels
+         */
+        void sendFrame(byte[] pcm, long timestampMs, int sampleRate, int channels);
+    }
+
+    private final int frameMs;
+    private final int leadFrames;
+    /** Format pushed to the SDK, or null to pass audio through unchanged */
+    private final AudioStreamFormat outputFormat;
+    private final ScheduledExecutorService timer;
+    private final ConcurrentHashMap<String, Stream> streams = new ConcurrentHashMap<>();
+    private final long epochNanos = System.nanoTime();
+
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong flushedBytes = new AtomicLong();
+
+    /**
+     * Creates a pacer with default settings.
+     */
+    public AudioDownlinkPacer() {
+        this(new WebRTCProperties.Downlink());
+    }
+
+    /**
+     * Creates a pacer from {@code webrtc.downlink.*} configuration.
+     *
+     * @param config Downlink configuration
+     */
+    public AudioDownlinkPacer(WebRTCProperties.Downlink config) {
+        this(config.getFrameMs(), config.getLeadFrames(), config.getSampleRate(), config.getChannels());
+    }
+
+    /**
+     * Creates a pacer that passes audio through in its own format.
+     *
+     * @param frameMs    Frame duration in milliseconds (10 or 20)
+     * @param leadFrames Frames allowed ahead of real time (at least 1)
+     */
+    public AudioDownlinkPacer(int frameMs, int leadFrames) {
+        this(frameMs, leadFrames, 0, 0);
+    }
+
+    /**
+     * Creates a pacer.
+     * 创建节拍发送器
+     *
+     * @param frameMs    Frame duration in milliseconds (10 or 20)
+     * @param leadFrames Frames allowed ahead of real time (at least 1)
+     * @param sampleRate Output sample rate in Hz, or 0 to pass audio through
+     * @param channels   Output channel count (used when {@code sampleRate} is set)
+     */
+    public AudioDownlinkPacer(int frameMs, int leadFrames, int sampleRate, int channels) {
+        if (frameMs != 10 && frameMs != 20) {
+            throw new IllegalArgumentException("frameMs must be 10 or 20: " + frameMs);
+        }
+        if (leadFrames < 1) {
+            throw new IllegalArgumentException("leadFrames must be at least 1: " + leadFrames);
+        }
+        if (sampleRate < 0 || (sampleRate > 0 && channels <= 0)) {
+            throw new IllegalArgumentException(
+                "Invalid output format: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.frameMs = frameMs;
+        this.leadFrames = leadFrames;
+        this.outputFormat = sampleRate > 0
+            ? new AudioStreamFormat(AudioStreamFormat.Encoding.PCM_S16LE, sampleRate, channels)
+            : null;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audio-downlink-pacer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::tick, frameMs, frameMs, TimeUnit.MILLISECONDS);
+        logger.info("AudioDownlinkPacer initialized: frameMs={}, leadFrames={}, output={}",
+            frameMs, leadFrames, outputFormat != null ? outputFormat : "pass-through");
+    }
+
+    /**
+     * Opens a paced stream for a session. Replaces (and flushes) any existing stream.
+     * 为会话打开下行流
+     *
+     * @param sessionId Session identifier
+     * @param sink      Frame consumer (e.g. RTC SDK push)
+     */
+    public void open(String sessionId, FrameSink sink) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            throw new IllegalArgumentException("Session ID cannot be null or empty");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("Frame sink cannot be null");
+        }
+        Stream previous = streams.put(sessionId, new Stream(sink));
+        if (previous != null) {
+            previous.flush();
+        }
+    }
+
+    /**
+     * Queues audio for paced delivery. The bytes are copied, so the caller may reuse the buffer.
+     * 将音频排队等待按节拍发送（会拷贝数据）
+     *
+     * @param sessionId Session identifier
+     * @param audio     Audio payload (remaining bytes; position is not changed)
+     * @param format    Payload format (WAV payloads are unwrapped; other rates are converted
+     *                  to the configured output format)
+     * @return true if queued, false if the session is not open or the payload is empty
+     */
+    public boolean enqueue(String sessionId, ByteBuffer audio, AudioStreamFormat format) {
+        Stream stream = streams.get(sessionId);
+        if (stream == null) {
+            return false;
+        }
+        ByteBuffer pcm = audio;
+        int sampleRate = format.getSampleRate();
+        int channels = format.getChannels();
+        if (format.getEncoding() == AudioStreamFormat.Encoding.WAV) {
+            AudioStreamFormat wavFormat = AudioUtils.wavPcmFormat(audio);
+            ByteBuffer data = AudioUtils.wavPcmData(audio);
+            if (data != null) {
+                pcm = data;
+            } else {
+                logger.warn("Downlink audio for session {} is not a valid WAV, sending as raw PCM", sessionId);
+            }
+            if (wavFormat != null) {
+                sampleRate = wavFormat.getSampleRate();
+                channels = wavFormat.getChannels();
+            }
+        }
+        if (!pcm.hasRemaining()) {
+            return false;
+        }
+        byte[] copy;
+        if (outputFormat != null
+                && (sampleRate != outputFormat.getSampleRate() || channels != outputFormat.getChannels())) {
+            // The converted buffer is freshly allocated, so it can be queued without another copy
+            ByteBuffer converted = AudioUtils.convertPcm16(pcm,
+                new AudioStreamFormat(AudioStreamFormat.Encoding.PCM_S16LE, sampleRate, channels),
+                outputFormat.getSampleRate(), outputFormat.getChannels());
+            copy = AudioUtils.toByteArray(converted);
+            sampleRate = outputFormat.getSampleRate();
+            channels = outputFormat.getChannels();
+        } else {
+            copy = new byte[pcm.remaining()];
+            pcm.duplicate().get(copy);
+        }
+        stream.enqueue(new Chunk(copy, sampleRate, channels));
+        return true;
+    }
+
+    /**
+     * Drops all audio not yet sent for a session (barge-in).
+     * 丢弃会话所有未发送的音频（打断）
+     *
+     * @param sessionId Session identifier
+     */
+    public void flush(String sessionId) {
+        Stream stream = streams.get(sessionId);
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Closes a session stream, discarding unsent audio.
+     * 关闭会话下行流
+     *
+     * @param sessionId Session identifier
+     */
+    public void close(String sessionId) {
+        Stream stream = streams.remove(sessionId);
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Stops the timer thread and discards all streams.
+     * 停止定时线程并丢弃所有流
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        streams.values().forEach(Stream::flush);
+        streams.clear();
+    }
+
+    private void tick() {
+        long nowNanos = System.nanoTime();
+        for (Stream stream : streams.values()) {
+            try {
+                stream.sendDue(nowNanos);
+            } catch (Exception e) {
+                logger.error("Error sending paced downlink audio", e);
+            }
+        }
+    }
+
+    private long elapsedMs(long nowNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nowNanos - epochNanos);
+    }
+
+    /** Milliseconds of audio queued but not yet sent for a session (0 if not open) */
+    public long getQueuedMs(String sessionId) {
+        Stream stream = streams.get(sessionId);
+        return stream != null ? stream.queuedMs() : 0;
+    }
+
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    public int getFrameMs() {
+        return frameMs;
+    }
+
+    public int getLeadFrames() {
+        return leadFrames;
+    }
+
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    /** Bytes discarded by {@link #flush(String)} or {@link #close(String)} */
+    public long getFlushedBytes() {
+        return flushedBytes.get();
+    }
+
+    /**
+     * One PCM payload with its format
+     */
+    private static final class Chunk {
+        final byte[] data;
+        final int sampleRate;
+        final int channels;
+        int position;
+
+        Chunk(byte[] data, int sampleRate, int channels) {
+            this.data = data;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+        }
+
+        boolean sameFormat(Chunk other) {
+            return sampleRate == other.sampleRate && channels == other.channels;
+        }
+
+        int remaining() {
+            return data.length - position;
+        }
+    }
+
+    /**
+     * Per-session queue and pacing clock. Producers enqueue from any thread;
+     * only the timer thread sends.
+     */
+    private final class Stream {
+        private final FrameSink sink;
+        private final ArrayDeque<Chunk> queue = new ArrayDeque<>();
+        /** Bytes queued, for metrics */
+        private long queuedBytes;
+        /** Wall-clock time the next frame is due; 0 when idle */
+        private long nextDueNanos;
+        private long nextTimestampMs;
+
+        Stream(FrameSink sink) {
+            this.sink = sink;
+        }
+
+        synchronized void enqueue(Chunk chunk) {
+            queue.addLast(chunk);
+            queuedBytes += chunk.data.length;
+        }
+
+        synchronized void flush() {
+            flushedBytes.addAndGet(queuedBytes);
+            queue.clear();
+            queuedBytes = 0;
+            nextDueNanos = 0;
+        }
+
+        synchronized long queuedMs() {
+            Chunk head = queue.peekFirst();
+            if (head == null) {
+                return 0;
+            }
+            long bytesPerMs = (long) head.sampleRate * head.channels * AudioFrame.BYTES_PER_SAMPLE / 1000;
+            return bytesPerMs > 0 ? queuedBytes / bytesPerMs : 0;
+        }
+
+        void sendDue(long nowNanos) {
+            long frameNanos = TimeUnit.MILLISECONDS.toNanos(frameMs);
+            while (true) {
+                byte[] frame;
+                int sampleRate;
+                int channels;
+                long timestampMs;
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        nextDueNanos = 0;
+                        return;
+                    }
+                    if (nextDueNanos == 0) {
+                        // Stream (re)starts now; timestamps never go backwards
+                        nextDueNanos = nowNanos;
+                        nextTimestampMs = Math.max(nextTimestampMs, elapsedMs(nowNanos));
+                    }
+                    if (nextDueNanos > nowNanos + (leadFrames - 1) * frameNanos) {
+                        return;
+                    }
+                    Chunk head = queue.peekFirst();
+                    sampleRate = head.sampleRate;
+                    channels = head.channels;
+                    frame = nextFrame(head);
+                    timestampMs = nextTimestampMs;
+                    nextTimestampMs += frameMs;
+                    nextDueNanos += frameNanos;
+                }
+                // Send outside the lock so flush() from a producer never waits on the SDK
+                sink.sendFrame(frame, timestampMs, sampleRate, channels);
+                framesSent.incrementAndGet();
+            }
+        }
+
+        /**
+         * Cuts one frame from the queue head; a frame never spans a format change,
+         * and a short final frame is padded with silence.
+         */
+        private byte[] nextFrame(Chunk head) {
+            // Whole samples only: at e.g. 22.05 kHz a 10 ms frame is not a whole number of them
+            int frameBytes = head.sampleRate * frameMs / 1000 * head.channels * AudioFrame.BYTES_PER_SAMPLE;
+            byte[] frame = new byte[frameBytes];
+            int filled = 0;
+            while (filled < frameBytes) {
+                Chunk chunk = queue.peekFirst();
+                if (chunk == null || !chunk.sameFormat(head)) {
+                    break;
+                }
+                int n = Math.min(frameBytes - filled, chunk.remaining());
+                System.arraycopy(chunk.data, chunk.position, frame, filled, n);
+                chunk.position += n;
+                filled += n;
+                queuedBytes -= n;
+                if (chunk.remaining() == 0) {
+                    queue.pollFirst();
+                }
+            }
+            return frame;
+        }
+    }
+}
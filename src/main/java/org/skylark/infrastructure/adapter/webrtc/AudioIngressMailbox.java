@@ -0,0 +1,402 @@
+package org.skylark.infrastructure.adapter.webrtc;
+
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.infrastructure.config.WebRTCProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Audio Ingress Mailbox
+ * 音频接收邮箱（RTC 回调线程与处理管道解耦）
+ *
+ * <p>Per-session single-writer mailboxes between RTC SDK callback threads and the
+ * orchestration pipeline. {@link #offer} retains the frame, enqueues it into the session's
+ * bounded queue and returns immediately; a worker drains each queue in order, one task per
+ * session at a time, so a slow handler only delays that session's own frames.</p>
+ *
+ * <p>Handlers must return quickly: {@code OrchestrationService} only runs VAD and buffering
+ * per frame and hands the multi-second ASR/LLM/TTS turn to its own threads. The queue then
+ * only absorbs scheduling jitter, and the default capacity (50 frames, 500 ms) overflows
+ * only if the handler stalls, e.g. on a saturated CPU.</p>
+ *
+ * <p>When a queue is full the {@link OverflowPolicy} decides what happens:</p>
+ * <ul>
+ *   <li>{@link OverflowPolicy#DROP_OLDEST_SILENCE}: evict the oldest queued silent frame
+ *       (peak amplitude below the silence threshold), or the oldest frame if none is silent.
+ *       The SDK thread never waits.</li>
+ *   <li>{@link OverflowPolicy#BLOCK}: wait up to the block timeout for space, then drop the
+ *       incoming frame.</li>
+ * </ul>
+ *
+ * <p>Queue depth, high-water marks and drop counters are exposed for monitoring.</p>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public class AudioIngressMailbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioIngressMailbox.class);
+
+    /**
+     * Behaviour when a session queue is full
+     * 会话队列已满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /** Evict the oldest silent frame (or oldest frame) and accept the new one */
+        DROP_OLDEST_SILENCE,
+        /** Block the producer up to the configured timeout, then drop the new frame */
+        BLOCK;
+
+        /**
+         * Parses a policy name such as {@code drop-oldest-silence} or {@code BLOCK}.
+         *
+         * @param name Policy name
+         * @return Parsed policy
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static OverflowPolicy fromString(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                throw new IllegalArgumentException("Overflow policy cannot be null or empty");
+            }
+            return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Consumer invoked on the mailbox worker for each frame, in arrival order
+     */
+    @FunctionalInterface
+    public interface FrameHandler {
+        void onFrame(AudioFrame frame) throws Exception;
+    }
+
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final int silenceThreshold;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong droppedSilence = new AtomicLong();
+    private final AtomicLong droppedSpeech = new AtomicLong();
+    private final AtomicLong blockedOffers = new AtomicLong();
+
+    /**
+     * Creates a mailbox executor with default settings.
+     */
+    public AudioIngressMailbox() {
+        this(new WebRTCProperties.Ingress());
+    }
+
+    /**
+     * Creates a mailbox executor from {@code webrtc.ingress.*} configuration.
+     *
+     * @param config Ingress configuration
+     */
+    public AudioIngressMailbox(WebRTCProperties.Ingress config) {
+        this(config.getQueueCapacity(), OverflowPolicy.fromString(config.getOverflowPolicy()),
+            config.getBlockTimeoutMs(), config.getSilenceThreshold());
+    }
+
+    /**
+     * Creates a mailbox executor.
+     * 创建邮箱执行器
+     *
+     * @param queueCapacity    Maximum queued frames per session
+     * @param overflowPolicy   Behaviour when a queue is full
+     * @param blockTimeoutMs   Maximum producer wait under {@link OverflowPolicy#BLOCK}
+     * @param silenceThreshold Peak PCM16 amplitude at or below which a frame counts as silence
+     */
+    public AudioIngressMailbox(int queueCapacity, OverflowPolicy overflowPolicy,
+                               long blockTimeoutMs, int silenceThreshold) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy cannot be null");
+        }
+        if (blockTimeoutMs < 0) {
+            throw new IllegalArgumentException("blockTimeoutMs cannot be negative: " + blockTimeoutMs);
+        }
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.silenceThreshold = silenceThreshold;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "audio-mailbox-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("AudioIngressMailbox initialized: capacity={}, policy={}, blockTimeoutMs={}",
+            queueCapacity, overflowPolicy, blockTimeoutMs);
+    }
+
+    /**
+     * Opens a mailbox for a session. Replaces (and closes) any existing mailbox.
+     * 为会话打开邮箱
+     *
+     * @param sessionId Session identifier
+     * @param handler   Frame consumer run on the mailbox worker
+     */
+    public void open(String sessionId, FrameHandler handler) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            throw new IllegalArgumentException("Session ID cannot be null or empty");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("Frame handler cannot be null");
+        }
+        Mailbox previous = mailboxes.put(sessionId, new Mailbox(sessionId, handler));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Enqueues a frame for a session without waiting for it to be processed.
+     * 将音频帧投递到会话邮箱（不等待处理）
+     *
+     * <p>The frame is retained while queued and released after the handler runs or
+     * when it is dropped, so the caller may release its own reference on return.</p>
+     *
+     * @param sessionId Session identifier
+     * @param frame     PCM frame
+     * @return true if the frame was queued, false if dropped or the session is not open
+     */
+    public boolean offer(String sessionId, AudioFrame frame) {
+        Mailbox mailbox = mailboxes.get(sessionId);
+        if (mailbox == null) {
+            return false;
+        }
+        return mailbox.offer(frame);
+    }
+
+    /**
+     * Closes a session mailbox and releases any queued frames.
+     * 关闭会话邮箱并释放排队中的音频帧
+     *
+     * @param sessionId Session identifier
+     */
+    public void close(String sessionId) {
+        Mailbox mailbox = mailboxes.remove(sessionId);
+        if (mailbox != null) {
+            mailbox.close();
+        }
+    }
+
+    /**
+     * Closes all mailboxes and stops the worker threads.
+     * 关闭所有邮箱并停止工作线程
+     */
+    public void shutdown() {
+        for (String sessionId : mailboxes.keySet()) {
+            close(sessionId);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean isSilent(AudioFrame frame) {
+        ByteBuffer pcm = frame.data();
+        for (int i = pcm.position(); i + 1 < pcm.limit(); i += AudioFrame.BYTES_PER_SAMPLE) {
+            if (Math.abs(pcm.getShort(i)) > silenceThreshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Current queued frames for a session (0 if not open) */
+    public int getQueueDepth(String sessionId) {
+        Mailbox mailbox = mailboxes.get(sessionId);
+        return mailbox != null ? mailbox.queue.size() : 0;
+    }
+
+    /** Highest queue depth observed for a session (0 if not open) */
+    public int getHighWaterMark(String sessionId) {
+        Mailbox mailbox = mailboxes.get(sessionId);
+        return mailbox != null ? mailbox.highWaterMark.get() : 0;
+    }
+
+    /** Queued frames across all sessions */
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            total += mailbox.queue.size();
+        }
+        return total;
+    }
+
+    public int getSessionCount() {
+        return mailboxes.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /** Silent frames evicted under {@link OverflowPolicy#DROP_OLDEST_SILENCE} */
+    public long getDroppedSilenceCount() {
+        return droppedSilence.get();
+    }
+
+    /** Non-silent frames dropped (evicted, or rejected after a block timeout) */
+    public long getDroppedSpeechCount() {
+        return droppedSpeech.get();
+    }
+
+    /** Offers that had to wait under {@link OverflowPolicy#BLOCK} */
+    public long getBlockedOfferCount() {
+        return blockedOffers.get();
+    }
+
+    /**
+     * Single-session queue drained by at most one worker at a time.
+     */
+    private final class Mailbox implements Runnable {
+        private final String sessionId;
+        private final FrameHandler handler;
+        private final ArrayBlockingQueue<AudioFrame> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicInteger highWaterMark = new AtomicInteger();
+        private volatile boolean closed;
+
+        Mailbox(String sessionId, FrameHandler handler) {
+            this.sessionId = sessionId;
+            this.handler = handler;
+        }
+
+        boolean offer(AudioFrame frame) {
+            if (closed) {
+                return false;
+            }
+            frame.retain();
+            boolean accepted = queue.offer(frame) || offerOnOverflow(frame);
+            if (!accepted) {
+                frame.release();
+                return false;
+            }
+            if (closed && queue.remove(frame)) {
+                // Raced with close(): make sure the frame is not stranded
+                frame.release();
+                return false;
+            }
+            enqueued.incrementAndGet();
+            highWaterMark.accumulateAndGet(queue.size(), Math::max);
+            schedule();
+            return true;
+        }
+
+        private boolean offerOnOverflow(AudioFrame frame) {
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                blockedOffers.incrementAndGet();
+                try {
+                    if (queue.offer(frame, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                droppedSpeech.incrementAndGet();
+                logger.debug("Mailbox full for session {}, dropped incoming frame after {} ms",
+                    sessionId, blockTimeoutMs);
+                return false;
+            }
+
+            AudioFrame victim = null;
+            for (AudioFrame queued : queue) {
+                if (isSilent(queued)) {
+                    victim = queued;
+                    break;
+                }
+            }
+            if (victim != null && queue.remove(victim)) {
+                droppedSilence.incrementAndGet();
+                victim.release();
+            } else {
+                victim = queue.poll();
+                if (victim != null) {
+                    droppedSpeech.incrementAndGet();
+                    victim.release();
+                }
+            }
+            return queue.offer(frame);
+        }
+
+        private void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    logger.warn("Mailbox worker rejected for session {}: {}", sessionId, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                AudioFrame frame;
+                while (!closed && (frame = queue.poll()) != null) {
+                    try {
+                        handler.onFrame(frame);
+                        processed.incrementAndGet();
+                    } catch (Exception e) {
+                        logger.error("Error processing audio frame for session: {}", sessionId, e);
+                    } finally {
+                        frame.release();
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // A producer may have enqueued after the last poll but before the flag cleared
+                if (!closed && !queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        void close() {
+            closed = true;
+            AudioFrame frame;
+            while ((frame = queue.poll()) != null) {
+                frame.release();
+            }
+        }
+    }
+}
@@ -4,9 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.skylark.application.service.ASRService;
 import org.skylark.application.service.VADService;
+import org.skylark.common.audio.PcmRingBuffer;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Base64;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
@@ -27,17 +27,32 @@ public class AudioProcessor {
     private final ASRService asrService;
     private final String sessionId;
     
-    private final ByteArrayOutputStream audioBuffer;
+    private final PcmRingBuffer audioBuffer;
     private volatile boolean isSpeaking;
     
     /**
-     * Creates a new audio processor
+     * Creates a new audio processor with default utterance limits
      * 
      * @param vadService VAD service for voice activity detection
      * @param asrService ASR service for speech recognition
      * @param sessionId Session identifier
      */
     public AudioProcessor(VADService vadService, ASRService asrService, String sessionId) {
+        this(vadService, asrService, sessionId,
+            PcmRingBuffer.DEFAULT_MAX_UTTERANCE_MS, PcmRingBuffer.DEFAULT_PRE_ROLL_MS);
+    }
+    
+    /**
+     * Creates a new audio processor
+     * 
+     * @param vadService VAD service for voice activity detection
+     * @param asrService ASR service for speech recognition
+     * @param sessionId Session identifier
+     * @param maxUtteranceMs Maximum utterance length before forced recognition
+     * @param preRollMs Audio kept from before the VAD "start" decision
+     */
+    public AudioProcessor(VADService vadService, ASRService asrService, String sessionId,
+                          int maxUtteranceMs, int preRollMs) {
         if (vadService == null) {
             throw new IllegalArgumentException("VAD service cannot be null");
         }
@@ -51,7 +66,7 @@ public class AudioProcessor {
         this.vadService = vadService;
         this.asrService = asrService;
         this.sessionId = sessionId;
-        this.audioBuffer = new ByteArrayOutputStream();
+        this.audioBuffer = PcmRingBuffer.forDuration(16000, 1, maxUtteranceMs, preRollMs);
         this.isSpeaking = false;
     }
     
@@ -68,19 +83,18 @@ public class AudioProcessor {
         }
         
         try {
-            // Convert audio data to base64 for VAD service
-            String audioBase64 = Base64.getEncoder().encodeToString(audioData);
-            
-            // Perform VAD detection
-            Map<String, Object> vadResult = vadService.detect(audioBase64, sessionId);
+            // Perform VAD detection directly on the PCM frame
+            Map<String, Object> vadResult = vadService.detect(ByteBuffer.wrap(audioData), sessionId);
             String detectionStatus = (String) vadResult.get("status");
             
             if (detectionStatus != null) {
                 handleVADStatus(detectionStatus, audioData);
             } else {
-                // No status change, continue accumulating if speaking
-                if (isSpeaking) {
-                    audioBuffer.write(audioData);
+                // No status change: accumulate while speaking, otherwise keep as pre-roll
+                audioBuffer.write(audioData, 0, audioData.length);
+                if (audioBuffer.isFull()) {
+                    logger.warn("Utterance limit reached for session: {}, recognizing early", sessionId);
+                    finishUtterance();
                 }
             }
             
@@ -104,30 +118,38 @@ public class AudioProcessor {
             if ("start".equals(status)) {
                 logger.info("Speech started for session: {}", sessionId);
                 isSpeaking = true;
-                audioBuffer.reset();
-                audioBuffer.write(audioData);
+                // Pre-roll captured before the start decision becomes the utterance head
+                audioBuffer.startUtterance();
+                audioBuffer.write(audioData, 0, audioData.length);
                 
             } else if ("end".equals(status)) {
                 logger.info("Speech ended for session: {}", sessionId);
-                isSpeaking = false;
                 
                 // Add the last chunk
-                audioBuffer.write(audioData);
-                
-                // Trigger ASR recognition on accumulated audio
-                byte[] completeAudio = audioBuffer.toByteArray();
-                if (completeAudio.length > 0) {
-                    recognizeSpeech(completeAudio);
-                }
-                
-                // Reset buffer
-                audioBuffer.reset();
+                audioBuffer.write(audioData, 0, audioData.length);
+                finishUtterance();
             }
         } catch (Exception e) {
             logger.error("Error handling VAD status for session: {}", sessionId, e);
         }
     }
     
+    /**
+     * Recognizes the captured utterance in place and returns to pre-roll mode
+     */
+    private void finishUtterance() {
+        isSpeaking = false;
+        try {
+            // Trigger ASR recognition on accumulated audio (zero-copy view)
+            if (audioBuffer.length() > 0) {
+                recognizeSpeech(audioBuffer.utterance());
+            }
+        } finally {
+            // Reset buffer
+            audioBuffer.reset();
+        }
+    }
+    
     /**
      * Performs speech recognition on accumulated audio
      * 对累积的音频执行语音识别
@@ -140,21 +162,23 @@ public class AudioProcessor {
             logger.warn("No audio data to recognize for session: {}", sessionId);
             return null;
         }
-        
+        return recognizeSpeech(ByteBuffer.wrap(audioData));
+    }
+    
+    private String recognizeSpeech(ByteBuffer audioData) {
         try {
             logger.debug("Starting ASR recognition for session: {} with {} bytes", 
-                sessionId, audioData.length);
+                sessionId, audioData.remaining());
             
-            Map<String, String> asrResult = asrService.recognize(audioData);
+            Map<String, String> asrResult = asrService.recognize(audioData, sessionId);
             String recognizedText = asrResult.get("text");
             
             if (recognizedText != null && !recognizedText.trim().isEmpty()) {
                 logger.info("ASR result for session {}: {}", sessionId, recognizedText);
                 return recognizedText;
-            } else {
-                logger.debug("No text recognized for session: {}", sessionId);
-                return null;
             }
+            logger.debug("No text recognized for session: {}", sessionId);
+            return null;
             
         } catch (Exception e) {
             logger.error("Error performing ASR for session: {}", sessionId, e);
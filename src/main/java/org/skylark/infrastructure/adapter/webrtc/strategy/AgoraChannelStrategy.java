@@ -5,10 +5,12 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.skylark.application.service.OrchestrationService;
+import org.skylark.common.audio.AudioStreamFormat;
 import org.skylark.infrastructure.adapter.webrtc.AgoraClientAdapter;
+import org.skylark.infrastructure.adapter.webrtc.AudioDownlinkPacer;
+import org.skylark.infrastructure.adapter.webrtc.AudioIngressMailbox;
 
-import java.util.Base64;
-import java.util.Map;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -22,9 +24,11 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * <p>Integrates with {@link OrchestrationService} for the
  * VAD → ASR → LLM → TTS audio processing pipeline.
- * When audio frames are received from the remote user, they are forwarded
- * through the orchestration pipeline. TTS output is sent back via
- * {@link AgoraClientAdapter#sendAudioFrame}.</p>
+ * When audio frames are received from the remote user, they are queued to a
+ * per-session {@link AudioIngressMailbox} and forwarded through the orchestration
+ * pipeline off the SDK callback thread. TTS output is sliced into real-time frames
+ * by the shared {@link AudioDownlinkPacer} and sent back via
+ * {@link AgoraClientAdapter#sendAudioFrame}; a barge-in flushes unsent audio.</p>
  * 
  * @author Skylark Team
  * @version 1.1.0
@@ -35,18 +39,27 @@ public class AgoraChannelStrategy implements WebRTCChannelStrategy {
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    private static final int DEFAULT_SAMPLE_RATE = 16000;
-    private static final int DEFAULT_CHANNELS = 1;
-    private static final String TTS_AUDIO_TYPE = "tts_audio";
+    private static final String BARGE_IN_TYPE = "barge_in";
 
     private final AgoraClientAdapter agoraClient;
     private final OrchestrationService orchestrationService;
+    private final AudioIngressMailbox ingressMailbox;
+    private final AudioDownlinkPacer downlinkPacer;
     private final ConcurrentHashMap<String, AgoraSessionInfo> sessions = new ConcurrentHashMap<>();
 
     public AgoraChannelStrategy(AgoraClientAdapter agoraClient,
                                  OrchestrationService orchestrationService) {
+        this(agoraClient, orchestrationService, new AudioIngressMailbox(), new AudioDownlinkPacer());
+    }
+
+    public AgoraChannelStrategy(AgoraClientAdapter agoraClient,
+                                 OrchestrationService orchestrationService,
+                                 AudioIngressMailbox ingressMailbox,
+                                 AudioDownlinkPacer downlinkPacer) {
         this.agoraClient = agoraClient;
         this.orchestrationService = orchestrationService;
+        this.ingressMailbox = ingressMailbox;
+        this.downlinkPacer = downlinkPacer;
     }
 
     @Override
@@ -68,22 +81,30 @@ public class AgoraChannelStrategy implements WebRTCChannelStrategy {
             agoraClient.joinChannel(channelName, "skylark-server-bot");
 
             // 2. Register audio frame callback: remote PCM → OrchestrationService pipeline
-            //    TTS output from pipeline → sendAudioFrame back to the remote user
-            OrchestrationService.ResponseCallback responseCallback = (sid, type, data) -> {
-                if (TTS_AUDIO_TYPE.equals(type) && data instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    String audioBase64 = (String) ((Map<String, Object>) data).get("audio");
-                    if (audioBase64 != null) {
-                        byte[] ttsAudio = Base64.getDecoder().decode(audioBase64);
-                        agoraClient.sendAudioFrame(channelName, ttsAudio,
-                            DEFAULT_SAMPLE_RATE, DEFAULT_CHANNELS);
+            //    TTS output from pipeline → paced sendAudioFrame back to the remote user
+            OrchestrationService.ResponseCallback responseCallback = new OrchestrationService.ResponseCallback() {
+                @Override
+                public void send(String sid, String type, Object data) {
+                    if (BARGE_IN_TYPE.equals(type)) {
+                        downlinkPacer.flush(sessionId);
+                        return;
                     }
+                    // Text events (ASR/LLM results) have no RTC downlink
+                    logger.debug("[Agora] Dropping non-audio event '{}' for session: {}", type, sid);
+                }
+
+                @Override
+                public void sendAudio(String sid, ByteBuffer audio, AudioStreamFormat format) {
+                    downlinkPacer.enqueue(sessionId, audio, format);
                 }
             };
+            downlinkPacer.open(sessionId, (pcm, timestampMs, sampleRate, channels) ->
+                agoraClient.sendAudioFrame(channelName, pcm, sampleRate, channels, timestampMs));
+            //    Frames are queued to the session mailbox so the SDK thread returns immediately
+            ingressMailbox.open(sessionId,
+                frame -> orchestrationService.processAudioStream(sessionId, frame, responseCallback));
             agoraClient.registerAudioFrameCallback(channelName,
-                (ch, uid, pcmData, sr, ch2) -> {
-                    orchestrationService.processAudioStream(sessionId, pcmData, responseCallback);
-                });
+                (ch, uid, frame) -> ingressMailbox.offer(sessionId, frame));
 
             // 3. Generate client connection token
             String clientToken = agoraClient.generateToken(channelName, userId, 3600);
@@ -133,6 +154,8 @@ public class AgoraChannelStrategy implements WebRTCChannelStrategy {
             AgoraSessionInfo session = sessions.remove(sessionId);
             if (session != null) {
                 agoraClient.leaveChannel(session.getChannelName());
+                ingressMailbox.close(sessionId);
+                downlinkPacer.close(sessionId);
                 orchestrationService.cleanupSession(sessionId);
                 logger.info("[Agora] Session closed: {}", sessionId);
             }
@@ -5,10 +5,12 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.skylark.application.service.OrchestrationService;
+import org.skylark.common.audio.AudioStreamFormat;
 import org.skylark.infrastructure.adapter.webrtc.AliRTCClientAdapter;
+import org.skylark.infrastructure.adapter.webrtc.AudioDownlinkPacer;
+import org.skylark.infrastructure.adapter.webrtc.AudioIngressMailbox;
 
-import java.util.Base64;
-import java.util.Map;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -31,9 +33,11 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * <p>Integrates with {@link OrchestrationService} for the
  * VAD → ASR → LLM → TTS audio processing pipeline.
- * When audio frames are received from the remote user, they are forwarded
- * through the orchestration pipeline. TTS output is sent back via
- * {@link AliRTCClientAdapter#pushAudioFrame}.</p>
+ * When audio frames are received from the remote user, they are queued to a
+ * per-session {@link AudioIngressMailbox} and forwarded through the orchestration
+ * pipeline off the SDK callback thread. TTS output is sliced into real-time frames
+ * by the shared {@link AudioDownlinkPacer} and pushed back via
+ * {@link AliRTCClientAdapter#pushAudioFrame}; a barge-in flushes unsent audio.</p>
  *
  * <p>Example application.yaml usage:
  * <pre>
@@ -55,13 +59,13 @@ public class AliRTCChannelStrategy implements WebRTCChannelStrategy {
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    private static final int DEFAULT_SAMPLE_RATE = 16000;
-    private static final int DEFAULT_CHANNELS = 1;
     private static final String SERVER_BOT_ID = "skylark-server-bot";
-    private static final String TTS_AUDIO_TYPE = "tts_audio";
+    private static final String BARGE_IN_TYPE = "barge_in";
 
     private final AliRTCClientAdapter aliRTCClient;
     private final OrchestrationService orchestrationService;
+    private final AudioIngressMailbox ingressMailbox;
+    private final AudioDownlinkPacer downlinkPacer;
     private final ConcurrentHashMap<String, AliRTCSessionInfo> sessions = new ConcurrentHashMap<>();
 
     /**
@@ -73,8 +77,25 @@ public class AliRTCChannelStrategy implements WebRTCChannelStrategy {
      */
     public AliRTCChannelStrategy(AliRTCClientAdapter aliRTCClient,
                                   OrchestrationService orchestrationService) {
+        this(aliRTCClient, orchestrationService, new AudioIngressMailbox(), new AudioDownlinkPacer());
+    }
+
+    /**
+     * Creates an AliRTCChannelStrategy with explicit ingress and downlink schedulers.
+     *
+     * @param aliRTCClient         AliRTC client adapter
+     * @param orchestrationService VAD/ASR/LLM/TTS orchestration service
+     * @param ingressMailbox       Per-session queue between SDK callbacks and the pipeline
+     * @param downlinkPacer        Shared real-time pacer for TTS audio pushed to the SDK
+     */
+    public AliRTCChannelStrategy(AliRTCClientAdapter aliRTCClient,
+                                  OrchestrationService orchestrationService,
+                                  AudioIngressMailbox ingressMailbox,
+                                  AudioDownlinkPacer downlinkPacer) {
         this.aliRTCClient = aliRTCClient;
         this.orchestrationService = orchestrationService;
+        this.ingressMailbox = ingressMailbox;
+        this.downlinkPacer = downlinkPacer;
         logger.info("[AliRTC] AliRTCChannelStrategy initialized");
     }
 
@@ -107,21 +128,30 @@ public class AliRTCChannelStrategy implements WebRTCChannelStrategy {
             aliRTCClient.joinChannel(channelId, SERVER_BOT_ID, serverAuthInfo);
 
             // 2. Register audio data callback: remote PCM → OrchestrationService pipeline
-            //    TTS output from pipeline → pushAudioFrame back to the remote user
-            OrchestrationService.ResponseCallback responseCallback = (sid, type, data) -> {
-                if (TTS_AUDIO_TYPE.equals(type) && data instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    String audioBase64 = (String) ((Map<String, Object>) data).get("audio");
-                    if (audioBase64 != null) {
-                        byte[] ttsAudio = Base64.getDecoder().decode(audioBase64);
-                        aliRTCClient.pushAudioFrame(channelId, ttsAudio,
-                            DEFAULT_SAMPLE_RATE, DEFAULT_CHANNELS);
+            //    TTS output from pipeline → paced pushAudioFrame back to the remote user
+            OrchestrationService.ResponseCallback responseCallback = new OrchestrationService.ResponseCallback() {
+                @Override
+                public void send(String sid, String type, Object data) {
+                    if (BARGE_IN_TYPE.equals(type)) {
+                        downlinkPacer.flush(sessionId);
+                        return;
                     }
+                    // Text events (ASR/LLM results) have no RTC downlink
+                    logger.debug("[AliRTC] Dropping non-audio event '{}' for session: {}", type, sid);
+                }
+
+                @Override
+                public void sendAudio(String sid, ByteBuffer audio, AudioStreamFormat format) {
+                    downlinkPacer.enqueue(sessionId, audio, format);
                 }
             };
+            downlinkPacer.open(sessionId, (pcm, timestampMs, sampleRate, channels) ->
+                aliRTCClient.pushAudioFrame(channelId, pcm, sampleRate, channels, timestampMs));
+            //    Frames are queued to the session mailbox so the SDK thread returns immediately
+            ingressMailbox.open(sessionId,
+                frame -> orchestrationService.processAudioStream(sessionId, frame, responseCallback));
             aliRTCClient.registerAudioDataCallback(channelId,
-                (ch, uid, pcmData, sr, ch2) ->
-                    orchestrationService.processAudioStream(sessionId, pcmData, responseCallback));
+                (ch, uid, frame) -> ingressMailbox.offer(sessionId, frame));
 
             // 3. Generate client authInfo
             String clientAuthInfo = aliRTCClient.generateAuthInfo(channelId, userId);
@@ -185,6 +215,8 @@ public class AliRTCChannelStrategy implements WebRTCChannelStrategy {
             AliRTCSessionInfo session = sessions.remove(sessionId);
             if (session != null) {
                 aliRTCClient.leaveChannel(session.getChannelId());
+                ingressMailbox.close(sessionId);
+                downlinkPacer.close(sessionId);
                 orchestrationService.cleanupSession(sessionId);
                 logger.info("[AliRTC] Session closed: sessionId={}, channelId={}",
                     sessionId, session.getChannelId());
@@ -32,6 +32,9 @@ public class WebRTCProperties {
     private final AliRtc alirtc = new AliRtc();
     private final Stun stun = new Stun();
     private final Turn turn = new Turn();
+    private final AudioPool audioPool = new AudioPool();
+    private final Ingress ingress = new Ingress();
+    private final Downlink downlink = new Downlink();
 
     public String getStrategy() {
         return strategy;
@@ -65,6 +68,18 @@ public class WebRTCProperties {
         return turn;
     }
 
+    public AudioPool getAudioPool() {
+        return audioPool;
+    }
+
+    public Ingress getIngress() {
+        return ingress;
+    }
+
+    public Downlink getDownlink() {
+        return downlink;
+    }
+
     /**
      * Kurento configuration
      * Kurento 配置
@@ -272,4 +287,80 @@ public class WebRTCProperties {
         public int getTokenTtlSeconds() { return tokenTtlSeconds; }
         public void setTokenTtlSeconds(int tokenTtlSeconds) { this.tokenTtlSeconds = tokenTtlSeconds; }
     }
+
+    /**
+     * RTC ingress audio frame pool configuration
+     * RTC 接收音频帧缓冲池配置
+     */
+    public static class AudioPool {
+        /** Slab size in bytes; default holds 20 ms of 48 kHz stereo PCM16 */
+        private int slabBytes = 3840;
+        /** Maximum idle slabs kept per adapter */
+        private int maxPooled = 1024;
+        /** Allocate slabs off-heap (direct buffers) */
+        private boolean direct = false;
+
+        public int getSlabBytes() { return slabBytes; }
+        public void setSlabBytes(int slabBytes) { this.slabBytes = slabBytes; }
+
+        public int getMaxPooled() { return maxPooled; }
+        public void setMaxPooled(int maxPooled) { this.maxPooled = maxPooled; }
+
+        public boolean isDirect() { return direct; }
+        public void setDirect(boolean direct) { this.direct = direct; }
+    }
+
+    /**
+     * RTC ingress mailbox configuration (SDK callback thread → pipeline)
+     * RTC 接收邮箱配置（SDK 回调线程 → 处理管道）
+     */
+    public static class Ingress {
+        /** Maximum queued frames per session (50 × 10 ms = 500 ms of audio) */
+        private int queueCapacity = 50;
+        /** Overflow policy: drop-oldest-silence or block */
+        private String overflowPolicy = "drop-oldest-silence";
+        /** Maximum SDK thread wait under the block policy */
+        private long blockTimeoutMs = 20;
+        /** Peak PCM16 amplitude at or below which a queued frame counts as silence */
+        private int silenceThreshold = 500;
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public String getOverflowPolicy() { return overflowPolicy; }
+        public void setOverflowPolicy(String overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+
+        public long getBlockTimeoutMs() { return blockTimeoutMs; }
+        public void setBlockTimeoutMs(long blockTimeoutMs) { this.blockTimeoutMs = blockTimeoutMs; }
+
+        public int getSilenceThreshold() { return silenceThreshold; }
+        public void setSilenceThreshold(int silenceThreshold) { this.silenceThreshold = silenceThreshold; }
+    }
+
+    /**
+     * RTC downlink pacing configuration (TTS audio → SDK)
+     * RTC 下行节拍发送配置（TTS 音频 → SDK）
+     */
+    public static class Downlink {
+        /** Frame duration pushed to the SDK per tick: 10 or 20 ms */
+        private int frameMs = 10;
+        /** Frames allowed ahead of real time (SDK-side buffering) */
+        private int leadFrames = 2;
+        /** PCM rate pushed to the SDK; TTS audio in other rates is resampled (0 = pass through) */
+        private int sampleRate = 16000;
+        /** Channel count pushed to the SDK */
+        private int channels = 1;
+
+        public int getFrameMs() { return frameMs; }
+        public void setFrameMs(int frameMs) { this.frameMs = frameMs; }
+
+        public int getLeadFrames() { return leadFrames; }
+        public void setLeadFrames(int leadFrames) { this.leadFrames = leadFrames; }
+
+        public int getSampleRate() { return sampleRate; }
+        public void setSampleRate(int sampleRate) { this.sampleRate = sampleRate; }
+
+        public int getChannels() { return channels; }
+        public void setChannels(int channels) { this.channels = channels; }
+    }
 }
@@ -5,6 +5,8 @@ import org.slf4j.LoggerFactory;
 import org.skylark.application.service.OrchestrationService;
 import org.skylark.infrastructure.adapter.webrtc.AgoraClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.AliRTCClientAdapter;
+import org.skylark.infrastructure.adapter.webrtc.AudioDownlinkPacer;
+import org.skylark.infrastructure.adapter.webrtc.AudioIngressMailbox;
 import org.skylark.infrastructure.adapter.webrtc.KurentoClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.LiveKitClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.strategy.AgoraChannelStrategy;
@@ -55,6 +57,28 @@ public class WebRTCStrategyConfig {
     @Autowired
     private OrchestrationService orchestrationService;
 
+    /**
+     * Creates the per-session ingress mailbox used by SDK-based strategies (Agora, AliRTC).
+     * 创建 SDK 类策略（声网、阿里云）使用的会话接收邮箱
+     *
+     * @return Ingress mailbox configured from {@code webrtc.ingress.*}
+     */
+    @Bean(destroyMethod = "shutdown")
+    public AudioIngressMailbox audioIngressMailbox() {
+        return new AudioIngressMailbox(webRTCProperties.getIngress());
+    }
+
+    /**
+     * Creates the shared downlink pacer used by SDK-based strategies (Agora, AliRTC).
+     * 创建 SDK 类策略（声网、阿里云）共享的下行节拍发送器
+     *
+     * @return Downlink pacer configured from {@code webrtc.downlink.*}
+     */
+    @Bean(destroyMethod = "shutdown")
+    public AudioDownlinkPacer audioDownlinkPacer() {
+        return new AudioDownlinkPacer(webRTCProperties.getDownlink());
+    }
+
     /**
      * Creates the active WebRTC channel strategy bean based on configuration.
      * 根据配置创建活动的 WebRTC 通道策略 Bean
@@ -78,11 +102,13 @@ public class WebRTCStrategyConfig {
                 logger.info("✅ LiveKit WebRTC strategy activated");
                 break;
             case "agora":
-                strategy = new AgoraChannelStrategy(agoraClientAdapter, orchestrationService);
+                strategy = new AgoraChannelStrategy(agoraClientAdapter, orchestrationService,
+                    audioIngressMailbox(), audioDownlinkPacer());
                 logger.info("✅ Agora WebRTC strategy activated");
                 break;
             case "alirtc":
-                strategy = new AliRTCChannelStrategy(aliRTCClientAdapter, orchestrationService);
+                strategy = new AliRTCChannelStrategy(aliRTCClientAdapter, orchestrationService,
+                    audioIngressMailbox(), audioDownlinkPacer());
                 logger.info("✅ Alibaba Cloud RTC WebRTC strategy activated");
                 break;
             case "websocket":
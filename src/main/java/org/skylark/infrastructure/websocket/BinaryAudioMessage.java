@@ -0,0 +1,99 @@
+package org.skylark.infrastructure.websocket;
+
+import org.skylark.common.audio.AudioStreamFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary Audio Message Codec
+ * 二进制音频消息编解码
+ *
+ * <p>Downlink audio is sent as a WebSocket binary message with a fixed 8-byte
+ * little-endian header followed by the raw payload (no Base64, no JSON):</p>
+ * <pre>
+ * offset size field
+ *      0    1 version      (1)
+ *      1    1 kind         (1 = tts_audio)
+ *      2    1 encoding     ({@link AudioStreamFormat.Encoding#code()})
+ *      3    1 channels
+ *      4    4 sampleRate   (uint32 LE)
+ *      8    n payload
+ * </pre>
+ *
+ * @author Skylark Team
+ * @version 1.0.0
+ */
+public final class BinaryAudioMessage {
+
+    /** Header length in bytes */
+    public static final int HEADER_BYTES = 8;
+    /** Protocol version */
+    public static final byte VERSION = 1;
+    /** Message kind: synthesized speech */
+    public static final byte KIND_TTS_AUDIO = 1;
+
+    private BinaryAudioMessage() {
+    }
+
+    /**
+     * Frames the remaining bytes of {@code audio} with a header. The source position is not changed.
+     * 为音频负载添加头部（不修改源缓冲区位置）
+     *
+     * @param audio  Audio payload
+     * @param format Payload format
+     * @return Buffer ready to send (position 0, limit = header + payload)
+     */
+    public static ByteBuffer encode(ByteBuffer audio, AudioStreamFormat format) {
+        if (format.getChannels() > 0xFF) {
+            throw new IllegalArgumentException("Too many channels for binary header: " + format.getChannels());
+        }
+        ByteBuffer message = ByteBuffer.allocate(HEADER_BYTES + audio.remaining())
+            .order(ByteOrder.LITTLE_ENDIAN);
+        message.put(VERSION)
+            .put(KIND_TTS_AUDIO)
+            .put((byte) format.getEncoding().code())
+            .put((byte) format.getChannels())
+            .putInt(format.getSampleRate())
+            .put(audio.duplicate());
+        message.flip();
+        return message;
+    }
+
+    /**
+     * Reads the format from a framed message.
+     * 从消息头读取音频格式
+     *
+     * @param message Framed message (position at the header)
+     * @return Payload format
+     * @throws IllegalArgumentException if the header is truncated or has an unknown version
+     */
+    public static AudioStreamFormat decodeFormat(ByteBuffer message) {
+        if (message.remaining() < HEADER_BYTES) {
+            throw new IllegalArgumentException("Binary audio message too short: " + message.remaining());
+        }
+        ByteBuffer header = message.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        byte version = header.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary audio message version: " + version);
+        }
+        header.get(); // kind
+        AudioStreamFormat.Encoding encoding = AudioStreamFormat.Encoding.fromCode(header.get() & 0xFF);
+        int channels = header.get() & 0xFF;
+        int sampleRate = header.getInt();
+        return new AudioStreamFormat(encoding, sampleRate, channels);
+    }
+
+    /**
+     * Returns a view over the payload of a framed message.
+     * 返回消息负载的视图
+     *
+     * @param message Framed message (position at the header)
+     * @return Payload view
+     */
+    public static ByteBuffer payload(ByteBuffer message) {
+        ByteBuffer view = message.duplicate();
+        view.position(view.position() + HEADER_BYTES);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -6,14 +6,22 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.skylark.application.service.OrchestrationService;
+import org.skylark.common.audio.AudioCodec;
+import org.skylark.common.audio.AudioCodecs;
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.util.AudioUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -24,6 +32,19 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>Handles WebRTC signaling messages (SDP offer/answer, ICE candidates) and
  * audio data streams for real-time voice communication.</p>
  * 
+ * <p>Text events are sent as JSON text messages; synthesized audio is sent as a
+ * binary message framed by {@link BinaryAudioMessage}.</p>
+ * 
+ * <p>Clients may ask for compressed audio when connecting, e.g.
+ * {@code /ws/webrtc?codecs=adpcm,pcm}. The first codec the server supports is
+ * announced in the {@code connected} message ({@code "codec"}, {@code "sampleRate"});
+ * uplink binary messages must then carry that codec's payload and downlink audio is
+ * encoded with it. Without the parameter audio stays raw 16 kHz PCM16.</p>
+ * 
+ * <p>The speech recognition model is chosen the same way, e.g.
+ * {@code /ws/webrtc?language=en&domain=medical} (the URL returned by
+ * {@code POST /api/webrtc/session/start}), and applied to this connection's session ID.</p>
+ * 
  * @author Skylark Team
  * @version 1.0.0
  */
@@ -31,11 +52,29 @@ import java.util.concurrent.ConcurrentHashMap;
 public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(WebRTCSignalingHandler.class);
+    /** Uplink PCM rate expected by the VAD/ASR pipeline */
+    private static final int PIPELINE_SAMPLE_RATE = 16000;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final OrchestrationService orchestrationService;
     
     // Store active sessions
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    // Negotiated codec per session; absent means raw PCM
+    private final Map<String, AudioCodec> codecs = new ConcurrentHashMap<>();
+    
+    // JSON for events, binary frames for audio
+    private final OrchestrationService.ResponseCallback responseCallback =
+        new OrchestrationService.ResponseCallback() {
+            @Override
+            public void send(String sessionId, String type, Object data) {
+                sendResponse(sessionId, type, data);
+            }
+
+            @Override
+            public void sendAudio(String sessionId, ByteBuffer audio, AudioStreamFormat format) {
+                sendBinaryAudio(sessionId, audio, format);
+            }
+        };
     
     public WebRTCSignalingHandler(OrchestrationService orchestrationService) {
         this.orchestrationService = orchestrationService;
@@ -45,12 +84,24 @@ public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String sessionId = session.getId();
         sessions.put(sessionId, session);
-        logger.info("WebRTC connection established: {}", sessionId);
+        AudioCodec codec = AudioCodecs.negotiate(offeredCodecs(session.getUri()), PIPELINE_SAMPLE_RATE);
+        if (codec != null) {
+            codecs.put(sessionId, codec);
+        }
+        String language = queryParam(session.getUri(), "language");
+        String domain = queryParam(session.getUri(), "domain");
+        if (language != null || domain != null) {
+            orchestrationService.selectAsrModel(sessionId, language, domain);
+        }
+        logger.info("WebRTC connection established: {}, codec: {}", sessionId,
+            codec != null ? codec.getName() : AudioCodecs.PCM);
         
         // Send connection confirmation
         ObjectNode response = objectMapper.createObjectNode();
         response.put("type", "connected");
         response.put("sessionId", sessionId);
+        response.put("codec", codec != null ? codec.getName() : AudioCodecs.PCM);
+        response.put("sampleRate", PIPELINE_SAMPLE_RATE);
         session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
     }
 
@@ -87,16 +138,18 @@ public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
 
     @Override
     protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
-        ByteBuffer buffer = message.getPayload();
-        byte[] audioData = new byte[buffer.remaining()];
-        buffer.get(audioData);
+        // Hand the payload buffer straight to the pipeline: no copy, no Base64
+        ByteBuffer audioFrame = message.getPayload();
         
-        logger.debug("Received audio data: {} bytes from session {}", audioData.length, session.getId());
+        logger.debug("Received audio data: {} bytes from session {}", audioFrame.remaining(), session.getId());
         
         // Process audio through VAD->ASR->LLM->TTS pipeline
         try {
-            orchestrationService.processAudioStream(session.getId(), audioData, 
-                (sessionId, type, data) -> sendResponse(sessionId, type, data));
+            AudioCodec codec = codecs.get(session.getId());
+            if (codec != null) {
+                audioFrame = codec.decode(audioFrame);
+            }
+            orchestrationService.processAudioStream(session.getId(), audioFrame, responseCallback);
         } catch (Exception e) {
             logger.error("Error processing audio stream", e);
             sendError(session, "Error processing audio: " + e.getMessage());
@@ -107,6 +160,7 @@ public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String sessionId = session.getId();
         sessions.remove(sessionId);
+        codecs.remove(sessionId);
         orchestrationService.cleanupSession(sessionId);
         logger.info("WebRTC connection closed: {} with status: {}", sessionId, status);
     }
@@ -115,8 +169,24 @@ public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         logger.error("WebSocket transport error for session: {}", session.getId(), exception);
         sessions.remove(session.getId());
+        codecs.remove(session.getId());
         orchestrationService.cleanupSession(session.getId());
     }
+    
+    /**
+     * Reads the client's codec preference list from the {@code codecs} query parameter
+     */
+    private static List<String> offeredCodecs(URI uri) {
+        String offered = queryParam(uri, "codecs");
+        return offered != null ? Arrays.asList(offered.split(",")) : null;
+    }
+    
+    private static String queryParam(URI uri, String name) {
+        if (uri == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(name);
+    }
 
     /**
      * Handle WebRTC offer from client
@@ -158,8 +228,7 @@ public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
             logger.info("Received text input from session {}: {}", session.getId(), text);
             
             // Process text through LLM->TTS pipeline (skip VAD/ASR)
-            orchestrationService.processTextInput(session.getId(), text, 
-                (sessionId, type, data) -> sendResponse(sessionId, type, data));
+            orchestrationService.processTextInput(session.getId(), text, responseCallback);
         }
     }
 
@@ -174,13 +243,56 @@ public class WebRTCSignalingHandler extends AbstractWebSocketHandler {
                 response.put("type", type);
                 response.set("data", objectMapper.valueToTree(data));
                 
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+                // WebSocketSession does not allow concurrent sends
+                synchronized (session) {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+                }
             } catch (Exception e) {
                 logger.error("Error sending response to session: {}", sessionId, e);
             }
         }
     }
 
+    /**
+     * Send synthesized audio to client as a binary message (header + raw or codec payload)
+     */
+    private void sendBinaryAudio(String sessionId, ByteBuffer audio, AudioStreamFormat format) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session != null && session.isOpen()) {
+            try {
+                AudioCodec codec = codecs.get(sessionId);
+                if (codec != null) {
+                    audio = encodeAudio(codec, audio, format);
+                    format = new AudioStreamFormat(codec.getEncoding(), codec.getSampleRate(), codec.getChannels());
+                }
+                BinaryMessage message = new BinaryMessage(BinaryAudioMessage.encode(audio, format));
+                synchronized (session) {
+                    session.sendMessage(message);
+                }
+            } catch (Exception e) {
+                logger.error("Error sending audio to session: {}", sessionId, e);
+            }
+        }
+    }
+
+    /**
+     * Unwraps WAV, converts to the codec's PCM format and encodes
+     */
+    private static ByteBuffer encodeAudio(AudioCodec codec, ByteBuffer audio, AudioStreamFormat format) {
+        ByteBuffer pcm = audio;
+        AudioStreamFormat pcmFormat = format;
+        if (format.getEncoding() == AudioStreamFormat.Encoding.WAV) {
+            ByteBuffer data = AudioUtils.wavPcmData(audio);
+            AudioStreamFormat wavFormat = AudioUtils.wavPcmFormat(audio);
+            if (data != null && wavFormat != null) {
+                pcm = data;
+                pcmFormat = wavFormat;
+            }
+        }
+        pcm = AudioUtils.convertPcm16(pcm, pcmFormat, codec.getSampleRate(), codec.getChannels());
+        return codec.encode(pcm);
+    }
+
     /**
      * Send error message to client
      */
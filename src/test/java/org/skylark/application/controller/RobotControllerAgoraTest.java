@@ -44,7 +44,7 @@ class RobotControllerAgoraTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
 
-        when(webRTCService.createSession("test-user-123"))
+        when(webRTCService.createSession("test-user-123", null, null))
             .thenReturn("session-agora-123");
         when(webRTCService.processOffer("session-agora-123", ""))
             .thenReturn("{\"token\":\"agora-test-token\",\"channelName\":\"skylark-123\","
@@ -63,7 +63,7 @@ class RobotControllerAgoraTest {
             .andExpect(jsonPath("$.status").value("created"))
             .andExpect(jsonPath("$.message").value("Agora WebRTC session created successfully"));
 
-        verify(webRTCService, times(1)).createSession("test-user-123");
+        verify(webRTCService, times(1)).createSession("test-user-123", null, null);
         verify(webRTCService, times(1)).processOffer("session-agora-123", "");
     }
 
@@ -73,7 +73,7 @@ class RobotControllerAgoraTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
 
-        when(webRTCService.createSession(anyString()))
+        when(webRTCService.createSession(anyString(), any(), any()))
             .thenThrow(new RuntimeException("Agora service error"));
 
         // Act & Assert
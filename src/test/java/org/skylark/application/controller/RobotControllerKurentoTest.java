@@ -46,7 +46,7 @@ class RobotControllerKurentoTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
         
-        when(webRTCService.createSession("test-user-123"))
+        when(webRTCService.createSession("test-user-123", null, null))
             .thenReturn("session-123");
         
         // Act & Assert
@@ -58,7 +58,7 @@ class RobotControllerKurentoTest {
             .andExpect(jsonPath("$.status").value("created"))
             .andExpect(jsonPath("$.message").value("Kurento WebRTC session created successfully"));
         
-        verify(webRTCService, times(1)).createSession("test-user-123");
+        verify(webRTCService, times(1)).createSession("test-user-123", null, null);
     }
     
     @Test
@@ -67,7 +67,7 @@ class RobotControllerKurentoTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
         
-        when(webRTCService.createSession(anyString()))
+        when(webRTCService.createSession(anyString(), any(), any()))
             .thenThrow(new RuntimeException("Service error"));
         
         // Act & Assert
@@ -44,7 +44,7 @@ class RobotControllerLiveKitTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
         
-        when(webRTCService.createSession("test-user-123"))
+        when(webRTCService.createSession("test-user-123", null, null))
             .thenReturn("session-lk-123");
         when(webRTCService.processOffer("session-lk-123", ""))
             .thenReturn("{\"token\":\"test-jwt-token\",\"url\":\"wss://livekit.example.com\"}");
@@ -60,7 +60,7 @@ class RobotControllerLiveKitTest {
             .andExpect(jsonPath("$.status").value("created"))
             .andExpect(jsonPath("$.message").value("LiveKit WebRTC session created successfully"));
         
-        verify(webRTCService, times(1)).createSession("test-user-123");
+        verify(webRTCService, times(1)).createSession("test-user-123", null, null);
         verify(webRTCService, times(1)).processOffer("session-lk-123", "");
     }
     
@@ -70,7 +70,7 @@ class RobotControllerLiveKitTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
         
-        when(webRTCService.createSession(anyString()))
+        when(webRTCService.createSession(anyString(), any(), any()))
             .thenThrow(new RuntimeException("LiveKit service error"));
         
         // Act & Assert
@@ -88,7 +88,7 @@ class RobotControllerLiveKitTest {
         CreateSessionRequest request = new CreateSessionRequest();
         request.setUserId("test-user-123");
         
-        when(webRTCService.createSession("test-user-123"))
+        when(webRTCService.createSession("test-user-123", null, null))
             .thenReturn("session-ws-123");
         when(webRTCService.processOffer("session-ws-123", ""))
             .thenReturn("non-json-response");
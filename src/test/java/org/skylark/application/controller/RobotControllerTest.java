@@ -14,6 +14,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -65,6 +66,23 @@ class RobotControllerTest {
         assertEquals("WebRTC session started successfully", body.getMessage());
     }
 
+    @Test
+    void testStartSession_WithLanguage_PassesModelChoiceInWebSocketUrl() {
+        // Arrange
+        SessionStartRequest request = new SessionStartRequest();
+        request.setClientId("test-client");
+        request.setLanguage("en");
+        request.setDomain("medical");
+
+        // Act
+        ResponseEntity<SessionStartResponse> response = controller.startSession(request);
+
+        // Assert - the model is selected once the socket's own session connects
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("/ws/webrtc?language=en&domain=medical", response.getBody().getWebsocketUrl());
+        verify(orchestrationService, never()).selectAsrModel(anyString(), any(), any());
+    }
+
     @Test
     void testStartSession_NullClientId() {
         // Arrange
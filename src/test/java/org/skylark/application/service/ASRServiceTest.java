@@ -0,0 +1,160 @@
+package org.skylark.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ASRService streaming sessions (no Vosk model, placeholder mode)
+ */
+class ASRServiceTest {
+
+    private ASRService asrService;
+
+    @BeforeEach
+    void setUp() {
+        asrService = new ASRService();
+    }
+
+    @Test
+    void testOpen_SameSession_ReturnsSameStream() {
+        // Act
+        ASRService.Stream first = asrService.open("session-1");
+        ASRService.Stream second = asrService.open("session-1");
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, asrService.open("session-2"));
+    }
+
+    @Test
+    void testOpen_BlankSession_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> asrService.open(" "));
+    }
+
+    @Test
+    void testStream_FinishEndsUtteranceAndKeepsStreamUsable() throws Exception {
+        // Arrange
+        ASRService.Stream stream = asrService.open("session-1");
+        ByteBuffer pcm = ByteBuffer.wrap(new byte[640]);
+
+        // Act
+        stream.accept(pcm);
+        long fed = stream.getUtteranceBytes();
+        Map<String, String> result = stream.finish();
+
+        // Assert
+        assertEquals(640, fed);
+        assertEquals(0, pcm.position());
+        assertFalse(result.get("text").isEmpty());
+        assertEquals("zh", result.get("language"));
+        assertEquals(0, stream.getUtteranceBytes());
+        assertEquals("", stream.finish().get("text"));
+    }
+
+    @Test
+    void testClose_NextOpenCreatesNewStream() {
+        // Arrange
+        ASRService.Stream stream = asrService.open("session-1");
+        stream.accept(ByteBuffer.wrap(new byte[32]));
+
+        // Act
+        asrService.close("session-1");
+
+        // Assert
+        ASRService.Stream reopened = asrService.open("session-1");
+        assertNotSame(stream, reopened);
+        assertEquals(0, reopened.getUtteranceBytes());
+    }
+
+    @Test
+    void testTranscript_JoinsResultsAndAveragesWordConfidence() throws Exception {
+        // Arrange
+        ObjectMapper mapper = new ObjectMapper();
+        ASRService.Transcript transcript = new ASRService.Transcript();
+
+        // Act
+        transcript.add(mapper.readTree(
+            "{\"text\":\"今天 天气\",\"result\":[{\"word\":\"今天\",\"conf\":1.0},{\"word\":\"天气\",\"conf\":0.6}]}"));
+        transcript.add(mapper.readTree("{\"text\":\"很好\",\"result\":[{\"word\":\"很好\",\"conf\":0.5}]}"));
+        Map<String, String> result = transcript.toResult("zh");
+
+        // Assert
+        assertEquals("今天 天气 很好", transcript.text());
+        assertEquals(0.7, transcript.confidence(), 1e-9);
+        assertEquals("今天 天气 很好", result.get("text"));
+        assertEquals(0.7, Double.parseDouble(result.get("confidence")), 1e-9);
+        assertFalse(ASRService.Transcript.of("x").toResult("zh").containsKey("confidence"));
+    }
+
+    @Test
+    void testNeedsRedecode_LowConfidenceOrToolCallingText() throws Exception {
+        // Arrange
+        ObjectMapper mapper = new ObjectMapper();
+        ReflectionTestUtils.setField(asrService, "cascadeThreshold", 0.8);
+        ASRService.Transcript confident = new ASRService.Transcript();
+        confident.add(mapper.readTree("{\"text\":\"你好\",\"result\":[{\"conf\":0.95}]}"));
+        ASRService.Transcript doubtful = new ASRService.Transcript();
+        doubtful.add(mapper.readTree("{\"text\":\"你好\",\"result\":[{\"conf\":0.4}]}"));
+        ASRService.Transcript toolCall = new ASRService.Transcript();
+        toolCall.add(mapper.readTree("{\"text\":\"帮 我 查询 天气\",\"result\":[{\"conf\":0.99}]}"));
+
+        // Act & Assert
+        assertFalse(asrService.needsRedecode(confident));
+        assertTrue(asrService.needsRedecode(doubtful));
+        assertTrue(asrService.needsRedecode(toolCall));
+        ReflectionTestUtils.setField(asrService, "cascadeOnToolCalls", false);
+        assertFalse(asrService.needsRedecode(toolCall));
+    }
+
+    @Test
+    void testGetDecodeMetrics_CascadeOffByDefault() {
+        // Act
+        Map<String, Object> metrics = asrService.getDecodeMetrics();
+
+        // Assert
+        assertEquals(false, metrics.get("cascadeEnabled"));
+        assertEquals(0L, metrics.get("redecodes"));
+        assertEquals(0.0, metrics.get("redecodeRate"));
+        assertEquals(false, metrics.get("largeModelLoaded"));
+    }
+
+    @Test
+    void testSelectModel_ResolvesLanguageAndDomainWithDefaultFallback() {
+        // Arrange
+        ReflectionTestUtils.setField(asrService, "registryModels", "en=/missing/en, zh-medical=/missing/zh-medical");
+
+        // Act & Assert
+        assertEquals("zh-medical", asrService.selectModel("session-1", "zh", "medical"));
+        assertEquals("en", asrService.selectModel("session-2", "en", "medical"));
+        assertEquals("zh", asrService.selectModel("session-3", "fr", null));
+        assertEquals("zh", asrService.selectModel("session-4", null, null));
+        assertEquals("zh", asrService.getLanguage("session-1"));
+        assertEquals("en", asrService.getLanguage("session-2"));
+        assertEquals("zh", asrService.getLanguage("session-3"));
+    }
+
+    @Test
+    void testStream_SelectedModelMissing_FallsBackToDefault() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(asrService, "registryModels", "en=/missing/en");
+        asrService.selectModel("session-1", "en", null);
+        ASRService.Stream stream = asrService.open("session-1");
+
+        // Act
+        stream.accept(ByteBuffer.wrap(new byte[640]));
+        Map<String, String> result = stream.finish();
+
+        // Assert - placeholder mode: the default model is not loaded either
+        assertFalse(result.get("text").isEmpty());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> models = (Map<String, Object>) asrService.getDecodeMetrics().get("models");
+        assertEquals(0, models.get("resident"));
+    }
+}
@@ -0,0 +1,70 @@
+package org.skylark.application.service;
+
+import ai.onnxruntime.OrtSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OnnxSessionFactory option parsing and model cache keys
+ * OnnxSessionFactory 单元测试
+ */
+class OnnxSessionFactoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseOptLevel_AcceptsNamesCaseInsensitively() {
+        assertEquals(OrtSession.SessionOptions.OptLevel.NO_OPT, OnnxSessionFactory.parseOptLevel("none"));
+        assertEquals(OrtSession.SessionOptions.OptLevel.EXTENDED_OPT, OnnxSessionFactory.parseOptLevel(" Extended "));
+        assertEquals(OrtSession.SessionOptions.OptLevel.ALL_OPT, OnnxSessionFactory.parseOptLevel(null));
+        assertThrows(IllegalArgumentException.class, () -> OnnxSessionFactory.parseOptLevel("max"));
+    }
+
+    @Test
+    void testParseExecutionMode_RejectsUnknownMode() {
+        assertEquals(OrtSession.SessionOptions.ExecutionMode.PARALLEL,
+            OnnxSessionFactory.parseExecutionMode("parallel"));
+        assertThrows(IllegalArgumentException.class, () -> OnnxSessionFactory.parseExecutionMode("async"));
+    }
+
+    @Test
+    void testCachedModelPath_KeyedByModelLevelAndRuntime() throws Exception {
+        // Arrange
+        Path model = Files.write(tempDir.resolve("silero_vad.onnx"), new byte[]{1, 2, 3});
+        String cacheDir = tempDir.resolve("cache").toString();
+        String runtime = OnnxSessionFactory.runtimeKey("1.16.3");
+
+        // Act
+        Path all = OnnxSessionFactory.cachedModelPath(model.toString(), cacheDir,
+            OrtSession.SessionOptions.OptLevel.ALL_OPT, runtime);
+        Path basic = OnnxSessionFactory.cachedModelPath(model.toString(), cacheDir,
+            OrtSession.SessionOptions.OptLevel.BASIC_OPT, runtime);
+        Path upgraded = OnnxSessionFactory.cachedModelPath(model.toString(), cacheDir,
+            OrtSession.SessionOptions.OptLevel.ALL_OPT, OnnxSessionFactory.runtimeKey("1.17.0"));
+        Path otherCpu = OnnxSessionFactory.cachedModelPath(model.toString(), cacheDir,
+            OrtSession.SessionOptions.OptLevel.ALL_OPT, "ort1.16.3-000000000000");
+
+        // Assert
+        assertNotNull(all);
+        assertTrue(all.getFileName().toString().startsWith("silero_vad.all_opt.3-"));
+        assertTrue(all.getFileName().toString().endsWith("." + runtime + ".onnx"));
+        assertTrue(runtime.matches("ort1\\.16\\.3-[0-9a-f]+"), runtime);
+        assertNotEquals(all, basic);
+        assertNotEquals(all, upgraded);
+        assertNotEquals(all, otherCpu);
+    }
+
+    @Test
+    void testCachedModelPath_DisabledOrMissingModel_ReturnsNull() {
+        assertNull(OnnxSessionFactory.cachedModelPath("missing.onnx", tempDir.toString(),
+            OrtSession.SessionOptions.OptLevel.ALL_OPT, OnnxSessionFactory.runtimeKey("1.16.3")));
+        assertNull(OnnxSessionFactory.cachedModelPath("missing.onnx", "",
+            OrtSession.SessionOptions.OptLevel.ALL_OPT, OnnxSessionFactory.runtimeKey("1.16.3")));
+    }
+}
@@ -5,8 +5,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.util.AudioUtils;
 
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -93,7 +101,7 @@ class OrchestrationServiceTest {
         
         Map<String, Object> vadResult = new HashMap<>();
         vadResult.put("isSpeaking", true);
-        when(vadService.detect(anyString(), eq(sessionId))).thenReturn(vadResult);
+        when(vadService.detect(any(ByteBuffer.class), eq(sessionId))).thenReturn(vadResult);
         
         List<Map<String, Object>> responses = new ArrayList<>();
         OrchestrationService.ResponseCallback callback = (sid, type, data) -> {
@@ -106,11 +114,151 @@ class OrchestrationServiceTest {
         orchestrationService.processAudioStream(sessionId, audioData, callback);
 
         // Assert
-        verify(vadService, times(1)).detect(anyString(), eq(sessionId));
+        verify(vadService, times(1)).detect(any(ByteBuffer.class), eq(sessionId));
         // Should not process speech yet as it's still speaking
         assertEquals(0, responses.size());
     }
 
+    @Test
+    void testProcessAudioStream_StartThenEnd_RecognizesUtteranceWithPreRoll() throws Exception {
+        // Arrange
+        String sessionId = "test-session-5";
+        when(vadService.detect(any(ByteBuffer.class), eq(sessionId)))
+            .thenReturn(new HashMap<>(),
+                new HashMap<>(Map.of("status", "start")),
+                new HashMap<>(),
+                new HashMap<>(Map.of("status", "end")));
+        List<Integer> recognizedBytes = new ArrayList<>();
+        when(asrService.recognize(any(ByteBuffer.class), anyString())).thenAnswer(invocation -> {
+            recognizedBytes.add(invocation.<ByteBuffer>getArgument(0).remaining());
+            return Map.of("text", "hello");
+        });
+        when(agentService.chat(eq(sessionId), eq("hello"))).thenReturn("hi");
+
+        List<String> types = new ArrayList<>();
+        OrchestrationService.ResponseCallback callback = (sid, type, data) -> types.add(type);
+
+        // Act - one pre-roll frame, start, speech, end
+        for (int i = 0; i < 4; i++) {
+            orchestrationService.processAudioStream(sessionId, new byte[320], callback);
+        }
+        orchestrationService.pendingTurn(sessionId).get(5, TimeUnit.SECONDS);
+
+        // Assert - the frame before "start" is kept as pre-roll
+        assertEquals(List.of(1280), recognizedBytes);
+        assertEquals(List.of("asr_result", "llm_response"), types);
+    }
+
+    @Test
+    void testProcessAudioStream_TurnRunsWithoutBlockingTheCaller() throws Exception {
+        // Arrange - the LLM answers only once the test lets it
+        String sessionId = "test-session-6";
+        when(vadService.detect(any(ByteBuffer.class), eq(sessionId)))
+            .thenReturn(new HashMap<>(Map.of("status", "start")),
+                new HashMap<>(Map.of("status", "end")),
+                new HashMap<>());
+        when(asrService.recognize(any(ByteBuffer.class), anyString())).thenReturn(Map.of("text", "hello"));
+        CountDownLatch llm = new CountDownLatch(1);
+        when(agentService.chat(eq(sessionId), eq("hello"))).thenAnswer(invocation -> {
+            llm.await(5, TimeUnit.SECONDS);
+            return "hi";
+        });
+        List<String> types = Collections.synchronizedList(new ArrayList<>());
+        OrchestrationService.ResponseCallback callback = (sid, type, data) -> types.add(type);
+
+        // Act - the frame after "end" is consumed while the turn is still waiting
+        assertTimeout(Duration.ofSeconds(2), () -> {
+            for (int i = 0; i < 3; i++) {
+                orchestrationService.processAudioStream(sessionId, new byte[320], callback);
+            }
+        });
+        verify(vadService, times(3)).detect(any(ByteBuffer.class), eq(sessionId));
+        llm.countDown();
+        orchestrationService.pendingTurn(sessionId).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(List.of("asr_result", "llm_response"), types);
+    }
+
+    @Test
+    void testCleanupSession_StopsRunningAndQueuedTurns() throws Exception {
+        // Arrange - two utterances; the first turn's ASR runs until cleanup interrupts it
+        String sessionId = "test-session-8";
+        when(vadService.detect(any(ByteBuffer.class), eq(sessionId)))
+            .thenReturn(new HashMap<>(Map.of("status", "start")),
+                new HashMap<>(Map.of("status", "end")),
+                new HashMap<>(Map.of("status", "start")),
+                new HashMap<>(Map.of("status", "end")));
+        CountDownLatch asrStarted = new CountDownLatch(1);
+        List<ByteBuffer> recognized = Collections.synchronizedList(new ArrayList<>());
+        when(asrService.recognize(any(ByteBuffer.class), anyString())).thenAnswer(invocation -> {
+            recognized.add(invocation.getArgument(0));
+            asrStarted.countDown();
+            new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            return Map.of("text", "hello");
+        });
+        List<String> types = Collections.synchronizedList(new ArrayList<>());
+        OrchestrationService.ResponseCallback callback = (sid, type, data) -> types.add(type);
+        byte[] first = new byte[320];
+        Arrays.fill(first, (byte) 1);
+        orchestrationService.processAudioStream(sessionId, first, callback);
+        orchestrationService.processAudioStream(sessionId, first, callback);
+        assertTrue(asrStarted.await(5, TimeUnit.SECONDS));
+        orchestrationService.processAudioStream(sessionId, new byte[320], callback);
+        orchestrationService.processAudioStream(sessionId, new byte[320], callback);
+        CompletableFuture<Void> turns = orchestrationService.pendingTurn(sessionId);
+
+        // Act
+        orchestrationService.cleanupSession(sessionId);
+        turns.get(5, TimeUnit.SECONDS);
+
+        // Assert - the second utterance was captured into the spare buffer, not over the
+        // first turn's audio; the second turn never ran and nothing reached the LLM or client
+        assertEquals(1, recognized.size());
+        ByteBuffer heard = recognized.get(0);
+        assertEquals(640, heard.remaining());
+        while (heard.hasRemaining()) {
+            assertEquals(1, heard.get());
+        }
+        verify(agentService, never()).chat(anyString(), anyString());
+        assertTrue(types.isEmpty());
+    }
+
+    @Test
+    void testProcessAudioStream_SpeechStartDuringPlayback_SendsBargeIn() throws Exception {
+        // Arrange - a reply of 2 s of 16 kHz mono PCM16 is playing out
+        String sessionId = "test-session-7";
+        when(agentService.chat(eq(sessionId), eq("hello"))).thenReturn("hi");
+        byte[] pcm = new byte[64000];
+        byte[] wav = new byte[44 + pcm.length];
+        System.arraycopy(AudioUtils.createWavHeader(pcm.length,
+            new AudioFormat(16000, 16, 1, true, false)), 0, wav, 0, 44);
+        when(ttsService.synthesize(eq("hi"), isNull())).thenReturn(createTempFile(wav));
+        when(vadService.detect(any(ByteBuffer.class), eq(sessionId)))
+            .thenReturn(new HashMap<>(Map.of("status", "start")));
+        List<String> types = Collections.synchronizedList(new ArrayList<>());
+        OrchestrationService.ResponseCallback callback = new OrchestrationService.ResponseCallback() {
+            @Override
+            public void send(String sid, String type, Object data) {
+                types.add(type);
+            }
+
+            @Override
+            public void sendAudio(String sid, ByteBuffer audio, AudioStreamFormat format) {
+                types.add("audio");
+            }
+        };
+        orchestrationService.processTextInput(sessionId, "hello", callback);
+
+        // Act
+        orchestrationService.processAudioStream(sessionId, new byte[320], callback);
+        orchestrationService.processAudioStream(sessionId, new byte[320], callback);
+
+        // Assert - one barge-in; the playback is then considered stopped
+        assertEquals(List.of("asr_result", "llm_response", "audio", "barge_in"), types);
+        assertEquals(2000, OrchestrationService.playbackMillis(wav));
+    }
+
     @Test
     void testCleanupSession() {
         // Arrange
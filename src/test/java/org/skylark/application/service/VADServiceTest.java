@@ -0,0 +1,149 @@
+package org.skylark.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for VADService binary frame API (energy fallback path)
+ */
+class VADServiceTest {
+
+    private VADService vadService;
+
+    @BeforeEach
+    void setUp() {
+        vadService = new VADService();
+        ReflectionTestUtils.setField(vadService, "threshold", 0.1f);
+        ReflectionTestUtils.setField(vadService, "minSilenceDurationMs", 500);
+    }
+
+    @Test
+    void testDetect_ByteBuffer_LoudFrameStartsSpeech() throws Exception {
+        // Act
+        Map<String, Object> result = vadService.detect(pcmFrame(320, (short) 16000), "session-1");
+
+        // Assert
+        assertEquals("start", result.get("status"));
+    }
+
+    @Test
+    void testDetect_ByteBuffer_DoesNotAdvancePosition() throws Exception {
+        // Arrange
+        ByteBuffer frame = pcmFrame(320, (short) 16000);
+        int position = frame.position();
+
+        // Act
+        vadService.detect(frame, "session-2");
+
+        // Assert
+        assertEquals(position, frame.position());
+        assertEquals(640, frame.remaining());
+    }
+
+    @Test
+    void testDetect_ByteBuffer_HonoursPositionAndLimit() throws Exception {
+        // Arrange - loud samples surrounded by silence; only the silent slice is passed
+        ByteBuffer backing = ByteBuffer.allocate(960).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 160; i++) {
+            backing.putShort((short) 16000);
+        }
+        backing.position(320).limit(960);
+
+        // Act
+        Map<String, Object> result = vadService.detect(backing.slice(), "session-3");
+
+        // Assert
+        assertNull(result.get("status"));
+    }
+
+    @Test
+    void testDetect_ShortBuffer_MatchesByteBuffer() throws Exception {
+        // Arrange
+        short[] samples = new short[320];
+        java.util.Arrays.fill(samples, (short) 16000);
+
+        // Act
+        Map<String, Object> result = vadService.detect(ShortBuffer.wrap(samples), "session-4");
+
+        // Assert
+        assertEquals("start", result.get("status"));
+    }
+
+    @Test
+    void testDetect_Base64Shim_DelegatesToBinaryPath() throws Exception {
+        // Arrange
+        ByteBuffer frame = pcmFrame(320, (short) 16000);
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+
+        // Act
+        Map<String, Object> result = vadService.detect(Base64.getEncoder().encodeToString(bytes), "session-5");
+
+        // Assert
+        assertEquals("start", result.get("status"));
+    }
+
+    @Test
+    void testDetect_EmptyBuffer_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> vadService.detect(ByteBuffer.allocate(0), "session-6"));
+    }
+
+    @Test
+    void testDetect_NullSessionId_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> vadService.detect(pcmFrame(160, (short) 0), null));
+    }
+
+    @Test
+    void testRemoveSession_ForgetsSpeechState() throws Exception {
+        // Arrange
+        vadService.detect(pcmFrame(320, (short) 16000), "session-7");
+
+        // Act
+        vadService.removeSession("session-7");
+        Map<String, Object> result = vadService.detect(pcmFrame(320, (short) 16000), "session-7");
+
+        // Assert - a fresh session starts speech again
+        assertEquals("start", result.get("status"));
+    }
+
+    @Test
+    void testDetect_EndOffset_IsWhereSilenceBeganRegardlessOfFraming() throws Exception {
+        // Arrange - 200 ms of speech in 20 ms frames, then silence in 10 ms frames
+        for (int i = 0; i < 10; i++) {
+            vadService.detect(pcmFrame(320, (short) 16000), "session-8");
+        }
+
+        // Act
+        Map<String, Object> end = null;
+        for (int i = 0; i < 100 && end == null; i++) {
+            Map<String, Object> result = vadService.detect(pcmFrame(160, (short) 0), "session-8");
+            if ("end".equals(result.get("status"))) {
+                end = result;
+            }
+        }
+
+        // Assert - the 500 ms minimum silence is measured in samples, not frames
+        assertNotNull(end);
+        assertEquals(200L, end.get("streamOffsetMs"));
+    }
+
+    private ByteBuffer pcmFrame(int samples, short value) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < samples; i++) {
+            buffer.putShort(value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
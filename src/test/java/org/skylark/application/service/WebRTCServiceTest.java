@@ -14,6 +14,7 @@ import org.skylark.infrastructure.adapter.webrtc.WebRTCSession;
 import org.skylark.infrastructure.adapter.webrtc.strategy.KurentoChannelStrategy;
 import org.skylark.infrastructure.adapter.webrtc.strategy.WebRTCChannelStrategy;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -74,6 +75,19 @@ class WebRTCServiceTest {
         verify(kurentoClient, times(1)).createWebRTCEndpoint(mediaPipeline);
     }
     
+    @Test
+    void testCreateSession_WithLanguage_SelectsModelForStrategySession() {
+        // Arrange
+        when(kurentoClient.createMediaPipeline()).thenReturn(mediaPipeline);
+        when(kurentoClient.createWebRTCEndpoint(mediaPipeline)).thenReturn(webRtcEndpoint);
+        
+        // Act
+        String sessionId = webRTCService.createSession("user-123", "en", "medical");
+        
+        // Assert - selected under the ID the strategy processes audio with
+        verify(asrService).selectModel(sessionId, "en", "medical");
+    }
+    
     @Test
     void testProcessOffer_SessionExists_ProcessesSuccessfully() {
         // Arrange
@@ -133,7 +147,7 @@ class WebRTCServiceTest {
         
         Map<String, Object> vadResult = new HashMap<>();
         vadResult.put("status", "start");
-        when(vadService.detect(anyString(), eq(sessionId))).thenReturn(vadResult);
+        when(vadService.detect(any(ByteBuffer.class), eq(sessionId))).thenReturn(vadResult);
         
         // Act
         String result = webRTCService.processAudioData(sessionId, audioData);
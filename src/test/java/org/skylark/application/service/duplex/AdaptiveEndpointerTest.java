@@ -0,0 +1,150 @@
+package org.skylark.application.service.duplex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdaptiveEndpointer
+ */
+class AdaptiveEndpointerTest {
+
+    private static final int FRAME_MS = 20;
+
+    @Test
+    void testOnFrame_NoTranscript_EndsAfterBaseTimeout() {
+        // Arrange
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+        speak(endpointer, 10);
+
+        // Act
+        int silence = silenceUntilEnd(endpointer);
+
+        // Assert
+        assertEquals(AdaptiveEndpointer.DEFAULT_BASE_TIMEOUT_MS, silence);
+    }
+
+    @Test
+    void testGetSilenceMs_CountsPauseInsideTurnOnly() {
+        // Arrange
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+        endpointer.onFrame(false, 20);
+        assertEquals(0, endpointer.getSilenceMs());
+        speak(endpointer, 5);
+
+        // Act
+        endpointer.onFrame(false, 20);
+        endpointer.onFrame(false, 20);
+
+        // Assert
+        assertEquals(40, endpointer.getSilenceMs());
+    }
+
+    @Test
+    void testOnFrame_CompleteQuestion_EndsSooner() {
+        // Arrange
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+        speak(endpointer, 10);
+        endpointer.onPartialTranscript("今天天气怎么样？");
+
+        // Act
+        int silence = silenceUntilEnd(endpointer);
+
+        // Assert
+        assertEquals(360, silence);
+    }
+
+    @Test
+    void testOnFrame_MidClause_WaitsLonger() {
+        // Arrange
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+        speak(endpointer, 10);
+        endpointer.onPartialTranscript("I want to book a table and");
+
+        // Act
+        int silence = silenceUntilEnd(endpointer);
+
+        // Assert
+        assertEquals(1120, silence);
+    }
+
+    @Test
+    void testOnFrame_FastSpeaker_LearnsShorterTimeout() {
+        // Arrange - short in-turn pauses of 100 ms
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+        for (int i = 0; i < 20; i++) {
+            speak(endpointer, 10);
+            for (int f = 0; f < 5; f++) {
+                assertFalse(endpointer.onFrame(false, FRAME_MS));
+            }
+        }
+        speak(endpointer, 10);
+
+        // Act
+        int silence = silenceUntilEnd(endpointer);
+
+        // Assert
+        assertTrue(silence < 400, "timeout " + silence);
+        assertTrue(silence >= AdaptiveEndpointer.DEFAULT_MIN_TIMEOUT_MS);
+    }
+
+    @Test
+    void testOnFrame_SilenceBeforeSpeech_NeverEnds() {
+        // Arrange
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+
+        // Act & Assert
+        for (int i = 0; i < 200; i++) {
+            assertFalse(endpointer.onFrame(false, FRAME_MS));
+        }
+    }
+
+    @Test
+    void testOnFrame_VADHangover_CountsAsSilence() {
+        // Arrange - Silero still reports speech but the window probability has dropped
+        AdaptiveEndpointer endpointer = new AdaptiveEndpointer();
+        speak(endpointer, 10);
+        VADResult hangover = new VADResult(true, 0.2f, System.currentTimeMillis());
+
+        // Act
+        int frames = 0;
+        boolean ended = false;
+        while (!ended && frames < 100) {
+            ended = endpointer.onFrame(hangover, FRAME_MS);
+            frames++;
+        }
+
+        // Assert
+        assertTrue(ended);
+        assertEquals(AdaptiveEndpointer.DEFAULT_BASE_TIMEOUT_MS, frames * FRAME_MS);
+    }
+
+    @Test
+    void testCompletenessFactor() {
+        assertEquals(1.0, AdaptiveEndpointer.completenessFactor(null));
+        assertTrue(AdaptiveEndpointer.completenessFactor("你是谁呢") < 1.0);
+        assertTrue(AdaptiveEndpointer.completenessFactor("我想去北京，然后") > 1.0);
+        assertTrue(AdaptiveEndpointer.completenessFactor("go to the") > 1.0);
+        assertEquals(1.0, AdaptiveEndpointer.completenessFactor("go to theatre"));
+    }
+
+    @Test
+    void testConstructor_InvalidBounds_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveEndpointer(200, 300, 1000));
+    }
+
+    private static void speak(AdaptiveEndpointer endpointer, int frames) {
+        for (int i = 0; i < frames; i++) {
+            assertFalse(endpointer.onFrame(true, FRAME_MS));
+        }
+    }
+
+    private static int silenceUntilEnd(AdaptiveEndpointer endpointer) {
+        for (int i = 1; i <= 200; i++) {
+            if (endpointer.onFrame(false, FRAME_MS)) {
+                return i * FRAME_MS;
+            }
+        }
+        return -1;
+    }
+}
@@ -6,8 +6,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.skylark.application.service.ASRService;
+import org.skylark.infrastructure.adapter.MockWebSocketServer;
+import org.skylark.infrastructure.adapter.asr.DashScopeConnectionPool;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -24,10 +30,15 @@ class StreamingASRServiceTest {
     @Mock
     private ASRService asrService;
 
+    @Mock
+    private ASRService.Stream stream;
+
     private StreamingASRService streamingASRService;
 
     @BeforeEach
     void setUp() {
+        lenient().when(asrService.open(anyString())).thenReturn(stream);
+        lenient().when(stream.partial()).thenReturn("");
         streamingASRService = new StreamingASRService(asrService);
     }
 
@@ -52,7 +63,8 @@ class StreamingASRServiceTest {
 
         Map<String, String> asrResult = new HashMap<>();
         asrResult.put("text", "hello world");
-        when(asrService.recognize(any(byte[].class))).thenReturn(asrResult);
+        when(stream.getUtteranceBytes()).thenReturn(6L);
+        when(stream.finish()).thenReturn(asrResult);
 
         // Act
         streamingASRService.feedAudioChunk("session-1", new byte[]{1, 2, 3});
@@ -62,7 +74,8 @@ class StreamingASRServiceTest {
         // Assert
         assertEquals("hello world", result);
         assertEquals("hello world", finalResult.get());
-        verify(asrService).recognize(any(byte[].class));
+        verify(stream, times(2)).accept(any(ByteBuffer.class));
+        verify(stream).finish();
     }
 
     @Test
@@ -75,7 +88,8 @@ class StreamingASRServiceTest {
 
         Map<String, String> asrResult = new HashMap<>();
         asrResult.put("text", "你好世界");
-        when(asrService.recognize(any(byte[].class))).thenReturn(asrResult);
+        when(stream.getUtteranceBytes()).thenReturn(4L);
+        when(stream.finish()).thenReturn(asrResult);
 
         // Act
         String result = streamingASRService.finalizeSession("session-1");
@@ -83,11 +97,12 @@ class StreamingASRServiceTest {
         // Assert
         assertEquals("你好世界", result);
         assertEquals("你好世界", finalResult.get());
-        verify(asrService, times(1)).recognize(any(byte[].class));
+        verify(stream, times(1)).finish();
+        verify(asrService, never()).recognize(any(ByteBuffer.class));
     }
 
     @Test
-    void testFinalizeSession_NoAudio_ReturnsNull() {
+    void testFinalizeSession_NoAudio_ReturnsNull() throws Exception {
         // Arrange
         StreamingASRService.ASRResultCallback callback = createNoOpCallback();
         streamingASRService.startStreaming("session-1", callback);
@@ -97,6 +112,7 @@ class StreamingASRServiceTest {
 
         // Assert
         assertNull(result);
+        verify(stream, never()).finish();
     }
 
     @Test
@@ -120,7 +136,8 @@ class StreamingASRServiceTest {
         streamingASRService.startStreaming("session-1", callback);
         streamingASRService.feedAudioChunk("session-1", new byte[]{1, 2});
 
-        when(asrService.recognize(any(byte[].class))).thenThrow(new RuntimeException("ASR failure"));
+        when(stream.getUtteranceBytes()).thenReturn(2L);
+        when(stream.finish()).thenThrow(new RuntimeException("ASR failure"));
 
         // Act
         String result = streamingASRService.finalizeSession("session-1");
@@ -142,6 +159,56 @@ class StreamingASRServiceTest {
 
         // Assert
         assertFalse(streamingASRService.hasSession("session-1"));
+        verify(stream, times(2)).reset();
+    }
+
+    @Test
+    void testFeedAudioChunk_ReportsChangedPartials() {
+        // Arrange
+        List<String> partials = new ArrayList<>();
+        streamingASRService.startStreaming("session-1", new StreamingASRService.ASRResultCallback() {
+            @Override public void onPartialResult(String text) { partials.add(text); }
+            @Override public void onFinalResult(String text) {}
+            @Override public void onError(Exception e) {}
+        });
+        when(stream.partial()).thenReturn("你好", "你好", "你好世界");
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            streamingASRService.feedAudioChunk("session-1", new byte[]{1, 2});
+        }
+
+        // Assert
+        assertEquals(List.of("你好", "你好世界"), partials);
+    }
+
+    @Test
+    void testFeedAudioChunk_BeyondMaxUtterance_IsDropped() {
+        // Arrange: 1 ms cap = 32 bytes at 16 kHz
+        streamingASRService = new StreamingASRService(asrService, 1);
+        streamingASRService.startStreaming("session-1", createNoOpCallback());
+        when(stream.getUtteranceBytes()).thenReturn(20L, 32L);
+
+        // Act
+        streamingASRService.feedAudioChunk("session-1", new byte[20]);
+        streamingASRService.feedAudioChunk("session-1", new byte[20]);
+
+        // Assert
+        verify(stream).accept(argThat(b -> b.remaining() == 12));
+        verify(stream, times(1)).accept(any(ByteBuffer.class));
+    }
+
+    @Test
+    void testCloseSession_ReleasesRecognizer() {
+        // Arrange
+        streamingASRService.startStreaming("session-1", createNoOpCallback());
+
+        // Act
+        streamingASRService.closeSession("session-1");
+
+        // Assert
+        assertFalse(streamingASRService.hasSession("session-1"));
+        verify(asrService).close("session-1");
     }
 
     @Test
@@ -186,7 +253,8 @@ class StreamingASRServiceTest {
 
         Map<String, String> asrResult = new HashMap<>();
         asrResult.put("text", "   ");
-        when(asrService.recognize(any(byte[].class))).thenReturn(asrResult);
+        when(stream.getUtteranceBytes()).thenReturn(2L);
+        when(stream.finish()).thenReturn(asrResult);
 
         // Act
         String result = streamingASRService.finalizeSession("session-1");
@@ -195,6 +263,106 @@ class StreamingASRServiceTest {
         assertEquals("   ", result);
     }
 
+    @Test
+    void testFunASRBackend_RoutesOnlinePartialsAndOfflineFinal() throws Exception {
+        // Arrange - a FunASR-like server: online text per audio chunk, offline text at end
+        try (MockWebSocketServer server = new MockWebSocketServer(new MockWebSocketServer.Handler() {
+            @Override
+            public void onBinary(MockWebSocketServer.Connection connection, byte[] data) {
+                reply(connection, "{\"mode\":\"2pass-online\",\"text\":\"你好\"}");
+            }
+
+            @Override
+            public void onText(MockWebSocketServer.Connection connection, String text) {
+                if (text.contains("\"is_speaking\":false")) {
+                    reply(connection, "{\"mode\":\"2pass-offline\",\"text\":\"你好。\",\"is_final\":true}");
+                }
+            }
+        })) {
+            streamingASRService = new StreamingASRService(asrService, 10_000, server.getUrl());
+            List<String> partials = new ArrayList<>();
+            AtomicReference<String> finalResult = new AtomicReference<>();
+            streamingASRService.startStreaming("session-1", new StreamingASRService.ASRResultCallback() {
+                @Override public void onPartialResult(String text) { partials.add(text); }
+                @Override public void onFinalResult(String text) { finalResult.set(text); }
+                @Override public void onError(Exception e) {}
+            });
+
+            // Act - keep feeding until the online text has come back
+            for (int i = 0; i < 100 && partials.isEmpty(); i++) {
+                streamingASRService.feedAudioChunk("session-1", new byte[320]);
+                Thread.sleep(20);
+            }
+            String result = streamingASRService.finalizeSession("session-1");
+            streamingASRService.closeSession("session-1");
+
+            // Assert
+            assertTrue(partials.get(0).startsWith("你好"));
+            assertEquals("你好。", result);
+            assertEquals("你好。", finalResult.get());
+            verify(asrService, never()).open(anyString());
+        }
+    }
+
+    @Test
+    void testDashScopeBackend_RoutesSentencePartialsAndTaskFinal() throws Exception {
+        // Arrange - a DashScope-like server: one sentence per audio frame, task-finished at end
+        try (MockWebSocketServer server = new MockWebSocketServer(new MockWebSocketServer.Handler() {
+            private volatile String taskId;
+
+            @Override
+            public void onText(MockWebSocketServer.Connection connection, String text) {
+                taskId = text.replaceAll(".*\"task_id\":\"([0-9a-f]+)\".*", "$1");
+                if (text.contains("\"run-task\"")) {
+                    reply(connection, "{\"header\":{\"event\":\"task-started\",\"task_id\":\"" + taskId + "\"}}");
+                } else if (text.contains("\"finish-task\"")) {
+                    reply(connection, "{\"header\":{\"event\":\"result-generated\",\"task_id\":\"" + taskId
+                        + "\"},\"payload\":{\"output\":{\"sentence\":{\"text\":\"你好。\",\"sentence_end\":true}}}}");
+                    reply(connection, "{\"header\":{\"event\":\"task-finished\",\"task_id\":\"" + taskId + "\"}}");
+                }
+            }
+
+            @Override
+            public void onBinary(MockWebSocketServer.Connection connection, byte[] data) {
+                reply(connection, "{\"header\":{\"event\":\"result-generated\",\"task_id\":\"" + taskId
+                    + "\"},\"payload\":{\"output\":{\"sentence\":{\"text\":\"你好\",\"sentence_end\":false}}}}");
+            }
+        })) {
+            DashScopeConnectionPool pool = new DashScopeConnectionPool(server.getUrl(), "sk-test", 1, 50_000);
+            streamingASRService = new StreamingASRService(asrService, 10_000, pool, "paraformer-realtime-v2");
+            List<String> partials = new ArrayList<>();
+            AtomicReference<String> finalResult = new AtomicReference<>();
+            streamingASRService.startStreaming("session-1", new StreamingASRService.ASRResultCallback() {
+                @Override public void onPartialResult(String text) { partials.add(text); }
+                @Override public void onFinalResult(String text) { finalResult.set(text); }
+                @Override public void onError(Exception e) {}
+            });
+
+            // Act - keep feeding until the first sentence text has come back
+            for (int i = 0; i < 100 && partials.isEmpty(); i++) {
+                streamingASRService.feedAudioChunk("session-1", new byte[320]);
+                Thread.sleep(20);
+            }
+            String result = streamingASRService.finalizeSession("session-1");
+            streamingASRService.closeSession("session-1");
+            pool.close();
+
+            // Assert
+            assertEquals("你好", partials.get(0));
+            assertEquals("你好。", result);
+            assertEquals("你好。", finalResult.get());
+            verify(asrService, never()).open(anyString());
+        }
+    }
+
+    private static void reply(MockWebSocketServer.Connection connection, String text) {
+        try {
+            connection.sendText(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private StreamingASRService.ASRResultCallback createNoOpCallback() {
         return new StreamingASRService.ASRResultCallback() {
             @Override public void onPartialResult(String text) {}
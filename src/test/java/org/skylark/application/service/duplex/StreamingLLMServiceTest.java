@@ -10,6 +10,7 @@ import org.skylark.application.service.AgentService;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -275,6 +276,121 @@ class StreamingLLMServiceTest {
         assertFalse(streamingLLMService.isStreaming("nonexistent"));
     }
 
+    @Test
+    void testSpeculate_MatchingFinal_UsesSpeculativeResponse() throws Exception {
+        // Arrange
+        AgentService.Speculation speculation =
+                new AgentService.Speculation("session-1", "今天天气怎么样", "晴天。", 0, List.of());
+        when(agentService.speculate("session-1", "今天天气怎么样")).thenReturn(speculation);
+        when(agentService.commitSpeculation(speculation)).thenReturn(true);
+        AtomicReference<String> fullResponse = new AtomicReference<>();
+
+        // Act - the final transcript differs only in punctuation
+        streamingLLMService.speculate("session-1", "今天天气怎么样");
+        streamingLLMService.speculate("session-1", "今天天气怎么样");
+        streamingLLMService.chatStream("session-1", "今天天气怎么样？",
+                createCallback(new ArrayList<>(), fullResponse)).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("晴天。", fullResponse.get());
+        verify(agentService, times(1)).speculate(anyString(), anyString());
+        verify(agentService, never()).chat(anyString(), anyString());
+        assertEquals(1L, streamingLLMService.getSpeculationMetrics().get("hits"));
+        assertEquals(1.0, streamingLLMService.getSpeculationMetrics().get("hitRate"));
+    }
+
+    @Test
+    void testSpeculate_DifferentFinal_DiscardsAndRunsNormally() throws Exception {
+        // Arrange
+        when(agentService.speculate("session-1", "今天天气"))
+                .thenReturn(new AgentService.Speculation("session-1", "今天天气", "你想问哪里的天气？", 0, List.of()));
+        when(agentService.chat("session-1", "今天天气怎么样")).thenReturn("晴天。");
+        AtomicReference<String> fullResponse = new AtomicReference<>();
+
+        // Act - the speculative turn has run by the time the final transcript arrives
+        streamingLLMService.speculate("session-1", "今天天气");
+        verify(agentService, timeout(5000)).speculate("session-1", "今天天气");
+        streamingLLMService.chatStream("session-1", "今天天气怎么样",
+                createCallback(new ArrayList<>(), fullResponse)).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("晴天。", fullResponse.get());
+        verify(agentService, never()).commitSpeculation(any());
+        assertEquals(1L, streamingLLMService.getSpeculationMetrics().get("misses"));
+        for (int i = 0; i < 100 && (Long) streamingLLMService.getSpeculationMetrics().get("wastedTokens") == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(8L, streamingLLMService.getSpeculationMetrics().get("wastedTokens"));
+    }
+
+    @Test
+    void testSpeculate_CommitRejected_RerunsTurn() throws Exception {
+        // Arrange - the history changed while speculating
+        AgentService.Speculation speculation = new AgentService.Speculation("session-1", "hi", "stale", 0, List.of());
+        when(agentService.speculate("session-1", "hi")).thenReturn(speculation);
+        when(agentService.commitSpeculation(speculation)).thenReturn(false);
+        when(agentService.chat("session-1", "Hi!")).thenReturn("fresh");
+        AtomicReference<String> fullResponse = new AtomicReference<>();
+
+        // Act
+        streamingLLMService.speculate("session-1", "hi");
+        streamingLLMService.chatStream("session-1", "Hi!",
+                createCallback(new ArrayList<>(), fullResponse)).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("fresh", fullResponse.get());
+    }
+
+    @Test
+    void testSpeculate_Superseded_InterruptsRunningTurn() throws Exception {
+        // Arrange - the first turn blocks until it is interrupted
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(agentService.speculate("session-1", "今天")).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        });
+        when(agentService.speculate("session-1", "今天天气"))
+                .thenReturn(new AgentService.Speculation("session-1", "今天天气", "晴天。", 0, List.of()));
+        streamingLLMService.speculate("session-1", "今天");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        streamingLLMService.speculate("session-1", "今天天气");
+
+        // Assert
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        verify(agentService, timeout(5000)).speculate("session-1", "今天天气");
+        assertEquals(1L, streamingLLMService.getSpeculationMetrics().get("discarded"));
+    }
+
+    @Test
+    void testSpeculate_ToolRequest_NotSpeculated() throws Exception {
+        // Arrange
+        when(agentService.hasTools()).thenReturn(true);
+
+        // Act
+        streamingLLMService.speculate("session-1", "帮我查询明天的航班");
+
+        // Assert
+        verify(agentService, never()).speculate(anyString(), anyString());
+        assertEquals(1L, streamingLLMService.getSpeculationMetrics().get("skipped"));
+        assertEquals(0L, streamingLLMService.getSpeculationMetrics().get("started"));
+    }
+
+    @Test
+    void testNormalize_IgnoresCasePunctuationAndSpaces() {
+        assertEquals("helloworld", StreamingLLMService.normalize("Hello, World!"));
+        assertEquals("你好世界", StreamingLLMService.normalize("你好，世界。"));
+        assertEquals(3, StreamingLLMService.estimateTokens("你好 abcd"));
+    }
+
     @Test
     void testChatStream_OnError_CallsErrorCallback() throws Exception {
         // Arrange
@@ -7,6 +7,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.skylark.application.service.VADService;
 
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -105,7 +107,7 @@ class TripleVADEngineTest {
         // Arrange
         Map<String, Object> vadResult = new HashMap<>();
         vadResult.put("status", "start");
-        when(vadService.detect(anyString(), eq("session-1"))).thenReturn(vadResult);
+        when(vadService.detect(any(ByteBuffer.class), eq("session-1"))).thenReturn(vadResult);
 
         // Act
         VADResult result = tripleVADEngine.detectWithSession("session-1", new byte[]{1, 2, 3, 4});
@@ -113,7 +115,7 @@ class TripleVADEngineTest {
         // Assert
         assertTrue(result.isSpeech());
         assertEquals(0.8f, result.getProbability(), 0.001f);
-        verify(vadService).detect(anyString(), eq("session-1"));
+        verify(vadService).detect(any(ByteBuffer.class), eq("session-1"));
     }
 
     @Test
@@ -121,7 +123,7 @@ class TripleVADEngineTest {
         // Arrange
         Map<String, Object> vadResult = new HashMap<>();
         vadResult.put("status", "silence");
-        when(vadService.detect(anyString(), eq("session-2"))).thenReturn(vadResult);
+        when(vadService.detect(any(ByteBuffer.class), eq("session-2"))).thenReturn(vadResult);
 
         // Act
         VADResult result = tripleVADEngine.detectWithSession("session-2", new byte[]{1, 2});
@@ -134,7 +136,7 @@ class TripleVADEngineTest {
     @Test
     void testDetectWithSession_OnException_ReturnsSilence() throws Exception {
         // Arrange
-        when(vadService.detect(anyString(), eq("session-err")))
+        when(vadService.detect(any(ByteBuffer.class), eq("session-err")))
                 .thenThrow(new RuntimeException("VAD error"));
 
         // Act
@@ -169,4 +171,126 @@ class TripleVADEngineTest {
         // Assert - 0.5 energy < 0.9 threshold
         assertFalse(result.isSpeech());
     }
+
+    @Test
+    void testCascade_Silence_NeverReachesSilero() throws Exception {
+        // Arrange
+        float[] quiet = tone(0.0005f, 16);
+
+        // Act
+        VADResult result = null;
+        for (int i = 0; i < 50; i++) {
+            result = tripleVADEngine.detect("session-1", quiet, false);
+        }
+
+        // Assert
+        assertFalse(result.isSpeech());
+        verify(vadService, never()).detect(any(ShortBuffer.class), anyString());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> quick = (Map<String, Object>) tripleVADEngine.getMetrics().get("quick");
+        assertEquals(50L, quick.get("calls"));
+        assertEquals(0L, quick.get("hits"));
+    }
+
+    @Test
+    void testCascade_LoudFrameAfterSilence_RunsSilero() throws Exception {
+        // Arrange
+        Map<String, Object> vadResult = new HashMap<>();
+        vadResult.put("status", "start");
+        vadResult.put("speaking", true);
+        vadResult.put("probability", 0.93f);
+        when(vadService.detect(any(ShortBuffer.class), eq("session-1"))).thenReturn(vadResult);
+        for (int i = 0; i < 10; i++) {
+            tripleVADEngine.detect("session-1", tone(0.0005f, 16), false);
+        }
+
+        // Act
+        VADResult result = tripleVADEngine.detect("session-1", tone(0.3f, 16), false);
+
+        // Assert
+        assertTrue(result.isSpeech());
+        assertEquals(0.93f, result.getProbability(), 0.001f);
+        verify(vadService, times(1)).detect(any(ShortBuffer.class), eq("session-1"));
+    }
+
+    @Test
+    void testCascade_OpenSegment_SileroSeesSilenceUntilEnd() throws Exception {
+        // Arrange
+        Map<String, Object> start = new HashMap<>();
+        start.put("status", "start");
+        start.put("speaking", true);
+        Map<String, Object> end = new HashMap<>();
+        end.put("status", "end");
+        end.put("speaking", false);
+        when(vadService.detect(any(ShortBuffer.class), eq("session-1"))).thenReturn(start, end);
+        tripleVADEngine.detect("session-1", tone(0.3f, 16), false);
+
+        // Act - quiet frames beyond the gate hangover
+        VADResult first = null;
+        for (int i = 0; i < 20; i++) {
+            VADResult r = tripleVADEngine.detect("session-1", tone(0.0005f, 16), false);
+            if (first == null) {
+                first = r;
+            }
+        }
+
+        // Assert - the frame carrying "end" reached Silero; once the gate's hangover
+        // has run out, quiet frames no longer do
+        assertFalse(first.isSpeech());
+        clearInvocations(vadService);
+        tripleVADEngine.detect("session-1", tone(0.0005f, 16), false);
+        verify(vadService, never()).detect(any(ShortBuffer.class), anyString());
+    }
+
+    @Test
+    void testCascade_PreciseTierRejectsBargeIn_ReportsEchoResidual() throws Exception {
+        // Arrange
+        PreciseVAD precise = mock(PreciseVAD.class);
+        when(precise.speechProbability(eq("session-1"), any())).thenReturn(0.2f);
+        Map<String, Object> vadResult = new HashMap<>();
+        vadResult.put("status", "start");
+        vadResult.put("speaking", true);
+        when(vadService.detect(any(ShortBuffer.class), eq("session-1"))).thenReturn(vadResult);
+        TripleVADEngine engine = new TripleVADEngine(vadService, 0.5f, precise, 0.7f);
+
+        // Act
+        VADResult speaking = engine.detect("session-1", tone(0.3f, 16), true);
+        VADResult notSpeaking = engine.detect("session-1", tone(0.3f, 16), false);
+
+        // Assert
+        assertFalse(speaking.isSpeech());
+        assertEquals(VADResult.AudioEventType.ECHO_RESIDUAL, speaking.getEventType());
+        assertTrue(notSpeaking.isSpeech());
+        verify(precise, times(1)).speechProbability(eq("session-1"), any());
+    }
+
+    @Test
+    void testCascade_SileroFailure_FallsBackToEnergy() throws Exception {
+        // Arrange
+        when(vadService.detect(any(ShortBuffer.class), eq("session-1")))
+                .thenThrow(new IllegalStateException("model not loaded"));
+
+        // Act
+        VADResult result = tripleVADEngine.detect("session-1", tone(0.8f, 16), false);
+
+        // Assert
+        assertTrue(result.isSpeech());
+    }
+
+    @Test
+    void testRemoveSession_ReleasesVADServiceState() {
+        // Act
+        tripleVADEngine.removeSession("session-1");
+
+        // Assert
+        verify(vadService).removeSession("session-1");
+    }
+
+    private static float[] tone(float amplitude, int period) {
+        float[] samples = new float[320];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = amplitude * (float) Math.sin(2 * Math.PI * i / period);
+        }
+        return samples;
+    }
 }
@@ -0,0 +1,141 @@
+package org.skylark.common.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdaptiveEnergyDetector
+ * AdaptiveEnergyDetector 单元测试
+ */
+class AdaptiveEnergyDetectorTest {
+
+    private static final int RATE = 16000;
+    private static final int FRAME = 320;
+
+    @Test
+    void testProcess_NoisyRoom_FloorAdaptsAndSpeechStillDetected() {
+        // Arrange - 200 Hz hum at about -33 dBFS, like a noisy call centre
+        AdaptiveEnergyDetector detector = new AdaptiveEnergyDetector(RATE);
+        float[] hum = tone(200, 0.03f);
+        for (int i = 0; i < 150; i++) {
+            detector.process(hum, 0, FRAME);
+        }
+
+        // Act
+        AdaptiveEnergyDetector.Transition onNoise = detector.process(hum, 0, FRAME);
+        AdaptiveEnergyDetector.Transition onSpeech = detector.process(tone(300, 0.3f), 0, FRAME);
+
+        // Assert
+        assertEquals(AdaptiveEnergyDetector.Transition.NONE, onNoise);
+        assertEquals(-33f, detector.getNoiseFloorDb(), 3f);
+        assertEquals(AdaptiveEnergyDetector.Transition.START, onSpeech);
+    }
+
+    @Test
+    void testProcess_QuietOffice_SoftSpeechDetected() {
+        // Arrange - -70 dBFS background; speech at about -40 dBFS
+        AdaptiveEnergyDetector detector = new AdaptiveEnergyDetector(RATE);
+        for (int i = 0; i < 50; i++) {
+            detector.process(tone(200, 0.0004f), 0, FRAME);
+        }
+
+        // Act
+        AdaptiveEnergyDetector.Transition transition = detector.process(tone(300, 0.014f), 0, FRAME);
+
+        // Assert
+        assertEquals(AdaptiveEnergyDetector.Transition.START, transition);
+    }
+
+    @Test
+    void testProcess_Hysteresis_ShortGapKeepsSpeechAndHangoverEndsIt() {
+        // Arrange
+        AdaptiveEnergyDetector detector = new AdaptiveEnergyDetector(RATE, 9f, 3f, 300, 2000, -54f);
+        float[] quiet = tone(200, 0.0004f);
+        float[] speech = tone(300, 0.3f);
+        for (int i = 0; i < 50; i++) {
+            detector.process(quiet, 0, FRAME);
+        }
+        assertEquals(AdaptiveEnergyDetector.Transition.START, detector.process(speech, 0, FRAME));
+
+        // Act - 100 ms gap, speech again, then 300 ms of silence (15 frames of 20 ms)
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AdaptiveEnergyDetector.Transition.NONE, detector.process(quiet, 0, FRAME));
+        }
+        assertEquals(AdaptiveEnergyDetector.Transition.NONE, detector.process(speech, 0, FRAME));
+        int endFrame = -1;
+        for (int i = 1; i <= 20 && endFrame < 0; i++) {
+            if (detector.process(quiet, 0, FRAME) == AdaptiveEnergyDetector.Transition.END) {
+                endFrame = i;
+            }
+        }
+
+        // Assert
+        assertEquals(15, endFrame);
+        assertFalse(detector.isSpeaking());
+    }
+
+    @Test
+    void testProcess_Hiss_NeedsExtraMarginToStart() {
+        // Arrange - white noise has a zero-crossing rate near 0.5
+        AdaptiveEnergyDetector detector = new AdaptiveEnergyDetector(RATE);
+        for (int i = 0; i < 50; i++) {
+            detector.process(tone(200, 0.001f), 0, FRAME);
+        }
+        float floor = detector.getNoiseFloorDb();
+
+        // Act - hiss 11 dB over the floor, then 20 dB over it
+        AdaptiveEnergyDetector.Transition soft = detector.process(noise(floor + 11f), 0, FRAME);
+        AdaptiveEnergyDetector.Transition loud = detector.process(noise(floor + 20f), 0, FRAME);
+
+        // Assert
+        assertEquals(AdaptiveEnergyDetector.Transition.NONE, soft);
+        assertEquals(AdaptiveEnergyDetector.Transition.START, loud);
+    }
+
+    @Test
+    void testProcess_ShortBuffer_DoesNotAdvancePosition() {
+        // Arrange
+        AdaptiveEnergyDetector detector = new AdaptiveEnergyDetector(RATE);
+        short[] pcm = new short[FRAME];
+        java.util.Arrays.fill(pcm, (short) 16000);
+        ShortBuffer buffer = ShortBuffer.wrap(pcm);
+
+        // Act
+        AdaptiveEnergyDetector.Transition transition = detector.process(buffer);
+
+        // Assert
+        assertEquals(AdaptiveEnergyDetector.Transition.START, transition);
+        assertEquals(0, buffer.position());
+        assertEquals(-6.2f, detector.getLevelDb(), 0.1f);
+    }
+
+    @Test
+    void testConstructor_OffsetAboveOnset_Throws() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdaptiveEnergyDetector(RATE, 3f, 6f, 300, 2000, -54f));
+    }
+
+    private static float[] tone(double hz, float amplitude) {
+        float[] samples = new float[FRAME];
+        for (int i = 0; i < FRAME; i++) {
+            samples[i] = amplitude * (float) Math.sin(2 * Math.PI * hz * i / RATE);
+        }
+        return samples;
+    }
+
+    /** Uniform white noise at the given RMS level in dBFS */
+    private static float[] noise(float levelDb) {
+        Random random = new Random(42);
+        float rms = (float) Math.pow(10, levelDb / 20);
+        float scale = rms * (float) Math.sqrt(3);
+        float[] samples = new float[FRAME];
+        for (int i = 0; i < FRAME; i++) {
+            samples[i] = scale * (random.nextFloat() * 2 - 1);
+        }
+        return samples;
+    }
+}
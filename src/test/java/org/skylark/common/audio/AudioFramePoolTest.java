@@ -0,0 +1,145 @@
+package org.skylark.common.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AudioFramePool and AudioFrame reference counting
+ * AudioFramePool 与 AudioFrame 引用计数单元测试
+ */
+class AudioFramePoolTest {
+
+    @Test
+    void testCopyOf_ByteBuffer_CopiesRemainingWithoutAdvancingSource() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 4, false);
+        ByteBuffer src = ByteBuffer.allocate(320).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 160; i++) {
+            src.putShort((short) i);
+        }
+        src.flip();
+
+        // Act
+        AudioFrame frame = pool.copyOf(src, 16000, 1);
+
+        // Assert
+        assertEquals(0, src.position());
+        assertEquals(320, frame.length());
+        assertEquals(160, frame.samplesPerChannel());
+        assertEquals(10.0, frame.durationMs(), 1e-9);
+        assertEquals((short) 42, frame.data().getShort(84));
+    }
+
+    @Test
+    void testRelease_ReturnsSlabForReuse() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 4, false);
+        AudioFrame first = pool.acquire(320, 16000, 1);
+
+        // Act
+        assertTrue(first.release());
+        AudioFrame second = pool.acquire(160, 16000, 1);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(1, pool.getReusedCount());
+        assertEquals(160, second.length());
+        assertEquals(1, second.refCount());
+    }
+
+    @Test
+    void testRetain_KeepsSlabLeasedUntilLastRelease() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 4, false);
+        AudioFrame frame = pool.acquire(320, 16000, 1).retain();
+
+        // Act & Assert
+        assertFalse(frame.release());
+        assertEquals(0, pool.getPooledCount());
+        assertTrue(frame.release());
+        assertEquals(1, pool.getPooledCount());
+    }
+
+    @Test
+    void testRelease_Twice_ThrowsException() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 4, false);
+        AudioFrame frame = pool.acquire(320, 16000, 1);
+        frame.release();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, frame::release);
+        assertThrows(IllegalStateException.class, frame::data);
+        assertThrows(IllegalStateException.class, frame::retain);
+    }
+
+    @Test
+    void testAcquire_Oversized_BypassesPool() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 4, false);
+
+        // Act
+        AudioFrame frame = pool.acquire(1280, 16000, 1);
+        frame.release();
+
+        // Assert
+        assertFalse(frame.isPooled());
+        assertEquals(1, pool.getOversizedCount());
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test
+    void testRecycle_PoolFull_DiscardsSlab() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 1, false);
+        AudioFrame a = pool.acquire(320, 16000, 1);
+        AudioFrame b = pool.acquire(320, 16000, 1);
+
+        // Act
+        a.release();
+        b.release();
+
+        // Assert
+        assertEquals(1, pool.getPooledCount());
+        assertEquals(1, pool.getDiscardedCount());
+    }
+
+    @Test
+    void testDirectPool_AllocatesOffHeapSlabs() {
+        // Arrange
+        AudioFramePool pool = new AudioFramePool(640, 4, true);
+
+        // Act
+        AudioFrame frame = pool.copyOf(new byte[]{1, 0, 2, 0}, 0, 4, 16000, 1);
+
+        // Assert
+        assertTrue(frame.isDirect());
+        assertEquals(640, frame.capacity());
+        assertArrayEquals(new byte[]{1, 0, 2, 0}, frame.toByteArray());
+    }
+
+    @Test
+    void testConstructor_InvalidSlabSize_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new AudioFramePool(641, 4, false));
+        assertThrows(IllegalArgumentException.class, () -> new AudioFramePool(640, 0, false));
+    }
+
+    @Test
+    void testWrap_IsUnpooledView() {
+        // Arrange
+        byte[] pcm = new byte[]{5, 0, 6, 0};
+
+        // Act
+        AudioFrame frame = AudioFrame.wrap(pcm, 8000, 1);
+
+        // Assert
+        assertFalse(frame.isPooled());
+        assertEquals(2, frame.samplesPerChannel());
+        assertEquals((short) 6, frame.data().getShort(2));
+    }
+}
@@ -0,0 +1,110 @@
+package org.skylark.common.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrameRechunker
+ * FrameRechunker 单元测试
+ */
+class FrameRechunkerTest {
+
+    @Test
+    void testAccept_ArbitraryFrameSizes_EmitsExactWindowsWithPositions() throws Exception {
+        // Arrange - 10 ms, 23 ms and 128 ms frames at 16 kHz into 512-sample windows
+        FrameRechunker chunker = new FrameRechunker(512, 16000);
+        short[] stream = ramp(5000);
+        int[] frameSizes = {160, 368, 2048, 160, 160, 2104};
+        List<short[]> windows = new ArrayList<>();
+        List<Long> starts = new ArrayList<>();
+
+        // Act
+        int offset = 0;
+        for (int size : frameSizes) {
+            chunker.accept(ShortBuffer.wrap(stream, offset, size), (window, start) -> {
+                assertEquals(512, window.remaining());
+                short[] copy = new short[512];
+                window.get(copy);
+                windows.add(copy);
+                starts.add(start);
+            });
+            offset += size;
+        }
+
+        // Assert
+        assertEquals(5000 / 512, windows.size());
+        for (int w = 0; w < windows.size(); w++) {
+            assertEquals(w * 512L, starts.get(w));
+            assertEquals(stream[w * 512], windows.get(w)[0]);
+            assertEquals(stream[w * 512 + 511], windows.get(w)[511]);
+        }
+        assertEquals(5000 % 512, chunker.getPendingSamples());
+        assertEquals(9 * 512L, chunker.getNextStartSample());
+    }
+
+    @Test
+    void testAccept_WholeWindowsInFrame_AreViewsNotCopies() throws Exception {
+        // Arrange
+        FrameRechunker chunker = new FrameRechunker(256, 8000);
+        short[] frame = ramp(512);
+        List<short[]> backing = new ArrayList<>();
+
+        // Act
+        chunker.accept(ShortBuffer.wrap(frame), (window, start) -> backing.add(window.array()));
+
+        // Assert
+        assertEquals(2, backing.size());
+        assertSame(frame, backing.get(0));
+        assertSame(frame, backing.get(1));
+    }
+
+    @Test
+    void testAccept_DoesNotMovePosition() throws Exception {
+        // Arrange
+        FrameRechunker chunker = new FrameRechunker(100, 16000);
+        ShortBuffer frame = ShortBuffer.wrap(ramp(250));
+
+        // Act
+        chunker.accept(frame, (window, start) -> { });
+
+        // Assert
+        assertEquals(0, frame.position());
+        assertEquals(250, frame.limit());
+    }
+
+    @Test
+    void testFlushAndReset() throws Exception {
+        // Arrange
+        FrameRechunker chunker = new FrameRechunker(100, 16000);
+        chunker.accept(ShortBuffer.wrap(ramp(130)), (window, start) -> { });
+        long[] flushed = new long[2];
+
+        // Act
+        int n = chunker.flush((window, start) -> {
+            flushed[0] = window.remaining();
+            flushed[1] = start;
+        });
+        chunker.reset();
+
+        // Assert
+        assertEquals(30, n);
+        assertEquals(30, flushed[0]);
+        assertEquals(100, flushed[1]);
+        assertEquals(0, chunker.getPendingSamples());
+        assertEquals(0, chunker.getNextStartSample());
+        assertEquals(1000, new FrameRechunker(512, 16000).toMillis(16000));
+    }
+
+    private static short[] ramp(int n) {
+        short[] samples = new short[n];
+        for (int i = 0; i < n; i++) {
+            samples[i] = (short) (i - 2500);
+        }
+        return samples;
+    }
+}
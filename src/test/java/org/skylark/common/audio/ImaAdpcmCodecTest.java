@@ -0,0 +1,73 @@
+package org.skylark.common.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ImaAdpcmCodec and codec negotiation
+ * ImaAdpcmCodec 及编解码协商单元测试
+ */
+class ImaAdpcmCodecTest {
+
+    @Test
+    void testEncodeDecode_RoundTripKeepsSignal() {
+        // Arrange - 100 ms of a 440 Hz tone
+        ImaAdpcmCodec codec = new ImaAdpcmCodec();
+        ByteBuffer pcm = ByteBuffer.allocate(1600 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 1600; i++) {
+            pcm.putShort((short) (8000 * Math.sin(2 * Math.PI * 440 * i / 16000)));
+        }
+        pcm.flip();
+
+        // Act
+        ByteBuffer encoded = codec.encode(pcm);
+        ByteBuffer decoded = codec.decode(encoded).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Assert - 4:1 plus block headers, SNR well above 20 dB
+        assertEquals(5 * (ImaAdpcmCodec.BLOCK_HEADER_BYTES + 160), encoded.remaining());
+        assertEquals(pcm.remaining(), decoded.remaining());
+        double signal = 0;
+        double noise = 0;
+        for (int i = 0; i < 1600; i++) {
+            double expected = pcm.getShort(i * 2);
+            double error = expected - decoded.getShort(i * 2);
+            signal += expected * expected;
+            noise += error * error;
+        }
+        assertTrue(10 * Math.log10(signal / noise) > 20, "SNR too low");
+    }
+
+    @Test
+    void testEncodeDecode_OddSampleCount_PreservesLength() {
+        // Arrange
+        ImaAdpcmCodec codec = new ImaAdpcmCodec(8000);
+        ByteBuffer pcm = ByteBuffer.wrap(new byte[2 * 161]);
+
+        // Act
+        ByteBuffer decoded = codec.decode(codec.encode(pcm));
+
+        // Assert
+        assertEquals(2 * 161, decoded.remaining());
+    }
+
+    @Test
+    void testDecode_TruncatedBlock_ThrowsException() {
+        ImaAdpcmCodec codec = new ImaAdpcmCodec();
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(ByteBuffer.wrap(new byte[3])));
+    }
+
+    @Test
+    void testNegotiate_PicksFirstSupportedCodec() {
+        assertNull(AudioCodecs.negotiate(null, 16000));
+        assertNull(AudioCodecs.negotiate(List.of("pcm", "adpcm"), 16000));
+        assertNull(AudioCodecs.negotiate(List.of("speex"), 16000));
+        AudioCodec codec = AudioCodecs.negotiate(List.of("opus", " ADPCM "), 16000);
+        assertNotNull(codec);
+        assertEquals(ImaAdpcmCodec.NAME, codec.getName());
+    }
+}
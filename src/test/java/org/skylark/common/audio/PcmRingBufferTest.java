@@ -0,0 +1,133 @@
+package org.skylark.common.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PcmRingBuffer
+ * PcmRingBuffer 单元测试
+ */
+class PcmRingBufferTest {
+
+    @Test
+    void testIdleWrites_KeepOnlyLatestPreRoll() {
+        // Arrange
+        PcmRingBuffer buffer = new PcmRingBuffer(16, 4);
+
+        // Act
+        buffer.write(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6);
+
+        // Assert
+        assertFalse(buffer.isCapturing());
+        assertEquals(4, buffer.preRollLength());
+        assertEquals(0, buffer.length());
+    }
+
+    @Test
+    void testStartUtterance_UnrollsWrappedPreRollInOrder() {
+        // Arrange - ring wraps: head ends mid-buffer
+        PcmRingBuffer buffer = new PcmRingBuffer(16, 4);
+        buffer.write(new byte[]{1, 2}, 0, 2);
+        buffer.write(new byte[]{3, 4}, 0, 2);
+        buffer.write(new byte[]{5, 6}, 0, 2);
+
+        // Act
+        buffer.startUtterance();
+        buffer.write(new byte[]{7, 8}, 0, 2);
+
+        // Assert
+        assertArrayEquals(new byte[]{3, 4, 5, 6, 7, 8}, toArray(buffer.utterance()));
+    }
+
+    @Test
+    void testWrite_ByteBufferDirect_MatchesArrayPath() {
+        // Arrange
+        PcmRingBuffer buffer = new PcmRingBuffer(16, 4);
+        ByteBuffer direct = ByteBuffer.allocateDirect(6);
+        direct.put(new byte[]{1, 2, 3, 4, 5, 6}).flip();
+
+        // Act
+        buffer.write(direct);
+        buffer.startUtterance();
+        direct.rewind();
+        buffer.write(direct);
+
+        // Assert
+        assertEquals(0, direct.position());
+        assertArrayEquals(new byte[]{3, 4, 5, 6, 1, 2, 3, 4, 5, 6}, toArray(buffer.utterance()));
+    }
+
+    @Test
+    void testWrite_BeyondMaxUtterance_TruncatesAndReportsFull() {
+        // Arrange
+        PcmRingBuffer buffer = new PcmRingBuffer(4, 0);
+        buffer.startUtterance();
+
+        // Act
+        int kept = buffer.write(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6);
+
+        // Assert
+        assertEquals(4, kept);
+        assertTrue(buffer.isFull());
+        assertEquals(2, buffer.getDroppedBytes());
+    }
+
+    @Test
+    void testUtterance_IsZeroCopyView() {
+        // Arrange
+        PcmRingBuffer buffer = new PcmRingBuffer(8, 0);
+        buffer.startUtterance();
+        buffer.write(new byte[]{1, 2, 3, 4}, 0, 4);
+
+        // Act
+        ByteBuffer first = buffer.utterance();
+        ByteBuffer second = buffer.utterance();
+
+        // Assert
+        assertTrue(first.hasArray());
+        assertSame(first.array(), second.array());
+        assertEquals(4, first.remaining());
+    }
+
+    @Test
+    void testReset_ReturnsToIdleWithEmptyPreRoll() {
+        // Arrange
+        PcmRingBuffer buffer = new PcmRingBuffer(8, 4);
+        buffer.write(new byte[]{1, 2}, 0, 2);
+        buffer.startUtterance();
+
+        // Act
+        buffer.reset();
+
+        // Assert
+        assertFalse(buffer.isCapturing());
+        assertEquals(0, buffer.preRollLength());
+        assertEquals(0, buffer.utterance().remaining());
+    }
+
+    @Test
+    void testForDuration_SizesFromFormat() {
+        // Act
+        PcmRingBuffer buffer = PcmRingBuffer.forDuration(16000, 1, 1000, 300);
+
+        // Assert
+        assertEquals(32000, buffer.getMaxUtteranceBytes());
+        assertEquals(9600, buffer.getPreRollBytes());
+        assertEquals(41600, buffer.capacity());
+    }
+
+    @Test
+    void testConstructor_InvalidSizes_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(8, -1));
+    }
+
+    private byte[] toArray(ByteBuffer view) {
+        byte[] out = new byte[view.remaining()];
+        view.duplicate().get(out);
+        return out;
+    }
+}
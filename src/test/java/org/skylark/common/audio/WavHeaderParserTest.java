@@ -0,0 +1,114 @@
+package org.skylark.common.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WavHeaderParser
+ * WavHeaderParser 单元测试
+ */
+class WavHeaderParserTest {
+
+    @Test
+    void testFeed_HeaderSplitAcrossChunks_StopsAtFirstSample() {
+        // Arrange - feed one byte at a time
+        byte[] wav = wav(new byte[]{11, 22, 33, 44}, 22050, 2, null);
+        WavHeaderParser parser = new WavHeaderParser();
+
+        // Act
+        int offset = 0;
+        boolean complete = false;
+        ByteBuffer last = null;
+        while (!complete) {
+            last = ByteBuffer.wrap(wav, offset, 1);
+            complete = parser.feed(last);
+            offset++;
+        }
+
+        // Assert
+        assertTrue(parser.isWav());
+        assertTrue(parser.isPcm16());
+        assertEquals(44, parser.getHeaderBytes());
+        assertEquals(44, offset);
+        assertFalse(last.hasRemaining());
+        assertEquals(4, parser.getDataLength());
+        assertEquals(new AudioStreamFormat(AudioStreamFormat.Encoding.PCM_S16LE, 22050, 2), parser.getFormat());
+    }
+
+    @Test
+    void testFeed_ListChunkBeforeData_IsSkipped() {
+        // Arrange
+        byte[] list = new byte[]{'L', 'I', 'S', 'T', 3, 0, 0, 0, 1, 2, 3, 0};
+        byte[] wav = wav(new byte[]{5, 6}, 16000, 1, list);
+        ByteBuffer buffer = ByteBuffer.wrap(wav);
+        WavHeaderParser parser = new WavHeaderParser();
+
+        // Act
+        boolean complete = parser.feed(buffer);
+
+        // Assert - odd-sized chunk is padded to an even boundary
+        assertTrue(complete);
+        assertEquals(44 + list.length, buffer.position());
+        assertEquals(5, buffer.get());
+    }
+
+    @Test
+    void testFeed_RawPcm_CompletesWithoutConsuming() {
+        // Arrange - even a 2-byte frame must not be mistaken for a partial header
+        ByteBuffer pcm = ByteBuffer.wrap(new byte[]{1, 2});
+        WavHeaderParser parser = new WavHeaderParser();
+
+        // Act
+        boolean complete = parser.feed(pcm);
+
+        // Assert
+        assertTrue(complete);
+        assertFalse(parser.isWav());
+        assertNull(parser.getFormat());
+        assertEquals(0, pcm.position());
+    }
+
+    @Test
+    void testFeed_StreamingDataSize_ReportsUnknownLength() {
+        // Arrange
+        byte[] wav = wav(new byte[0], 16000, 1, null);
+        ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN).putInt(40, 0xFFFFFFFF);
+        WavHeaderParser parser = new WavHeaderParser();
+
+        // Act
+        assertTrue(parser.feed(ByteBuffer.wrap(wav)));
+
+        // Assert
+        assertEquals(-1, parser.getDataLength());
+    }
+
+    @Test
+    void testFeed_DataBeforeFmt_ThrowsException() {
+        // Arrange
+        ByteBuffer buffer = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(12).put("WAVE".getBytes()).put("data".getBytes()).putInt(0);
+        buffer.flip();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new WavHeaderParser().feed(buffer));
+    }
+
+    /** Builds a PCM16 WAV, optionally with an extra chunk between fmt and data */
+    static byte[] wav(byte[] pcm, int sampleRate, int channels, byte[] extraChunk) {
+        int extra = extraChunk != null ? extraChunk.length : 0;
+        ByteBuffer wav = ByteBuffer.allocate(44 + extra + pcm.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + extra + pcm.length).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+            .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2))
+            .putShort((short) 16);
+        if (extraChunk != null) {
+            wav.put(extraChunk);
+        }
+        wav.put("data".getBytes()).putInt(pcm.length).put(pcm);
+        return wav.array();
+    }
+}
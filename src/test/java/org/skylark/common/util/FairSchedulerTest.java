@@ -0,0 +1,219 @@
+package org.skylark.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FairScheduler
+ * FairScheduler 单元测试
+ */
+class FairSchedulerTest {
+
+    private FairScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /** Occupies the only worker until the returned latch is released */
+    private CountDownLatch blockWorker() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit("blocker", 0, () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private CompletableFuture<String> record(List<String> order, String key, long cost, String label) {
+        return scheduler.submit(key, cost, () -> {
+            order.add(label);
+            return label;
+        });
+    }
+
+    @Test
+    void testSubmit_SessionsServedRoundRobin() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 1, 16, 0);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch release = blockWorker();
+
+        // Act - session A queues three jobs before B queues one
+        record(order, "A", 100, "A1");
+        record(order, "A", 100, "A2");
+        record(order, "A", 100, "A3");
+        CompletableFuture<String> last = record(order, "B", 100, "B1");
+        release.countDown();
+        scheduler.submit("A", 100, () -> null);
+        last.get(5, TimeUnit.SECONDS);
+
+        // Assert - B does not wait for all of A
+        assertEquals(List.of("A1", "B1"), order.subList(0, 2));
+    }
+
+    @Test
+    void testSubmit_ShortJobsServedFirst() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 1, 16, 2000);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch release = blockWorker();
+
+        // Act
+        record(order, "long", 10_000, "long");
+        CompletableFuture<String> shortJob = record(order, "short", 500, "short");
+        release.countDown();
+        shortJob.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("short", order.get(0));
+    }
+
+    @Test
+    void testSubmit_LongJobWaitingPastAgingLimit_ServedBeforeShortJobs() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 1, 16, 2000, 50);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch release = blockWorker();
+        CompletableFuture<String> longJob = record(order, "long", 10_000, "long");
+        Thread.sleep(100);
+
+        // Act
+        record(order, "short", 500, "short");
+        release.countDown();
+        longJob.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("long", order.get(0));
+        assertEquals(1, scheduler.getAgedCount());
+    }
+
+    @Test
+    void testSubmit_SameKeyNeverRunsConcurrently() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 4, 64, 0);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<?> last = null;
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            last = scheduler.submit("session", 1, () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                order.add(n);
+                active.decrementAndGet();
+                return null;
+            });
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, maxActive.get());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void testSubmit_QueueFull_RejectsAndCounts() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 1, 2, 0);
+        CountDownLatch release = blockWorker();
+
+        // Act
+        CompletableFuture<Integer> first = scheduler.submit("A", 10, () -> 1);
+        scheduler.submit("B", 10, () -> 2);
+        CompletableFuture<Integer> third = scheduler.submit("C", 10, () -> 3);
+        release.countDown();
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> third.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getRejectedCount());
+        assertEquals(4, scheduler.getSubmittedCount());
+    }
+
+    @Test
+    void testCall_PropagatesJobFailureAndRecordsMetrics() {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 2, 8, 0);
+
+        // Act
+        IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+            scheduler.call("A", 1000, () -> {
+                throw new IllegalStateException("decode failed");
+            }));
+
+        // Assert
+        assertEquals("decode failed", e.getMessage());
+        assertEquals(1, scheduler.getCompletedCount());
+        assertTrue(scheduler.getRealTimeFactor() >= 0);
+        assertTrue(scheduler.getQueueWaitPercentileMicros(99) <= scheduler.getMaxQueueWaitMicros());
+    }
+
+    @Test
+    void testQueueWaitPercentile_SampleCountPastIntRange_KeepsWorking() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 1, 8, 0);
+        ReflectionTestUtils.setField(scheduler, "recentWaitCount", (long) Integer.MAX_VALUE);
+
+        // Act
+        scheduler.call("A", 10, () -> 1);
+        Integer second = scheduler.call("A", 10, () -> 2);
+
+        // Assert
+        assertEquals(2, second);
+        assertTrue(scheduler.getQueueWaitPercentileMicros(99) >= 0);
+    }
+
+    @Test
+    void testCall_InterruptedWhileQueued_JobIsSkipped() throws Exception {
+        // Arrange
+        scheduler = new FairScheduler("test-fair", 1, 8, 0);
+        CountDownLatch release = blockWorker();
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Exception> failure = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                scheduler.call("A", 10, runs::incrementAndGet);
+            } catch (Exception e) {
+                failure.complete(e);
+            }
+        });
+        caller.start();
+        for (int i = 0; i < 100 && scheduler.getQueueDepth() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        // Act
+        caller.interrupt();
+        assertInstanceOf(InterruptedException.class, failure.get(5, TimeUnit.SECONDS));
+        release.countDown();
+        scheduler.submit("A", 10, () -> 0).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(0, runs.get());
+        assertEquals(1, scheduler.getCancelledCount());
+    }
+}
@@ -0,0 +1,118 @@
+package org.skylark.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MicroBatchScheduler
+ * MicroBatchScheduler 单元测试
+ */
+class MicroBatchSchedulerTest {
+
+    private MicroBatchScheduler<Integer, Integer> scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmit_ConcurrentRequests_AreBatchedAndScatteredInOrder() throws Exception {
+        // Arrange - the first batch blocks until all requests are queued
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        scheduler = new MicroBatchScheduler<>("test-batcher", 4, 50_000, batch -> {
+            batchSizes.add(batch.size());
+            release.await(2, TimeUnit.SECONDS);
+            return batch.stream().map(x -> x * 10).collect(Collectors.toList());
+        });
+
+        // Act
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            futures.add(scheduler.submit(i));
+        }
+        release.countDown();
+
+        // Assert
+        for (int i = 0; i < 9; i++) {
+            assertEquals(i * 10, futures.get(i).get(2, TimeUnit.SECONDS));
+        }
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+        assertEquals(9, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() <= 4, "Expected batching, got " + batchSizes);
+        assertEquals(9, scheduler.getRequestCount());
+        assertTrue(scheduler.getAverageBatchSize() > 1);
+    }
+
+    @Test
+    void testCall_SingleRequest_RunsAfterMaxDelay() throws Exception {
+        // Arrange
+        scheduler = new MicroBatchScheduler<>("test-batcher", 8, 2_000,
+            batch -> batch.stream().map(x -> x + 1).collect(Collectors.toList()));
+
+        // Act
+        int result = scheduler.call(41);
+
+        // Assert
+        assertEquals(42, result);
+        assertEquals(1, scheduler.getBatchCount());
+        assertTrue(scheduler.getMaxQueueDelayMicros() >= 0);
+    }
+
+    @Test
+    void testSubmit_ShardedDispatchers_RunBatchesInParallelByKey() throws Exception {
+        // Arrange - each batch waits until the other shard's batch is running too
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        List<Boolean> overlapped = new CopyOnWriteArrayList<>();
+        scheduler = new MicroBatchScheduler<>("test-batcher", 4, 0, 2, (shard, batch) -> {
+            bothRunning.countDown();
+            overlapped.add(bothRunning.await(2, TimeUnit.SECONDS));
+            return batch.stream().map(x -> shard).collect(Collectors.toList());
+        });
+
+        // Act
+        CompletableFuture<Integer> even = scheduler.submit(4);
+        CompletableFuture<Integer> odd = scheduler.submit(7);
+
+        // Assert - the key's hash picks the shard
+        assertEquals(0, even.get(5, TimeUnit.SECONDS));
+        assertEquals(1, odd.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(true, true), overlapped);
+        assertEquals(2, scheduler.getDispatcherCount());
+    }
+
+    @Test
+    void testCall_BatchFunctionFails_PropagatesToCaller() {
+        // Arrange
+        scheduler = new MicroBatchScheduler<>("test-batcher", 2, 0, batch -> {
+            throw new IllegalStateException("model failed");
+        });
+
+        // Act & Assert
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> scheduler.call(1));
+        assertEquals("model failed", error.getMessage());
+    }
+
+    @Test
+    void testConstructor_InvalidArguments_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new MicroBatchScheduler<Integer, Integer>("x", 0, 0, batch -> batch));
+        assertThrows(IllegalArgumentException.class,
+            () -> new MicroBatchScheduler<Integer, Integer>("x", 1, -1, batch -> batch));
+        assertThrows(IllegalArgumentException.class,
+            () -> new MicroBatchScheduler<Integer, Integer>("x", 1, 0, 0, (shard, batch) -> batch));
+    }
+}
@@ -0,0 +1,247 @@
+package org.skylark.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ModelRegistry
+ */
+class ModelRegistryTest {
+
+    private static final long MODEL_BYTES = 100;
+
+    private ModelRegistry<FakeModel> registry;
+
+    @AfterEach
+    void tearDown() {
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    private static final class FakeModel implements AutoCloseable {
+        final String location;
+        volatile boolean closed;
+
+        FakeModel(String location) {
+            this.location = location;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Loads a FakeModel of MODEL_BYTES per location; locations starting with "bad" fail and
+     * those starting with "native" throw an Error
+     */
+    private static final class FakeLoader implements ModelRegistry.Loader<FakeModel> {
+        final AtomicInteger loads = new AtomicInteger();
+        final Map<String, FakeModel> loaded = new ConcurrentHashMap<>();
+        volatile CountDownLatch gate;
+
+        @Override
+        public FakeModel load(String location) throws Exception {
+            loads.incrementAndGet();
+            if (gate != null) {
+                gate.await(5, TimeUnit.SECONDS);
+            }
+            if (location.startsWith("bad")) {
+                throw new IllegalStateException("corrupt model");
+            }
+            if (location.startsWith("native")) {
+                throw new UnsatisfiedLinkError("no vosk in java.library.path");
+            }
+            FakeModel model = new FakeModel(location);
+            loaded.put(location, model);
+            return model;
+        }
+
+        @Override
+        public long footprint(String location) {
+            return MODEL_BYTES;
+        }
+    }
+
+    private ModelRegistry<FakeModel> newRegistry(long budget, FakeLoader loader) {
+        ModelRegistry<FakeModel> created = new ModelRegistry<>("test-models", budget, loader);
+        created.register("zh", "dir/zh");
+        created.register("en", "dir/en");
+        created.register("ja", "dir/ja");
+        return created;
+    }
+
+    @Test
+    void testAcquire_LoadsOnceAndSharesModel() throws Exception {
+        // Arrange
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(0, loader);
+
+        // Act
+        ModelRegistry<FakeModel>.Lease first = registry.acquire("zh");
+        ModelRegistry<FakeModel>.Lease second = registry.acquire("zh");
+
+        // Assert
+        assertSame(first.get(), second.get());
+        assertEquals(1, loader.loads.get());
+        assertEquals(1L, registry.getMetrics().get("hits"));
+        assertTrue(registry.isResident("zh"));
+    }
+
+    @Test
+    void testAcquire_OverBudget_EvictsLeastRecentlyUsedUnreferencedModel() throws Exception {
+        // Arrange - room for two models
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(2 * MODEL_BYTES, loader);
+        registry.acquire("zh").close();
+        registry.acquire("en").close();
+        registry.acquire("zh").close();
+
+        // Act
+        registry.acquire("ja").close();
+
+        // Assert
+        assertTrue(loader.loaded.get("dir/en").closed);
+        assertFalse(loader.loaded.get("dir/zh").closed);
+        assertFalse(registry.isResident("en"));
+        assertTrue(registry.isResident("ja"));
+        assertEquals(1L, registry.getMetrics().get("evictions"));
+        assertEquals(2 * MODEL_BYTES, registry.getMetrics().get("residentBytes"));
+    }
+
+    @Test
+    void testRelease_ReferencedModelIsEvictedOnlyOnceReleased() throws Exception {
+        // Arrange - room for one model
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(MODEL_BYTES, loader);
+        ModelRegistry<FakeModel>.Lease zh = registry.acquire("zh");
+
+        // Act
+        ModelRegistry<FakeModel>.Lease en = registry.acquire("en");
+
+        // Assert - both in use, so the budget is exceeded rather than a model pulled away
+        assertFalse(zh.get().closed);
+        assertTrue(registry.isResident("zh"));
+        zh.close();
+        zh.close();
+        assertTrue(zh.get().closed);
+        assertFalse(en.get().closed);
+        assertEquals(List.of("en"), registry.getMetrics().get("residentKeys"));
+    }
+
+    @Test
+    void testAcquire_ConcurrentCallersShareOneLoad() throws Exception {
+        // Arrange
+        FakeLoader loader = new FakeLoader();
+        loader.gate = new CountDownLatch(1);
+        registry = newRegistry(0, loader);
+
+        // Act
+        CompletableFuture<FakeModel> first = CompletableFuture.supplyAsync(() -> acquireQuietly("zh"));
+        CompletableFuture<FakeModel> second = CompletableFuture.supplyAsync(() -> acquireQuietly("zh"));
+        Thread.sleep(100);
+        loader.gate.countDown();
+
+        // Assert
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loader.loads.get());
+    }
+
+    @Test
+    void testAcquire_FailedLoadThrowsAndIsRetried() {
+        // Arrange
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(0, loader);
+        registry.register("broken", "bad/dir");
+
+        // Act & Assert
+        Exception e = assertThrows(IllegalStateException.class, () -> registry.acquire("broken"));
+        assertEquals("corrupt model", e.getMessage());
+        assertFalse(registry.isResident("broken"));
+        assertThrows(IllegalStateException.class, () -> registry.acquire("broken"));
+        assertEquals(2, loader.loads.get());
+        assertEquals(2L, registry.getMetrics().get("loadFailures"));
+        assertEquals(0L, registry.getMetrics().get("residentBytes"));
+    }
+
+    @Test
+    void testAcquire_LoaderThrowsError_FailsWaitersAndIsRetried() {
+        // Arrange
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(0, loader);
+        registry.register("native", "native/dir");
+
+        // Act & Assert - neither call hangs on a future that never completes
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(UnsatisfiedLinkError.class, () -> registry.acquire("native"));
+            assertThrows(UnsatisfiedLinkError.class, () -> registry.acquire("native"));
+        });
+        assertEquals(2, loader.loads.get());
+        assertFalse(registry.isResident("native"));
+        assertEquals(0L, registry.getMetrics().get("residentBytes"));
+    }
+
+    @Test
+    void testAcquire_UnknownKey_ThrowsIllegalArgumentException() {
+        registry = newRegistry(0, new FakeLoader());
+
+        assertThrows(IllegalArgumentException.class, () -> registry.acquire("fr"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(" ", "dir/x"));
+    }
+
+    @Test
+    void testPreload_LoadsInBackgroundAndCloseReleasesAll() throws Exception {
+        // Arrange
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(0, loader);
+
+        // Act
+        registry.preload("en").get(5, TimeUnit.SECONDS);
+        ModelRegistry<FakeModel>.Lease lease = registry.acquire("en");
+        registry.close();
+
+        // Assert
+        assertEquals(1, loader.loads.get());
+        assertTrue(lease.get().closed);
+        assertThrows(IllegalStateException.class, () -> registry.acquire("en"));
+    }
+
+    @Test
+    void testPreload_NoRoomBesideModelsInUse_IsSkipped() throws Exception {
+        // Arrange - the budget holds one model and it is in use
+        FakeLoader loader = new FakeLoader();
+        registry = newRegistry(MODEL_BYTES, loader);
+        ModelRegistry<FakeModel>.Lease zh = registry.acquire("zh");
+
+        // Act
+        registry.preload("en").get(5, TimeUnit.SECONDS);
+
+        // Assert - not loaded only to be evicted again
+        assertEquals(1, loader.loads.get());
+        assertFalse(registry.isResident("en"));
+        assertTrue(registry.isResident("zh"));
+        assertEquals(1L, registry.getMetrics().get("preloadsSkipped"));
+        zh.close();
+    }
+
+    private FakeModel acquireQuietly(String key) {
+        try {
+            return registry.acquire(key).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.skylark.infrastructure.adapter;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HttpASRAdapter against a loopback HTTP server
+ */
+class HttpASRAdapterTest {
+
+    private HttpServer server;
+    private final AtomicReference<byte[]> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> contentType = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requestBody.set(exchange.getRequestBody().readAllBytes());
+            contentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            byte[] reply = "{\"text\":\"你好\",\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, reply.length);
+            exchange.getResponseBody().write(reply);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpASRAdapter buildAdapter() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("serviceUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/asr");
+        return new HttpASRAdapter(config);
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            if (Arrays.equals(haystack, i, i + needle.length, needle, 0, needle.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void testRecognize_UploadsWavHeaderAndPcmAsMultipartFile() throws Exception {
+        // Arrange
+        byte[] pcm = new byte[1600];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (byte) (i * 7);
+        }
+
+        // Act
+        String text = buildAdapter().recognize(pcm);
+
+        // Assert
+        assertEquals("你好", text);
+        assertTrue(contentType.get().startsWith("multipart/form-data"));
+        String body = new String(requestBody.get(), StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("name=\"file\"; filename=\"audio.wav\""));
+        int riff = indexOf(requestBody.get(), "RIFF".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(riff > 0);
+        assertArrayEquals(pcm, Arrays.copyOfRange(requestBody.get(), riff + 44, riff + 44 + pcm.length));
+    }
+
+    @Test
+    void testRecognize_EmptyAudio_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> buildAdapter().recognize(new byte[0]));
+    }
+
+    @Test
+    void testConstructor_MissingServiceUrl_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new HttpASRAdapter(new HashMap<>()));
+    }
+}
@@ -0,0 +1,187 @@
+package org.skylark.infrastructure.adapter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HttpVADAdapter stream mode, against a loopback WebSocket server
+ */
+class HttpVADAdapterTest {
+
+    private MockWebSocketServer server;
+    private HttpVADAdapter adapter;
+
+    private final BlockingQueue<byte[]> binaryFrames = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> textMessages = new LinkedBlockingQueue<>();
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (adapter != null) {
+            adapter.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private void startServer() throws Exception {
+        server = new MockWebSocketServer(new MockWebSocketServer.Handler() {
+            @Override
+            public void onOpen(MockWebSocketServer.Connection connection) {
+                paths.add(connection.getPath());
+            }
+
+            @Override
+            public void onText(MockWebSocketServer.Connection connection, String text) {
+                textMessages.add(text);
+            }
+
+            @Override
+            public void onBinary(MockWebSocketServer.Connection connection, byte[] data) {
+                binaryFrames.add(data);
+            }
+        });
+        Map<String, Object> config = new HashMap<>();
+        config.put("serviceUrl", "http://localhost:1");
+        config.put("mode", HttpVADAdapter.MODE_STREAM);
+        config.put("streamUrl", server.getUrl() + "/vad/stream");
+        adapter = new HttpVADAdapter(config);
+    }
+
+    @Test
+    void testConstructor_UnknownMode_ThrowsIllegalArgumentException() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("serviceUrl", "http://localhost:8080");
+        config.put("mode", "batch");
+
+        assertThrows(IllegalArgumentException.class, () -> new HttpVADAdapter(config));
+    }
+
+    @Test
+    void testStreamMode_SendsFramesAsBinaryOnOneSocket() throws Exception {
+        // Arrange
+        startServer();
+        byte[] first = {1, 2, 3, 4};
+        byte[] second = {5, 6};
+
+        // Act
+        assertNull(adapter.detect(first, "session 1"));
+        assertNull(adapter.detect(ByteBuffer.wrap(second), "session 1"));
+
+        // Assert
+        assertArrayEquals(first, binaryFrames.poll(5, TimeUnit.SECONDS));
+        assertArrayEquals(second, binaryFrames.poll(5, TimeUnit.SECONDS));
+        assertEquals(List.of("/vad/stream?session_id=session+1"), paths);
+    }
+
+    @Test
+    void testStreamMode_PushedEventReturnedByLaterDetect() throws Exception {
+        // Arrange
+        startServer();
+        BlockingQueue<String> heard = new LinkedBlockingQueue<>();
+        adapter.setEventListener((sessionId, status) -> heard.add(sessionId + ":" + status));
+        adapter.detect(new byte[]{1, 2}, "s1");
+        assertNotNull(binaryFrames.poll(5, TimeUnit.SECONDS));
+
+        // Act
+        server.getConnections().get(0).sendText("{\"status\":\"start\",\"offset_ms\":120}");
+
+        // Assert
+        assertEquals("s1:start", heard.poll(5, TimeUnit.SECONDS));
+        assertEquals("start", adapter.detect(new byte[]{3, 4}, "s1"));
+        assertNull(adapter.detect(new byte[]{5, 6}, "s1"));
+    }
+
+    @Test
+    void testStreamMode_ResetSendsResetMessage() throws Exception {
+        // Arrange
+        startServer();
+        adapter.detect(new byte[]{1, 2}, "s1");
+
+        // Act
+        adapter.reset("s1");
+
+        // Assert
+        assertEquals("{\"type\":\"reset\"}", textMessages.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testStreamMode_ReconnectsAfterServerDropsConnection() throws Exception {
+        // Arrange
+        startServer();
+        adapter.detect(new byte[]{1, 2}, "s1");
+        assertNotNull(binaryFrames.poll(5, TimeUnit.SECONDS));
+        server.getConnections().get(0).abort();
+
+        // Act: keep sending until a frame arrives on a new socket
+        byte[] frame = {7, 8};
+        byte[] received = null;
+        for (int i = 0; i < 50 && received == null; i++) {
+            try {
+                adapter.detect(frame, "s1");
+            } catch (IOException e) {
+                // within the reconnect backoff
+            }
+            received = binaryFrames.poll(100, TimeUnit.MILLISECONDS);
+        }
+
+        // Assert
+        assertArrayEquals(frame, received);
+        assertEquals(2, paths.size());
+    }
+
+    @Test
+    void testStreamMode_FailedConnect_FailsFramesUntilBackoffPasses() throws Exception {
+        // Arrange - nothing listens on port 1
+        Map<String, Object> config = new HashMap<>();
+        config.put("serviceUrl", "http://localhost:1");
+        config.put("mode", HttpVADAdapter.MODE_STREAM);
+        config.put("reconnectBackoffMs", 60_000);
+        adapter = new HttpVADAdapter(config);
+        adapter.detect(new byte[]{1, 2}, "s1");
+
+        // Act: frames are accepted until the connect attempt fails
+        IOException failure = null;
+        for (int i = 0; i < 50 && failure == null; i++) {
+            try {
+                adapter.detect(new byte[]{3, 4}, "s1");
+                Thread.sleep(100);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        // Assert - later frames keep failing fast instead of reconnecting
+        assertNotNull(failure);
+        assertThrows(IOException.class, () -> adapter.detect(new byte[]{5, 6}, "s1"));
+    }
+
+    @Test
+    void testCloseSession_ClosesStreamAndNextFrameReconnects() throws Exception {
+        // Arrange
+        startServer();
+        adapter.detect(new byte[]{1, 2}, "s1");
+        assertNotNull(binaryFrames.poll(5, TimeUnit.SECONDS));
+
+        // Act
+        adapter.closeSession("s1");
+        adapter.detect(new byte[]{3, 4}, "s1");
+
+        // Assert
+        assertArrayEquals(new byte[]{3, 4}, binaryFrames.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, paths.size());
+    }
+}
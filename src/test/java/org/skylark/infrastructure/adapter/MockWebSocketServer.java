@@ -0,0 +1,259 @@
+package org.skylark.infrastructure.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal RFC 6455 WebSocket server for adapter tests
+ * 用于适配器测试的最小 WebSocket 服务器
+ *
+ * <p>Stands in for remote streaming services (VAD, ASR) on a loopback port. Handles the
+ * upgrade handshake, masked client frames, fragmentation, ping and close; each connection
+ * runs on its own daemon thread and is handed to the {@link Handler}.</p>
+ */
+public class MockWebSocketServer implements AutoCloseable {
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    /**
+     * Server-side callbacks, invoked on the connection's thread
+     */
+    public interface Handler {
+        default void onOpen(Connection connection) {
+        }
+
+        default void onText(Connection connection, String text) {
+        }
+
+        default void onBinary(Connection connection, byte[] data) {
+        }
+
+        default void onClose(Connection connection) {
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Handler handler;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final Thread acceptor;
+    private volatile long handshakeDelayMs;
+
+    public MockWebSocketServer(Handler handler) throws IOException {
+        this.handler = handler;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptLoop, "mock-ws-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Base URL, e.g. {@code ws://127.0.0.1:12345} */
+    public String getUrl() {
+        return "ws://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /** Delays every later handshake response, to simulate a slow connect */
+    public void setHandshakeDelayMs(long handshakeDelayMs) {
+        this.handshakeDelayMs = handshakeDelayMs;
+    }
+
+    public List<Connection> getConnections() {
+        return connections;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> serve(socket), "mock-ws-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Connection connection = null;
+        try {
+            InputStream in = socket.getInputStream();
+            String request = readHeaders(in);
+            String path = request.split(" ")[1];
+            Map<String, String> headers = new HashMap<>();
+            for (String line : request.split("\r\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+                }
+            }
+            String key = headers.get("sec-websocket-key");
+            byte[] sha1 = MessageDigest.getInstance("SHA-1").digest((key + GUID).getBytes(StandardCharsets.US_ASCII));
+            String response = "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + Base64.getEncoder().encodeToString(sha1) + "\r\n\r\n";
+            if (handshakeDelayMs > 0) {
+                Thread.sleep(handshakeDelayMs);
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(response.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            connection = new Connection(socket, path, headers);
+            connections.add(connection);
+            handler.onOpen(connection);
+            readFrames(new DataInputStream(in), connection);
+        } catch (Exception e) {
+            // connection dropped
+        } finally {
+            if (connection != null) {
+                connections.remove(connection);
+                handler.onClose(connection);
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+
+    private void readFrames(DataInputStream in, Connection connection) throws IOException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int messageOpcode = 0;
+        while (true) {
+            int b0 = in.readUnsignedByte();
+            int b1 = in.readUnsignedByte();
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            byte[] mask = new byte[4];
+            if ((b1 & 0x80) != 0) {
+                in.readFully(mask);
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+
+            if (opcode == 0x8) {
+                connection.sendFrame(0x8, new byte[0]);
+                return;
+            } else if (opcode == 0x9) {
+                connection.sendFrame(0xA, payload);
+                continue;
+            } else if (opcode == 0xA) {
+                continue;
+            }
+            if (opcode != 0) {
+                messageOpcode = opcode;
+                message.reset();
+            }
+            message.write(payload);
+            if (fin) {
+                byte[] data = message.toByteArray();
+                if (messageOpcode == 0x1) {
+                    handler.onText(connection, new String(data, StandardCharsets.UTF_8));
+                } else {
+                    handler.onBinary(connection, data);
+                }
+            }
+        }
+    }
+
+    private static String readHeaders(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("EOF in handshake");
+            }
+            buffer.write(b);
+            matched = (b == '\r' || b == '\n') && "\r\n\r\n".charAt(matched) == b ? matched + 1 : 0;
+        }
+        return buffer.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Connection connection : connections) {
+            connection.abort();
+        }
+    }
+
+    /**
+     * One accepted client
+     */
+    public static final class Connection {
+        private final Socket socket;
+        private final String path;
+        private final Map<String, String> headers;
+
+        Connection(Socket socket, String path, Map<String, String> headers) {
+            this.socket = socket;
+            this.path = path;
+            this.headers = headers;
+        }
+
+        /** Request path including the query string */
+        public String getPath() {
+            return path;
+        }
+
+        /** Handshake request header, by case-insensitive name; null if absent */
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase());
+        }
+
+        public void sendText(String text) throws IOException {
+            sendFrame(0x1, text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public void sendBinary(byte[] data) throws IOException {
+            sendFrame(0x2, data);
+        }
+
+        /** Drops the TCP connection without a close handshake */
+        public void abort() throws IOException {
+            socket.close();
+        }
+
+        synchronized void sendFrame(int opcode, byte[] payload) throws IOException {
+            OutputStream out = socket.getOutputStream();
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else if (payload.length < 65536) {
+                out.write(126);
+                out.write(payload.length >> 8);
+                out.write(payload.length);
+            } else {
+                out.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) ((long) payload.length >> shift));
+                }
+            }
+            out.write(payload);
+            out.flush();
+        }
+    }
+}
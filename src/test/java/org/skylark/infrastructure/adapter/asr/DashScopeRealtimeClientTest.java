@@ -0,0 +1,262 @@
+package org.skylark.infrastructure.adapter.asr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skylark.infrastructure.adapter.MockWebSocketServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DashScopeRealtimeClient and DashScopeConnectionPool against a loopback
+ * DashScope-like WebSocket server
+ */
+class DashScopeRealtimeClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<JsonNode> commands = new LinkedBlockingQueue<>();
+    private final AtomicInteger audioBytes = new AtomicInteger();
+    /** Audio frames that arrived before the server answered task-started */
+    private final AtomicInteger earlyFrames = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final List<String> partials = new CopyOnWriteArrayList<>();
+    /** Sentence the server recognizes for each task; null = fail the task on finish */
+    private volatile String sentence = "你好世界。";
+
+    private MockWebSocketServer server;
+    private DashScopeConnectionPool pool;
+    private DashScopeRealtimeClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebSocketServer(new MockWebSocketServer.Handler() {
+            private volatile boolean started;
+
+            @Override
+            public void onOpen(MockWebSocketServer.Connection connection) {
+                opened.incrementAndGet();
+            }
+
+            @Override
+            public void onText(MockWebSocketServer.Connection connection, String text) {
+                JsonNode command = readTree(text);
+                commands.add(command);
+                String taskId = command.path("header").path("task_id").asText();
+                switch (command.path("header").path("action").asText()) {
+                    case "run-task":
+                        // Answer late, so audio sent right after start must wait for it
+                        sleep(50);
+                        started = true;
+                        send(connection, event("task-started", taskId, null));
+                        break;
+                    case "finish-task":
+                        started = false;
+                        if (sentence == null) {
+                            send(connection, "{\"header\":{\"event\":\"task-failed\",\"task_id\":\"" + taskId
+                                + "\",\"error_code\":\"InvalidParameter\",\"error_message\":\"bad audio\"}}");
+                            return;
+                        }
+                        send(connection, event("result-generated", taskId,
+                            "{\"text\":\"" + sentence + "\",\"sentence_end\":true}"));
+                        send(connection, event("task-finished", taskId, null));
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            @Override
+            public void onBinary(MockWebSocketServer.Connection connection, byte[] data) {
+                if (!started) {
+                    earlyFrames.incrementAndGet();
+                }
+                audioBytes.addAndGet(data.length);
+            }
+        });
+        pool = new DashScopeConnectionPool(server.getUrl(), "sk-test", 1, DashScopeConnectionPool.DEFAULT_IDLE_TTL_MS);
+        client = new DashScopeRealtimeClient(pool, "paraformer-realtime-v2", 50, 500);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.cancel();
+        pool.close();
+        server.close();
+    }
+
+    private JsonNode readTree(String text) {
+        try {
+            return objectMapper.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String event(String event, String taskId, String sentence) {
+        String header = "{\"event\":\"" + event + "\",\"task_id\":\"" + taskId + "\"}";
+        String payload = sentence != null ? "{\"output\":{\"sentence\":" + sentence + "}}" : "{}";
+        return "{\"header\":" + header + ",\"payload\":" + payload + "}";
+    }
+
+    private static void send(MockWebSocketServer.Connection connection, String text) {
+        try {
+            connection.sendText(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private DashScopeRealtimeClient.ASRCallback recordingCallback(AtomicReference<Exception> error) {
+        return new DashScopeRealtimeClient.ASRCallback() {
+            @Override public void onPartialResult(String text, boolean isStable) { partials.add(text); }
+            @Override public void onFinalResult(String text) {}
+            @Override public void onError(Exception e) { error.set(e); }
+        };
+    }
+
+    private void awaitAudio(int bytes) throws InterruptedException {
+        for (int i = 0; i < 100 && audioBytes.get() < bytes; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(bytes, audioBytes.get());
+    }
+
+    @Test
+    void testUtterance_RunsTaskAndSendsAudioAfterTaskStarted() throws Exception {
+        // Arrange
+        client.start(recordingCallback(new AtomicReference<>()));
+
+        // Act
+        client.sendAudio(new byte[640]);
+        client.sendAudio(new byte[640]);
+        String result = client.endStream().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        JsonNode runTask = commands.poll(5, TimeUnit.SECONDS);
+        assertEquals("run-task", runTask.path("header").path("action").asText());
+        assertEquals("duplex", runTask.path("header").path("streaming").asText());
+        assertEquals("paraformer-realtime-v2", runTask.path("payload").path("model").asText());
+        assertEquals("pcm", runTask.path("payload").path("parameters").path("format").asText());
+        assertEquals(16000, runTask.path("payload").path("parameters").path("sample_rate").asInt());
+        JsonNode finishTask = commands.poll(5, TimeUnit.SECONDS);
+        assertEquals("finish-task", finishTask.path("header").path("action").asText());
+        assertEquals(runTask.path("header").path("task_id"), finishTask.path("header").path("task_id"));
+        assertEquals(1280, audioBytes.get());
+        assertEquals(0, earlyFrames.get());
+        assertEquals("你好世界。", result);
+        assertEquals("bearer sk-test", server.getConnections().get(0).getHeader("Authorization"));
+    }
+
+    @Test
+    void testResultGenerated_SentencesAccumulateIntoPartials() throws Exception {
+        // Arrange
+        client.start(recordingCallback(new AtomicReference<>()));
+        client.sendAudio(new byte[320]);
+        awaitAudio(320);
+        String taskId = commands.poll(5, TimeUnit.SECONDS).path("header").path("task_id").asText();
+        MockWebSocketServer.Connection connection = server.getConnections().get(0);
+
+        // Act
+        connection.sendText(event("result-generated", taskId, "{\"text\":\"你好\",\"sentence_end\":false}"));
+        connection.sendText(event("result-generated", taskId, "{\"text\":\"你好。\",\"sentence_end\":true}"));
+        connection.sendText(event("result-generated", taskId, "{\"text\":\"再见\",\"sentence_end\":false}"));
+
+        // Assert
+        for (int i = 0; i < 100 && partials.size() < 3; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of("你好", "你好。", "你好。再见"), partials);
+    }
+
+    @Test
+    void testPool_WarmUpPreOpensAndUtterancesReuseConnection() throws Exception {
+        // Arrange
+        pool.warmUp();
+        for (int i = 0; i < 100 && pool.getIdleCount() < 1; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, opened.get());
+
+        // Act
+        client.start(recordingCallback(new AtomicReference<>()));
+        client.sendAudio(new byte[320]);
+        String first = client.endStream().get(5, TimeUnit.SECONDS);
+        sentence = "再见。";
+        client.start(recordingCallback(new AtomicReference<>()));
+        client.sendAudio(new byte[320]);
+        String second = client.endStream().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("你好世界。", first);
+        assertEquals("再见。", second);
+        assertEquals(1, opened.get());
+        assertEquals(2, pool.getReusedCount());
+    }
+
+    @Test
+    void testUtterance_ExpiresWhileConnecting_ConnectionIsReleasedWhenItArrives() throws Exception {
+        // Arrange - connecting takes longer than the final timeout
+        server.setHandshakeDelayMs(300);
+        client = new DashScopeRealtimeClient(pool, "paraformer-realtime-v2", 50, 50);
+        client.start(recordingCallback(new AtomicReference<>()));
+
+        // Act
+        String result = client.endStream().get(5, TimeUnit.SECONDS);
+        server.setHandshakeDelayMs(0);
+
+        // Assert - the late connection is closed and returned, so the pool refills
+        assertEquals("", result);
+        for (int i = 0; i < 100 && pool.getIdleCount() < 1; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    void testTaskFailed_CompletesWithTextSoFarAndReportsError() throws Exception {
+        // Arrange
+        sentence = null;
+        AtomicReference<Exception> error = new AtomicReference<>();
+        client.start(recordingCallback(error));
+        client.sendAudio(new byte[320]);
+        awaitAudio(320);
+        String taskId = commands.poll(5, TimeUnit.SECONDS).path("header").path("task_id").asText();
+        server.getConnections().get(0).sendText(
+            event("result-generated", taskId, "{\"text\":\"你好\",\"sentence_end\":false}"));
+        for (int i = 0; i < 100 && partials.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        // Act
+        String result = client.endStream().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("你好", result);
+        assertTrue(error.get().getMessage().contains("InvalidParameter"));
+    }
+
+    @Test
+    void testConstructor_NullPool_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new DashScopeRealtimeClient(null));
+    }
+}
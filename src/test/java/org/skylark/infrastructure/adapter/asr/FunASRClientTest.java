@@ -0,0 +1,234 @@
+package org.skylark.infrastructure.adapter.asr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.skylark.infrastructure.adapter.MockWebSocketServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FunASRClient against a loopback FunASR-like WebSocket server
+ */
+class FunASRClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<String> texts = new LinkedBlockingQueue<>();
+    private final AtomicInteger audioBytes = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+    /** Offline text the server returns when the client ends an utterance; null = never answer */
+    private volatile String offlineReply = "你好，世界。";
+
+    private MockWebSocketServer server;
+    private FunASRClient client;
+    private final List<String> partials = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebSocketServer(new MockWebSocketServer.Handler() {
+            @Override
+            public void onOpen(MockWebSocketServer.Connection connection) {
+                opened.incrementAndGet();
+            }
+
+            @Override
+            public void onText(MockWebSocketServer.Connection connection, String text) {
+                texts.add(text);
+                if (text.contains("\"is_speaking\":false") && offlineReply != null) {
+                    send(connection, "{\"mode\":\"2pass-offline\",\"text\":\"" + offlineReply + "\",\"is_final\":true}");
+                }
+            }
+
+            @Override
+            public void onBinary(MockWebSocketServer.Connection connection, byte[] data) {
+                audioBytes.addAndGet(data.length);
+            }
+        });
+        client = new FunASRClient(server.getUrl(), 50, 300, FunASRClient.DEFAULT_MAX_REPLAY_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.disconnect();
+        server.close();
+    }
+
+    private static void send(MockWebSocketServer.Connection connection, String text) {
+        try {
+            connection.sendText(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private FunASRClient.ASRCallback recordingCallback() {
+        return new FunASRClient.ASRCallback() {
+            @Override public void onPartialResult(String text, boolean isStable) { partials.add(text); }
+            @Override public void onFinalResult(String text) {}
+            @Override public void onError(Exception e) {}
+            @Override public void onClose() {}
+        };
+    }
+
+    private void awaitAudio(int bytes) throws InterruptedException {
+        for (int i = 0; i < 100 && audioBytes.get() < bytes; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(bytes, audioBytes.get());
+    }
+
+    @Test
+    void testUtterance_SendsConfigAudioAndEndAndReturnsOfflineText() throws Exception {
+        // Arrange
+        client.setWavName("session-1");
+        client.connect(recordingCallback());
+
+        // Act
+        client.sendAudio(new byte[640]);
+        client.sendAudio(new byte[640]);
+        String result = client.endStream().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        JsonNode config = objectMapper.readTree(texts.poll(5, TimeUnit.SECONDS));
+        assertEquals("2pass", config.get("mode").asText());
+        assertTrue(config.get("is_speaking").asBoolean());
+        assertEquals("session-1#1", config.get("wav_name").asText());
+        assertEquals("{\"is_speaking\":false}", texts.poll(5, TimeUnit.SECONDS));
+        assertEquals(1280, audioBytes.get());
+        assertEquals("你好，世界。", result);
+    }
+
+    @Test
+    void testOnlineMessages_AccumulateIntoPartials() throws Exception {
+        // Arrange
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        awaitAudio(320);
+        MockWebSocketServer.Connection connection = server.getConnections().get(0);
+
+        // Act
+        connection.sendText("{\"mode\":\"2pass-online\",\"text\":\"你好\",\"is_final\":false}");
+        connection.sendText("{\"mode\":\"2pass-online\",\"text\":\"世界\",\"is_final\":false}");
+
+        // Assert
+        for (int i = 0; i < 100 && partials.size() < 2; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of("你好", "你好世界"), partials);
+    }
+
+    @Test
+    void testConnection_ReusedAcrossUtterances() throws Exception {
+        // Act
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        assertEquals("你好，世界。", client.endStream().get(5, TimeUnit.SECONDS));
+        offlineReply = "再见。";
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        String second = client.endStream().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("再见。", second);
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    void testReconnect_ReplaysUtteranceAudioAfterConnectionDrop() throws Exception {
+        // Arrange
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        awaitAudio(320);
+        server.getConnections().get(0).abort();
+        for (int i = 0; i < 100 && client.isConnected(); i++) {
+            Thread.sleep(20);
+        }
+
+        // Act
+        client.sendAudio(new byte[160]);
+        String result = client.endStream().get(5, TimeUnit.SECONDS);
+
+        // Assert - the new connection got the config again and all 480 bytes
+        assertEquals(2, opened.get());
+        awaitAudio(320 + 320 + 160);
+        assertEquals("你好，世界。", result);
+    }
+
+    @Test
+    void testEndStream_NoOfflineResult_FallsBackToOnlineTextAfterTimeout() throws Exception {
+        // Arrange
+        offlineReply = null;
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        awaitAudio(320);
+        server.getConnections().get(0).sendText("{\"mode\":\"2pass-online\",\"text\":\"你好\"}");
+        for (int i = 0; i < 100 && partials.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        // Act
+        CompletableFuture<String> result = client.endStream();
+
+        // Assert
+        assertEquals("你好", result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCancel_LateResultsOfCancelledUtteranceAreDropped() throws Exception {
+        // Arrange
+        offlineReply = null;
+        client.setWavName("s");
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        awaitAudio(320);
+        client.cancel();
+        client.connect(recordingCallback());
+        client.sendAudio(new byte[320]);
+        awaitAudio(640);
+        MockWebSocketServer.Connection connection = server.getConnections().get(0);
+
+        // Act - the cancelled utterance's result arrives after the new one started
+        connection.sendText("{\"mode\":\"2pass-offline\",\"text\":\"旧的\",\"wav_name\":\"s#1\",\"is_final\":true}");
+        connection.sendText("{\"mode\":\"2pass-online\",\"text\":\"新\",\"wav_name\":\"s#3\"}");
+        for (int i = 0; i < 100 && partials.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        // Assert
+        assertEquals(List.of("新"), partials);
+        assertEquals("新", client.endStream().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testEndStream_ServerUnreachable_BacksOffAndReturnsTextSoFar() throws Exception {
+        // Arrange
+        server.close();
+        BlockingQueue<Exception> errors = new LinkedBlockingQueue<>();
+        client.connect(new FunASRClient.ASRCallback() {
+            @Override public void onPartialResult(String text, boolean isStable) {}
+            @Override public void onFinalResult(String text) {}
+            @Override public void onError(Exception e) { errors.add(e); }
+            @Override public void onClose() {}
+        });
+        assertNotNull(errors.poll(5, TimeUnit.SECONDS));
+        client.sendAudio(new byte[320]);
+
+        // Act
+        CompletableFuture<String> result = client.endStream();
+
+        // Assert - within the backoff the utterance ends at once instead of reconnecting
+        assertTrue(result.isDone());
+        assertEquals("", result.get());
+    }
+}
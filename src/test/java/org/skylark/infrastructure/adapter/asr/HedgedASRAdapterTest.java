@@ -0,0 +1,214 @@
+package org.skylark.infrastructure.adapter.asr;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.skylark.infrastructure.adapter.ASR;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HedgedASRAdapter
+ */
+class HedgedASRAdapterTest {
+
+    /** 2 s of 16 kHz PCM16: longer than the short-utterance threshold used below */
+    private static final byte[] LONG_AUDIO = new byte[64_000];
+    /** 250 ms */
+    private static final byte[] SHORT_AUDIO = new byte[8_000];
+
+    private HedgedASRAdapter adapter;
+
+    @AfterEach
+    void tearDown() {
+        if (adapter != null) {
+            adapter.shutdown();
+        }
+    }
+
+    /** An engine that answers after {@code delayMs}, counting calls and interrupts */
+    private static final class FakeEngine implements ASR {
+        final String text;
+        final long delayMs;
+        final String confidence;
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        FakeEngine(String text, long delayMs, String confidence) {
+            this.text = text;
+            this.delayMs = delayMs;
+            this.confidence = confidence;
+        }
+
+        @Override
+        public String recognize(byte[] audioData) throws Exception {
+            return recognizeDetailed(audioData).get("text");
+        }
+
+        @Override
+        public Map<String, String> recognizeDetailed(byte[] audioData) throws Exception {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            if (text == null) {
+                throw new IllegalStateException("engine down");
+            }
+            Map<String, String> result = new HashMap<>();
+            result.put("text", text);
+            if (confidence != null) {
+                result.put("confidence", confidence);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void testRecognize_FastPrimary_NoHedge() throws Exception {
+        // Arrange
+        FakeEngine primary = new FakeEngine("local", 0, null);
+        FakeEngine secondary = new FakeEngine("remote", 0, null);
+        adapter = new HedgedASRAdapter(primary, secondary, 500, 3000, 1000, 0, false);
+
+        // Act
+        String text = adapter.recognize(LONG_AUDIO);
+
+        // Assert
+        assertEquals("local", text);
+        assertEquals(0, secondary.calls.get());
+        assertEquals(0L, adapter.getMetrics().get("hedged"));
+    }
+
+    @Test
+    void testRecognize_SlowPrimary_HedgeWinsAndPrimaryIsCancelled() throws Exception {
+        // Arrange
+        FakeEngine primary = new FakeEngine("local", 5_000, null);
+        FakeEngine secondary = new FakeEngine("remote", 0, null);
+        adapter = new HedgedASRAdapter(primary, secondary, 50, 3000, 1000, 0, false);
+
+        // Act
+        Map<String, String> result = adapter.recognizeDetailed(LONG_AUDIO);
+
+        // Assert
+        assertEquals("remote", result.get("text"));
+        assertEquals(HedgedASRAdapter.SECONDARY, result.get("engine"));
+        assertTrue(primary.interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1L, adapter.getMetrics().get("secondaryWins"));
+        // The cancelled primary is sampled with the time it had taken, a lower bound
+        assertEquals(1, adapter.getPrimaryLatency().getCount());
+        assertTrue(adapter.getPrimaryLatency().getMaxMillis() >= 50);
+    }
+
+    @Test
+    void testRecognize_ShortUtterance_HedgedImmediately() throws Exception {
+        // Arrange - the delay alone would never hedge
+        FakeEngine primary = new FakeEngine("local", 300, null);
+        FakeEngine secondary = new FakeEngine("remote", 0, null);
+        adapter = new HedgedASRAdapter(primary, secondary, 60_000, 60_000, 1000, 0, false);
+
+        // Act
+        String text = adapter.recognize(SHORT_AUDIO);
+
+        // Assert
+        assertEquals("remote", text);
+        assertEquals(1, secondary.calls.get());
+    }
+
+    @Test
+    void testRecognize_DeadlineMode_PicksHigherConfidence() throws Exception {
+        // Arrange - primary answers first but is less sure
+        FakeEngine primary = new FakeEngine("天汽", 0, "0.4");
+        FakeEngine secondary = new FakeEngine("天气", 100, "0.9");
+        adapter = new HedgedASRAdapter(primary, secondary, 0, 3000, 0, 2000, false);
+
+        // Act
+        String text = adapter.recognize(LONG_AUDIO);
+
+        // Assert
+        assertEquals("天气", text);
+    }
+
+    @Test
+    void testRecognize_DeadlineMode_NoAnswerInTime_ReturnsWhatSucceededOrTimesOut() throws Exception {
+        // Arrange - only the secondary answers before the deadline; then neither does
+        FakeEngine slow = new FakeEngine("slow", 5000, "0.9");
+        adapter = new HedgedASRAdapter(slow, new FakeEngine("fast", 0, "0.1"), 0, 3000, 0, 200, false);
+        HedgedASRAdapter silent = new HedgedASRAdapter(new FakeEngine("a", 5000, null),
+            new FakeEngine("b", 5000, null), 0, 3000, 0, 200, false);
+
+        // Act
+        String text = adapter.recognize(LONG_AUDIO);
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> silent.recognize(LONG_AUDIO));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        silent.shutdown();
+
+        // Assert
+        assertEquals("fast", text);
+        assertTrue(slow.interrupted.await(1, TimeUnit.SECONDS), "The unfinished call should be cancelled");
+        assertTrue(elapsedMs < 2000, "Should fail at the deadline, took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void testRecognize_FirstResultMode_NoAnswerWithinTimeout_TimesOut() {
+        // Arrange
+        adapter = new HedgedASRAdapter(new FakeEngine("a", 5000, null), new FakeEngine("b", 5000, null),
+            0, 3000, 0, 0, 200, false);
+
+        // Act
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> adapter.recognize(LONG_AUDIO));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert
+        assertTrue(elapsedMs < 2000, "Should fail at the timeout, took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void testRecognize_PrimaryFails_SecondaryAnswersAndBothFailingThrows() throws Exception {
+        // Arrange
+        adapter = new HedgedASRAdapter(new FakeEngine(null, 0, null), new FakeEngine("remote", 0, null),
+            60_000, 60_000, 0, 0, false);
+        HedgedASRAdapter allDown = new HedgedASRAdapter(new FakeEngine(null, 0, null),
+            new FakeEngine(null, 0, null), 0, 0, 0, 0, false);
+
+        // Act & Assert
+        assertEquals("remote", adapter.recognize(LONG_AUDIO));
+        Exception e = assertThrows(Exception.class, () -> allDown.recognize(LONG_AUDIO));
+        assertTrue(e.getMessage().contains("engine down"));
+        allDown.shutdown();
+    }
+
+    @Test
+    void testGetHedgeDelayMs_AdaptsToPrimaryP95() throws Exception {
+        // Arrange
+        FakeEngine primary = new FakeEngine("local", 0, null);
+        adapter = new HedgedASRAdapter(primary, new FakeEngine("remote", 0, null), 400, 3000, 0, 0, true);
+        assertEquals(400, adapter.getHedgeDelayMs());
+
+        // Act
+        for (int i = 0; i < HedgedASRAdapter.MIN_ADAPTIVE_SAMPLES; i++) {
+            adapter.recognize(LONG_AUDIO);
+        }
+
+        // Assert - a primary that answers at once is hedged only after the floor delay
+        assertEquals(HedgedASRAdapter.MIN_HEDGE_DELAY_MS, adapter.getHedgeDelayMs());
+    }
+
+    @Test
+    void testConstructor_MissingSecondary_ThrowsIllegalArgumentException() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("primary", Map.of("class_name", "org.skylark.infrastructure.adapter.DirectASRAdapter"));
+
+        assertThrows(IllegalArgumentException.class, () -> new HedgedASRAdapter(config));
+    }
+}
@@ -1,9 +1,17 @@
 package org.skylark.infrastructure.adapter.asr;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -124,6 +132,52 @@ class QwenASRAdapterTest {
         assertDoesNotThrow(() -> new QwenASRAdapter(config));
     }
 
+    // --- Request body tests (loopback HTTP server) ---
+
+    @Test
+    void testRecognize_SendsWavAsBase64InJsonBodyWithContentLength() throws Exception {
+        // Arrange
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        AtomicReference<byte[]> requestBody = new AtomicReference<>();
+        AtomicReference<String> contentLength = new AtomicReference<>();
+        server.createContext("/", exchange -> {
+            requestBody.set(exchange.getRequestBody().readAllBytes());
+            contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+            byte[] reply = "{\"output\":{\"sentence\":[{\"text\":\"你好\"}]}}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, reply.length);
+            exchange.getResponseBody().write(reply);
+            exchange.close();
+        });
+        server.start();
+        Map<String, Object> config = new HashMap<>();
+        config.put("apiKey", "test-api-key");
+        config.put("serviceUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/asr");
+        QwenASRAdapter adapter = new QwenASRAdapter(config);
+        byte[] pcm = new byte[3201];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (byte) i;
+        }
+
+        // Act
+        String text;
+        try {
+            text = adapter.recognize(pcm);
+        } finally {
+            server.stop(0);
+        }
+
+        // Assert
+        assertEquals("你好", text);
+        assertEquals(String.valueOf(requestBody.get().length), contentLength.get());
+        JsonNode body = new ObjectMapper().readTree(requestBody.get());
+        assertEquals("wav", body.path("input").path("format").asText());
+        byte[] wav = Base64.getDecoder().decode(body.path("input").path("audio").asText());
+        assertEquals(44 + pcm.length, wav.length);
+        assertEquals("RIFF", new String(wav, 0, 4, StandardCharsets.US_ASCII));
+        assertArrayEquals(pcm, Arrays.copyOfRange(wav, 44, wav.length));
+    }
+
     // --- Helper ---
 
     private QwenASRAdapter buildAdapter() {
@@ -137,7 +137,7 @@ class AgoraClientAdapterImplTest {
 
         // Act
         AgoraClientAdapter.AudioFrameCallback callback =
-            (ch, uid, pcm, rate, channels) -> {};
+            (ch, uid, frame) -> {};
         adapter.registerAudioFrameCallback("test-channel", callback);
 
         // No assertion needed — just verifying it doesn't throw
@@ -213,7 +213,7 @@ class AgoraClientAdapterImplTest {
 
         // Register a callback before joining
         AgoraClientAdapter.AudioFrameCallback callback =
-            (ch, uid, pcm, rate, channels) -> {};
+            (ch, uid, frame) -> {};
         adapter.registerAudioFrameCallback("test-channel", callback);
 
         // Act & Assert - full lifecycle should not throw
@@ -235,8 +235,8 @@ class AgoraClientAdapterImplTest {
         adapter.init();
 
         // Join channels and register callbacks
-        adapter.registerAudioFrameCallback("ch-1", (ch, uid, pcm, rate, channels) -> {});
-        adapter.registerAudioFrameCallback("ch-2", (ch, uid, pcm, rate, channels) -> {});
+        adapter.registerAudioFrameCallback("ch-1", (ch, uid, frame) -> {});
+        adapter.registerAudioFrameCallback("ch-2", (ch, uid, frame) -> {});
         adapter.joinChannel("ch-1", "user-1");
         adapter.joinChannel("ch-2", "user-2");
 
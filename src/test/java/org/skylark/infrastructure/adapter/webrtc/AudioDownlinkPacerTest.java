@@ -0,0 +1,175 @@
+package org.skylark.infrastructure.adapter.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.skylark.common.audio.AudioStreamFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AudioDownlinkPacer
+ * AudioDownlinkPacer 单元测试
+ */
+class AudioDownlinkPacerTest {
+
+    private AudioDownlinkPacer pacer;
+
+    @AfterEach
+    void tearDown() {
+        if (pacer != null) {
+            pacer.shutdown();
+        }
+    }
+
+    @Test
+    void testEnqueueWav_StripsHeaderAndSendsFramesWithMonotonicTimestamps() throws Exception {
+        // Arrange - 25 ms of 8 kHz mono PCM (400 bytes) → 3 frames of 160 bytes, last one padded
+        pacer = new AudioDownlinkPacer(10, 2);
+        List<Sent> sent = new CopyOnWriteArrayList<>();
+        pacer.open("s1", (pcm, ts, sr, ch) -> sent.add(new Sent(pcm, ts, sr, ch)));
+        byte[] samples = new byte[400];
+        samples[0] = 42;
+        samples[399] = 7;
+
+        // Act
+        assertTrue(pacer.enqueue("s1", wav(samples, 8000, 1), AudioStreamFormat.WAV_16K_MONO));
+
+        // Assert
+        waitUntil(() -> sent.size() == 3);
+        assertEquals(3, sent.size());
+        for (Sent frame : sent) {
+            assertEquals(160, frame.pcm.length);
+            assertEquals(8000, frame.sampleRate);
+            assertEquals(1, frame.channels);
+        }
+        assertEquals(42, sent.get(0).pcm[0]);
+        assertEquals(7, sent.get(2).pcm[79]);
+        assertEquals(0, sent.get(2).pcm[80]);
+        assertEquals(sent.get(0).timestampMs + 10, sent.get(1).timestampMs);
+        assertEquals(sent.get(1).timestampMs + 10, sent.get(2).timestampMs);
+    }
+
+    @Test
+    void testEnqueueWav_OddRate_FramesHoldWholeSamples() throws Exception {
+        // Arrange - 22.05 kHz: 10 ms is 220.5 samples, so a frame carries 220 (440 bytes)
+        pacer = new AudioDownlinkPacer(10, 2);
+        List<Sent> sent = new CopyOnWriteArrayList<>();
+        pacer.open("s1", (pcm, ts, sr, ch) -> sent.add(new Sent(pcm, ts, sr, ch)));
+
+        // Act
+        pacer.enqueue("s1", wav(new byte[880], 22050, 1), AudioStreamFormat.WAV_16K_MONO);
+
+        // Assert
+        waitUntil(() -> sent.size() == 2);
+        for (Sent frame : sent) {
+            assertEquals(440, frame.pcm.length);
+            assertEquals(22050, frame.sampleRate);
+        }
+    }
+
+    @Test
+    void testEnqueue_SendsAtRealTimeRateNotAllAtOnce() throws Exception {
+        // Arrange - 1 s of 16 kHz mono PCM
+        pacer = new AudioDownlinkPacer(10, 2);
+        List<Sent> sent = new CopyOnWriteArrayList<>();
+        pacer.open("s1", (pcm, ts, sr, ch) -> sent.add(new Sent(pcm, ts, sr, ch)));
+
+        // Act
+        pacer.enqueue("s1", ByteBuffer.wrap(new byte[32000]), AudioStreamFormat.PCM_16K_MONO);
+        Thread.sleep(50);
+
+        // Assert
+        assertTrue(sent.size() < 50, "Frames should be paced, got " + sent.size());
+        assertTrue(pacer.getQueuedMs("s1") > 500);
+    }
+
+    @Test
+    void testFlush_DropsUnsentAudio() throws Exception {
+        // Arrange
+        pacer = new AudioDownlinkPacer(10, 2);
+        List<Sent> sent = new CopyOnWriteArrayList<>();
+        pacer.open("s1", (pcm, ts, sr, ch) -> sent.add(new Sent(pcm, ts, sr, ch)));
+        pacer.enqueue("s1", ByteBuffer.wrap(new byte[32000]), AudioStreamFormat.PCM_16K_MONO);
+        waitUntil(() -> !sent.isEmpty());
+
+        // Act
+        pacer.flush("s1");
+        int sentAtFlush = sent.size();
+        Thread.sleep(50);
+
+        // Assert
+        assertTrue(sent.size() <= sentAtFlush + 1, "At most one in-flight frame after flush");
+        assertEquals(0, pacer.getQueuedMs("s1"));
+        assertTrue(pacer.getFlushedBytes() > 0);
+    }
+
+    @Test
+    void testEnqueue_OtherRate_ConvertedToOutputFormat() throws Exception {
+        // Arrange - 20 ms of 22.05 kHz stereo → 16 kHz mono: two frames of 320 bytes
+        pacer = new AudioDownlinkPacer(10, 2, 16000, 1);
+        List<Sent> sent = new CopyOnWriteArrayList<>();
+        pacer.open("s1", (pcm, ts, sr, ch) -> sent.add(new Sent(pcm, ts, sr, ch)));
+
+        // Act
+        pacer.enqueue("s1", wav(new byte[441 * 2 * 2], 22050, 2), AudioStreamFormat.WAV_16K_MONO);
+
+        // Assert
+        waitUntil(() -> sent.size() == 2);
+        assertEquals(2, sent.size());
+        for (Sent frame : sent) {
+            assertEquals(320, frame.pcm.length);
+            assertEquals(16000, frame.sampleRate);
+            assertEquals(1, frame.channels);
+        }
+    }
+
+    @Test
+    void testEnqueue_SessionNotOpen_ReturnsFalse() {
+        pacer = new AudioDownlinkPacer();
+        assertFalse(pacer.enqueue("missing", ByteBuffer.wrap(new byte[320]), AudioStreamFormat.PCM_16K_MONO));
+    }
+
+    @Test
+    void testConstructor_InvalidArguments_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new AudioDownlinkPacer(15, 2));
+        assertThrows(IllegalArgumentException.class, () -> new AudioDownlinkPacer(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AudioDownlinkPacer(10, 2, 16000, 0));
+    }
+
+    private static ByteBuffer wav(byte[] pcm, int sampleRate, int channels) {
+        ByteBuffer wav = ByteBuffer.allocate(44 + pcm.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + pcm.length).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+            .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2))
+            .putShort((short) 16);
+        wav.put("data".getBytes()).putInt(pcm.length).put(pcm);
+        wav.flip();
+        return wav;
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class Sent {
+        final byte[] pcm;
+        final long timestampMs;
+        final int sampleRate;
+        final int channels;
+
+        Sent(byte[] pcm, long timestampMs, int sampleRate, int channels) {
+            this.pcm = pcm;
+            this.timestampMs = timestampMs;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+        }
+    }
+}
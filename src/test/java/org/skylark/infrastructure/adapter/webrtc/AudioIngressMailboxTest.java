@@ -0,0 +1,174 @@
+package org.skylark.infrastructure.adapter.webrtc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.common.audio.AudioFramePool;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AudioIngressMailbox
+ * AudioIngressMailbox 单元测试
+ */
+class AudioIngressMailboxTest {
+
+    private AudioIngressMailbox mailbox;
+
+    @AfterEach
+    void tearDown() {
+        if (mailbox != null) {
+            mailbox.shutdown();
+        }
+    }
+
+    @Test
+    void testOffer_ReturnsImmediatelyAndProcessesInOrder() throws Exception {
+        // Arrange
+        mailbox = new AudioIngressMailbox(8, AudioIngressMailbox.OverflowPolicy.DROP_OLDEST_SILENCE, 0, 500);
+        List<Short> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        mailbox.open("s1", frame -> {
+            seen.add(frame.data().getShort(0));
+            done.countDown();
+        });
+
+        // Act
+        for (short i = 1; i <= 3; i++) {
+            assertTrue(mailbox.offer("s1", frame(i)));
+        }
+
+        // Assert
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of((short) 1, (short) 2, (short) 3), seen);
+        assertEquals(3, mailbox.getEnqueuedCount());
+    }
+
+    @Test
+    void testOverflow_DropOldestSilence_EvictsSilentFrameFirst() throws Exception {
+        // Arrange - handler blocks so the queue fills up behind the first frame
+        mailbox = new AudioIngressMailbox(2, AudioIngressMailbox.OverflowPolicy.DROP_OLDEST_SILENCE, 0, 500);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Short> seen = new CopyOnWriteArrayList<>();
+        mailbox.open("s1", frame -> {
+            started.countDown();
+            gate.await();
+            seen.add(frame.data().getShort(0));
+        });
+        mailbox.offer("s1", frame((short) 9000));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        // Act - queue: [speech, silence], then one more speech frame overflows
+        mailbox.offer("s1", frame((short) 8000));
+        mailbox.offer("s1", frame((short) 0));
+        boolean accepted = mailbox.offer("s1", frame((short) 7000));
+
+        // Assert
+        assertTrue(accepted);
+        assertEquals(1, mailbox.getDroppedSilenceCount());
+        assertEquals(0, mailbox.getDroppedSpeechCount());
+        assertEquals(2, mailbox.getQueueDepth("s1"));
+        assertEquals(2, mailbox.getHighWaterMark("s1"));
+        gate.countDown();
+    }
+
+    @Test
+    void testOverflow_Block_DropsIncomingAfterTimeout() throws Exception {
+        // Arrange
+        mailbox = new AudioIngressMailbox(1, AudioIngressMailbox.OverflowPolicy.BLOCK, 10, 500);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        mailbox.open("s1", frame -> {
+            started.countDown();
+            gate.await();
+        });
+        mailbox.offer("s1", frame((short) 1000));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        mailbox.offer("s1", frame((short) 1000));
+
+        // Act
+        boolean accepted = mailbox.offer("s1", frame((short) 1000));
+
+        // Assert
+        assertFalse(accepted);
+        assertEquals(1, mailbox.getBlockedOfferCount());
+        assertEquals(1, mailbox.getDroppedSpeechCount());
+        gate.countDown();
+    }
+
+    @Test
+    void testPooledFrame_RetainedWhileQueuedAndReleasedAfterProcessing() throws Exception {
+        // Arrange
+        mailbox = new AudioIngressMailbox();
+        AudioFramePool pool = new AudioFramePool(640, 4, false);
+        CountDownLatch done = new CountDownLatch(1);
+        mailbox.open("s1", frame -> done.countDown());
+        AudioFrame frame = pool.acquire(320, 16000, 1);
+
+        // Act - producer releases its own reference right after offering
+        mailbox.offer("s1", frame);
+        frame.release();
+
+        // Assert
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        waitUntil(() -> pool.getPooledCount() == 1);
+        assertEquals(1, pool.getPooledCount());
+    }
+
+    @Test
+    void testClose_ReleasesQueuedFramesAndRejectsNewOnes() throws Exception {
+        // Arrange
+        mailbox = new AudioIngressMailbox(4, AudioIngressMailbox.OverflowPolicy.DROP_OLDEST_SILENCE, 0, 500);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        mailbox.open("s1", frame -> {
+            started.countDown();
+            gate.await();
+        });
+        mailbox.offer("s1", frame((short) 1));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        AudioFrame queued = frame((short) 2);
+        mailbox.offer("s1", queued);
+
+        // Act
+        mailbox.close("s1");
+        gate.countDown();
+
+        // Assert
+        assertEquals(1, queued.refCount());
+        assertFalse(mailbox.offer("s1", frame((short) 3)));
+        assertEquals(0, mailbox.getSessionCount());
+    }
+
+    @Test
+    void testOverflowPolicy_FromString_ParsesKebabCase() {
+        assertEquals(AudioIngressMailbox.OverflowPolicy.DROP_OLDEST_SILENCE,
+            AudioIngressMailbox.OverflowPolicy.fromString("drop-oldest-silence"));
+        assertEquals(AudioIngressMailbox.OverflowPolicy.BLOCK,
+            AudioIngressMailbox.OverflowPolicy.fromString("block"));
+        assertThrows(IllegalArgumentException.class,
+            () -> AudioIngressMailbox.OverflowPolicy.fromString("drop-newest"));
+    }
+
+    private AudioFrame frame(short value) {
+        byte[] pcm = new byte[320];
+        for (int i = 0; i < pcm.length; i += 2) {
+            pcm[i] = (byte) value;
+            pcm[i + 1] = (byte) (value >> 8);
+        }
+        return AudioFrame.wrap(pcm, 16000, 1);
+    }
+
+    private void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
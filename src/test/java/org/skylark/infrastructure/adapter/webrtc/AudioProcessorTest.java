@@ -8,6 +8,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.skylark.application.service.ASRService;
 import org.skylark.application.service.VADService;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -86,7 +87,7 @@ class AudioProcessorTest {
         
         // Assert
         assertNull(result);
-        verify(vadService, never()).detect(anyString(), anyString());
+        verify(vadService, never()).detect(any(ByteBuffer.class), anyString());
     }
     
     @Test
@@ -96,7 +97,7 @@ class AudioProcessorTest {
         
         // Assert
         assertNull(result);
-        verify(vadService, never()).detect(anyString(), anyString());
+        verify(vadService, never()).detect(any(ByteBuffer.class), anyString());
     }
     
     @Test
@@ -106,7 +107,7 @@ class AudioProcessorTest {
         Map<String, Object> vadResult = new HashMap<>();
         vadResult.put("status", "start");
         
-        when(vadService.detect(anyString(), eq(TEST_SESSION_ID)))
+        when(vadService.detect(any(ByteBuffer.class), eq(TEST_SESSION_ID)))
             .thenReturn(vadResult);
         
         // Act
@@ -115,7 +116,7 @@ class AudioProcessorTest {
         // Assert
         assertEquals("start", result);
         assertTrue(audioProcessor.isSpeaking());
-        verify(vadService, times(1)).detect(anyString(), eq(TEST_SESSION_ID));
+        verify(vadService, times(1)).detect(any(ByteBuffer.class), eq(TEST_SESSION_ID));
     }
     
     @Test
@@ -127,7 +128,7 @@ class AudioProcessorTest {
         // First set speaking to true
         Map<String, Object> startResult = new HashMap<>();
         startResult.put("status", "start");
-        when(vadService.detect(anyString(), eq(TEST_SESSION_ID)))
+        when(vadService.detect(any(ByteBuffer.class), eq(TEST_SESSION_ID)))
             .thenReturn(startResult);
         audioProcessor.processAudioChunk(audioData1);
         
@@ -137,9 +138,9 @@ class AudioProcessorTest {
         Map<String, String> asrResult = new HashMap<>();
         asrResult.put("text", "recognized text");
         
-        when(vadService.detect(anyString(), eq(TEST_SESSION_ID)))
+        when(vadService.detect(any(ByteBuffer.class), eq(TEST_SESSION_ID)))
             .thenReturn(endResult);
-        when(asrService.recognize(any(byte[].class)))
+        when(asrService.recognize(any(ByteBuffer.class), anyString()))
             .thenReturn(asrResult);
         
         // Act
@@ -148,7 +149,7 @@ class AudioProcessorTest {
         // Assert
         assertEquals("end", result);
         assertFalse(audioProcessor.isSpeaking());
-        verify(asrService, times(1)).recognize(any(byte[].class));
+        verify(asrService, times(1)).recognize(any(ByteBuffer.class), anyString());
     }
     
     @Test
@@ -157,7 +158,7 @@ class AudioProcessorTest {
         byte[] audioData = new byte[1024];
         Map<String, Object> vadResult = new HashMap<>();
         vadResult.put("status", "start");
-        when(vadService.detect(anyString(), eq(TEST_SESSION_ID)))
+        when(vadService.detect(any(ByteBuffer.class), eq(TEST_SESSION_ID)))
             .thenReturn(vadResult);
         audioProcessor.processAudioChunk(audioData);
         assertTrue(audioProcessor.isSpeaking());
@@ -176,7 +177,7 @@ class AudioProcessorTest {
         
         // Assert
         assertNull(result);
-        verify(asrService, never()).recognize(any(byte[].class));
+        verify(asrService, never()).recognize(any(ByteBuffer.class), anyString());
     }
     
     @Test
@@ -186,7 +187,7 @@ class AudioProcessorTest {
         
         // Assert
         assertNull(result);
-        verify(asrService, never()).recognize(any(byte[].class));
+        verify(asrService, never()).recognize(any(ByteBuffer.class), anyString());
     }
     
     @Test
@@ -195,14 +196,14 @@ class AudioProcessorTest {
         byte[] audioData = new byte[1024];
         Map<String, String> asrResult = new HashMap<>();
         asrResult.put("text", "hello world");
-        when(asrService.recognize(audioData)).thenReturn(asrResult);
+        when(asrService.recognize(eq(ByteBuffer.wrap(audioData)), anyString())).thenReturn(asrResult);
         
         // Act
         String result = audioProcessor.recognizeSpeech(audioData);
         
         // Assert
         assertEquals("hello world", result);
-        verify(asrService, times(1)).recognize(audioData);
+        verify(asrService, times(1)).recognize(eq(ByteBuffer.wrap(audioData)), anyString());
     }
     
     @Test
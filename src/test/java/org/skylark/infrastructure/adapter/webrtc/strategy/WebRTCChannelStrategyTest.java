@@ -7,15 +7,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.kurento.client.MediaPipeline;
 import org.kurento.client.WebRtcEndpoint;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.skylark.application.service.OrchestrationService;
+import org.skylark.common.audio.AudioFrame;
+import org.skylark.common.audio.AudioStreamFormat;
 import org.skylark.infrastructure.adapter.webrtc.AgoraClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.AliRTCClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.KurentoClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.LiveKitClientAdapter;
 import org.skylark.infrastructure.adapter.webrtc.strategy.AliRTCChannelStrategy;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -335,6 +340,48 @@ class WebRTCChannelStrategyTest {
         verify(agoraClient).generateToken(anyString(), eq("user-123"), eq(3600));
         verify(agoraClient).registerAudioFrameCallback(anyString(), any());
     }
+
+    @Test
+    void testAgoraStrategy_AudioFrameCallback_QueuesFrameToOrchestration() {
+        when(agoraClient.generateToken(anyString(), eq("user-123"), eq(3600)))
+            .thenReturn("agora-test-token");
+        ArgumentCaptor<AgoraClientAdapter.AudioFrameCallback> captor =
+            ArgumentCaptor.forClass(AgoraClientAdapter.AudioFrameCallback.class);
+
+        AgoraChannelStrategy strategy = new AgoraChannelStrategy(agoraClient, orchestrationService);
+        String sessionId = strategy.createSession("user-123");
+        verify(agoraClient).registerAudioFrameCallback(anyString(), captor.capture());
+
+        AudioFrame frame = AudioFrame.wrap(new byte[320], 16000, 1);
+        captor.getValue().onAudioFrame("channel", "remote-user", frame);
+
+        // Delivered asynchronously through the session mailbox
+        verify(orchestrationService, timeout(2000)).processAudioStream(eq(sessionId), same(frame), any());
+    }
+    
+    @Test
+    void testAgoraStrategy_SendAudio_ResamplesAndPacesPcmFramesToSdk() {
+        when(agoraClient.generateToken(anyString(), eq("user-123"), eq(3600)))
+            .thenReturn("agora-test-token");
+        ArgumentCaptor<AgoraClientAdapter.AudioFrameCallback> captor =
+            ArgumentCaptor.forClass(AgoraClientAdapter.AudioFrameCallback.class);
+        ArgumentCaptor<OrchestrationService.ResponseCallback> responseCaptor =
+            ArgumentCaptor.forClass(OrchestrationService.ResponseCallback.class);
+
+        AgoraChannelStrategy strategy = new AgoraChannelStrategy(agoraClient, orchestrationService);
+        String sessionId = strategy.createSession("user-123");
+        verify(agoraClient).registerAudioFrameCallback(anyString(), captor.capture());
+        captor.getValue().onAudioFrame("channel", "remote-user", AudioFrame.wrap(new byte[320], 16000, 1));
+        verify(orchestrationService, timeout(2000))
+            .processAudioStream(eq(sessionId), any(AudioFrame.class), responseCaptor.capture());
+
+        // 20 ms at 24 kHz mono → resampled to 16 kHz → two 10 ms frames of 320 bytes
+        responseCaptor.getValue().sendAudio(sessionId, ByteBuffer.wrap(new byte[960]),
+            new AudioStreamFormat(AudioStreamFormat.Encoding.PCM_S16LE, 24000, 1));
+
+        verify(agoraClient, timeout(2000).times(2))
+            .sendAudioFrame(anyString(), argThat(pcm -> pcm.length == 320), eq(16000), eq(1), anyLong());
+    }
     
     @Test
     void testAgoraStrategy_ProcessOffer_ReturnsConnectionInfo() {
@@ -4,18 +4,32 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.skylark.application.controller.RobotController;
+import org.skylark.application.dto.SessionStartRequest;
+import org.skylark.application.service.ASRService;
+import org.skylark.application.service.AgentService;
 import org.skylark.application.service.OrchestrationService;
+import org.skylark.application.service.TTSService;
+import org.skylark.application.service.VADService;
+import org.skylark.application.service.WebRTCService;
+import org.skylark.common.audio.AudioStreamFormat;
+import org.skylark.common.audio.ImaAdpcmCodec;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -104,11 +118,99 @@ class WebRTCSignalingHandlerTest {
         // Assert
         verify(orchestrationService, times(1)).processAudioStream(
             eq("test-session"),
-            any(byte[].class),
+            any(ByteBuffer.class),
             any(OrchestrationService.ResponseCallback.class)
         );
     }
 
+    @Test
+    void testSendAudio_SendsBinaryMessageWithHeader() throws Exception {
+        // Arrange
+        handler.afterConnectionEstablished(session);
+        handler.handleBinaryMessage(session, new BinaryMessage(ByteBuffer.wrap(new byte[320])));
+        ArgumentCaptor<OrchestrationService.ResponseCallback> callbackCaptor =
+            ArgumentCaptor.forClass(OrchestrationService.ResponseCallback.class);
+        verify(orchestrationService).processAudioStream(eq("test-session"), any(ByteBuffer.class),
+            callbackCaptor.capture());
+        byte[] tts = {10, 20, 30, 40};
+
+        // Act
+        callbackCaptor.getValue().sendAudio("test-session", ByteBuffer.wrap(tts),
+            AudioStreamFormat.WAV_16K_MONO);
+
+        // Assert
+        ArgumentCaptor<WebSocketMessage<?>> messageCaptor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, times(2)).sendMessage(messageCaptor.capture()); // "connected" text + audio
+        assertInstanceOf(BinaryMessage.class, messageCaptor.getValue());
+        ByteBuffer sent = ((BinaryMessage) messageCaptor.getValue()).getPayload();
+        assertEquals(BinaryAudioMessage.HEADER_BYTES + tts.length, sent.remaining());
+        assertEquals(AudioStreamFormat.WAV_16K_MONO, BinaryAudioMessage.decodeFormat(sent));
+        ByteBuffer payload = BinaryAudioMessage.payload(sent);
+        byte[] received = new byte[payload.remaining()];
+        payload.get(received);
+        assertArrayEquals(tts, received);
+    }
+
+    @Test
+    void testSessionStart_ModelChoiceReachesSocketSessionDecodes() throws Exception {
+        // Arrange - real ASR behind the REST start and the socket, placeholder decoding
+        ASRService asrService = new ASRService();
+        ReflectionTestUtils.setField(asrService, "registryModels", "en=/missing/en");
+        OrchestrationService orchestration = new OrchestrationService(
+            mock(VADService.class), asrService, mock(TTSService.class), mock(AgentService.class));
+        RobotController controller = new RobotController(orchestration, mock(WebRTCService.class));
+        WebRTCSignalingHandler realHandler = new WebRTCSignalingHandler(orchestration);
+        SessionStartRequest request = new SessionStartRequest();
+        request.setClientId("test-client");
+        request.setLanguage("en");
+        String websocketUrl = controller.startSession(request).getBody().getWebsocketUrl();
+        when(session.getUri()).thenReturn(URI.create("ws://localhost" + websocketUrl));
+
+        // Act
+        realHandler.afterConnectionEstablished(session);
+        Map<String, String> result = asrService.recognize(ByteBuffer.wrap(new byte[640]), "test-session");
+
+        // Assert - the socket's session decodes with the requested language
+        assertEquals("en", asrService.getLanguage("test-session"));
+        assertEquals("en", result.get("language"));
+        realHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        assertEquals("zh", asrService.getLanguage("test-session"));
+    }
+
+    @Test
+    void testCodecNegotiation_AdpcmDecodesUplinkAndEncodesDownlink() throws Exception {
+        // Arrange - opus is not supported, so the server picks the next offer
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/webrtc?codecs=opus,adpcm"));
+        handler.afterConnectionEstablished(session);
+        ArgumentCaptor<TextMessage> connectedCaptor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session).sendMessage(connectedCaptor.capture());
+        assertEquals("adpcm", objectMapper.readTree(connectedCaptor.getValue().getPayload()).get("codec").asText());
+        ImaAdpcmCodec codec = new ImaAdpcmCodec();
+        ByteBuffer uplink = codec.encode(ByteBuffer.wrap(new byte[640]));
+
+        // Act
+        handler.handleBinaryMessage(session, new BinaryMessage(uplink));
+
+        // Assert - the pipeline sees 20 ms of PCM16
+        ArgumentCaptor<ByteBuffer> pcmCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
+        ArgumentCaptor<OrchestrationService.ResponseCallback> callbackCaptor =
+            ArgumentCaptor.forClass(OrchestrationService.ResponseCallback.class);
+        verify(orchestrationService).processAudioStream(eq("test-session"), pcmCaptor.capture(),
+            callbackCaptor.capture());
+        assertEquals(640, pcmCaptor.getValue().remaining());
+
+        // Act - downlink
+        callbackCaptor.getValue().sendAudio("test-session", ByteBuffer.wrap(new byte[640]),
+            AudioStreamFormat.PCM_16K_MONO);
+
+        // Assert
+        ArgumentCaptor<WebSocketMessage<?>> messageCaptor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, times(2)).sendMessage(messageCaptor.capture());
+        ByteBuffer sent = ((BinaryMessage) messageCaptor.getValue()).getPayload();
+        assertEquals(AudioStreamFormat.Encoding.IMA_ADPCM, BinaryAudioMessage.decodeFormat(sent).getEncoding());
+        assertEquals(640, codec.decode(BinaryAudioMessage.payload(sent)).remaining());
+    }
+
     @Test
     void testAfterConnectionClosed() throws Exception {
         // Arrange